@@ -30,6 +30,7 @@ public class Constants {
     public static final String JVM_CLASSPATH_ENVVAR_NAME = "REDIT_JVM_CLASSPATH";
     public static final String INSTRUMENTATION_POINT_MAIN = "main";
     public static final String DEFAULT_BASE_DOCKER_IMAGE_NAME = "ubuntu";
+    public static final String JVM_CLASSPATH_BUNDLE_PATH = "/redit_classpath";
 
     // Execution Engine
     public final static String DEFAULT_WORKING_DIRECTORY_NAME = ".ReditWorkingDirectory";
@@ -42,13 +43,53 @@ public class Constants {
     public final static String FAKETIME_LIB_FILE_NAME= "libfaketime.so.1";
     public final static String FAKETIMEMT_LIB_FILE_NAME= "libfaketimeMT.so.1";
     public final static String WRAPPER_SCRIPT_NAME = "redit_wrapper_script";
+    public final static String WRAPPER_SCRIPT_FILE_NAME = "wrapper_script";
     public final static String DO_INIT_FILE_NAME = "redit_do_init";
     public final static String CONSOLE_OUTERR_FILE_NAME = "redit_out_err";
     public final static String DECOMPRESSED_DIRECTORIES_ROOT_NAME = "decompressed";
     public final static String DOCKER_NETWORK_NAME_PREFIX = "redit_";
     public final static String DOCKER_CONTAINER_NAME_PREFIX = "redit_";
+    public final static String DOCKER_IMAGE_HASH_TAG_PREFIX = "redit-";
     public final static Integer DEFAULT_SECONDS_TO_WAIT_BEFORE_FORCED_RESTART = 5;
     public final static Integer DEFAULT_SECONDS_TO_WAIT_BEFORE_FORCED_STOP = 5;
     public final static String REDIT_EVENT_SERVER_IP_ADDRESS_ENV_VAR = "REDIT_EVENT_SERVER_IP_ADDRESS";
     public final static String REDIT_EVENT_SERVER_PORT_NUMBER_ENV_VAR = "REDIT_EVENT_SERVER_PORT_NUMBER";
+    public final static String REDIT_EVENT_SERVER_NAMESPACE_ENV_VAR = "REDIT_EVENT_SERVER_NAMESPACE";
+    public final static String REDIT_NODE_NAME_ENV_VAR = "REDIT_NODE_NAME";
+    public final static String REDIT_NODE_IP_ADDRESS_ENV_VAR = "REDIT_NODE_IP_ADDRESS";
+    public final static String TEST_CASE_WAITER_NODE_NAME = "test-case";
+    public final static String RUN_SEQUENCE_STALL_TIMEOUT_PROPERTY = "redit.runSequence.stallTimeout";
+    public final static String NODE_TASK_PARALLELISM_PROPERTY = "redit.parallelism";
+    public final static Integer MAX_DEFAULT_NODE_OPERATION_PARALLELISM = 32;
+    public final static String DOCKER_OWNER_LABEL = "io.redit.owner";
+    public final static String WORKSPACE_OWNER_FILE_NAME = "redit_owner";
+    public final static String REAPER_PROPERTY = "redit.reaper";
+    public final static String WORKSPACE_RETENTION_HOURS_PROPERTY = "redit.reaper.workspaceRetentionHours";
+    public final static String COMMAND_OUTPUT_LIMIT_PROPERTY = "redit.exec.outputLimit";
+    public final static Integer DEFAULT_COMMAND_OUTPUT_LIMIT = 1024 * 1024;
+    public final static String EXEC_PARALLELISM_PROPERTY = "redit.exec.parallelism";
+    public final static Integer DEFAULT_EXEC_PARALLELISM = 32;
+    public final static String EVENT_SERVER_TYPE_PROPERTY = "redit.eventServer";
+    public final static String SHARED_EVENT_SERVER_PROPERTY = "redit.eventServer.shared";
+    public final static String EVENT_SERVER_TYPE_JETTY = "jetty";
+    public final static String EVENT_SERVER_TYPE_LIGHTWEIGHT = "lightweight";
+    public final static String WARM_POOL_PROPERTY = "redit.warmPool";
+    public final static String WARM_POOL_DIRECTORY_PREFIX = "warm_";
+    public final static String SNAPSHOTS_DIRECTORY_NAME = "snapshots";
+    public final static String SNAPSHOT_METADATA_FILE_NAME = "redit_snapshot";
+    public final static String DOCKER_SNAPSHOT_IMAGE_PREFIX = "redit_snapshot_";
+    public final static String LAZY_NODES_PROPERTY = "redit.lazyNodes";
+    public final static String LAZY_NODES_PREFETCH_PROPERTY = "redit.lazyNodes.prefetch";
+    public final static String DOCKER_SUBNET_POOL_PROPERTY = "redit.network.subnetPool";
+    public final static String DOCKER_SUBNET_PREFIX_LENGTH_PROPERTY = "redit.network.prefixLength";
+    public final static String DOCKER_HOSTS_PROPERTY = "redit.docker.hosts";
+    public final static String RUNTIME_ENGINE_PROPERTY = "redit.runtimeEngine";
+    public final static String RUNTIME_ENGINE_DOCKER = "docker";
+    public final static String RUNTIME_ENGINE_LOCAL_PROCESS = "localProcess";
+    public final static String RUNTIME_ENGINE_SIMULATED = "simulated";
+    public final static String RUNTIME_ENGINE_IN_JVM = "inJvm";
+    public final static String PACKED_NODES_ROOT_PATH = "/redit_nodes";
+    public final static String PACKED_NODE_LAUNCHER_FILE_NAME = "redit_launcher";
+    public final static String CLASSPATH_BUNDLING_PROPERTY = "redit.classpath.bundle";
+    public final static String CLASSPATH_BUNDLES_DIRECTORY_NAME = "classpathBundles";
 }
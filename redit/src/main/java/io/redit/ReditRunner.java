@@ -37,13 +37,17 @@ import io.redit.exceptions.RuntimeEngineException;
 import io.redit.exceptions.WorkspaceException;
 import io.redit.execution.RuntimeEngine;
 import io.redit.execution.LimitedRuntimeEngine;
+import io.redit.execution.NodeWorkspaceFactory;
 import io.redit.instrumentation.InstrumentationEngine;
 import io.redit.instrumentation.runseq.RunSequenceInstrumentationEngine;
 import io.redit.workspace.WorkspaceManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This class is the main point of contact for all the test cases. Given a deployment definition this class deploys the
@@ -55,7 +59,7 @@ public class ReditRunner {
     private WorkspaceManager workspaceManager;
     private final Deployment deployment;
     private final List<DeploymentVerifier> verifiers;
-    private RuntimeEngine runtimeEngine;
+    private volatile RuntimeEngine runtimeEngine;
     private List<InstrumentationEngine> instrumentationEngines;
 
     /**
@@ -111,33 +115,102 @@ public class ReditRunner {
     }
 
     private void start() {
-        try {
+        try (StartupPipeline pipeline = new StartupPipeline(deployment.getName(),
+                Integer.getInteger(Constants.NODE_TASK_PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors()))) {
             // Register the shutdown hook
             Runtime.getRuntime().addShutdownHook(new ReditShutdownHook(this));
 
             // Verify the deployment definition
-            logger.info("Verifying the deployment definition ...");
-            for (DeploymentVerifier verifier : verifiers) {
-                verifier.verify();
+            CompletableFuture<Void> verification = pipeline.phase("verification", () -> {
+                logger.info("Verifying the deployment definition ...");
+                for (DeploymentVerifier verifier : verifiers) {
+                    verifier.verify();
+                }
+                return null;
+            });
+
+            // Deletes the working directories of the dead runs if a retention is configured
+            Integer workspaceRetentionHours = Integer.getInteger(Constants.WORKSPACE_RETENTION_HOURS_PROPERTY);
+            if (workspaceRetentionHours != null) {
+                Thread workspaceReaperThread = new Thread(() -> workspaceManager.reapStaleWorkingDirectories(
+                        Duration.ofHours(workspaceRetentionHours)), "redit-workspace-reaper");
+                workspaceReaperThread.setDaemon(true);
+                workspaceReaperThread.start();
             }
 
-            // Setup the nodes' workspaces
-            logger.info("Creating the nodes' workspaces ...");
-            Map<String, NodeWorkspace> nodeWorkspaceMap = workspaceManager.createWorkspace();
+            // The runtime engine is only created for a verified deployment definition
+            CompletableFuture<Void> engineCreation = pipeline.phase("runtime engine creation", () -> {
+                RuntimeEngine engine = RuntimeEngine.getRuntimeEngine(deployment, Collections.emptyMap());
+                engine.setNodeWorkspaceFactory(new NodeWorkspaceFactory() {
+                    @Override
+                    public Path getWorkingDirectory() {
+                        return workspaceManager.getWorkingDirectory();
+                    }
 
-            // Instrument the nodes binaries. This shouldn't change any of the application paths
-            logger.info("Starting the instrumentation process ...");
-            for (InstrumentationEngine instrumentationEngine: instrumentationEngines) {
-                logger.info("Instrumenting using {}", instrumentationEngine.getClass().getName());
-                instrumentationEngine.instrumentNodes(deployment, nodeWorkspaceMap);
+                    @Override
+                    public NodeWorkspace createNodeWorkspace(Node node) throws RuntimeEngineException {
+                        try {
+                            NodeWorkspace nodeWorkspace = workspaceManager.createNodeWorkspace(node);
+                            instrumentNodes(Collections.singletonMap(node.getName(), nodeWorkspace));
+                            return nodeWorkspace;
+                        } catch (WorkspaceException | InstrumentationException e) {
+                            throw new RuntimeEngineException("Error while creating the workspace of node "
+                                    + node.getName() + "!", e);
+                        }
+                    }
+                });
+                runtimeEngine = engine;
+                return null;
+            }, verification);
+
+            // Prepares the images and the network of the nodes while the workspaces are being created
+            CompletableFuture<Void> preparation = pipeline.phase("runtime engine preparation", () -> {
+                logger.info("Preparing the runtime engine ...");
+                runtimeEngine.prepare();
+                return null;
+            }, engineCreation);
+
+            // Setup the nodes' workspaces. The workspaces of the nodes that are off on startup are created when they
+            // are first started
+            CompletableFuture<Void> deploymentWorkspace = pipeline.phase("deployment workspace", () -> {
+                logger.info("Creating the nodes' workspaces ...");
+                workspaceManager.createDeploymentWorkspace();
+                return null;
+            }, verification);
+
+            // The workspaces of the nodes are created in parallel
+            Map<String, CompletableFuture<NodeWorkspace>> nodeWorkspaces = new TreeMap<>();
+            for (Node node: new TreeMap<>(deployment.getNodes()).values()) {
+                if (!isLazyNode(node)) {
+                    nodeWorkspaces.put(node.getName(), pipeline.phase("workspace of " + node.getName(),
+                            () -> workspaceManager.createNodeWorkspace(node), deploymentWorkspace));
+                }
             }
-            logger.info("Instrumentation process is completed!");
 
-            // Starting the runtime engine
-            logger.info("Starting the runtime engine ...");
+            // Instrument the nodes binaries. This shouldn't change any of the application paths. Each of the
+            // instrumentation engines is called once with all of the workspaces created on startup
+            List<CompletableFuture<?>> instrumentationDependencies = new ArrayList<>(nodeWorkspaces.values());
+            instrumentationDependencies.add(engineCreation);
+            CompletableFuture<Void> instrumentation = pipeline.phase("instrumentation", () -> {
+                Map<String, NodeWorkspace> nodeWorkspaceMap = new TreeMap<>();
+                for (Map.Entry<String, CompletableFuture<NodeWorkspace>> nodeWorkspace: nodeWorkspaces.entrySet()) {
+                    nodeWorkspaceMap.put(nodeWorkspace.getKey(), nodeWorkspace.getValue().get());
+                }
+                logger.info("Starting the instrumentation process ...");
+                instrumentNodes(nodeWorkspaceMap);
+                for (Map.Entry<String, NodeWorkspace> nodeWorkspace: nodeWorkspaceMap.entrySet()) {
+                    runtimeEngine.setNodeWorkspace(nodeWorkspace.getKey(), nodeWorkspace.getValue());
+                }
+                return null;
+            }, instrumentationDependencies.toArray(new CompletableFuture<?>[0]));
 
-            runtimeEngine = RuntimeEngine.getRuntimeEngine(deployment, nodeWorkspaceMap);
-            runtimeEngine.start(this);
+            // Starting the runtime engine
+            pipeline.await(pipeline.phase("runtime engine start", () -> {
+                logger.info("Starting the runtime engine ...");
+                runtimeEngine.start(this);
+                return null;
+            }, instrumentation, deploymentWorkspace, preparation));
+            pipeline.logTimings();
         } catch (RuntimeEngineException e) {
             logger.error("An error happened while starting the runtime engine. Stopping ...", e);
             if (!isStopped()) {
@@ -146,6 +219,9 @@ public class ReditRunner {
             throw new RuntimeException(e);
         } catch (WorkspaceException | InstrumentationException e) {
             logger.error("An error happened while instrumenting the nodes", e);
+            if (!isStopped()) {
+                stop();
+            }
             throw new RuntimeException(e);
         } catch (Throwable e) {
             logger.error("An unexpected error has happened. Stopping ...", e);
@@ -156,6 +232,26 @@ public class ReditRunner {
         }
     }
 
+    /**
+     * Instruments the given nodes with all of the instrumentation engines. The engines are never called concurrently,
+     * even when several of the lazily materialized nodes are created at the same time
+     */
+    private void instrumentNodes(Map<String, NodeWorkspace> nodeWorkspaceMap) throws InstrumentationException {
+        synchronized (instrumentationEngines) {
+            for (InstrumentationEngine instrumentationEngine: instrumentationEngines) {
+                logger.info("Instrumenting using {}", instrumentationEngine.getClass().getName());
+                instrumentationEngine.instrumentNodes(deployment, nodeWorkspaceMap);
+            }
+        }
+    }
+
+    /**
+     * @return true if the workspace and container of the node should be created when it is first started
+     */
+    private static boolean isLazyNode(Node node) {
+        return node.getOffOnStartup() && !"false".equals(System.getProperty(Constants.LAZY_NODES_PROPERTY));
+    }
+
     /**
      * Stops the runner by killing all the deployed nodes
      */
@@ -184,6 +280,29 @@ public class ReditRunner {
         }
     }
 
+    /**
+     * Stops the runner by killing all the deployed nodes in the background and returns immediately
+     * @return a future to be completed when all of the deployed nodes are removed
+     */
+    public CompletableFuture<Void> stopAsync() {
+        return stopAsync(true, 0);
+    }
+
+    /**
+     * Stops the runner by stopping or killing all the deployed nodes in the background and returns immediately
+     * @param kill the flag to require killing of the nodes
+     * @param secondsUntilForcedStop if stopping the nodes is desired, the runner will wait for this amount of time in
+     *                               seconds and then forces the stop by killing the nodes
+     * @return a future to be completed when all of the deployed nodes are removed
+     */
+    public CompletableFuture<Void> stopAsync(boolean kill, Integer secondsUntilForcedStop) {
+        logger.info("Stopping ReditRunner in the background ...");
+        if (runtimeEngine == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return runtimeEngine.stopAsync(kill, secondsUntilForcedStop);
+    }
+
     /**
      * @return true is the runner is stopped or not started yet, otherwise false
      */
@@ -214,7 +333,8 @@ class ReditShutdownHook extends Thread {
     public void run() {
         if (!runner.isStopped()) {
             logger.info("Shutdown signal received!");
-            runner.stop();
         }
+        // Stopping is idempotent, so this also waits for an ongoing background stop to be completed
+        runner.stop();
     }
 }
@@ -0,0 +1,167 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit;
+
+import io.redit.exceptions.InstrumentationException;
+import io.redit.exceptions.RuntimeEngineException;
+import io.redit.exceptions.WorkspaceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the startup phases of a deployment as a dependency graph on a thread pool, so the independent phases, e.g.
+ * building the images and instrumenting the nodes, progress in parallel and the total startup time approaches the
+ * critical path of the graph. The start time and the duration of each of the phases are recorded to be logged as a
+ * breakdown when the startup is done.
+ */
+class StartupPipeline implements AutoCloseable {
+    private final static Logger logger = LoggerFactory.getLogger(StartupPipeline.class);
+
+    private final String deploymentName;
+    private final ExecutorService executorService;
+    private final List<CompletableFuture<?>> phases;
+    private final List<PhaseTiming> phaseTimings;
+    private final long startTime;
+
+    @FunctionalInterface
+    interface PhaseTask<T> {
+        T run() throws Exception;
+    }
+
+    StartupPipeline(String deploymentName, int parallelism) {
+        this.deploymentName = deploymentName;
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executorService = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "redit-startup-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.phases = new CopyOnWriteArrayList<>();
+        this.phaseTimings = new CopyOnWriteArrayList<>();
+        this.startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Schedules a phase to be run when all of its dependencies are successfully completed. If any of the dependencies
+     * fails, the phase is not run and fails with the same cause
+     * @param name the name of the phase to be used in the logs
+     * @param task the task of the phase
+     * @param dependencies the phases that should be completed before this phase
+     * @return the future of the result of the phase
+     */
+    <T> CompletableFuture<T> phase(String name, PhaseTask<T> task, CompletableFuture<?>... dependencies) {
+        CompletableFuture<T> phase = CompletableFuture.allOf(dependencies).thenApplyAsync(v -> {
+            long phaseStartTime = System.currentTimeMillis();
+            try {
+                return task.run();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                long duration = System.currentTimeMillis() - phaseStartTime;
+                phaseTimings.add(new PhaseTiming(name, phaseStartTime - startTime, duration));
+                logger.debug("Startup phase {} is done in {} ms", name, duration);
+            }
+        }, executorService);
+        phases.add(phase);
+        return phase;
+    }
+
+    /**
+     * Waits for all of the scheduled phases to be settled, so no phase is still running when the startup fails, and
+     * rethrows the failure of the given phase if any
+     */
+    <T> T await(CompletableFuture<T> phase) throws RuntimeEngineException, WorkspaceException,
+            InstrumentationException {
+        try {
+            CompletableFuture.allOf(phases.toArray(new CompletableFuture<?>[0])).exceptionally(e -> null).get();
+            return phase.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeEngineException("Interrupted while starting deployment " + deploymentName + "!", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null ?
+                    e.getCause().getCause() : e.getCause();
+            if (cause instanceof RuntimeEngineException) {
+                throw (RuntimeEngineException) cause;
+            } else if (cause instanceof WorkspaceException) {
+                throw (WorkspaceException) cause;
+            } else if (cause instanceof InstrumentationException) {
+                throw (InstrumentationException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeEngineException("Error while starting deployment " + deploymentName + "!", cause);
+        }
+    }
+
+    /**
+     * Logs the start time relative to the beginning of the startup and the duration of each of the completed phases
+     */
+    void logTimings() {
+        logger.info("Deployment {} is started in {} ms. Startup phases:{}", deploymentName,
+                System.currentTimeMillis() - startTime, getTimingBreakdown());
+    }
+
+    /**
+     * @return a line for each of the completed phases in the order of their start times
+     */
+    String getTimingBreakdown() {
+        List<PhaseTiming> timings = new ArrayList<>(phaseTimings);
+        timings.sort(Comparator.comparingLong(timing -> timing.startOffset));
+        StringBuilder breakdown = new StringBuilder();
+        for (PhaseTiming timing: timings) {
+            breakdown.append(String.format("%n  %-40s started at %6d ms, took %6d ms", timing.name,
+                    timing.startOffset, timing.duration));
+        }
+        return breakdown.toString();
+    }
+
+    @Override
+    public void close() {
+        executorService.shutdown();
+    }
+
+    private static class PhaseTiming {
+        private final String name;
+        private final long startOffset;
+        private final long duration;
+
+        private PhaseTiming(String name, long startOffset, long duration) {
+            this.name = name;
+            this.startOffset = startOffset;
+            this.duration = duration;
+        }
+    }
+}
@@ -405,7 +405,9 @@ public class Deployment extends DeploymentEntity {
          * So, for example, for including commons-io lib jar file as an instrumentable path you can use "**commons-io*.jar"
          * instrumentable path pattern
          * Also, it adds an environment variable named REDIT_JVM_CLASSPATH to the service which should be included
-         * in the java class path in the service or node start command.
+         * in the java class path in the service or node start command. When the redit.classpath.bundle system property
+         * is true, the entries that are not instrumentable are bundled into a single directory which is mounted into the
+         * nodes at once.
          * @param name of the service
          * @param instrumentablePathPatterns the patterns to match against the paths in the current java class path to be
          *                                   added as an instrumentable path to the service
@@ -433,6 +435,9 @@ public class Deployment extends DeploymentEntity {
                 }
             }
 
+            // The non-instrumentable entries can be bundled into a single directory per service which is mounted into
+            // the nodes at once instead of one mount per entry
+            boolean bundleLibraries = Boolean.getBoolean(Constants.CLASSPATH_BUNDLING_PROPERTY);
             StringJoiner newClassPath = new StringJoiner(":");
             for (String path: classPathList) {
                 // target path should be in linux format, but path may come from windows
@@ -445,6 +450,9 @@ public class Deployment extends DeploymentEntity {
                     serviceBuilder.applicationPath(path, newTargetPath, PathAttr.CHANGEABLE);
                     serviceBuilder.instrumentablePath(newTargetPath);
                 } else {
+                    if (bundleLibraries) {
+                        newTargetPath = Constants.JVM_CLASSPATH_BUNDLE_PATH + newTargetPath;
+                    }
                     serviceBuilder.applicationPath(path, newTargetPath, PathAttr.LIBRARY);
                 }
                 newClassPath.add(newTargetPath);
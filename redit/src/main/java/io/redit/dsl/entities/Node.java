@@ -58,6 +58,10 @@ public class Node extends ReferableDeploymentEntity {
     private final Boolean offOnStartup; // the flag to start the node on start up or not
     private final Boolean disableClockDrift; // the flag to disable clock drift capability
     private final Integer pathOrderCounter; // the counter to use for applying order to application paths
+    private final Integer startOrder; // the start order group of the node which overrides the service's start order
+    private final Map<String, String> labels; // map of label keys to values which override the service's labels
+    private final List<ReadinessProbe> readinessProbes; // the probes to check if the node is ready in addition to the service's
+    private final ResourceLimits resourceLimits; // the cpu and memory limits which override the service's limits
 
     public static Node.LimitedBuilder limitedBuilder(String nodeName, String serviceName) {
         return new Node.LimitedBuilder(nodeName, serviceName);
@@ -82,6 +86,10 @@ public class Node extends ReferableDeploymentEntity {
         logDirectories = builder.logDirectories;
         disableClockDrift = builder.disableClockDrift;
         pathOrderCounter = builder.pathOrderCounter;
+        startOrder = builder.startOrder;
+        labels = Collections.unmodifiableMap(builder.labels);
+        readinessProbes = Collections.unmodifiableList(builder.readinessProbes);
+        resourceLimits = builder.resourceLimits;
     }
 
     /**
@@ -103,6 +111,10 @@ public class Node extends ReferableDeploymentEntity {
         logDirectories = builder.logDirectories;
         disableClockDrift = builder.disableClockDrift;
         pathOrderCounter = builder.pathOrderCounter;
+        startOrder = builder.startOrder;
+        labels = Collections.unmodifiableMap(builder.labels);
+        readinessProbes = Collections.unmodifiableList(builder.readinessProbes);
+        resourceLimits = builder.resourceLimits;
     }
 
     public String getServiceName() {
@@ -161,6 +173,22 @@ public class Node extends ReferableDeploymentEntity {
         return !disableClockDrift;
     }
 
+    public Integer getStartOrder() {
+        return startOrder;
+    }
+
+    public Map<String, String> getLabels() {
+        return labels;
+    }
+
+    public List<ReadinessProbe> getReadinessProbes() {
+        return readinessProbes;
+    }
+
+    public ResourceLimits getResourceLimits() {
+        return resourceLimits;
+    }
+
     /**
      * The builder class to build a node object
      */
@@ -178,6 +206,10 @@ public class Node extends ReferableDeploymentEntity {
         protected String stopCommand;
         protected Boolean disableClockDrift; // the flag to disable clock drift capability
         protected Integer pathOrderCounter;
+        protected Integer startOrder;
+        protected Map<String, String> labels;
+        protected List<ReadinessProbe> readinessProbes;
+        protected ResourceLimits resourceLimits;
 
         /**
          * Constructor
@@ -200,6 +232,8 @@ public class Node extends ReferableDeploymentEntity {
             logDirectories = new HashSet<>();
             disableClockDrift = false;
             pathOrderCounter = 0;
+            labels = new HashMap<>();
+            readinessProbes = new ArrayList<>();
         }
 
         /**
@@ -231,6 +265,10 @@ public class Node extends ReferableDeploymentEntity {
             logDirectories = new HashSet<>(instance.logDirectories);
             disableClockDrift = new Boolean(instance.disableClockDrift);
             pathOrderCounter = new Integer(instance.pathOrderCounter);
+            startOrder = instance.startOrder;
+            labels = new HashMap<>(instance.labels);
+            readinessProbes = new ArrayList<>(instance.readinessProbes);
+            resourceLimits = instance.resourceLimits;
         }
 
         /**
@@ -283,6 +321,53 @@ public class Node extends ReferableDeploymentEntity {
             return this;
         }
 
+        /**
+         * Sets the start order group of the node. When starting the deployment, the nodes are started group by group in
+         * ascending start order while the nodes in the same group are started in parallel. If not set, the start order
+         * of the node's service is used and if that is not set either, the node is in group 0.
+         * @param startOrder the start order group of the node
+         * @return the current builder instance
+         */
+        public LimitedBuilder startOrder(Integer startOrder) {
+            this.startOrder = startOrder;
+            return this;
+        }
+
+        /**
+         * Adds a label to the node. Labels can be used to select a group of nodes for bulk operations through
+         * {@link io.redit.execution.NodeSelector}. A node label overrides the label of the node's service with the same
+         * key.
+         * @param key the key of the label
+         * @param value the value of the label
+         * @return the current builder instance
+         */
+        public LimitedBuilder label(String key, String value) {
+            this.labels.put(key, value);
+            return this;
+        }
+
+        /**
+         * Adds a readiness probe to the node. A started node is ready when all of its probes and the probes of its
+         * service pass. Take a look at {@link ReadinessProbe} for the available probes.
+         * @param readinessProbe the probe to be added
+         * @return the current builder instance
+         */
+        public LimitedBuilder readinessProbe(ReadinessProbe readinessProbe) {
+            this.readinessProbes.add(readinessProbe);
+            return this;
+        }
+
+        /**
+         * Limits the cpu and memory resources of the node. Each limit that is set overrides the same limit of the node's
+         * service. Take a look at {@link ResourceLimits} for the available limits.
+         * @param resourceLimits the limits of the node
+         * @return the current builder instance
+         */
+        public LimitedBuilder resourceLimits(ResourceLimits.Builder resourceLimits) {
+            this.resourceLimits = resourceLimits.build();
+            return this;
+        }
+
         /**
          * Adds a not changing local path to the specified absolute target path in the node
          * @param path a local path
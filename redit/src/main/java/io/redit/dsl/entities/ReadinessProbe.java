@@ -0,0 +1,153 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.dsl.entities;
+
+import java.util.regex.Pattern;
+
+/**
+ * This class is used to define how to check if a node is ready to be used after it is started. A probe can check if a
+ * tcp port is open, if an http endpoint returns 200 optionally with a body matching a regex, if a log line matching a
+ * regex is written after the start of the node or if a command exits with 0 in the node. The static methods of this
+ * class should be used to create probes.
+ */
+public class ReadinessProbe {
+    public enum Type {
+        TCP,
+        HTTP,
+        LOG,
+        COMMAND
+    }
+
+    private final Type type;
+    private final Integer port; // the port number for tcp and http probes
+    private final String path; // the path of the http endpoint
+    private final String logFile; // the target log file in the node or null for the console output of the node
+    private final Pattern pattern; // the pattern of the log line or the http response body
+    private final String command; // the command to be executed in the node
+
+    private ReadinessProbe(Type type, Integer port, String path, String logFile, Pattern pattern, String command) {
+        this.type = type;
+        this.port = port;
+        this.path = path;
+        this.logFile = logFile;
+        this.pattern = pattern;
+        this.command = command;
+    }
+
+    /**
+     * @param port the tcp port number in the node
+     * @return a probe that passes when a connection to the given port of the node can be established
+     */
+    public static ReadinessProbe tcp(Integer port) {
+        return new ReadinessProbe(Type.TCP, port, null, null, null, null);
+    }
+
+    /**
+     * @param port the http port number in the node
+     * @param path the path of the endpoint starting with /
+     * @return a probe that passes when a GET request to the given endpoint of the node returns 200
+     */
+    public static ReadinessProbe http(Integer port, String path) {
+        return new ReadinessProbe(Type.HTTP, port, path.startsWith("/") ? path : "/" + path, null, null, null);
+    }
+
+    /**
+     * @param port the http port number in the node
+     * @param path the path of the endpoint starting with /
+     * @param bodyRegex the regex to be found in the response body
+     * @return a probe that passes when a GET request to the given endpoint of the node returns 200 and a body containing
+     * a match of the given regex
+     */
+    public static ReadinessProbe http(Integer port, String path, String bodyRegex) {
+        return new ReadinessProbe(Type.HTTP, port, path.startsWith("/") ? path : "/" + path, null,
+                Pattern.compile(bodyRegex), null);
+    }
+
+    /**
+     * @param regex the regex to be found in a line
+     * @return a probe that passes when a line matching the given regex is written into the console output of the node
+     * after the node is started
+     */
+    public static ReadinessProbe logLine(String regex) {
+        return new ReadinessProbe(Type.LOG, null, null, null, Pattern.compile(regex), null);
+    }
+
+    /**
+     * @param logFile the absolute path of the log file in the node. The file should be a log file or inside a log
+     *                directory of the node to be read without executing a command in the node
+     * @param regex the regex to be found in a line
+     * @return a probe that passes when a line matching the given regex is written into the given log file after the
+     * node is started
+     */
+    public static ReadinessProbe logLine(String logFile, String regex) {
+        return new ReadinessProbe(Type.LOG, null, null, logFile, Pattern.compile(regex), null);
+    }
+
+    /**
+     * @param command the command to be executed in the node
+     * @return a probe that passes when the given command exits with 0 in the node
+     */
+    public static ReadinessProbe command(String command) {
+        return new ReadinessProbe(Type.COMMAND, null, null, null, null, command);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Integer getPort() {
+        return port;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getLogFile() {
+        return logFile;
+    }
+
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case TCP:
+                return "tcp:" + port;
+            case HTTP:
+                return "http:" + port + path + (pattern == null ? "" : ":" + pattern.pattern());
+            case LOG:
+                return "log:" + (logFile == null ? "console" : logFile) + ":" + pattern.pattern();
+            default:
+                return "command:" + command;
+        }
+    }
+}
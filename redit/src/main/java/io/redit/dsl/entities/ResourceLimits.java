@@ -0,0 +1,200 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.dsl.entities;
+
+import java.util.StringJoiner;
+
+/**
+ * This class contains the limits on the cpu and memory resources of a node. A limit that is not set is unconstrained,
+ * unless it is set for the node's service. The limits of a node override the limits of its service one by one, except
+ * that overriding only the memory limit keeps the amount of swap on top of it. The {@link #builder()} method should be
+ * used to define the limits.
+ */
+public class ResourceLimits {
+    private final Double cpus; // the number of cpus the node can use
+    private final String cpusetCpus; // the cpus the node is pinned to, e.g. "0-2" or "0,3"
+    private final Long memory; // the memory limit in bytes
+    private final Long memorySwap; // the memory plus swap limit in bytes or -1 for unlimited swap
+
+    private ResourceLimits(Builder builder) {
+        cpus = builder.cpus;
+        cpusetCpus = builder.cpusetCpus;
+        memory = builder.memory;
+        memorySwap = builder.memorySwap;
+    }
+
+    /**
+     * @return an instance of {@link Builder} class to define the limits
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Double getCpus() {
+        return cpus;
+    }
+
+    public String getCpusetCpus() {
+        return cpusetCpus;
+    }
+
+    public Long getMemory() {
+        return memory;
+    }
+
+    public Long getMemorySwap() {
+        return memorySwap;
+    }
+
+    /**
+     * @return true if none of the limits is set
+     */
+    public boolean isEmpty() {
+        return cpus == null && cpusetCpus == null && memory == null && memorySwap == null;
+    }
+
+    /**
+     * @param overrides the limits to override the limits of this object with. May be null
+     * @return the limits of this object with the limits that are set in the given limits replaced
+     */
+    public ResourceLimits override(ResourceLimits overrides) {
+        if (overrides == null) {
+            return this;
+        }
+        Builder builder = new Builder(this);
+        if (overrides.cpus != null) {
+            builder.cpus = overrides.cpus;
+        }
+        if (overrides.cpusetCpus != null) {
+            builder.cpusetCpus = overrides.cpusetCpus;
+        }
+        if (overrides.memory != null) {
+            if (overrides.memorySwap == null && memory != null && memorySwap != null && memorySwap != -1) {
+                builder.memorySwap = overrides.memory + (memorySwap - memory);
+            }
+            builder.memory = overrides.memory;
+        }
+        if (overrides.memorySwap != null) {
+            builder.memorySwap = overrides.memorySwap;
+        }
+        return builder.build();
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner limits = new StringJoiner(", ", "{", "}");
+        if (cpus != null) {
+            limits.add("cpus=" + cpus);
+        }
+        if (cpusetCpus != null) {
+            limits.add("cpusetCpus=" + cpusetCpus);
+        }
+        if (memory != null) {
+            limits.add("memory=" + memory);
+        }
+        if (memorySwap != null) {
+            limits.add("memorySwap=" + memorySwap);
+        }
+        return limits.toString();
+    }
+
+    /**
+     * The builder class to define the resource limits of a node or a service
+     */
+    public static class Builder {
+        private Double cpus;
+        private String cpusetCpus;
+        private Long memory;
+        private Long memorySwap;
+
+        private Builder() {
+        }
+
+        private Builder(ResourceLimits instance) {
+            cpus = instance.cpus;
+            cpusetCpus = instance.cpusetCpus;
+            memory = instance.memory;
+            memorySwap = instance.memorySwap;
+        }
+
+        /**
+         * Limits the cpu time of the node through the cpu quota of its processes
+         * @param cpus the number of cpus the node can use, e.g. 0.5 for half of a cpu
+         * @return the current builder instance
+         */
+        public Builder cpus(Double cpus) {
+            if (cpus != null && cpus <= 0) {
+                throw new IllegalArgumentException("The number of cpus should be positive!");
+            }
+            this.cpus = cpus;
+            return this;
+        }
+
+        /**
+         * Pins the processes of the node to the given cpus
+         * @param cpusetCpus the list of cpu numbers or ranges, e.g. "0-2" or "0,3"
+         * @return the current builder instance
+         */
+        public Builder cpusetCpus(String cpusetCpus) {
+            this.cpusetCpus = cpusetCpus;
+            return this;
+        }
+
+        /**
+         * Limits the memory of the node. The processes of the node are killed by the kernel when they exceed the limit
+         * @param memory the memory limit in bytes
+         * @return the current builder instance
+         */
+        public Builder memory(Long memory) {
+            if (memory != null && memory <= 0) {
+                throw new IllegalArgumentException("The memory limit should be positive!");
+            }
+            this.memory = memory;
+            return this;
+        }
+
+        /**
+         * Limits the memory plus swap of the node. Setting it to the memory limit disables swap for the node. If it is
+         * not set, the node can use as much swap as its memory limit
+         * @param memorySwap the memory plus swap limit in bytes or -1 for unlimited swap
+         * @return the current builder instance
+         */
+        public Builder memorySwap(Long memorySwap) {
+            if (memorySwap != null && memorySwap != -1 && memorySwap <= 0) {
+                throw new IllegalArgumentException("The memory plus swap limit should be positive or -1!");
+            }
+            this.memorySwap = memorySwap;
+            return this;
+        }
+
+        public ResourceLimits build() {
+            if (memory != null && memorySwap != null && memorySwap != -1 && memorySwap < memory) {
+                throw new IllegalArgumentException("The memory plus swap limit " + memorySwap
+                        + " should not be less than the memory limit " + memory + "!");
+            }
+            return new ResourceLimits(this);
+        }
+    }
+}
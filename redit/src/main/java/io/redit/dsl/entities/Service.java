@@ -61,6 +61,11 @@ public class Service extends DeploymentEntity {
     private final Boolean disableClockDrift; // the flag to disable clock drift capability
     private Integer pathOrderCounter; // the counter to use for applying order to application paths
     private final String workDir;
+    private final Integer startOrder; // the start order group of the nodes created out of this service
+    private final Map<String, String> labels; // map of label keys to values for the nodes created out of this service
+    private final List<ReadinessProbe> readinessProbes; // the probes to check if a node created out of this service is ready
+    private final Integer nodesPerContainer; // the number of nodes created out of this service that share a container
+    private final ResourceLimits resourceLimits; // the cpu and memory limits of the nodes created out of this service
     /**
      * Private Constructor
      * @param builder the builder instance to use for creating the class instance
@@ -85,6 +90,11 @@ public class Service extends DeploymentEntity {
         pathOrderCounter = builder.pathOrderCounter;
         disableClockDrift = builder.disableClockDrift;
         this.workDir = builder.workDir;
+        startOrder = builder.startOrder;
+        labels = Collections.unmodifiableMap(builder.labels);
+        readinessProbes = Collections.unmodifiableList(builder.readinessProbes);
+        nodesPerContainer = builder.nodesPerContainer;
+        resourceLimits = builder.resourceLimits;
     }
 
     public String getDockerImage() {
@@ -154,6 +164,26 @@ public class Service extends DeploymentEntity {
         return this.workDir;
     }
 
+    public Integer getStartOrder() {
+        return startOrder;
+    }
+
+    public Map<String, String> getLabels() {
+        return labels;
+    }
+
+    public List<ReadinessProbe> getReadinessProbes() {
+        return readinessProbes;
+    }
+
+    public Integer getNodesPerContainer() {
+        return nodesPerContainer;
+    }
+
+    public ResourceLimits getResourceLimits() {
+        return resourceLimits;
+    }
+
     /**
      * The builder class to build a service object
      */
@@ -179,6 +209,11 @@ public class Service extends DeploymentEntity {
         private ServiceType serviceType;
         private Integer pathOrderCounter;
         private String workDir;
+        private Integer startOrder;
+        private Map<String, String> labels;
+        private List<ReadinessProbe> readinessProbes;
+        private Integer nodesPerContainer;
+        private ResourceLimits resourceLimits;
 
         /**
          * Constructor
@@ -203,6 +238,10 @@ public class Service extends DeploymentEntity {
             serviceType = ServiceType.OTHER;
             disableClockDrift = false;
             this.workDir = null;
+            startOrder = null;
+            labels = new HashMap<>();
+            readinessProbes = new ArrayList<>();
+            nodesPerContainer = 1;
         }
 
         /**
@@ -237,6 +276,11 @@ public class Service extends DeploymentEntity {
             pathOrderCounter = new Integer(instance.pathOrderCounter);
             disableClockDrift = new Boolean(instance.disableClockDrift);
             workDir = instance.workDir == null ? null : new String(instance.workDir);
+            startOrder = instance.startOrder;
+            labels = new HashMap<>(instance.labels);
+            readinessProbes = new ArrayList<>(instance.readinessProbes);
+            nodesPerContainer = instance.nodesPerContainer;
+            resourceLimits = instance.resourceLimits;
         }
 
         public Builder(Deployment.Builder parentBuilder, String newName, Service instance) {
@@ -260,6 +304,11 @@ public class Service extends DeploymentEntity {
             pathOrderCounter = new Integer(instance.pathOrderCounter);
             disableClockDrift = new Boolean(instance.disableClockDrift);
             workDir = instance.workDir == null ? null : new String(instance.workDir);
+            startOrder = instance.startOrder;
+            labels = new HashMap<>(instance.labels);
+            readinessProbes = new ArrayList<>(instance.readinessProbes);
+            nodesPerContainer = instance.nodesPerContainer;
+            resourceLimits = instance.resourceLimits;
         }
 
         /**
@@ -281,11 +330,21 @@ public class Service extends DeploymentEntity {
             return this;
         }
 
+        /**
+         * Sets the Dockerfile address to be used to build the docker image for this service. The image is tagged with a
+         * hash of the Dockerfile and its build context, so it is only rebuilt when one of them changes
+         * @param dockerFileAddress the address of the Dockerfile. Its directory is used as the build context
+         * @return the current builder instance
+         */
+        public Builder dockerFileAddress(String dockerFileAddress) {
+            return dockerFileAddress(dockerFileAddress, false);
+        }
+
         /**
          * Sets the Dockerfile address to be used to build the docker image for this service
-         * @param dockerFileAddress
-         * @param forceBuild
-         * @return
+         * @param dockerFileAddress the address of the Dockerfile. Its directory is used as the build context
+         * @param forceBuild if true, the image is rebuilt even if the Dockerfile and its build context are unchanged
+         * @return the current builder instance
          */
         public Builder dockerFileAddress(String dockerFileAddress, Boolean forceBuild) {
             this.dockerFileAddress = Paths.get(dockerFileAddress).toAbsolutePath().normalize().toString();
@@ -463,6 +522,71 @@ public class Service extends DeploymentEntity {
             return this;
         }
 
+        /**
+         * Sets the start order group of the nodes created out of this service. When starting the deployment, the nodes
+         * are started group by group in ascending start order while the nodes in the same group are started in
+         * parallel. Nodes without a start order are in group 0. A node can override this through its own start order.
+         * @param startOrder the start order group of the nodes created out of this service
+         * @return the current builder instance
+         */
+        public Builder startOrder(Integer startOrder) {
+            this.startOrder = startOrder;
+            return this;
+        }
+
+        /**
+         * Adds a label to the nodes created out of this service. Labels can be used to select a group of nodes for bulk
+         * operations through {@link io.redit.execution.NodeSelector}. A node can override a label through its own label
+         * with the same key.
+         * @param key the key of the label
+         * @param value the value of the label
+         * @return the current builder instance
+         */
+        public Builder label(String key, String value) {
+            this.labels.put(key, value);
+            return this;
+        }
+
+        /**
+         * Adds a readiness probe to the nodes created out of this service. A started node is ready when all of the
+         * probes of its service and its own probes pass. Take a look at {@link ReadinessProbe} for the available probes.
+         * @param readinessProbe the probe to be added
+         * @return the current builder instance
+         */
+        public Builder readinessProbe(ReadinessProbe readinessProbe) {
+            this.readinessProbes.add(readinessProbe);
+            return this;
+        }
+
+        /**
+         * Packs the nodes created out of this service into shared containers, each of which runs up to the given number
+         * of nodes as separate processes. Each node still gets its own ip address, paths, console and clock drift
+         * controller, and is killed, stopped and started on its own. The nodes of a container share its network stack,
+         * so their outgoing connections come from the address of the first node of the container, and a network
+         * partition cannot separate them. This is useful to run large clusters of lightweight nodes on a single host. The image of the service should contain iproute2, and the containers
+         * are given the SYS_ADMIN capability to mount the paths of each node in its own mount namespace.
+         * @param nodesPerContainer the maximum number of nodes in a container. 1 disables packing
+         * @return the current builder instance
+         */
+        public Builder nodesPerContainer(Integer nodesPerContainer) {
+            if (nodesPerContainer == null || nodesPerContainer < 1) {
+                throw new IllegalArgumentException("The number of nodes per container should be at least 1!");
+            }
+            this.nodesPerContainer = nodesPerContainer;
+            return this;
+        }
+
+        /**
+         * Limits the cpu and memory resources of each node created out of this service, so the nodes don't compete
+         * for the resources of the host. Take a look at {@link ResourceLimits} for the available limits.
+         * @param resourceLimits the limits of the nodes
+         * @return the current builder instance
+         */
+        public Builder resourceLimits(ResourceLimits.Builder resourceLimits) {
+            this.resourceLimits = resourceLimits.build();
+            return this;
+        }
+
         public Service.Builder workDir(String workDir) {
             this.workDir = workDir;
             return this;
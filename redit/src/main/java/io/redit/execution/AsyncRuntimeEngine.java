@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution;
+
+import io.redit.dsl.entities.ResourceLimits;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An asynchronous view of a {@link LimitedRuntimeEngine}. Every operation is submitted to a bounded pool of threads
+ * and returns immediately with a future, so faults on different nodes can be fired concurrently and composed with the
+ * {@link CompletableFuture} methods. Operations on the same node run in the order they were submitted and network
+ * partitions are ordered with respect to the operations on all of the nodes. A failed operation completes its future
+ * exceptionally with the RuntimeEngineException of the synchronous method and does not affect the next operations.
+ */
+public class AsyncRuntimeEngine {
+    private final LimitedRuntimeEngine runtimeEngine;
+    private final NodeOperationScheduler scheduler;
+
+    public AsyncRuntimeEngine(LimitedRuntimeEngine runtimeEngine, NodeOperationScheduler scheduler) {
+        this.runtimeEngine = runtimeEngine;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Asynchronous version of {@link LimitedRuntimeEngine#killNode(String)}
+     */
+    public CompletableFuture<Void> killNode(String nodeName) {
+        return scheduler.submit(nodeName, () -> {
+            runtimeEngine.killNode(nodeName);
+            return null;
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link LimitedRuntimeEngine#stopNode(String, Integer)}
+     */
+    public CompletableFuture<Void> stopNode(String nodeName, Integer secondsUntilForcedStop) {
+        return scheduler.submit(nodeName, () -> {
+            runtimeEngine.stopNode(nodeName, secondsUntilForcedStop);
+            return null;
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link LimitedRuntimeEngine#startNode(String)}
+     */
+    public CompletableFuture<Void> startNode(String nodeName) {
+        return scheduler.submit(nodeName, () -> {
+            runtimeEngine.startNode(nodeName);
+            return null;
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link LimitedRuntimeEngine#restartNode(String, Integer)}
+     */
+    public CompletableFuture<Void> restartNode(String nodeName, Integer secondsUntilForcedStop) {
+        return scheduler.submit(nodeName, () -> {
+            runtimeEngine.restartNode(nodeName, secondsUntilForcedStop);
+            return null;
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link LimitedRuntimeEngine#clockDrift(String, Integer)}
+     */
+    public CompletableFuture<Void> clockDrift(String nodeName, Integer amount) {
+        return scheduler.submit(nodeName, () -> {
+            runtimeEngine.clockDrift(nodeName, amount);
+            return null;
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link LimitedRuntimeEngine#updateNodeResources(String, ResourceLimits.Builder)}
+     */
+    public CompletableFuture<Void> updateNodeResources(String nodeName, ResourceLimits.Builder resourceLimits) {
+        return scheduler.submit(nodeName, () -> {
+            runtimeEngine.updateNodeResources(nodeName, resourceLimits);
+            return null;
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link LimitedRuntimeEngine#networkPartition(NetPart)}
+     */
+    public CompletableFuture<Void> networkPartition(NetPart netPart) {
+        return scheduler.submit(runtimeEngine.nodeNames(), () -> {
+            runtimeEngine.networkPartition(netPart);
+            return null;
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link LimitedRuntimeEngine#removeNetworkPartition(NetPart)}
+     */
+    public CompletableFuture<Void> removeNetworkPartition(NetPart netPart) {
+        return scheduler.submit(runtimeEngine.nodeNames(), () -> {
+            runtimeEngine.removeNetworkPartition(netPart);
+            return null;
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link LimitedRuntimeEngine#networkOperation(String, NetOp.BuilderBase...)}
+     */
+    public CompletableFuture<Void> networkOperation(String nodeName, NetOp.BuilderBase... netOpBuilders) {
+        return scheduler.submit(nodeName, () -> {
+            runtimeEngine.networkOperation(nodeName, netOpBuilders);
+            return null;
+        });
+    }
+
+    /**
+     * Executes a shell command in the given node in order with the other operations on the node. Unlike
+     * {@link LimitedRuntimeEngine#runCommandInNodeAsync(String, String)} the command waits for the previously submitted
+     * operations on the node, e.g. a restart, to be done.
+     * @see LimitedRuntimeEngine#runCommandInNode(String, String)
+     */
+    public CompletableFuture<CommandResults> runCommandInNode(String nodeName, String command) {
+        return scheduler.submit(nodeName, () -> runtimeEngine.runCommandInNode(nodeName, command));
+    }
+}
@@ -24,61 +24,66 @@
 
 package io.redit.execution;
 
+import io.redit.Constants;
 import io.redit.exceptions.RuntimeEngineException;
-import org.eclipse.jetty.server.Server;
-import org.eclipse.jetty.server.ServerConnector;
-import org.eclipse.jetty.servlet.ServletContextHandler;
-import org.eclipse.jetty.servlet.ServletHolder;
-import org.glassfish.jersey.servlet.ServletContainer;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-public class EventServer {
-    private final static Logger logger = LoggerFactory.getLogger(EventServer.class);
-    private Server jettyServer;
-    private Integer portNumber;
-    private Boolean stopped;
+/**
+ * The event server exposes the event service of a deployment to the instrumented nodes and the test case. The following
+ * endpoints should be served by all of the implementations:
+ * <ul>
+ *     <li>GET /dependencies/{name}?includeEvent={0|1}</li>
+ *     <li>GET /blockDependencies/{name}</li>
+ *     <li>GET /events/{name}</li>
+ *     <li>POST /events with a {"name": "..."} json body</li>
+ * </ul>
+ * Each of the GET endpoints returns 200 if the condition is satisfied and 404 otherwise. A server can host the event
+ * services of several deployments at the same time. Each of them is registered under a namespace and its endpoints are
+ * served under the /d/{namespace} prefix, e.g. GET /d/{namespace}/events/{name}.
+ */
+public interface EventServer {
+    /**
+     * Starts the server on a random free port. It won't do anything if the server is already started
+     * @throws RuntimeEngineException if the server cannot be started
+     */
+    void start() throws RuntimeEngineException;
 
-    public EventServer(EventService eventService) {
-        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
-        context.setContextPath("/");
-        context.setAttribute("io.redit.EventService", eventService);
+    /**
+     * Stops the server. In case of a failure it won't throw any exception, but error logs the exception
+     */
+    void stop();
 
-        jettyServer = new Server(0);
-        jettyServer.setHandler(context);
+    /**
+     * @return the port number the server is listening on or null if the server is not started yet
+     */
+    Integer getPortNumber();
 
-        ServletHolder jerseyServletHolder = context.addServlet(ServletContainer.class, "/*");
-        jerseyServletHolder.setInitOrder(0);
-        jerseyServletHolder.setInitParameter(
-                "jersey.config.server.provider.classnames", JerseyEndPoint.class.getCanonicalName());
-        stopped = true;
-    }
+    /**
+     * Registers the given event service to be served under the /d/{namespace} prefix
+     * @param namespace the namespace for the event service. It should only contain url safe characters
+     * @param eventService the event service to be served
+     * @throws IllegalStateException if the namespace is already registered
+     */
+    void register(String namespace, EventService eventService);
 
-    public void start() throws RuntimeEngineException {
-        if (stopped) {
-            try {
-                jettyServer.start();
-                portNumber = ((ServerConnector) jettyServer.getConnectors()[0]).getLocalPort();
-                stopped = false;
-            } catch (Exception e) {
-                throw new RuntimeEngineException("Cannot start Jetty Server!", e);
-            }
-        }
-    }
+    /**
+     * Removes the event service registered under the given namespace. It won't do anything if the namespace is not
+     * registered
+     * @param namespace the namespace to be removed
+     */
+    void unregister(String namespace);
 
-    public void stop() {
-        if (!stopped) {
-            try {
-                jettyServer.stop();
-                jettyServer.destroy();
-                stopped = true;
-            } catch (Exception e) {
-                logger.error("Unable to stop Jetty Server!", e);
-            }
+    /**
+     * Creates an event server for the given event service based on the {@link Constants#EVENT_SERVER_TYPE_PROPERTY}
+     * system property. Jetty is used by default and "lightweight" selects {@link LightweightEventServer}
+     * @param eventService the event service to be exposed at the root of the server or null if the server should only
+     *                     serve namespaced event services
+     * @return the event server instance which is not started yet
+     */
+    static EventServer create(EventService eventService) {
+        String serverType = System.getProperty(Constants.EVENT_SERVER_TYPE_PROPERTY, Constants.EVENT_SERVER_TYPE_JETTY);
+        if (Constants.EVENT_SERVER_TYPE_LIGHTWEIGHT.equalsIgnoreCase(serverType)) {
+            return new LightweightEventServer(eventService);
         }
-    }
-
-    public Integer getPortNumber() {
-        return portNumber;
+        return new JettyEventServer(eventService);
     }
 }
@@ -27,24 +27,36 @@ package io.redit.execution;
 import io.redit.dsl.entities.Deployment;
 import io.redit.dsl.events.internal.SchedulingEvent;
 import io.redit.dsl.ReferableDeploymentEntity;
+import io.redit.dsl.events.InternalEvent;
 import io.redit.dsl.events.internal.BlockingEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 public class EventService {
     private static Logger logger = LoggerFactory.getLogger(EventService.class);
+    // waiters poll every few milliseconds, so a waiter that is not seen for this long is not waiting anymore
+    private static final Duration WAITER_EXPIRY = Duration.ofSeconds(5);
 
     private ConcurrentHashMap<String, Boolean> eventCheckList;
+    private final ConcurrentHashMap<String, EventWaiter> waiters;
+    private final List<Consumer<String>> eventListeners;
     private final Deployment deployment;
-    private Instant lastTimeEventReceived;
+    private volatile Instant lastTimeEventReceived;
 
     EventService(Deployment deployment) {
         this.deployment = deployment;
         eventCheckList = new ConcurrentHashMap<>();
+        waiters = new ConcurrentHashMap<>();
+        eventListeners = new CopyOnWriteArrayList<>();
         lastTimeEventReceived = Instant.now();
         markEligibleBlockingEventsAsReceived();
     }
@@ -60,9 +72,22 @@ public class EventService {
             lastTimeEventReceived = Instant.now();
             // if the dependencies of any block scheduling event is met, then mark it as received
             markEligibleBlockingEventsAsReceived();
+            for (Consumer<String> eventListener: eventListeners) {
+                eventListener.accept(eventName);
+            }
         }
     }
 
+    /**
+     * Adds a listener to be called with the name of each newly received event after the blocking events whose
+     * dependencies are met by it are marked as received, so the threads in the same JVM can wait for the dependencies
+     * of an event without polling
+     * @param eventListener the listener to be added
+     */
+    public void addEventListener(Consumer<String> eventListener) {
+        eventListeners.add(eventListener);
+    }
+
     public void markEligibleBlockingEventsAsReceived() {
         for (SchedulingEvent schedulingEvent: deployment.getBlockingSchedulingEvents().values()) {
             if (!eventCheckList.containsKey(schedulingEvent.getName()) && areDependenciesMet(schedulingEvent.getName())) {
@@ -100,6 +125,54 @@ public class EventService {
         }
     }
 
+    /**
+     * Checks the dependencies of an event the same way as {@link #areDependenciesMet(String, Integer)} while keeping
+     * track of the thread that is polling for them. If the dependencies are not met, the thread is registered as a
+     * waiter for the event, otherwise it is removed from the waiters.
+     * @param eventName the event to be checked
+     * @param eventInclusion 1 if the event itself should be received as well, otherwise 0
+     * @param nodeName the name of the node the polling thread is running in
+     * @param threadName the name of the polling thread
+     * @return true if the dependencies are met, otherwise false
+     */
+    public boolean areDependenciesMet(String eventName, Integer eventInclusion, String nodeName, String threadName) {
+        boolean dependenciesMet = areDependenciesMet(eventName, eventInclusion);
+        if (nodeName != null || threadName != null) {
+            String waiterKey = eventName + "@" + nodeName + "/" + threadName;
+            if (dependenciesMet) {
+                waiters.remove(waiterKey);
+            } else {
+                waiters.computeIfAbsent(waiterKey, k -> new EventWaiter(eventName, nodeName, threadName, eventInclusion))
+                        .touch();
+            }
+        }
+        return dependenciesMet;
+    }
+
+    /**
+     * @return the threads that are currently polling for an event with unmet dependencies, oldest first
+     */
+    public List<EventWaiter> getWaiters() {
+        Instant expiry = Instant.now().minus(WAITER_EXPIRY);
+        waiters.values().removeIf(waiter -> waiter.getLastSeen().isBefore(expiry));
+        List<EventWaiter> liveWaiters = new ArrayList<>(waiters.values());
+        liveWaiters.sort(Comparator.comparing(EventWaiter::getFirstSeen));
+        return liveWaiters;
+    }
+
+    public List<String> getUnmetDependencies(String eventName) {
+        List<String> unmetDependencies = new ArrayList<>();
+        ReferableDeploymentEntity deploymentEntity = deployment.getReferableDeploymentEntity(eventName);
+        if (deploymentEntity != null && deploymentEntity.getDependsOn() != null) {
+            for (String dependency: deploymentEntity.getDependsOn().split(",")) {
+                if (!eventCheckList.containsKey(dependency)) {
+                    unmetDependencies.add(dependency);
+                }
+            }
+        }
+        return unmetDependencies;
+    }
+
     public boolean areBlockDependenciesMet(String eventName) {
         BlockingEvent blockingEvent = deployment.getBlockingEvent(eventName);
         if (blockingEvent == null || !blockingEvent.isBlocking()) {
@@ -128,6 +201,90 @@ public class EventService {
         return true;
     }
 
+    private List<String> getRunSequenceEvents() {
+        List<String> events = new ArrayList<>();
+        if (deployment.getRunSequence() != null) {
+            for (String id: deployment.getRunSequence().split("\\W+")) {
+                if (!id.isEmpty() && !events.contains(id)) {
+                    events.add(id);
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * The run sequence is stalled if no event is received for the given amount of time while there is at least one
+     * thread waiting for an event and none of the waiting threads can make progress anymore.
+     * @param stallTimeout the number of seconds without any new event or null to disable stall detection
+     * @return true if the run sequence is stalled, otherwise false
+     */
+    public boolean isStalled(Integer stallTimeout) {
+        if (stallTimeout == null || isTheRunSequenceCompleted()) {
+            return false;
+        }
+
+        if (Duration.between(lastTimeEventReceived, Instant.now()).getSeconds() < stallTimeout) {
+            return false;
+        }
+
+        List<EventWaiter> liveWaiters = getWaiters();
+        if (liveWaiters.isEmpty()) {
+            return false;
+        }
+
+        for (EventWaiter waiter: liveWaiters) {
+            if (areDependenciesMet(waiter.getEventName(), waiter.getEventInclusion())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return a human readable report of the received and pending events of the run sequence, the unmet dependencies
+     * of the pending events and the threads that are waiting for them
+     */
+    public String getRunSequenceReport() {
+        String newLine = System.lineSeparator();
+        List<String> receivedEvents = new ArrayList<>();
+        List<String> pendingEvents = new ArrayList<>();
+        for (String eventName: getRunSequenceEvents()) {
+            (eventCheckList.containsKey(eventName) ? receivedEvents : pendingEvents).add(eventName);
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append("Run sequence: ").append(deployment.getRunSequence()).append(newLine);
+        report.append("Received events: ").append(receivedEvents).append(newLine);
+        report.append("Pending events:").append(newLine);
+        for (String eventName: pendingEvents) {
+            report.append("  ").append(eventName);
+            ReferableDeploymentEntity deploymentEntity = deployment.getReferableDeploymentEntity(eventName);
+            if (deploymentEntity instanceof InternalEvent) {
+                report.append(" in node ").append(((InternalEvent) deploymentEntity).getNodeName());
+            } else {
+                report.append(" in the test case");
+            }
+            List<String> unmetDependencies = getUnmetDependencies(eventName);
+            if (unmetDependencies.isEmpty()) {
+                report.append(" has all of its dependencies met but is not reached yet");
+            } else {
+                report.append(" is waiting for ").append(unmetDependencies);
+            }
+            report.append(newLine);
+        }
+
+        List<EventWaiter> liveWaiters = getWaiters();
+        report.append("Waiting threads:").append(liveWaiters.isEmpty() ? " none" : "").append(newLine);
+        Instant now = Instant.now();
+        for (EventWaiter waiter: liveWaiters) {
+            report.append("  ").append(waiter).append(" for ")
+                    .append(Duration.between(waiter.getFirstSeen(), now).getSeconds()).append(" seconds")
+                    .append(newLine);
+        }
+        return report.toString();
+    }
+
     public boolean isLastEventReceivedTimeoutPassed(Integer nextEventReceiptTimeout) {
         if (isTheRunSequenceCompleted()) {
             return false;
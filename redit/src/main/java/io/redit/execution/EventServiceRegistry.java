@@ -0,0 +1,66 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the event services that are served by an event server. The default event service is served at the root of the
+ * server and the namespaced ones are served under the /d/{namespace} prefix.
+ */
+class EventServiceRegistry {
+    private final EventService defaultEventService;
+    private final ConcurrentHashMap<String, EventService> namespacedEventServices;
+
+    EventServiceRegistry(EventService defaultEventService) {
+        this.defaultEventService = defaultEventService;
+        namespacedEventServices = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @return the event service served at the root of the server or null if there is none
+     */
+    EventService getDefault() {
+        return defaultEventService;
+    }
+
+    /**
+     * @param namespace the namespace of the event service
+     * @return the event service registered under the given namespace or null if there is none
+     */
+    EventService get(String namespace) {
+        return namespacedEventServices.get(namespace);
+    }
+
+    void register(String namespace, EventService eventService) {
+        if (namespacedEventServices.putIfAbsent(namespace, eventService) != null) {
+            throw new IllegalStateException("Event namespace " + namespace + " is already registered!");
+        }
+    }
+
+    void unregister(String namespace) {
+        namespacedEventServices.remove(namespace);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution;
+
+import java.time.Instant;
+
+/**
+ * A thread in one of the nodes or in the test case which is polling the event server for the dependencies of an event
+ */
+public class EventWaiter {
+    private final String eventName;
+    private final String nodeName;
+    private final String threadName;
+    private final Integer eventInclusion;
+    private final Instant firstSeen;
+    private volatile Instant lastSeen;
+
+    EventWaiter(String eventName, String nodeName, String threadName, Integer eventInclusion) {
+        this.eventName = eventName;
+        this.nodeName = nodeName;
+        this.threadName = threadName;
+        this.eventInclusion = eventInclusion;
+        this.firstSeen = Instant.now();
+        this.lastSeen = firstSeen;
+    }
+
+    void touch() {
+        lastSeen = Instant.now();
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    public Integer getEventInclusion() {
+        return eventInclusion;
+    }
+
+    public Instant getFirstSeen() {
+        return firstSeen;
+    }
+
+    public Instant getLastSeen() {
+        return lastSeen;
+    }
+
+    @Override
+    public String toString() {
+        return "thread \"" + threadName + "\" in " + (nodeName == null ? "unknown node" : "node " + nodeName)
+                + " waiting for " + eventName;
+    }
+}
@@ -32,23 +32,44 @@ import javax.ws.rs.core.Response;
 
 @Path("/")
 public class JerseyEndPoint {
+    static final String EVENT_SERVICE_REGISTRY_ATTRIBUTE = "io.redit.EventServiceRegistry";
 
     @Context
     ServletContext context;
 
     EventService eventService;
 
+    private EventServiceRegistry getEventServiceRegistry() {
+        return (EventServiceRegistry) context.getAttribute(EVENT_SERVICE_REGISTRY_ATTRIBUTE);
+    }
+
     private EventService getEventService() {
         if (eventService == null) {
-            eventService = (EventService) context.getAttribute("io.redit.EventService");
+            eventService = getEventServiceRegistry().getDefault();
+            if (eventService == null) {
+                throw new NotFoundException();
+            }
         }
         return eventService;
     }
 
+    @Path("/d/{namespace}")
+    public JerseyEndPoint namespacedEndPoint(@PathParam("namespace") String namespace) {
+        EventService namespacedEventService = getEventServiceRegistry().get(namespace);
+        if (namespacedEventService == null) {
+            throw new NotFoundException();
+        }
+
+        JerseyEndPoint namespacedEndPoint = new JerseyEndPoint();
+        namespacedEndPoint.eventService = namespacedEventService;
+        return namespacedEndPoint;
+    }
+
     @GET
     @Path("/dependencies/{name}")
-    public Response checkEventDependencies(@PathParam("name") String eventName, @QueryParam("includeEvent") Integer eventInclusion) {
-        if (getEventService().areDependenciesMet(eventName, eventInclusion)) {
+    public Response checkEventDependencies(@PathParam("name") String eventName, @QueryParam("includeEvent") Integer eventInclusion,
+                                           @QueryParam("node") String nodeName, @QueryParam("thread") String threadName) {
+        if (getEventService().areDependenciesMet(eventName, eventInclusion, nodeName, threadName)) {
             return Response.status(Response.Status.OK).build();
         } else {
             return Response.status(Response.Status.NOT_FOUND).build();
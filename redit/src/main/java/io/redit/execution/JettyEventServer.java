@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution;
+
+import io.redit.exceptions.RuntimeEngineException;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.glassfish.jersey.servlet.ServletContainer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class JettyEventServer implements EventServer {
+    private final static Logger logger = LoggerFactory.getLogger(JettyEventServer.class);
+    private final EventServiceRegistry eventServiceRegistry;
+    private Server jettyServer;
+    private Integer portNumber;
+    private Boolean stopped;
+
+    public JettyEventServer(EventService eventService) {
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
+        context.setContextPath("/");
+        eventServiceRegistry = new EventServiceRegistry(eventService);
+        context.setAttribute(JerseyEndPoint.EVENT_SERVICE_REGISTRY_ATTRIBUTE, eventServiceRegistry);
+
+        // Daemon threads prevent a forgotten or shared server from keeping the jvm alive
+        QueuedThreadPool threadPool = new QueuedThreadPool();
+        threadPool.setDaemon(true);
+        jettyServer = new Server(threadPool);
+        ServerConnector connector = new ServerConnector(jettyServer);
+        connector.setPort(0);
+        jettyServer.addConnector(connector);
+        jettyServer.setHandler(context);
+
+        ServletHolder jerseyServletHolder = context.addServlet(ServletContainer.class, "/*");
+        jerseyServletHolder.setInitOrder(0);
+        jerseyServletHolder.setInitParameter(
+                "jersey.config.server.provider.classnames", JerseyEndPoint.class.getCanonicalName());
+        stopped = true;
+    }
+
+    @Override
+    public void start() throws RuntimeEngineException {
+        if (stopped) {
+            try {
+                jettyServer.start();
+                portNumber = ((ServerConnector) jettyServer.getConnectors()[0]).getLocalPort();
+                stopped = false;
+            } catch (Exception e) {
+                throw new RuntimeEngineException("Cannot start Jetty Server!", e);
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (!stopped) {
+            try {
+                jettyServer.stop();
+                jettyServer.destroy();
+                stopped = true;
+            } catch (Exception e) {
+                logger.error("Unable to stop Jetty Server!", e);
+            }
+        }
+    }
+
+    @Override
+    public Integer getPortNumber() {
+        return portNumber;
+    }
+
+    @Override
+    public void register(String namespace, EventService eventService) {
+        eventServiceRegistry.register(namespace, eventService);
+    }
+
+    @Override
+    public void unregister(String namespace) {
+        eventServiceRegistry.unregister(namespace);
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.redit.exceptions.RuntimeEngineException;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An event server implementation on top of the JDK's built-in http server. There is no servlet container, classpath
+ * scanning or json provider involved. Routing and json parsing for the few endpoints of the event server are done by
+ * hand, so the server starts in a few milliseconds and the requests are served without per request object wiring.
+ */
+public class LightweightEventServer implements EventServer {
+    private final static Logger logger = LoggerFactory.getLogger(LightweightEventServer.class);
+    private final static int HTTP_OK = 200;
+    private final static int HTTP_NOT_FOUND = 404;
+    private final static int HTTP_BAD_REQUEST = 400;
+    private final static int HTTP_BAD_METHOD = 405;
+    private final static String NAMESPACE_PREFIX = "/d/";
+
+    private final EventServiceRegistry eventServiceRegistry;
+    private HttpServer httpServer;
+    private ExecutorService executorService;
+    private Integer portNumber;
+    private Boolean stopped;
+
+    public LightweightEventServer(EventService eventService) {
+        eventServiceRegistry = new EventServiceRegistry(eventService);
+        stopped = true;
+    }
+
+    @Override
+    public void start() throws RuntimeEngineException {
+        if (stopped) {
+            try {
+                httpServer = HttpServer.create(new InetSocketAddress(0), 0);
+            } catch (IOException e) {
+                throw new RuntimeEngineException("Cannot start the lightweight event server!", e);
+            }
+            AtomicInteger threadCounter = new AtomicInteger();
+            executorService = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+                Thread thread = new Thread(r, "redit-event-server-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            httpServer.setExecutor(executorService);
+            httpServer.createContext("/", this::handle);
+            httpServer.start();
+            portNumber = httpServer.getAddress().getPort();
+            stopped = false;
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (!stopped) {
+            try {
+                httpServer.stop(0);
+                executorService.shutdownNow();
+                stopped = true;
+            } catch (Exception e) {
+                logger.error("Unable to stop the lightweight event server!", e);
+            }
+        }
+    }
+
+    @Override
+    public Integer getPortNumber() {
+        return portNumber;
+    }
+
+    @Override
+    public void register(String namespace, EventService eventService) {
+        eventServiceRegistry.register(namespace, eventService);
+    }
+
+    @Override
+    public void unregister(String namespace) {
+        eventServiceRegistry.unregister(namespace);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            exchange.sendResponseHeaders(route(exchange), -1);
+        } catch (RuntimeException e) {
+            logger.error("Error while handling event server request {}", exchange.getRequestURI(), e);
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private int route(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+        EventService eventService;
+
+        if (path.startsWith(NAMESPACE_PREFIX)) {
+            int namespaceEnd = path.indexOf('/', NAMESPACE_PREFIX.length());
+            if (namespaceEnd == -1) {
+                return HTTP_NOT_FOUND;
+            }
+            eventService = eventServiceRegistry.get(path.substring(NAMESPACE_PREFIX.length(), namespaceEnd));
+            path = path.substring(namespaceEnd);
+        } else {
+            eventService = eventServiceRegistry.getDefault();
+        }
+
+        if (eventService == null) {
+            return HTTP_NOT_FOUND;
+        }
+        // A trailing slash is ignored the same way jersey does
+        if (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+
+        if (path.equals("/events")) {
+            if (!method.equals("POST")) {
+                return HTTP_BAD_METHOD;
+            }
+            String eventName;
+            try (InputStream body = exchange.getRequestBody()) {
+                eventName = parseEventName(IOUtils.toString(body, StandardCharsets.UTF_8));
+            }
+            if (eventName == null) {
+                return HTTP_BAD_REQUEST;
+            }
+            eventService.receiveEvent(eventName);
+            return HTTP_OK;
+        }
+
+        int nameIndex = path.indexOf('/', 1);
+        if (nameIndex == -1 || nameIndex == path.length() - 1) {
+            return HTTP_NOT_FOUND;
+        }
+        if (!method.equals("GET")) {
+            return HTTP_BAD_METHOD;
+        }
+
+        String resource = path.substring(1, nameIndex);
+        String eventName = path.substring(nameIndex + 1);
+        // The name is a single path segment the same way as the path param of jersey
+        if (eventName.contains("/")) {
+            return HTTP_NOT_FOUND;
+        }
+        switch (resource) {
+            case "dependencies":
+                String query = exchange.getRequestURI().getRawQuery();
+                Integer eventInclusion;
+                try {
+                    eventInclusion = getIntegerQueryParam(query, "includeEvent");
+                } catch (NumberFormatException e) {
+                    // Jersey fails the request with a 404 when a query param cannot be converted
+                    return HTTP_NOT_FOUND;
+                }
+                return toStatus(eventService.areDependenciesMet(eventName, eventInclusion,
+                        getQueryParam(query, "node"), getQueryParam(query, "thread")));
+            case "blockDependencies":
+                return toStatus(eventService.areBlockDependenciesMet(eventName));
+            case "events":
+                return toStatus(eventService.hasEventReceived(eventName));
+            default:
+                return HTTP_NOT_FOUND;
+        }
+    }
+
+    private static int toStatus(boolean conditionMet) {
+        return conditionMet ? HTTP_OK : HTTP_NOT_FOUND;
+    }
+
+    /**
+     * @return the value of the query param or null if it is missing, the same as an Integer query param of jersey
+     * @throws NumberFormatException if the value is not an integer
+     */
+    private static Integer getIntegerQueryParam(String query, String paramName) {
+        String value = getQueryParam(query, paramName);
+        return value == null || value.isEmpty() ? null : Integer.valueOf(value);
+    }
+
+    private static String getQueryParam(String query, String paramName) {
+        if (query != null) {
+            for (String param : query.split("&")) {
+                if (param.startsWith(paramName + "=")) {
+                    try {
+                        return URLDecoder.decode(param.substring(paramName.length() + 1), "UTF-8");
+                    } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+                        return null;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Extracts the value of the name field from an event json object, e.g. {"name":"e1"}
+     * @param json the json string to be parsed
+     * @return the event name with its escape sequences decoded or null if the name field is not found or is malformed
+     */
+    static String parseEventName(String json) {
+        int keyIndex = json.indexOf("\"name\"");
+        if (keyIndex == -1) {
+            return null;
+        }
+
+        int colonIndex = json.indexOf(':', keyIndex + 6);
+        int startIndex = colonIndex == -1 ? -1 : json.indexOf('"', colonIndex + 1);
+        if (startIndex == -1) {
+            return null;
+        }
+
+        StringBuilder name = new StringBuilder();
+        for (int i = startIndex + 1; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c == '"') {
+                return name.toString();
+            } else if (c == '\\' && i + 1 < json.length()) {
+                char escaped = json.charAt(++i);
+                switch (escaped) {
+                    case 'b': name.append('\b'); break;
+                    case 'f': name.append('\f'); break;
+                    case 'n': name.append('\n'); break;
+                    case 'r': name.append('\r'); break;
+                    case 't': name.append('\t'); break;
+                    case 'u':
+                        if (i + 4 >= json.length()) {
+                            return null;
+                        }
+                        try {
+                            name.append((char) Integer.parseInt(json.substring(i + 1, i + 5), 16));
+                        } catch (NumberFormatException e) {
+                            return null;
+                        }
+                        i += 4;
+                        break;
+                    default: name.append(escaped);
+                }
+            } else {
+                name.append(c);
+            }
+        }
+        return null;
+    }
+}
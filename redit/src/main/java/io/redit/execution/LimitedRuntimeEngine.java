@@ -26,11 +26,15 @@
 package io.redit.execution;
 
 import io.redit.dsl.entities.PortType;
+import io.redit.dsl.entities.ResourceLimits;
 import io.redit.exceptions.NodeIsNotRunningException;
 import io.redit.exceptions.NodeNotFoundException;
 import io.redit.exceptions.RuntimeEngineException;
 
+import java.io.OutputStream;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeoutException;
 
 public interface LimitedRuntimeEngine {
@@ -56,10 +60,11 @@ public interface LimitedRuntimeEngine {
     /**
      * Starts a node in the deployed environment. It won't throw an exception if the node is already started
      * @param nodeName the node name to be started
+     * @return a handle to wait for the node to be ready, e.g. startNode("nn1").awaitReady(60)
      * @throws RuntimeEngineException is something goes wrong
      * @throws NodeNotFoundException if the node doesn't exist
      */
-    void startNode(String nodeName) throws RuntimeEngineException;
+    NodeReadiness startNode(String nodeName) throws RuntimeEngineException;
 
     /**
      * Restarts a node in the deployed environment. It won't throw an exception if the node is not running
@@ -79,6 +84,16 @@ public interface LimitedRuntimeEngine {
      */
     void clockDrift(String nodeName, Integer amount) throws RuntimeEngineException;
 
+    /**
+     * Changes the cpu and memory limits of a node while it keeps running. The limits that are set override the current
+     * limits of the node and the rest of them are kept. This is useful to simulate an under-provisioned node
+     * @param nodeName the node name to change the limits of
+     * @param resourceLimits the new limits. Take a look at {@link ResourceLimits} for the available limits
+     * @throws RuntimeEngineException if something goes wrong
+     * @throws NodeNotFoundException if the node doesn't exist
+     */
+    void updateNodeResources(String nodeName, ResourceLimits.Builder resourceLimits) throws RuntimeEngineException;
+
     /**
      * Imposes a network partition based on the given partition scheme in the deployed environment
      * @param netPart the desired scheme for the partition. Take a look at {@link NetPart} class for more information
@@ -116,6 +131,179 @@ public interface LimitedRuntimeEngine {
      */
     CommandResults runCommandInNode(String nodeName, String command) throws RuntimeEngineException;
 
+    /**
+     * Executes a list of shell commands in the given node through a single exec. Each command runs in its own subshell
+     * one after another, so a failing command does not stop the next ones and the results of each command are reported
+     * separately. This is much cheaper than executing the commands one by one when several commands are needed.
+     * @param nodeName the node name to execute the shell commands into
+     * @param commands the commands to be executed in order
+     * @return the execution results of each of the commands including exit code, stdout and stderr in the same order
+     * @throws RuntimeEngineException if something goes wrong
+     * @throws NodeIsNotRunningException if the node is not running
+     * @throws NodeNotFoundException if the node doesn't exist
+     */
+    List<CommandResults> runCommandsInNode(String nodeName, List<String> commands) throws RuntimeEngineException;
+
+    /**
+     * Executes a shell command in the given node without blocking the caller. The stdout and stderr of the command are
+     * collected in bounded buffers whose size is set by the redit.exec.outputLimit system property (1MB by default).
+     * Output beyond the limit is dropped and a truncation note is added. The commands are run by a pool of threads
+     * shared by all of the nodes whose size is set by the redit.exec.parallelism system property, and the commands
+     * beyond that wait for their turn.
+     * @param nodeName the node name to execute the shell command into
+     * @param command the command to be executed
+     * @return a future for the command execution results including exit code, stdout and stderr. The future fails with
+     * a {@link NodeIsNotRunningException} if the node is not running, with a {@link NodeNotFoundException} if the node
+     * doesn't exist or with a RuntimeEngineException if something else goes wrong
+     */
+    CompletableFuture<CommandResults> runCommandInNodeAsync(String nodeName, String command);
+
+    /**
+     * Executes a shell command in the given node without blocking the caller and streams its stdout and stderr into the
+     * given output streams as they are produced. The streams are not closed when the command finishes.
+     * @param nodeName the node name to execute the shell command into
+     * @param command the command to be executed
+     * @param stdOut the stream to write the standard output of the command into
+     * @param stdErr the stream to write the standard error of the command into
+     * @return a future for the command execution results including the exit code. The stdout and stderr of the
+     * results are empty. The future fails the same way as {@link #runCommandInNodeAsync(String, String)}
+     */
+    CompletableFuture<CommandResults> runCommandInNodeAsync(String nodeName, String command, OutputStream stdOut,
+                                                            OutputStream stdErr);
+
+    /**
+     * @return an asynchronous view of this runtime engine in which every operation returns a future. Operations on the
+     * same node are applied in the order they are submitted. Take a look at {@link AsyncRuntimeEngine} for more
+     * information
+     */
+    AsyncRuntimeEngine async();
+
+    // Readiness
+
+    /**
+     * Evaluates the readiness probes of a node once. Take a look at {@link io.redit.dsl.entities.ReadinessProbe} for
+     * more information
+     * @param nodeName the node name
+     * @return true if all of the readiness probes of the node and its service pass or if there is no probe
+     */
+    boolean isReady(String nodeName);
+
+    /**
+     * Waits for a node to be ready based on the readiness probes of the node and its service. The probes are evaluated
+     * with a short backoff, so the wait returns shortly after the node is ready.
+     * @param nodeName the node name
+     * @param timeout the waiting timeout in seconds
+     * @throws TimeoutException if the node is not ready before the timeout
+     * @throws RuntimeEngineException if the node exits before being ready or the wait is interrupted
+     */
+    void awaitReady(String nodeName, Integer timeout) throws RuntimeEngineException, TimeoutException;
+
+    /**
+     * Waits for all of the running nodes to be ready in parallel
+     * @param timeout the waiting timeout in seconds
+     * @throws TimeoutException if any of the nodes is not ready before the timeout
+     * @throws RuntimeEngineException if a node exits before being ready or the wait is interrupted
+     * @see #awaitReady(String, Integer)
+     */
+    void awaitAllReady(Integer timeout) throws RuntimeEngineException, TimeoutException;
+
+    // Bulk Runtime Operation
+
+    /**
+     * Kills the selected nodes in parallel. It won't fail for a node that is not running
+     * @param selector the selector of the nodes to be killed. Take a look at {@link NodeSelector} for more information
+     * @return the aggregated results of the operation on each of the selected nodes
+     * @throws RuntimeEngineException if the wait for the operation is interrupted
+     */
+    NodeOperationResults<Void> killNodes(NodeSelector selector) throws RuntimeEngineException;
+
+    /**
+     * Stops the selected nodes in parallel. It won't fail for a node that is not running
+     * @param selector the selector of the nodes to be stopped. Take a look at {@link NodeSelector} for more information
+     * @param secondsUntilForcedStop the number of seconds to wait until forcing a stop
+     * @return the aggregated results of the operation on each of the selected nodes
+     * @throws RuntimeEngineException if the wait for the operation is interrupted
+     */
+    NodeOperationResults<Void> stopNodes(NodeSelector selector, Integer secondsUntilForcedStop)
+            throws RuntimeEngineException;
+
+    /**
+     * Starts the selected nodes in parallel. It won't fail for a node that is already started
+     * @param selector the selector of the nodes to be started. Take a look at {@link NodeSelector} for more information
+     * @return the aggregated results of the operation on each of the selected nodes
+     * @throws RuntimeEngineException if the wait for the operation is interrupted
+     */
+    NodeOperationResults<Void> startNodes(NodeSelector selector) throws RuntimeEngineException;
+
+    /**
+     * Restarts the selected nodes in parallel. It won't fail for a node that is not running
+     * @param selector the selector of the nodes to be restarted. Take a look at {@link NodeSelector} for more
+     *                 information
+     * @param secondsUntilForcedStop the number of seconds to wait until forcing a stop
+     * @return the aggregated results of the operation on each of the selected nodes
+     * @throws RuntimeEngineException if the wait for the operation is interrupted
+     */
+    NodeOperationResults<Void> restartNodes(NodeSelector selector, Integer secondsUntilForcedStop)
+            throws RuntimeEngineException;
+
+    /**
+     * Executes a shell command in the selected nodes in parallel
+     * @param selector the selector of the nodes to execute the command into. Take a look at {@link NodeSelector} for
+     *                 more information
+     * @param command the command to be executed
+     * @return the aggregated command execution results of each of the selected nodes
+     * @throws RuntimeEngineException if the wait for the operation is interrupted
+     */
+    NodeOperationResults<CommandResults> runCommandInNodes(NodeSelector selector, String command)
+            throws RuntimeEngineException;
+
+    /**
+     * Applies a network operation on the selected nodes in parallel
+     * @param selector the selector of the nodes to apply the network operation on. Take a look at {@link NodeSelector}
+     *                 for more information
+     * @param netOpBuilders the specifics of the network operation. Take a look a {@link NetOp} class for more
+     *                      information.
+     * @return the aggregated results of the operation on each of the selected nodes
+     * @throws RuntimeEngineException if the wait for the operation is interrupted
+     */
+    NodeOperationResults<Void> networkOperation(NodeSelector selector, NetOp.BuilderBase... netOpBuilders)
+            throws RuntimeEngineException;
+
+    // Snapshots
+
+    /**
+     * Takes a snapshot of the file systems of all of the nodes, e.g. after an expensive setup, to be restored later in
+     * the same run or in the later runs of the same deployment. The running nodes are frozen while their workspaces
+     * and their state outside of the workspaces, e.g. the writable layer of their containers, are being captured and
+     * continue afterwards. A snapshot with the same name is overwritten.
+     * @param snapshotName the name of the snapshot. Only letters, digits, `_`, `.` and `-` are allowed
+     * @throws RuntimeEngineException if something goes wrong
+     */
+    void snapshotNodes(String snapshotName) throws RuntimeEngineException;
+
+    /**
+     * Rolls the file systems of the nodes back to the given snapshot. All of the running nodes are killed, their file
+     * systems are restored and the nodes that were running when the snapshot was taken are started again in their
+     * start order. The in-memory state of the nodes is not part of a snapshot, so the restored nodes recover from the
+     * restored files like after a crash. The nodes that are not in the snapshot are left untouched.
+     * @param snapshotName the name of the snapshot to be restored
+     * @throws RuntimeEngineException if the snapshot does not exist or something goes wrong
+     */
+    void restoreNodes(String snapshotName) throws RuntimeEngineException;
+
+    /**
+     * @param snapshotName the name of the snapshot
+     * @return true if the snapshot exists for the deployment, e.g. to skip an expensive setup that is already captured
+     */
+    boolean hasSnapshot(String snapshotName);
+
+    /**
+     * Deletes the given snapshot of the deployment. It won't fail if the snapshot does not exist
+     * @param snapshotName the name of the snapshot to be deleted
+     * @throws RuntimeEngineException if something goes wrong
+     */
+    void deleteSnapshot(String snapshotName) throws RuntimeEngineException;
+
     // Runtime Info
 
     /**
@@ -123,6 +311,12 @@ public interface LimitedRuntimeEngine {
      */
     Set<String> nodeNames();
 
+    /**
+     * @param selector the node selector. Take a look at {@link NodeSelector} for more information
+     * @return a set of the deployed node names that are selected by the given selector
+     */
+    Set<String> selectNodes(NodeSelector selector);
+
     /**
      * @param nodeName the node name to find ip address for
      * @return the ip address of the given node name or null if the node is not found
@@ -138,6 +332,26 @@ public interface LimitedRuntimeEngine {
      */
     Integer portMapping(String nodeName, Integer portNumber, PortType portType);
 
+    /**
+     * Returns the last known state of a node's container. The state is kept up to date by the runtime engine, so this
+     * method does not reach out to the container runtime.
+     * @param nodeName the node name
+     * @return the state of the node including its running status, last exit code and restart count or null if the
+     * node is not found or the runtime engine is not started
+     */
+    NodeState nodeState(String nodeName);
+
+    /**
+     * Adds a listener to be notified whenever the state of a node changes, e.g. when a node crashes on its own
+     * @param listener the listener to be added
+     */
+    void addNodeStateListener(NodeStateListener listener);
+
+    /**
+     * @param listener the listener to be removed
+     */
+    void removeNodeStateListener(NodeStateListener listener);
+
     // Events
 
     /**
@@ -227,4 +441,28 @@ public interface LimitedRuntimeEngine {
      * @throws TimeoutException if either type of timeout happens
      */
     void waitForRunSequenceCompletion(Integer timeout, Integer nextEventReceiptTimeout) throws TimeoutException;
+
+    /**
+     * This method waits for the run sequence to be enforced completely, and then returns. In addition to the two
+     * timeouts of {@link #waitForRunSequenceCompletion(Integer, Integer)}, if stallTimeout is not null and no new event
+     * is received for that amount of time while every thread that is polling the event server is still blocked on unmet
+     * dependencies, the run sequence is considered stalled and this method fails fast with a report of the pending
+     * events, their unmet dependencies and the blocked threads. When not given, the stall timeout is read from the
+     * redit.runSequence.stallTimeout system property.
+     * @param timeout the waiting timeout in seconds
+     * @param nextEventReceiptTimeout the number of seconds to wait until timeout the receipt of the next event in the
+     *                                run sequence
+     * @param stallTimeout the number of seconds without progress after which a run sequence with only blocked waiters
+     *                     is considered stalled
+     * @throws TimeoutException if either type of timeout happens. The stall and next event receipt timeouts throw a
+     * {@link io.redit.exceptions.RunSequenceStalledException}
+     */
+    void waitForRunSequenceCompletion(Integer timeout, Integer nextEventReceiptTimeout, Integer stallTimeout)
+            throws TimeoutException;
+
+    /**
+     * @return a human readable report of the received and pending events of the run sequence, their unmet dependencies
+     * and the threads that are currently waiting for them
+     */
+    String getRunSequenceReport();
 }
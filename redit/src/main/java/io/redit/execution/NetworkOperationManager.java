@@ -4,8 +4,10 @@ import io.redit.exceptions.RuntimeEngineException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class NetworkOperationManager {
     private final static Logger logger = LoggerFactory.getLogger(NetworkOperationManager.class);
@@ -16,76 +18,81 @@ public class NetworkOperationManager {
             + " /^\\(lo\\|\\)$/d'";
 
     public NetworkOperationManager(LimitedRuntimeEngine runtimeEngine) {
-        netDelayMap = new HashMap<>();
-        netLossMap = new HashMap<>();
+        netDelayMap = new ConcurrentHashMap<>();
+        netLossMap = new ConcurrentHashMap<>();
         this.runtimeEngine = runtimeEngine;
     }
 
+    /**
+     * @return the tc command that re-applies the current network operations of the node or null if there is none.
+     * This is useful when start/restarting a node
+     */
+    public String getReApplyCommand(String nodeName) {
+        if (!netDelayMap.containsKey(nodeName) && !netLossMap.containsKey(nodeName)) {
+            return null;
+        }
+        return getTcCommand(nodeName);
+    }
+
     public void reApplyNetworkOperations(String nodeName) throws RuntimeEngineException {
-        NetOp netDelay = netDelayMap.get(nodeName);
-        NetOp netLoss = netLossMap.get(nodeName);
-        netDelayMap.remove(nodeName);
-        netLossMap.remove(nodeName);
+        String command = getReApplyCommand(nodeName);
+        if (command == null) return;
 
         try {
-            networkOperation(nodeName, netDelay);
-            networkOperation(nodeName, netLoss);
+            runTcCommand(nodeName, command);
         } catch (RuntimeEngineException e) {
             throw new RuntimeEngineException("Error while re-applying tc rules on node " + nodeName, e);
         }
     }
 
-    public void networkOperation(String nodeName, NetOp netOp) throws RuntimeEngineException {
-        if (nodeName == null || netOp == null) return;
+    /**
+     * Applies the given network operations on the node. Since the tc rules of a node only depend on its current delay
+     * and loss, all of the operations are applied through a single command
+     * @param nodeName the node to apply the operations on
+     * @param netOps the operations to be applied in order
+     * @throws RuntimeEngineException if something goes wrong
+     */
+    public void networkOperation(String nodeName, NetOp... netOps) throws RuntimeEngineException {
+        if (nodeName == null) return;
 
-        String command = "";
-        StringBuilder addCommand = new StringBuilder(IFACE_LIST_COMMAND +
-                " | xargs -I % sh -c 'tc qdisc replace dev % root netem ");
-        String removeCommand = IFACE_LIST_COMMAND + " | xargs -I % sh -c 'tc qdisc del dev % root";
-        if (netOp instanceof NetOp.Delay) {
-            if (netLossMap.containsKey(nodeName)) {
-                addCommand.append(netOp.getNetemString());
-                addCommand.append(" ");
-                addCommand.append(netLossMap.get(nodeName).getNetemString());
-            } else {
-                addCommand.append(netOp.getNetemString());
-            }
-            command = addCommand.toString();
-            netDelayMap.put(nodeName, (NetOp.Delay) netOp);
-        } else if (netOp instanceof NetOp.RemoveDelay) {
-            if (!netDelayMap.containsKey(nodeName)) return;
-            if (netLossMap.containsKey(nodeName)) {
-                addCommand.append(netLossMap.get(nodeName).getNetemString());
-                command = addCommand.toString();
-            } else {
-                command = removeCommand;
-            }
-            netDelayMap.remove(nodeName);
-        } else if (netOp instanceof NetOp.Loss) {
-            if (netDelayMap.containsKey(nodeName)) {
-                addCommand.append(netDelayMap.get(nodeName).getNetemString());
-                addCommand.append(" ");
-                addCommand.append(netOp.getNetemString());
-            } else {
-                addCommand.append(netOp.getNetemString());
-            }
-            command = addCommand.toString();
-            netLossMap.put(nodeName, (NetOp.Loss)netOp);
-        } else if (netOp instanceof NetOp.RemoveLoss) {
-            if (!netLossMap.containsKey(nodeName)) return;
-            if (netDelayMap.containsKey(nodeName)) {
-                addCommand.append(netDelayMap.get(nodeName).getNetemString());
-                command = addCommand.toString();
-            } else {
-                command = removeCommand;
+        boolean changed = false;
+        for (NetOp netOp: netOps) {
+            if (netOp instanceof NetOp.Delay) {
+                netDelayMap.put(nodeName, (NetOp.Delay) netOp);
+                changed = true;
+            } else if (netOp instanceof NetOp.RemoveDelay) {
+                changed |= netDelayMap.remove(nodeName) != null;
+            } else if (netOp instanceof NetOp.Loss) {
+                netLossMap.put(nodeName, (NetOp.Loss) netOp);
+                changed = true;
+            } else if (netOp instanceof NetOp.RemoveLoss) {
+                changed |= netLossMap.remove(nodeName) != null;
             }
-            netLossMap.remove(nodeName);
         }
+        if (!changed) return;
 
-        command += "'";
+        logger.info("Applying network operations " + Arrays.toString(netOps) + " on node " + nodeName);
+        runTcCommand(nodeName, getTcCommand(nodeName));
+    }
+
+    private String getTcCommand(String nodeName) {
+        NetOp netDelay = netDelayMap.get(nodeName);
+        NetOp netLoss = netLossMap.get(nodeName);
+        if (netDelay == null && netLoss == null) {
+            return IFACE_LIST_COMMAND + " | xargs -I % sh -c 'tc qdisc del dev % root'";
+        }
 
-        logger.info("Applying network operation " + netOp + " on node " + nodeName);
+        StringJoiner netem = new StringJoiner(" ");
+        if (netDelay != null) {
+            netem.add(netDelay.getNetemString());
+        }
+        if (netLoss != null) {
+            netem.add(netLoss.getNetemString());
+        }
+        return IFACE_LIST_COMMAND + " | xargs -I % sh -c 'tc qdisc replace dev % root netem " + netem + "'";
+    }
 
+    private void runTcCommand(String nodeName, String command) throws RuntimeEngineException {
         CommandResults commandResults = runtimeEngine.runCommandInNode(nodeName, command);
         if (commandResults.exitCode() != 0) {
             throw new RuntimeEngineException("Error while applying tc rules on node " + nodeName + "! command: "
@@ -7,12 +7,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 public class NetworkPartitionManager {
 
     private final static Logger logger = LoggerFactory.getLogger(NetworkPartitionManager.class);
-    private final Object synchronizer;
 
     enum IpTablesCommand {
         APPEND("A"),
@@ -29,17 +31,16 @@ public class NetworkPartitionManager {
         }
     }
 
-    private final LimitedRuntimeEngine runtimeEngine;
+    private final RuntimeEngine runtimeEngine;
     private Map<String, Map<String, Integer>> blockedNodesMap;
 
-    public NetworkPartitionManager(LimitedRuntimeEngine runtimeEngine) {
+    public NetworkPartitionManager(RuntimeEngine runtimeEngine) {
         this.runtimeEngine = runtimeEngine;
-        blockedNodesMap = new HashMap<>();
-        synchronizer = new Object();
+        blockedNodesMap = new ConcurrentHashMap<>();
 
         // initializes blocked nodes for each node
         for (String nodeName: runtimeEngine.nodeNames()) {
-            blockedNodesMap.put(nodeName, new HashMap<>());
+            blockedNodesMap.put(nodeName, new ConcurrentHashMap<>());
         }
     }
 
@@ -63,18 +64,16 @@ public class NetworkPartitionManager {
         return partitions;
     }
 
+    // The runtime engine orders the partition operations with the operations of all of the nodes, so no other
+    // operation changes the blocked nodes of the involved hosts while a partition is being applied or removed
     public void networkPartition(NetPart netPart) throws RuntimeEngineException {
         logger.info("Applying network partition {} ...", netPart.getPartitionsString());
-        synchronized (synchronizer) {
-            networkPartitionOpetation(netPart, false);
-        }
+        networkPartitionOpetation(netPart, false);
     }
 
     public void removeNetworkPartition(NetPart netPart) throws RuntimeEngineException {
         logger.info("Removing network partition {} ...", netPart.getPartitionsString());
-        synchronized (synchronizer) {
-            networkPartitionOpetation(netPart, true);
-        }
+        networkPartitionOpetation(netPart, true);
     }
 
     private void networkPartitionOpetation(NetPart netPart, boolean removePartition)
@@ -99,14 +98,52 @@ public class NetworkPartitionManager {
         }
 
 
-        for (String blockedNode: tempBlockedMap.keySet()) {
+        // The rules of all of the hosts are applied in parallel
+        Map<String, CompletableFuture<CommandResults>> pendingCommands = new LinkedHashMap<>();
+        for (String host: tempBlockedMap.keySet()) {
+            Set<String> changedNodes;
             if (removePartition) {
-                removeIpTablesRules(blockedNode, tempBlockedMap.get(blockedNode));
+                if (blockedNodesMap.get(host).isEmpty()) {
+                    logger.warn("Node {} has no network blockage for nodes {} to be removed!", host, tempBlockedMap.get(host));
+                    continue;
+                }
+                changedNodes = calculateBlockedNodesThatNeedRuleRemoval(host, tempBlockedMap.get(host));
             } else {
-                addIpTablesRules(blockedNode, tempBlockedMap.get(blockedNode));
+                changedNodes = calculateBlockedNodesThatNeedRuleAddition(host, tempBlockedMap.get(host));
             }
+            String command = getIpTablesBlockCommand(removePartition ? IpTablesCommand.DELETE : IpTablesCommand.APPEND,
+                    host, changedNodes);
+            pendingCommands.put(host, command == null ? null : runtimeEngine.runCommandInNodeAsync(host, command));
         }
 
+        RuntimeEngineException failure = null;
+        for (Map.Entry<String, CompletableFuture<CommandResults>> pendingCommand: pendingCommands.entrySet()) {
+            String host = pendingCommand.getKey();
+            try {
+                if (pendingCommand.getValue() != null) {
+                    checkIpTablesCommandResults(host, waitForCommand(pendingCommand.getValue()));
+                }
+            } catch (NodeIsNotRunningException e) {
+                logger.debug("Cannot apply network blockage rules on node {} because it is not running", host);
+            } catch (RuntimeEngineException e) {
+                if (failure == null) {
+                    failure = new RuntimeEngineException("Error while adding iptables rules to node " + host + "!", e);
+                } else {
+                    failure.addSuppressed(e);
+                }
+                continue;
+            }
+
+            if (removePartition) {
+                updateBlockedNodesAfterRuleRemoval(host, tempBlockedMap.get(host));
+            } else {
+                updateBlockedNodesAfterRuleAddition(host, tempBlockedMap.get(host));
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
     }
 
     private Set<String> calculateBlockedNodesThatNeedRuleAddition(String host, Set<String> originalList) {
@@ -133,51 +170,64 @@ public class NetworkPartitionManager {
         return finalList;
     }
 
-    private void addIpTablesRules(String host, Set<String> blockedNodes) throws RuntimeEngineException {
-        executeIpTablesBlockCommand(IpTablesCommand.APPEND, host,
-                calculateBlockedNodesThatNeedRuleAddition(host, blockedNodes));
-
+    private void updateBlockedNodesAfterRuleAddition(String host, Set<String> blockedNodes) {
         for (String blockedNode : blockedNodes) {
             blockedNodesMap.get(host).put(blockedNode, blockedNodesMap.get(host).getOrDefault(blockedNode, 0) + 1);
         }
     }
 
-    private void removeIpTablesRules(String host, Set<String> blockedNodes) throws RuntimeEngineException {
-        if (!blockedNodesMap.get(host).isEmpty()) {
-            executeIpTablesBlockCommand(IpTablesCommand.DELETE, host,
-                    calculateBlockedNodesThatNeedRuleRemoval(host, blockedNodes));
-
-            for (String blockedNode: blockedNodes) {
-                Integer currentBlockCounter = blockedNodesMap.get(host).getOrDefault(blockedNode, 0);
+    private void updateBlockedNodesAfterRuleRemoval(String host, Set<String> blockedNodes) {
+        for (String blockedNode: blockedNodes) {
+            Integer currentBlockCounter = blockedNodesMap.get(host).getOrDefault(blockedNode, 0);
 
-                if (currentBlockCounter == 1) {
-                    blockedNodesMap.get(host).remove(blockedNode);
-                } else if (currentBlockCounter > 1){
-                    blockedNodesMap.get(host).put(blockedNode, currentBlockCounter - 1);
-                }
+            if (currentBlockCounter == 1) {
+                blockedNodesMap.get(host).remove(blockedNode);
+            } else if (currentBlockCounter > 1){
+                blockedNodesMap.get(host).put(blockedNode, currentBlockCounter - 1);
             }
-        } else {
-            logger.warn("Node {} has no network blockage for nodes {} to be removed!", host, blockedNodes);
         }
     }
 
+    /**
+     * @return the nodes whose packets are currently dropped by the given node
+     */
+    public Set<String> getBlockedNodes(String nodeName) {
+        Map<String, Integer> blockedNodes = blockedNodesMap.get(nodeName);
+        return blockedNodes == null ? Collections.emptySet() : new HashSet<>(blockedNodes.keySet());
+    }
+
     // TODO this should add new iptables rules for already introduced network partitions
     public void addNewNode(Node node) {
-        blockedNodesMap.put(node.getName(), new HashMap<>());
+        blockedNodesMap.put(node.getName(), new ConcurrentHashMap<>());
+    }
+
+    /**
+     * @return the iptables command that re-applies the network partitions in place for the node or null if there is
+     * none. This is useful when start/restarting a node when a network partition is in place
+     */
+    public String getReApplyCommand(String nodeName) {
+        return getIpTablesBlockCommand(IpTablesCommand.APPEND, nodeName, blockedNodesMap.get(nodeName).keySet());
     }
 
     // This is useful when start/restarting a node when a network partition is in place
     public void reApplyNetworkPartition(String nodeName) throws RuntimeEngineException {
-        if (!blockedNodesMap.get(nodeName).isEmpty()) {
-            executeIpTablesBlockCommand(IpTablesCommand.APPEND, nodeName, blockedNodesMap.get(nodeName).keySet());
+        String command = getReApplyCommand(nodeName);
+        if (command == null) {
+            return;
         }
-    }
 
-    private void executeIpTablesBlockCommand(IpTablesCommand command, String host, Set<String> blockedNodes)
-            throws RuntimeEngineException {
+        try {
+            checkIpTablesCommandResults(nodeName, runtimeEngine.runCommandInNode(nodeName, command));
+        } catch (NodeIsNotRunningException e) {
+            logger.debug("Cannot apply network blockage rules on node {} because it is not running", nodeName);
+        } catch (RuntimeEngineException e) {
+            throw new RuntimeEngineException("Error while adding iptables rules to node " + nodeName + "!", e);
+        }
+    }
 
+    private String getIpTablesBlockCommand(IpTablesCommand command, String host, Set<String> blockedNodes) {
         if (blockedNodes.isEmpty()) {
-            return;
+            return null;
         }
 
         StringJoiner sources = new StringJoiner(",");
@@ -186,19 +236,31 @@ public class NetworkPartitionManager {
             sources.add(runtimeEngine.ip(blockedNode));
         }
 
-        String outputCommand = "iptables -" + command.option() + " INPUT -s " + sources.toString() + " -j DROP";
+        // The host shares its network stack with other nodes when its rules only apply to its own address
+        String destination = runtimeEngine.getNetworkPartitionDestination(host);
+        return "iptables -" + command.option() + " INPUT -s " + sources.toString()
+                + (destination == null ? "" : " -d " + destination) + " -j DROP";
+    }
+
+    private void checkIpTablesCommandResults(String host, CommandResults commandResults) throws RuntimeEngineException {
+        if (commandResults.exitCode() != 0) {
+            throw new RuntimeEngineException("Error while adding iptables rules to node " + host + "! command: "
+                    + commandResults.command() + " exit code: " + commandResults.exitCode() + " out: "
+                    + commandResults.stdOut() + " err: " + commandResults.stdErr());
+        }
+    }
+
+    private CommandResults waitForCommand(CompletableFuture<CommandResults> future) throws RuntimeEngineException {
         try {
-            CommandResults commandResults = runtimeEngine.runCommandInNode(host, outputCommand);
-            if (commandResults.exitCode() != 0) {
-                throw new RuntimeEngineException("Error while adding iptables rules to node " + host + "! command: "
-                        + outputCommand + " exit code: " + commandResults.exitCode() + " out: "
-                        + commandResults.stdOut() + " err: " + commandResults.stdErr());
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeEngineException("Interrupted while waiting for iptables command to be executed!", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeEngineException) {
+                throw (RuntimeEngineException) e.getCause();
             }
-        } catch (NodeIsNotRunningException e) {
-            logger.debug("Cannot apply network blockage rules on node {} because it is not running", host);
-        } catch (RuntimeEngineException e) {
-            throw new RuntimeEngineException("Error while adding iptables rules to node " + host + "!", e);
+            throw new RuntimeEngineException("Error while executing iptables command!", e.getCause());
         }
     }
-
 }
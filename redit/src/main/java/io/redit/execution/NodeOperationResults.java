@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution;
+
+import io.redit.exceptions.RuntimeEngineException;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The aggregated results of a bulk operation on a group of nodes. The operation is applied on every selected node even
+ * if it fails on some of them, so this object holds the result of each of the successful nodes and the failure of each
+ * of the failed ones.
+ * @param <T> the type of the result of the operation on a single node
+ */
+public class NodeOperationResults<T> {
+    private final String operationName;
+    private final Map<String, T> results; // map of successful node names to their results
+    private final Map<String, RuntimeEngineException> failures; // map of failed node names to their failures
+
+    public NodeOperationResults(String operationName) {
+        this.operationName = operationName;
+        results = new TreeMap<>();
+        failures = new TreeMap<>();
+    }
+
+    void addResult(String nodeName, T result) {
+        results.put(nodeName, result);
+    }
+
+    void addFailure(String nodeName, RuntimeEngineException failure) {
+        failures.put(nodeName, failure);
+    }
+
+    public String getOperationName() {
+        return operationName;
+    }
+
+    /**
+     * @return the names of all of the nodes the operation was applied on
+     */
+    public Set<String> getNodeNames() {
+        Set<String> nodeNames = new TreeSet<>(results.keySet());
+        nodeNames.addAll(failures.keySet());
+        return nodeNames;
+    }
+
+    /**
+     * @return a map of the successful node names to their results
+     */
+    public Map<String, T> getResults() {
+        return Collections.unmodifiableMap(results);
+    }
+
+    /**
+     * @return a map of the failed node names to their failures
+     */
+    public Map<String, RuntimeEngineException> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * @param nodeName the node name
+     * @return the result of the operation on the given node or null if the operation failed on the node or the node
+     * was not selected
+     */
+    public T get(String nodeName) {
+        return results.get(nodeName);
+    }
+
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    /**
+     * @return the current results object if the operation was successful on all of the nodes
+     * @throws RuntimeEngineException if the operation failed on any of the nodes. The failures of the other nodes are
+     * added as suppressed exceptions
+     */
+    public NodeOperationResults<T> throwIfFailed() throws RuntimeEngineException {
+        if (failures.isEmpty()) {
+            return this;
+        }
+
+        RuntimeEngineException exception = new RuntimeEngineException("Operation " + operationName + " failed on nodes "
+                + failures.keySet() + "!", failures.values().iterator().next());
+        failures.values().stream().skip(1).forEach(exception::addSuppressed);
+        throw exception;
+    }
+
+    @Override
+    public String toString() {
+        return operationName + " succeeded on " + results.keySet() + " and failed on " + failures.keySet();
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution;
+
+import io.redit.Constants;
+import io.redit.exceptions.RuntimeEngineException;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs operations on nodes on a bounded pool of threads while keeping the operations on each node in the order they
+ * were submitted. Each node acts as a single threaded queue, so at most one operation runs on a node at a time while
+ * operations on different nodes run in parallel. An operation that involves several nodes, e.g. a network partition,
+ * starts after all of the previously submitted operations on those nodes are done and the later operations on any of
+ * those nodes wait for it. A failed operation does not prevent the next operations on the same nodes from running.
+ */
+public class NodeOperationScheduler {
+    private final static AtomicInteger schedulerCounter = new AtomicInteger();
+
+    private final ThreadPoolExecutor executor;
+    private final Map<String, CompletableFuture<?>> tails; // the last submitted operation for each node
+    private final ThreadLocal<Boolean> runningOperation; // if the current thread is running an operation
+
+    @FunctionalInterface
+    public interface NodeOperation<T> {
+        T run() throws RuntimeEngineException;
+    }
+
+    public NodeOperationScheduler(int parallelism) {
+        int schedulerId = schedulerCounter.incrementAndGet();
+        AtomicInteger threadCounter = new AtomicInteger();
+        tails = new HashMap<>();
+        runningOperation = ThreadLocal.withInitial(() -> false);
+        executor = new ThreadPoolExecutor(Math.max(1, parallelism), Math.max(1, parallelism), 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "redit-node-op-" + schedulerId + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * The operations mostly wait for the container runtime rather than use the cpu, so the default parallelism lets an
+     * operation run on every node at the same time up to a limit instead of following the number of processors
+     * @param nodeCount the number of nodes whose operations are scheduled
+     * @return a scheduler with the parallelism from the redit.parallelism system property or the number of nodes capped
+     * by {@link Constants#MAX_DEFAULT_NODE_OPERATION_PARALLELISM} if the property is not set
+     */
+    public static NodeOperationScheduler create(int nodeCount) {
+        return new NodeOperationScheduler(Integer.getInteger(Constants.NODE_TASK_PARALLELISM_PROPERTY,
+                Math.min(nodeCount, Constants.MAX_DEFAULT_NODE_OPERATION_PARALLELISM)));
+    }
+
+    /**
+     * Submits an operation on a single node
+     * @param nodeName the node the operation is applied on
+     * @param operation the operation to run
+     * @return a future to be completed with the result of the operation
+     */
+    public <T> CompletableFuture<T> submit(String nodeName, NodeOperation<T> operation) {
+        return submit(Collections.singleton(nodeName), operation);
+    }
+
+    /**
+     * Submits an operation that involves the given nodes
+     * @param nodeNames the nodes the operation is applied on
+     * @param operation the operation to run
+     * @return a future to be completed with the result of the operation
+     */
+    public <T> CompletableFuture<T> submit(Collection<String> nodeNames, NodeOperation<T> operation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        CompletableFuture<?>[] predecessors;
+        synchronized (tails) {
+            predecessors = nodeNames.stream().map(tails::get).filter(Objects::nonNull).toArray(CompletableFuture[]::new);
+            for (String nodeName: nodeNames) {
+                tails.put(nodeName, future);
+            }
+        }
+
+        CompletableFuture.allOf(predecessors).whenComplete((result, error) -> executor.execute(() -> {
+            runningOperation.set(true);
+            try {
+                future.complete(operation.run());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                runningOperation.set(false);
+            }
+        }));
+
+        // Forgets the finished operations so they can be garbage collected
+        future.whenComplete((result, error) -> {
+            synchronized (tails) {
+                for (String nodeName: nodeNames) {
+                    tails.remove(nodeName, future);
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Runs an operation on a single node and waits for it to be done
+     * @see #run(Collection, NodeOperation)
+     */
+    public <T> T run(String nodeName, NodeOperation<T> operation) throws RuntimeEngineException {
+        return run(Collections.singleton(nodeName), operation);
+    }
+
+    /**
+     * Runs an operation that involves the given nodes in order with the other operations on those nodes and waits for
+     * it to be done. An operation that is invoked from within another operation is considered to be a part of it and
+     * is run in place, since waiting for it behind the enclosing operation would never finish.
+     * @param nodeNames the nodes the operation is applied on
+     * @param operation the operation to run
+     * @return the result of the operation
+     * @throws RuntimeEngineException if the operation fails or the wait is interrupted
+     */
+    public <T> T run(Collection<String> nodeNames, NodeOperation<T> operation) throws RuntimeEngineException {
+        if (runningOperation.get()) {
+            return operation.run();
+        }
+
+        try {
+            return submit(nodeNames, operation).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeEngineException("Interrupted while waiting for an operation on nodes " + nodeNames + "!", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeEngineException) {
+                throw (RuntimeEngineException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new RuntimeEngineException("Error while running an operation on nodes " + nodeNames + "!",
+                    e.getCause());
+        }
+    }
+}
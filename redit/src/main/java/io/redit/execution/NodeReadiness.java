@@ -0,0 +1,66 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution;
+
+import io.redit.exceptions.RuntimeEngineException;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A handle to wait for a started node to be ready based on the readiness probes of the node and its service, e.g.
+ * runtime.startNode("nn1").awaitReady(60)
+ */
+public class NodeReadiness {
+    private final LimitedRuntimeEngine runtimeEngine;
+    private final String nodeName;
+
+    public NodeReadiness(LimitedRuntimeEngine runtimeEngine, String nodeName) {
+        this.runtimeEngine = runtimeEngine;
+        this.nodeName = nodeName;
+    }
+
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    /**
+     * @return true if all of the readiness probes of the node pass at the moment
+     */
+    public boolean isReady() {
+        return runtimeEngine.isReady(nodeName);
+    }
+
+    /**
+     * Waits for the node to be ready
+     * @param timeout the waiting timeout in seconds
+     * @return the current object
+     * @throws TimeoutException if the node is not ready before the timeout
+     * @throws RuntimeEngineException if the node exits before being ready or the wait is interrupted
+     */
+    public NodeReadiness awaitReady(Integer timeout) throws RuntimeEngineException, TimeoutException {
+        runtimeEngine.awaitReady(nodeName, timeout);
+        return this;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution;
+
+import io.redit.dsl.entities.Node;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Selects a group of nodes in the deployed environment for the bulk operations of {@link LimitedRuntimeEngine}. The
+ * static methods of this interface can be used to create selectors based on node names, service names and labels, and
+ * the selectors can be combined through {@link #and(NodeSelector)}, {@link #or(NodeSelector)} and {@link #negate()}.
+ */
+@FunctionalInterface
+public interface NodeSelector {
+
+    /**
+     * @param node the node to be checked
+     * @param labels the labels of the node including the labels inherited from its service
+     * @return true if the node is selected
+     */
+    boolean matches(Node node, Map<String, String> labels);
+
+    default NodeSelector and(NodeSelector other) {
+        return (node, labels) -> matches(node, labels) && other.matches(node, labels);
+    }
+
+    default NodeSelector or(NodeSelector other) {
+        return (node, labels) -> matches(node, labels) || other.matches(node, labels);
+    }
+
+    default NodeSelector negate() {
+        return (node, labels) -> !matches(node, labels);
+    }
+
+    /**
+     * @return a selector for all of the nodes
+     */
+    static NodeSelector all() {
+        return (node, labels) -> true;
+    }
+
+    /**
+     * @param nodeNames the names of the nodes to be selected
+     * @return a selector for the given nodes
+     */
+    static NodeSelector names(String... nodeNames) {
+        Set<String> nodeNameSet = new HashSet<>(Arrays.asList(nodeNames));
+        return (node, labels) -> nodeNameSet.contains(node.getName());
+    }
+
+    /**
+     * @param serviceName the service name
+     * @return a selector for the nodes created out of the given service
+     */
+    static NodeSelector service(String serviceName) {
+        return (node, labels) -> serviceName.equals(node.getServiceName());
+    }
+
+    /**
+     * @param key the key of the label
+     * @return a selector for the nodes having a label with the given key regardless of its value
+     */
+    static NodeSelector label(String key) {
+        return (node, labels) -> labels.containsKey(key);
+    }
+
+    /**
+     * @param key the key of the label
+     * @param value the value of the label
+     * @return a selector for the nodes having a label with the given key and value
+     */
+    static NodeSelector label(String key, String value) {
+        return (node, labels) -> labels.containsKey(key) && Objects.equals(labels.get(key), value);
+    }
+}
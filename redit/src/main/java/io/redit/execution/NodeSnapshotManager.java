@@ -0,0 +1,253 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution;
+
+import io.redit.Constants;
+import io.redit.exceptions.RuntimeEngineException;
+import io.redit.util.FileUtil;
+import io.redit.workspace.NodeWorkspace;
+import org.apache.commons.io.FileUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Stores and restores the snapshots of the workspaces of the nodes. The snapshots are kept in the top level working
+ * directory next to the working directories of the runs, so a snapshot can be restored in the later runs of the same
+ * deployment as well. The files are copied incrementally, so overwriting or restoring a snapshot only copies the files
+ * that have changed since.
+ */
+public class NodeSnapshotManager {
+    private static final String NODES_DIRECTORY_NAME = "nodes";
+    private static final String NODE_NAMES_PROPERTY = "nodes";
+    private static final String RUNNING_NODE_NAMES_PROPERTY = "running";
+    private static final String NODE_STATE_PROPERTY_PREFIX = "state.";
+
+    private final String deploymentName;
+    private final Map<String, NodeWorkspace> nodeWorkspaceMap;
+    private final Supplier<Path> runWorkingDirectorySupplier;
+
+    /**
+     * @param deploymentName the name of the deployment
+     * @param nodeWorkspaceMap the workspaces of the nodes which may be extended as the nodes are materialized
+     * @param runWorkingDirectorySupplier the supplier of the working directory of the current run or null if unknown
+     */
+    public NodeSnapshotManager(String deploymentName, Map<String, NodeWorkspace> nodeWorkspaceMap,
+                               Supplier<Path> runWorkingDirectorySupplier) {
+        this.deploymentName = deploymentName;
+        this.nodeWorkspaceMap = nodeWorkspaceMap;
+        this.runWorkingDirectorySupplier = runWorkingDirectorySupplier;
+    }
+
+    public boolean exists(String snapshotName) {
+        return runWorkingDirectorySupplier.get() != null
+                && Files.exists(getSnapshotDirectory(snapshotName).resolve(Constants.SNAPSHOT_METADATA_FILE_NAME));
+    }
+
+    public void saveWorkspace(String snapshotName, String nodeName) throws RuntimeEngineException {
+        try {
+            FileUtil.syncDirectory(getNodeWorkingDirectory(nodeName), getNodeSnapshotDirectory(snapshotName, nodeName),
+                    Collections.emptySet());
+        } catch (IOException e) {
+            throw new RuntimeEngineException("Error while saving the workspace of node " + nodeName + " in snapshot "
+                    + snapshotName + "!", e);
+        }
+    }
+
+    /**
+     * Restores the workspace of the node. The wrapper script is generated for each run, so it is not restored
+     */
+    public void restoreWorkspace(String snapshotName, String nodeName) throws RuntimeEngineException {
+        Path nodeWorkingDirectory = getNodeWorkingDirectory(nodeName);
+        Set<Path> excluded = Collections.singleton(nodeWorkingDirectory.relativize(
+                Paths.get(nodeWorkspaceMap.get(nodeName).getRootDirectory(), Constants.WRAPPER_SCRIPT_FILE_NAME)
+                        .toAbsolutePath().normalize()));
+        try {
+            FileUtil.syncDirectory(getNodeSnapshotDirectory(snapshotName, nodeName), nodeWorkingDirectory, excluded);
+        } catch (IOException e) {
+            throw new RuntimeEngineException("Error while restoring the workspace of node " + nodeName + " from snapshot "
+                    + snapshotName + "!", e);
+        }
+    }
+
+    public void saveSharedDirectories(String snapshotName) throws RuntimeEngineException {
+        Path sharedDirectoriesRoot = getRunWorkingDirectory().resolve(Constants.SHAERD_DIRECTORIES_ROOT_NAME);
+        if (!Files.isDirectory(sharedDirectoriesRoot)) {
+            return;
+        }
+        try {
+            FileUtil.syncDirectory(sharedDirectoriesRoot,
+                    getSnapshotDirectory(snapshotName).resolve(Constants.SHAERD_DIRECTORIES_ROOT_NAME),
+                    Collections.emptySet());
+        } catch (IOException e) {
+            throw new RuntimeEngineException("Error while saving the shared directories in snapshot " + snapshotName
+                    + "!", e);
+        }
+    }
+
+    public void restoreSharedDirectories(String snapshotName) throws RuntimeEngineException {
+        Path sharedDirectoriesSnapshot = getSnapshotDirectory(snapshotName)
+                .resolve(Constants.SHAERD_DIRECTORIES_ROOT_NAME);
+        if (!Files.isDirectory(sharedDirectoriesSnapshot)) {
+            return;
+        }
+        try {
+            FileUtil.syncDirectory(sharedDirectoriesSnapshot,
+                    getRunWorkingDirectory().resolve(Constants.SHAERD_DIRECTORIES_ROOT_NAME), Collections.emptySet());
+        } catch (IOException e) {
+            throw new RuntimeEngineException("Error while restoring the shared directories from snapshot "
+                    + snapshotName + "!", e);
+        }
+    }
+
+    /**
+     * Writes the metadata of the snapshot. A snapshot only exists after its metadata is written, so this should be the
+     * last step of taking a snapshot
+     */
+    public void writeMetadata(String snapshotName, SnapshotMetadata metadata) throws RuntimeEngineException {
+        Properties properties = new Properties();
+        properties.setProperty(NODE_NAMES_PROPERTY, String.join(",", metadata.getNodeNames()));
+        properties.setProperty(RUNNING_NODE_NAMES_PROPERTY, String.join(",", metadata.getRunningNodeNames()));
+        for (Map.Entry<String, String> nodeState: metadata.getNodeStates().entrySet()) {
+            properties.setProperty(NODE_STATE_PROPERTY_PREFIX + nodeState.getKey(), nodeState.getValue());
+        }
+        try (OutputStream outputStream = Files.newOutputStream(
+                getSnapshotDirectory(snapshotName).resolve(Constants.SNAPSHOT_METADATA_FILE_NAME))) {
+            properties.store(outputStream, "Redit snapshot " + snapshotName + " of deployment " + deploymentName);
+        } catch (IOException e) {
+            throw new RuntimeEngineException("Error while writing the metadata of snapshot " + snapshotName + "!", e);
+        }
+    }
+
+    public SnapshotMetadata readMetadata(String snapshotName) throws RuntimeEngineException {
+        if (!exists(snapshotName)) {
+            throw new RuntimeEngineException("Snapshot " + snapshotName + " of deployment " + deploymentName
+                    + " does not exist!");
+        }
+        Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(
+                getSnapshotDirectory(snapshotName).resolve(Constants.SNAPSHOT_METADATA_FILE_NAME))) {
+            properties.load(inputStream);
+        } catch (IOException e) {
+            throw new RuntimeEngineException("Error while reading the metadata of snapshot " + snapshotName + "!", e);
+        }
+
+        SnapshotMetadata metadata = new SnapshotMetadata();
+        metadata.getNodeNames().addAll(splitNames(properties.getProperty(NODE_NAMES_PROPERTY)));
+        metadata.getRunningNodeNames().addAll(splitNames(properties.getProperty(RUNNING_NODE_NAMES_PROPERTY)));
+        for (String propertyName: properties.stringPropertyNames()) {
+            if (propertyName.startsWith(NODE_STATE_PROPERTY_PREFIX)) {
+                metadata.getNodeStates().put(propertyName.substring(NODE_STATE_PROPERTY_PREFIX.length()),
+                        properties.getProperty(propertyName));
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * Deletes the stored files of the snapshot. The metadata file is deleted first, so a partially deleted snapshot
+     * does not exist anymore
+     */
+    public void delete(String snapshotName) throws RuntimeEngineException {
+        Path snapshotDirectory = getSnapshotDirectory(snapshotName);
+        try {
+            Files.deleteIfExists(snapshotDirectory.resolve(Constants.SNAPSHOT_METADATA_FILE_NAME));
+            if (Files.exists(snapshotDirectory)) {
+                FileUtils.deleteDirectory(snapshotDirectory.toFile());
+            }
+        } catch (IOException e) {
+            throw new RuntimeEngineException("Error while deleting snapshot " + snapshotName + "!", e);
+        }
+    }
+
+    /**
+     * Makes sure the snapshot directory exists and the snapshot is marked as incomplete until its metadata is written
+     */
+    public void prepare(String snapshotName) throws RuntimeEngineException {
+        if (!snapshotName.matches("[A-Za-z0-9_.-]+")) {
+            throw new RuntimeEngineException("Invalid snapshot name " + snapshotName + "! Only letters, digits, `_`, `.`"
+                    + " and `-` are allowed.");
+        }
+        Path snapshotDirectory = getSnapshotDirectory(snapshotName);
+        try {
+            Files.deleteIfExists(snapshotDirectory.resolve(Constants.SNAPSHOT_METADATA_FILE_NAME));
+            Files.createDirectories(snapshotDirectory);
+        } catch (IOException e) {
+            throw new RuntimeEngineException("Error while creating the directory of snapshot " + snapshotName + "!", e);
+        }
+    }
+
+    private Path getNodeWorkingDirectory(String nodeName) {
+        return Paths.get(nodeWorkspaceMap.get(nodeName).getWorkingDirectory()).toAbsolutePath().normalize();
+    }
+
+    private Path getRunWorkingDirectory() {
+        return runWorkingDirectorySupplier.get();
+    }
+
+    private Path getSnapshotDirectory(String snapshotName) {
+        return getRunWorkingDirectory().resolveSibling(Constants.SNAPSHOTS_DIRECTORY_NAME)
+                .resolve(deploymentName.replaceAll("[^A-Za-z0-9_.-]", "_")).resolve(snapshotName);
+    }
+
+    private Path getNodeSnapshotDirectory(String snapshotName, String nodeName) {
+        return getSnapshotDirectory(snapshotName).resolve(NODES_DIRECTORY_NAME).resolve(nodeName);
+    }
+
+    private static List<String> splitNames(String names) {
+        if (names == null || names.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(names.split(","));
+    }
+
+    /**
+     * The nodes in a snapshot, the nodes that were running when the snapshot was taken, and the references to the
+     * states of the nodes that are captured by the runtime engine outside of their workspaces
+     */
+    public static class SnapshotMetadata {
+        private final Set<String> nodeNames = new TreeSet<>();
+        private final Set<String> runningNodeNames = new TreeSet<>();
+        private final Map<String, String> nodeStates = new TreeMap<>();
+
+        public Set<String> getNodeNames() {
+            return nodeNames;
+        }
+
+        public Set<String> getRunningNodeNames() {
+            return runningNodeNames;
+        }
+
+        public Map<String, String> getNodeStates() {
+            return nodeStates;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution;
+
+/**
+ * A snapshot of the state of a node's container as last observed by the runtime engine
+ */
+public class NodeState {
+    public enum Status {
+        CREATED,
+        RUNNING,
+        EXITED,
+        REMOVED
+    }
+
+    private final Status status;
+    private final Integer exitCode; // the exit code of the last run or null if the node has not exited yet
+    private final Integer restartCount; // the number of times the node is started again after its first start
+    private final Boolean crashed; // if the last exit was not caused by a runtime engine operation
+    private final Long timestamp; // the time of the observation in milliseconds since epoch
+
+    public NodeState(Status status, Integer exitCode, Integer restartCount, Boolean crashed, Long timestamp) {
+        this.status = status;
+        this.exitCode = exitCode;
+        this.restartCount = restartCount;
+        this.crashed = crashed;
+        this.timestamp = timestamp;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isRunning() {
+        return status == Status.RUNNING;
+    }
+
+    public Integer getExitCode() {
+        return exitCode;
+    }
+
+    public Integer getRestartCount() {
+        return restartCount;
+    }
+
+    /**
+     * @return true if the node exited on its own rather than being killed, stopped or restarted by the runtime engine
+     */
+    public Boolean isCrashed() {
+        return crashed;
+    }
+
+    public Long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return status + (exitCode == null ? "" : " (exit code " + exitCode + (crashed ? ", crashed" : "") + ")")
+                + " restarts: " + restartCount;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution;
+
+import io.redit.Constants;
+import io.redit.exceptions.RuntimeEngineException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded executor for running the same operation on several nodes concurrently. The number of operations that are
+ * in flight at the same time is limited by the parallelism of the executor, which prevents the host and the docker
+ * daemon from thrashing when there are many nodes. Operations submitted from a thread of this executor are run in the
+ * calling thread to avoid exhausting the pool with nested operations. Idle threads are released after a while, so an
+ * executor that is not used anymore does not need to be shut down.
+ */
+public class NodeTaskExecutor {
+    private final static Logger logger = LoggerFactory.getLogger(NodeTaskExecutor.class);
+    private final static AtomicInteger executorCounter = new AtomicInteger();
+
+    private final ThreadPoolExecutor executorService;
+    private final Set<Thread> workerThreads;
+    private final int parallelism;
+
+    @FunctionalInterface
+    public interface NodeTask {
+        void run(String nodeName) throws RuntimeEngineException;
+    }
+
+    public NodeTaskExecutor(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        this.workerThreads = ConcurrentHashMap.newKeySet();
+        int executorId = executorCounter.incrementAndGet();
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executorService = new ThreadPoolExecutor(this.parallelism, this.parallelism, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(() -> {
+                workerThreads.add(Thread.currentThread());
+                try {
+                    runnable.run();
+                } finally {
+                    workerThreads.remove(Thread.currentThread());
+                }
+            }, "redit-node-task-" + executorId + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executorService.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return an executor with the parallelism from the redit.parallelism system property or the number of available
+     * processors if the property is not set
+     */
+    public static NodeTaskExecutor create() {
+        return new NodeTaskExecutor(Integer.getInteger(Constants.NODE_TASK_PARALLELISM_PROPERTY,
+                Runtime.getRuntime().availableProcessors()));
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Runs the given task for all of the given nodes and waits for all of them to finish, even if some of them fail.
+     * @param nodeNames the nodes to run the task for
+     * @param operationName the name of the operation to be used in logs and error messages
+     * @param task the task to run for each of the nodes
+     * @throws RuntimeEngineException if the task fails for any of the nodes. The first failure is the cause and the rest
+     * are added as suppressed exceptions
+     */
+    public void runOnNodes(Collection<String> nodeNames, String operationName, NodeTask task)
+            throws RuntimeEngineException {
+        if (nodeNames.size() <= 1 || workerThreads.contains(Thread.currentThread())) {
+            for (String nodeName: nodeNames) {
+                task.run(nodeName);
+            }
+            return;
+        }
+
+        Map<String, Future<?>> futures = new LinkedHashMap<>();
+        for (String nodeName: nodeNames) {
+            futures.put(nodeName, executorService.submit(() -> {
+                task.run(nodeName);
+                return null;
+            }));
+        }
+
+        RuntimeEngineException failure = null;
+        for (Map.Entry<String, Future<?>> entry: futures.entrySet()) {
+            Throwable cause;
+            try {
+                entry.getValue().get();
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cause = e;
+            } catch (ExecutionException e) {
+                cause = e.getCause();
+            }
+
+            logger.warn("Error while trying to {} node {}!", operationName, entry.getKey());
+            if (failure == null) {
+                failure = new RuntimeEngineException("Error while trying to " + operationName + " node "
+                        + entry.getKey() + "!", cause);
+            } else {
+                failure.addSuppressed(cause);
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
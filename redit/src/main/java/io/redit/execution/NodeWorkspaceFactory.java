@@ -0,0 +1,52 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution;
+
+import io.redit.dsl.entities.Node;
+import io.redit.exceptions.RuntimeEngineException;
+import io.redit.workspace.NodeWorkspace;
+
+import java.nio.file.Path;
+
+/**
+ * Creates the workspaces of the nodes that are materialized lazily by the runtime engine, i.e. the nodes whose
+ * workspace and container are only created when they are first started
+ */
+public interface NodeWorkspaceFactory {
+    /**
+     * @return the working directory of the run which contains the workspaces of all of the nodes or null if the nodes
+     * don't have any files
+     */
+    Path getWorkingDirectory();
+
+    /**
+     * Creates the workspace of the node and prepares it the same way as the workspaces created on startup, e.g. by
+     * instrumenting its binaries
+     * @param node the node to create the workspace for
+     * @return the created workspace
+     * @throws RuntimeEngineException if something goes wrong
+     */
+    NodeWorkspace createNodeWorkspace(Node node) throws RuntimeEngineException;
+}
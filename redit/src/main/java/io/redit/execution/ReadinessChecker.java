@@ -0,0 +1,380 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution;
+
+import io.redit.Constants;
+import io.redit.dsl.entities.Node;
+import io.redit.dsl.entities.PortType;
+import io.redit.dsl.entities.ReadinessProbe;
+import io.redit.exceptions.NodeIsNotRunningException;
+import io.redit.exceptions.RuntimeEngineException;
+import io.redit.workspace.NodeWorkspace;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Evaluates the readiness probes of the nodes. Port and http probes connect to the node directly and log probes read
+ * the log files from the node's workspace incrementally line by line, so only the command probes and the log probes of
+ * the files outside the workspace need to execute anything in the node. Log probes only consider the lines written
+ * after the last start of the node. For the files outside the workspace, the start offset is the size of the file right
+ * before the node is started or, if the node is not running at that time, right before it was last stopped or killed.
+ */
+public class ReadinessChecker {
+    private final static Logger logger = LoggerFactory.getLogger(ReadinessChecker.class);
+    private final static int CONNECT_TIMEOUT_MILLIS = 500;
+    private final static int HTTP_READ_TIMEOUT_MILLIS = 1000;
+    private final static long INITIAL_BACKOFF_MILLIS = 50;
+    private final static long MAX_BACKOFF_MILLIS = 1000;
+    private final static int LOG_READ_BUFFER_SIZE = 8192;
+
+    private final RuntimeEngine runtimeEngine;
+    private final Map<String, Map<ReadinessProbe, LogScanState>> logScanStates;
+
+    private static class LogScanState {
+        private long offset;
+        private boolean matched;
+        private final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+    }
+
+    public ReadinessChecker(RuntimeEngine runtimeEngine) {
+        this.runtimeEngine = runtimeEngine;
+        logScanStates = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @return the readiness probes of the node's service followed by the probes of the node
+     */
+    public List<ReadinessProbe> getReadinessProbes(String nodeName) {
+        Node node = runtimeEngine.nodeMap.get(nodeName);
+        if (node == null) {
+            return Collections.emptyList();
+        }
+        List<ReadinessProbe> probes = new ArrayList<>(
+                runtimeEngine.deployment.getService(node.getServiceName()).getReadinessProbes());
+        probes.addAll(node.getReadinessProbes());
+        return probes;
+    }
+
+    /**
+     * Marks the current end of the log files of the node, so the log probes only match the lines written after this
+     * call. This should be called right before starting or restarting the node.
+     */
+    public void nodeStarting(String nodeName) {
+        Map<ReadinessProbe, LogScanState> previousLogScanStates = logScanStates.get(nodeName);
+        Map<ReadinessProbe, LogScanState> nodeLogScanStates = new ConcurrentHashMap<>();
+        for (ReadinessProbe probe: getReadinessProbes(nodeName)) {
+            if (probe.getType() == ReadinessProbe.Type.LOG) {
+                LogScanState logScanState = new LogScanState();
+                String localLogFile = getLocalLogFile(nodeName, probe);
+                if (localLogFile != null) {
+                    logScanState.offset = Paths.get(localLogFile).toFile().length();
+                } else {
+                    Long remoteSize = getRemoteLogFileSize(nodeName, probe);
+                    if (remoteSize != null) {
+                        logScanState.offset = remoteSize;
+                    } else if (previousLogScanStates != null && previousLogScanStates.containsKey(probe)) {
+                        // The size recorded right before the node was stopped
+                        logScanState.offset = previousLogScanStates.get(probe).offset;
+                    }
+                }
+                nodeLogScanStates.put(probe, logScanState);
+            }
+        }
+        logScanStates.put(nodeName, nodeLogScanStates);
+    }
+
+    /**
+     * Records the current size of the log files of the node that are outside the node's workspace, as they can't be
+     * read anymore once the node is stopped. This should be called right before stopping or killing the node.
+     */
+    public void nodeStopping(String nodeName) {
+        for (ReadinessProbe probe: getReadinessProbes(nodeName)) {
+            if (probe.getType() == ReadinessProbe.Type.LOG && getLocalLogFile(nodeName, probe) == null) {
+                Long remoteSize = getRemoteLogFileSize(nodeName, probe);
+                if (remoteSize != null) {
+                    LogScanState logScanState = logScanStates.computeIfAbsent(nodeName, k -> new ConcurrentHashMap<>())
+                            .computeIfAbsent(probe, k -> new LogScanState());
+                    synchronized (logScanState) {
+                        logScanState.offset = remoteSize;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluates all of the probes of the node once
+     * @return true if all of the probes pass
+     */
+    public boolean isReady(String nodeName) {
+        for (ReadinessProbe probe: getReadinessProbes(nodeName)) {
+            if (!evaluate(nodeName, probe)) {
+                logger.debug("Node {} is not ready yet. Probe {} has not passed", nodeName, probe);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Evaluates the probes of the node with a short backoff until all of them pass
+     * @param deadline the time in milliseconds since epoch to give up
+     * @throws TimeoutException if the node is not ready before the deadline
+     * @throws RuntimeEngineException if the node exits before being ready
+     */
+    public void awaitReady(String nodeName, long deadline) throws RuntimeEngineException, TimeoutException {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        while (!isReady(nodeName)) {
+            NodeState nodeState = runtimeEngine.nodeState(nodeName);
+            if (nodeState != null && nodeState.getStatus() == NodeState.Status.EXITED) {
+                throw new RuntimeEngineException("Node " + nodeName + " exited with exit code "
+                        + nodeState.getExitCode() + " before being ready!");
+            }
+
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new TimeoutException("Node " + nodeName + " is not ready!");
+            }
+            try {
+                Thread.sleep(Math.min(backoff, remaining));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeEngineException("Interrupted while waiting for node " + nodeName + " to be ready!", e);
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+        logger.info("Node {} is ready!", nodeName);
+    }
+
+    private boolean evaluate(String nodeName, ReadinessProbe probe) {
+        switch (probe.getType()) {
+            case TCP:
+                return isPortOpen(nodeName, probe.getPort());
+            case HTTP:
+                return isHttpEndpointOk(nodeName, probe);
+            case LOG:
+                return isLogLineWritten(nodeName, probe);
+            default:
+                return isCommandSuccessful(nodeName, probe.getCommand());
+        }
+    }
+
+    private boolean isPortOpen(String nodeName, Integer port) {
+        InetSocketAddress address = getAddress(nodeName, port);
+        if (address == null) {
+            return false;
+        }
+        try (Socket socket = new Socket()) {
+            socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return true if the endpoint of the probe returns 200 and, if the probe has a pattern, a body containing a match
+     * of the pattern
+     */
+    private boolean isHttpEndpointOk(String nodeName, ReadinessProbe probe) {
+        InetSocketAddress address = getAddress(nodeName, probe.getPort());
+        if (address == null) {
+            return false;
+        }
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL("http", address.getHostString(), address.getPort(),
+                    probe.getPath()).openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            connection.setReadTimeout(HTTP_READ_TIMEOUT_MILLIS);
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                return false;
+            }
+            if (probe.getPattern() == null) {
+                return true;
+            }
+            try (InputStream body = connection.getInputStream()) {
+                return probe.getPattern().matcher(IOUtils.toString(body, StandardCharsets.UTF_8)).find();
+            }
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private InetSocketAddress getAddress(String nodeName, Integer port) {
+        String ip = runtimeEngine.ip(nodeName);
+        Integer mappedPort = runtimeEngine.portMapping(nodeName, port, PortType.TCP);
+        if (ip == null || mappedPort == null) {
+            return null;
+        }
+        return new InetSocketAddress(ip, mappedPort);
+    }
+
+    private boolean isCommandSuccessful(String nodeName, String command) {
+        try {
+            return runtimeEngine.runCommandInNode(nodeName, command).exitCode() == 0;
+        } catch (NodeIsNotRunningException e) {
+            return false;
+        } catch (RuntimeEngineException e) {
+            logger.debug("Error while running readiness command {} in node {}", command, nodeName, e);
+            return false;
+        }
+    }
+
+    private boolean isLogLineWritten(String nodeName, ReadinessProbe probe) {
+        LogScanState logScanState = logScanStates.computeIfAbsent(nodeName, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(probe, k -> new LogScanState());
+        String localLogFile = getLocalLogFile(nodeName, probe);
+        synchronized (logScanState) {
+            if (logScanState.matched) {
+                return true;
+            }
+            if (localLogFile == null) {
+                // The log file is not available in the workspace, so it is searched in the node from the start offset
+                logScanState.matched = isCommandSuccessful(nodeName, getRemoteLogSearchCommand(probe,
+                        logScanState.offset));
+                return logScanState.matched;
+            }
+
+            try (RandomAccessFile file = new RandomAccessFile(localLogFile, "r")) {
+                long length = file.length();
+                if (length < logScanState.offset) {
+                    // The file is truncated or rotated
+                    logScanState.offset = 0;
+                    logScanState.partialLine.reset();
+                }
+                file.seek(logScanState.offset);
+                byte[] buffer = new byte[LOG_READ_BUFFER_SIZE];
+                while (logScanState.offset < length) {
+                    int read = file.read(buffer, 0, (int) Math.min(buffer.length, length - logScanState.offset));
+                    if (read <= 0) {
+                        break;
+                    }
+                    for (int i = 0; i < read; i++) {
+                        if (buffer[i] != '\n') {
+                            logScanState.partialLine.write(buffer[i]);
+                            continue;
+                        }
+                        String line = new String(logScanState.partialLine.toByteArray(), StandardCharsets.UTF_8);
+                        logScanState.partialLine.reset();
+                        if (probe.getPattern().matcher(line).find()) {
+                            logScanState.offset += i + 1;
+                            logScanState.matched = true;
+                            return true;
+                        }
+                    }
+                    // The bytes after the last line break are kept until the line is completely written
+                    logScanState.offset += read;
+                }
+                return false;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return a command that succeeds if a line matching the pattern of the probe is written into the log file after
+     * the given offset. If the file is truncated, the whole file is searched
+     */
+    private static String getRemoteLogSearchCommand(ReadinessProbe probe, long offset) {
+        String logFile = quote(probe.getLogFile());
+        return "if [ \"$(wc -c < " + logFile + ")\" -lt " + offset + " ]; then cat " + logFile + "; else tail -c +"
+                + (offset + 1) + " " + logFile + "; fi | grep -qE " + quote(probe.getPattern().pattern());
+    }
+
+    /**
+     * @return the size of the log file of the probe in the node, 0 if the file does not exist or null if the node is
+     * not running
+     */
+    private Long getRemoteLogFileSize(String nodeName, ReadinessProbe probe) {
+        NodeState nodeState = runtimeEngine.nodeState(nodeName);
+        if (nodeState == null || !nodeState.isRunning()) {
+            return null;
+        }
+        try {
+            CommandResults results = runtimeEngine.runCommandInNode(nodeName, "wc -c < " + quote(probe.getLogFile()));
+            if (results.exitCode() != 0) {
+                return 0L;
+            }
+            return Long.parseLong(results.stdOut().trim());
+        } catch (RuntimeEngineException | NumberFormatException e) {
+            logger.debug("Error while getting the size of log file {} in node {}", probe.getLogFile(), nodeName, e);
+            return null;
+        }
+    }
+
+    private static String quote(String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+
+    /**
+     * @return the local path of the log file of the probe in the node's workspace or null if it is not available
+     */
+    private String getLocalLogFile(String nodeName, ReadinessProbe probe) {
+        NodeWorkspace nodeWorkspace = runtimeEngine.nodeWorkspaceMap.get(nodeName);
+        if (nodeWorkspace == null) {
+            return null;
+        }
+        if (probe.getLogFile() == null) {
+            return Paths.get(nodeWorkspace.getLogDirectory(), Constants.CONSOLE_OUTERR_FILE_NAME).toAbsolutePath()
+                    .toString();
+        }
+
+        for (Map.Entry<String, String> logFile: nodeWorkspace.getLogFilesMap().entrySet()) {
+            if (logFile.getValue().equals(probe.getLogFile())) {
+                return logFile.getKey();
+            }
+        }
+        for (Map.Entry<String, String> logDirectory: nodeWorkspace.getLogDirectoriesMap().entrySet()) {
+            String targetDirectory = logDirectory.getValue().endsWith("/") ? logDirectory.getValue()
+                    : logDirectory.getValue() + "/";
+            if (probe.getLogFile().startsWith(targetDirectory)) {
+                return Paths.get(logDirectory.getKey(), probe.getLogFile().substring(targetDirectory.length()))
+                        .toString();
+            }
+        }
+        return null;
+    }
+}
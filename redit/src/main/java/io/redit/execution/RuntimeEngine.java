@@ -29,29 +29,60 @@ import io.redit.ReditRunner;
 import io.redit.dsl.entities.Deployment;
 import io.redit.dsl.entities.ExposedPortDefinition;
 import io.redit.dsl.entities.Node;
+import io.redit.dsl.entities.ResourceLimits;
 import io.redit.dsl.entities.Service;
 import io.redit.rt.Redit;
 import io.redit.workspace.NodeWorkspace;
 import io.redit.Constants;
+import io.redit.exceptions.NodeNotFoundException;
+import io.redit.exceptions.RunSequenceStalledException;
 import io.redit.exceptions.RuntimeEngineException;
+import io.redit.execution.local_process.InJvmRuntimeEngine;
+import io.redit.execution.local_process.LocalProcessRuntimeEngine;
+import io.redit.execution.simulated.SimulatedRuntimeEngine;
 import io.redit.execution.single_node.SingleNodeRuntimeEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetAddress;
 import java.net.NetworkInterface;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 public abstract class RuntimeEngine implements LimitedRuntimeEngine {
     private final static Logger logger = LoggerFactory.getLogger(RuntimeEngine.class);
+    private final static AtomicInteger eventNamespaceCounter = new AtomicInteger();
     private final EventServer eventServer;
+    private final String eventNamespace; // the namespace in the shared event server or null if not shared
     protected final Deployment deployment;
     protected Map<String, Node> nodeMap;
     protected Map<String, NodeWorkspace> nodeWorkspaceMap;
-    protected boolean stopped;
+    protected volatile boolean stopped;
+    private boolean prepared;
+    private volatile boolean eventServerStarted;
+    private CompletableFuture<Void> stopFuture;
     protected final NetworkPartitionManager networkPartitionManager;
     protected final NetworkOperationManager networkOperationManager;
+    protected final NodeTaskExecutor nodeTaskExecutor;
+    protected final NodeOperationScheduler nodeOperationScheduler;
+    private final AsyncRuntimeEngine asyncRuntimeEngine;
+    private final List<NodeStateListener> nodeStateListeners;
+    private final ReadinessChecker readinessChecker;
+    private final NodeSnapshotManager nodeSnapshotManager;
+    // The nodes whose workspaces and containers are not created yet and the ongoing creations of them
+    private final Set<String> lazyNodes;
+    private final Map<String, CompletableFuture<Void>> nodeMaterializations;
+    // The resource limits that are changed at runtime which override the limits of the nodes and their services
+    private final Map<String, ResourceLimits> nodeToResourceLimitsMap;
+    private NodeWorkspaceFactory nodeWorkspaceFactory;
     private ReditRunner reditRunner;
     private EventService eventService;
     private Redit reditClient;
@@ -59,17 +90,44 @@ public abstract class RuntimeEngine implements LimitedRuntimeEngine {
     public RuntimeEngine(Deployment deployment, Map<String, NodeWorkspace> nodeWorkspaceMap) {
         this.stopped = true;
         this.deployment = deployment;
-        nodeMap = new HashMap<>(deployment.getNodes());
-        this.nodeWorkspaceMap = new HashMap<>(nodeWorkspaceMap);
+        nodeMap = new ConcurrentHashMap<>(deployment.getNodes());
+        this.nodeWorkspaceMap = new ConcurrentHashMap<>(nodeWorkspaceMap);
+        nodeTaskExecutor = NodeTaskExecutor.create();
+        nodeOperationScheduler = NodeOperationScheduler.create(nodeMap.size());
+        asyncRuntimeEngine = new AsyncRuntimeEngine(this, nodeOperationScheduler);
+        nodeStateListeners = new CopyOnWriteArrayList<>();
+        readinessChecker = new ReadinessChecker(this);
+        lazyNodes = ConcurrentHashMap.newKeySet();
+        nodeMaterializations = new ConcurrentHashMap<>();
+        nodeToResourceLimitsMap = new ConcurrentHashMap<>();
+        nodeSnapshotManager = new NodeSnapshotManager(deployment.getName(), this.nodeWorkspaceMap,
+                this::getWorkingDirectory);
         eventService = new EventService(deployment);
-        eventServer = new EventServer(eventService);
+        if (Boolean.getBoolean(Constants.SHARED_EVENT_SERVER_PROPERTY)) {
+            eventNamespace = deployment.getName().replaceAll("[^A-Za-z0-9_.-]", "_") + "_"
+                    + eventNamespaceCounter.incrementAndGet();
+            eventServer = SharedEventServer.getInstance();
+        } else {
+            eventNamespace = null;
+            eventServer = EventServer.create(eventService);
+        }
         networkPartitionManager = new NetworkPartitionManager(this);
         networkOperationManager = new NetworkOperationManager(this);
     }
 
-    // TODO this method should use an external configuration to detect the proper runtime engine and its corresponding configs
-    // By default this method returns single node runtime engine
+    // The runtime engine is selected through the redit.runtimeEngine system property. By default this method returns
+    // single node runtime engine
     public static RuntimeEngine getRuntimeEngine(Deployment deployment, Map<String, NodeWorkspace> nodeWorkspaceMap) {
+        String engineType = System.getProperty(Constants.RUNTIME_ENGINE_PROPERTY, Constants.RUNTIME_ENGINE_DOCKER);
+        if (Constants.RUNTIME_ENGINE_LOCAL_PROCESS.equalsIgnoreCase(engineType)) {
+            return new LocalProcessRuntimeEngine(deployment, nodeWorkspaceMap);
+        }
+        if (Constants.RUNTIME_ENGINE_IN_JVM.equalsIgnoreCase(engineType)) {
+            return new InJvmRuntimeEngine(deployment, nodeWorkspaceMap);
+        }
+        if (Constants.RUNTIME_ENGINE_SIMULATED.equalsIgnoreCase(engineType)) {
+            return new SimulatedRuntimeEngine(deployment, nodeWorkspaceMap);
+        }
         return new SingleNodeRuntimeEngine(deployment, nodeWorkspaceMap);
     }
 
@@ -77,15 +135,277 @@ public abstract class RuntimeEngine implements LimitedRuntimeEngine {
         return new HashSet<>(nodeMap.keySet());
     }
 
+    /**
+     * Sets the factory to create the workspaces of the nodes that are materialized lazily. This should be called
+     * before starting the runtime engine if some of the nodes are given without a workspace
+     * @param nodeWorkspaceFactory the factory to create the workspaces of the lazy nodes
+     */
+    public void setNodeWorkspaceFactory(NodeWorkspaceFactory nodeWorkspaceFactory) {
+        this.nodeWorkspaceFactory = nodeWorkspaceFactory;
+    }
+
+    /**
+     * Sets the workspace of a node before the runtime engine is started. The nodes whose workspaces are not set when the
+     * runtime engine is started are materialized lazily through the node workspace factory
+     * @param nodeName the node name
+     * @param nodeWorkspace the workspace of the node
+     */
+    public void setNodeWorkspace(String nodeName, NodeWorkspace nodeWorkspace) {
+        nodeWorkspaceMap.put(nodeName, nodeWorkspace);
+    }
+
+    /**
+     * @return the working directory of the current run which contains the workspaces of all of the nodes or null if it
+     * is not known
+     */
+    protected Path getWorkingDirectory() {
+        if (nodeWorkspaceFactory != null) {
+            Path workingDirectory = nodeWorkspaceFactory.getWorkingDirectory();
+            return workingDirectory == null ? null : workingDirectory.toAbsolutePath().normalize();
+        }
+        if (nodeWorkspaceMap.isEmpty()) {
+            return null;
+        }
+        return Paths.get(nodeWorkspaceMap.values().iterator().next().getWorkingDirectory()).toAbsolutePath()
+                .normalize().getParent();
+    }
+
+    /**
+     * @return true if the workspace and the container of the node are created
+     */
+    protected boolean isMaterialized(String nodeName) {
+        return nodeMap.containsKey(nodeName) && !lazyNodes.contains(nodeName);
+    }
+
+    /**
+     * @return the names of the nodes whose workspaces and containers are created
+     */
+    protected Set<String> getMaterializedNodeNames() {
+        Set<String> nodeNames = nodeNames();
+        nodeNames.removeAll(lazyNodes);
+        return nodeNames;
+    }
+
+    /**
+     * Creates the workspace and the container of a lazy node if they are not created yet. Concurrent calls for the same
+     * node wait for the same creation and a failed creation is retried in the next call.
+     * @param nodeName the node to be materialized
+     * @throws RuntimeEngineException if something goes wrong
+     */
+    protected void materializeNode(String nodeName) throws RuntimeEngineException {
+        if (!lazyNodes.contains(nodeName)) {
+            return;
+        }
+
+        CompletableFuture<Void> materialization = new CompletableFuture<>();
+        CompletableFuture<Void> ongoingMaterialization = nodeMaterializations.putIfAbsent(nodeName, materialization);
+        if (ongoingMaterialization != null) {
+            try {
+                ongoingMaterialization.get();
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeEngineException("Interrupted while waiting for node " + nodeName
+                        + " to be materialized!", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeEngineException) {
+                    throw (RuntimeEngineException) e.getCause();
+                }
+                throw new RuntimeEngineException("Error while materializing node " + nodeName + "!", e.getCause());
+            }
+        }
+
+        try {
+            doMaterializeNode(nodeName);
+            lazyNodes.remove(nodeName);
+            materialization.complete(null);
+        } catch (RuntimeEngineException | RuntimeException e) {
+            nodeWorkspaceMap.remove(nodeName);
+            nodeMaterializations.remove(nodeName);
+            materialization.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private void doMaterializeNode(String nodeName) throws RuntimeEngineException {
+        if (stopped) {
+            throw new RuntimeEngineException("Node " + nodeName + " cannot be materialized since the runtime engine"
+                    + " is stopped!");
+        }
+        if (nodeWorkspaceFactory == null) {
+            throw new RuntimeEngineException("No workspace factory is set to create the workspace of node "
+                    + nodeName + "!");
+        }
+
+        long startTime = System.currentTimeMillis();
+        logger.info("Materializing node {} ...", nodeName);
+        Node node = nodeMap.get(nodeName);
+        nodeWorkspaceMap.put(nodeName, nodeWorkspaceFactory.createNodeWorkspace(node));
+        createNodeContainer(node);
+        logger.info("Node {} is materialized in {} ms", nodeName, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Materializes the lazy nodes in the background, so their first start doesn't wait for their workspaces and
+     * containers to be created
+     */
+    private void prefetchLazyNodes() {
+        Set<String> nodesToPrefetch = new TreeSet<>(lazyNodes);
+        if (nodesToPrefetch.isEmpty()) {
+            return;
+        }
+
+        Thread prefetchThread = new Thread(() -> {
+            logger.info("Prefetching nodes {} ...", nodesToPrefetch);
+            try {
+                nodeTaskExecutor.runOnNodes(nodesToPrefetch, "materialize", this::materializeNode);
+            } catch (RuntimeEngineException e) {
+                if (!stopped) {
+                    logger.warn("Error while prefetching nodes {}", nodesToPrefetch, e);
+                }
+            }
+        }, "redit-node-prefetch-" + deployment.getName());
+        prefetchThread.setDaemon(true);
+        prefetchThread.start();
+    }
+
+    @Override
+    public AsyncRuntimeEngine async() {
+        return asyncRuntimeEngine;
+    }
+
+    @Override
+    public Set<String> selectNodes(NodeSelector selector) {
+        Set<String> selectedNodes = new TreeSet<>();
+        for (Node node: nodeMap.values()) {
+            if (selector.matches(node, getNodeLabels(node.getName()))) {
+                selectedNodes.add(node.getName());
+            }
+        }
+        return selectedNodes;
+    }
+
+    @Override
+    public NodeOperationResults<Void> killNodes(NodeSelector selector) throws RuntimeEngineException {
+        return runOnSelectedNodes(selector, "kill", asyncRuntimeEngine::killNode);
+    }
+
+    @Override
+    public NodeOperationResults<Void> stopNodes(NodeSelector selector, Integer secondsUntilForcedStop)
+            throws RuntimeEngineException {
+        return runOnSelectedNodes(selector, "stop",
+                nodeName -> asyncRuntimeEngine.stopNode(nodeName, secondsUntilForcedStop));
+    }
+
+    @Override
+    public NodeOperationResults<Void> startNodes(NodeSelector selector) throws RuntimeEngineException {
+        return runOnSelectedNodes(selector, "start", asyncRuntimeEngine::startNode);
+    }
+
+    @Override
+    public NodeOperationResults<Void> restartNodes(NodeSelector selector, Integer secondsUntilForcedStop)
+            throws RuntimeEngineException {
+        return runOnSelectedNodes(selector, "restart",
+                nodeName -> asyncRuntimeEngine.restartNode(nodeName, secondsUntilForcedStop));
+    }
+
+    @Override
+    public NodeOperationResults<CommandResults> runCommandInNodes(NodeSelector selector, String command)
+            throws RuntimeEngineException {
+        return runOnSelectedNodes(selector, "run command",
+                nodeName -> asyncRuntimeEngine.runCommandInNode(nodeName, command));
+    }
+
+    @Override
+    public NodeOperationResults<Void> networkOperation(NodeSelector selector, NetOp.BuilderBase... netOpBuilders)
+            throws RuntimeEngineException {
+        return runOnSelectedNodes(selector, "network operation",
+                nodeName -> asyncRuntimeEngine.networkOperation(nodeName, netOpBuilders));
+    }
+
+    /**
+     * Submits the operation for all of the selected nodes at once and waits for all of them to be done. The operations
+     * go through the same per node ordering as the {@link AsyncRuntimeEngine} operations.
+     */
+    private <T> NodeOperationResults<T> runOnSelectedNodes(NodeSelector selector, String operationName,
+                                                          Function<String, CompletableFuture<T>> operation)
+            throws RuntimeEngineException {
+        Map<String, CompletableFuture<T>> futures = new TreeMap<>();
+        for (String nodeName: selectNodes(selector)) {
+            futures.put(nodeName, operation.apply(nodeName));
+        }
+
+        NodeOperationResults<T> results = new NodeOperationResults<>(operationName);
+        for (Map.Entry<String, CompletableFuture<T>> future: futures.entrySet()) {
+            try {
+                results.addResult(future.getKey(), future.getValue().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeEngineException("Interrupted while waiting for " + operationName + " on nodes "
+                        + futures.keySet() + "!", e);
+            } catch (ExecutionException e) {
+                results.addFailure(future.getKey(), e.getCause() instanceof RuntimeEngineException ?
+                        (RuntimeEngineException) e.getCause() :
+                        new RuntimeEngineException("Error while applying " + operationName + " on node "
+                                + future.getKey() + "!", e.getCause()));
+            }
+        }
+
+        if (!results.isSuccessful()) {
+            logger.warn("{}", results);
+        }
+        return results;
+    }
+
+    @Override
+    public void addNodeStateListener(NodeStateListener listener) {
+        nodeStateListeners.add(listener);
+    }
+
+    @Override
+    public void removeNodeStateListener(NodeStateListener listener) {
+        nodeStateListeners.remove(listener);
+    }
+
+    protected void notifyNodeStateListeners(String nodeName, NodeState nodeState) {
+        for (NodeStateListener listener: nodeStateListeners) {
+            try {
+                listener.nodeStateChanged(nodeName, nodeState);
+            } catch (RuntimeException e) {
+                logger.warn("Node state listener failed for node {}", nodeName, e);
+            }
+        }
+    }
+
     public boolean isStopped() {
         return stopped;
     }
 
+    /**
+     * Prepares the parts of the environment of the nodes that don't depend on their workspaces, so it can be done while
+     * the workspaces are being created. The runtime engine is considered started from this point on, so it should be
+     * stopped even if the preparation fails. This method is called by {@link #start(ReditRunner)} if it is not called
+     * before
+     * @throws RuntimeEngineException if something goes wrong
+     */
+    public synchronized void prepare() throws RuntimeEngineException {
+        if (prepared) {
+            return;
+        }
+        prepared = true;
+        stopped = false;
+        prepareNodes();
+    }
+
     public void start(ReditRunner reditRunner) throws RuntimeEngineException {
         this.reditRunner = reditRunner;
 
+        // The nodes without a workspace are materialized when they are first started
+        lazyNodes.addAll(nodeMap.keySet());
+        lazyNodes.removeAll(nodeWorkspaceMap.keySet());
+
         // Exits if nodes' workspaces is not set
-        if (nodeWorkspaceMap == null || nodeWorkspaceMap.isEmpty()) {
+        if (nodeWorkspaceMap == null || (nodeWorkspaceMap.isEmpty() && lazyNodes.isEmpty())) {
             throw new RuntimeEngineException("NodeWorkspaces is not set!");
         }
 
@@ -98,9 +418,11 @@ public abstract class RuntimeEngine implements LimitedRuntimeEngine {
         startEventServer();
 
         // Configure local Redit runtime
-        reditClient = new Redit("127.0.0.1", String.valueOf(eventServer.getPortNumber()));
+        reditClient = new Redit("127.0.0.1", String.valueOf(eventServer.getPortNumber()), eventNamespace,
+                Constants.TEST_CASE_WAITER_NODE_NAME);
 
         try {
+            prepare();
             logger.info("Starting nodes ...");
             stopped = false;
             startNodes();
@@ -108,23 +430,70 @@ public abstract class RuntimeEngine implements LimitedRuntimeEngine {
             stop(true, 0);
             throw e;
         }
+
+        if (Boolean.getBoolean(Constants.LAZY_NODES_PREFETCH_PROPERTY)) {
+            prefetchLazyNodes();
+        }
     }
 
     protected void startEventServer() throws RuntimeEngineException {
         eventServer.start();
+        eventServerStarted = true;
+        if (eventNamespace != null) {
+            logger.info("Registering event namespace {} in the shared event server ...", eventNamespace);
+            eventServer.register(eventNamespace, eventService);
+        }
     }
 
+    /**
+     * Stops the runtime engine and waits for the cleanup to be completed. If the engine is already being stopped, waits
+     * for the ongoing stop to be completed.
+     */
     public void stop(boolean kill, Integer secondsUntilForcedStop) {
+        stopAsync(kill, secondsUntilForcedStop).join();
+    }
+
+    /**
+     * Marks the runtime engine as stopped and stops the nodes, the event server and the file sharing service in a
+     * background thread. The returned future is completed when the cleanup is done. The cleanup thread is not a daemon
+     * thread, so the JVM does not exit normally before it is finished.
+     * @return a future to be completed when the runtime engine is completely stopped
+     */
+    public synchronized CompletableFuture<Void> stopAsync(boolean kill, Integer secondsUntilForcedStop) {
+        if (stopFuture == null) {
+            if (stopped) {
+                // the runtime engine is not started yet
+                return CompletableFuture.completedFuture(null);
+            }
+            stopFuture = new CompletableFuture<>();
+            stopped = true;
+            Thread stopThread = new Thread(() -> {
+                try {
+                    doStop(kill, secondsUntilForcedStop);
+                    stopFuture.complete(null);
+                } catch (Throwable e) {
+                    logger.error("Error while stopping the runtime engine!", e);
+                    stopFuture.completeExceptionally(e);
+                }
+            }, "redit-stop-" + deployment.getName());
+            stopThread.start();
+        }
+        return stopFuture;
+    }
+
+    private void doStop(boolean kill, Integer secondsUntilForcedStop) {
         logger.info("Stopping the runtime engine ...");
         logger.info("Stopping nodes ...");
         stopNodes(kill, secondsUntilForcedStop);
-        logger.info("Stopping event server ...");
-        stopEventServer();
+        if (eventServerStarted) {
+            logger.info("Stopping event server ...");
+            stopEventServer();
+        }
         if (!deployment.getSharedDirectories().isEmpty()) {
             logger.info("Stopping file sharing service ...");
             stopFileSharingService();
         }
-        stopped = true;
+        logger.info("The runtime engine is stopped!");
     }
 
     public void addNewNode(Node node, NodeWorkspace nodeWorkspace) throws RuntimeEngineException {
@@ -136,7 +505,11 @@ public abstract class RuntimeEngine implements LimitedRuntimeEngine {
     }
 
     protected void stopEventServer() {
-        eventServer.stop();
+        if (eventNamespace != null) {
+            eventServer.unregister(eventNamespace);
+        } else {
+            eventServer.stop();
+        }
     }
 
     protected Map<String, String> getNodeEnvironmentVariablesMap(String nodeName, Map<String, String> environment) {
@@ -154,8 +527,38 @@ public abstract class RuntimeEngine implements LimitedRuntimeEngine {
         return environment;
     }
 
+    /**
+     * @return a human readable report of the received and pending events of the run sequence and the threads that
+     * are currently waiting for them
+     */
+    public String getRunSequenceReport() {
+        return eventService.getRunSequenceReport();
+    }
+
+    /**
+     * @return the event service that keeps track of the events of the run sequence
+     */
+    protected EventService getEventService() {
+        return eventService;
+    }
+
     protected Map<String, String> improveEnvironmentVariablesMap(String nodeName, Map<String, String> environment)
             throws RuntimeEngineException {
+        environment.put(Constants.REDIT_EVENT_SERVER_IP_ADDRESS_ENV_VAR, getNodeEventServerIpAddress());
+        environment.put(Constants.REDIT_EVENT_SERVER_PORT_NUMBER_ENV_VAR, String.valueOf(eventServer.getPortNumber()));
+        if (eventNamespace != null) {
+            environment.put(Constants.REDIT_EVENT_SERVER_NAMESPACE_ENV_VAR, eventNamespace);
+        }
+        environment.put(Constants.REDIT_NODE_NAME_ENV_VAR, nodeName);
+        return environment;
+    }
+
+    /**
+     * @return the IP address of the event server as seen from the nodes. By default this is the address of the docker
+     * bridge of the host
+     * @throws RuntimeEngineException if something goes wrong
+     */
+    protected String getNodeEventServerIpAddress() throws RuntimeEngineException {
         // TODO: better to move the address achieving process to method getEventServerIpAddress
         // Use ipv4 checker to find if the address is ipv4
         // Use class NetworkInterface to get the docker0 address
@@ -184,9 +587,7 @@ public abstract class RuntimeEngine implements LimitedRuntimeEngine {
             logger.error("Confirm that docker is set! ");
         }
 
-        environment.put(Constants.REDIT_EVENT_SERVER_IP_ADDRESS_ENV_VAR, ipAddress);
-        environment.put(Constants.REDIT_EVENT_SERVER_PORT_NUMBER_ENV_VAR, String.valueOf(eventServer.getPortNumber()));
-        return environment;
+        return ipAddress;
     }
 
     protected final Map<String, String> getNodeEnvironmentVariablesMap(String nodeName) throws RuntimeEngineException {
@@ -236,12 +637,89 @@ public abstract class RuntimeEngine implements LimitedRuntimeEngine {
         return nodeService.getStopCommand();
     }
 
+    /**
+     * @return the start order group of the node. The node's start order overrides its service's and the default is 0
+     */
+    protected int getNodeStartOrder(String nodeName) {
+        Node node = nodeMap.get(nodeName);
+        Service nodeService = deployment.getService(node.getServiceName());
+
+        if (node.getStartOrder() != null) {
+            return node.getStartOrder();
+        }
+        return nodeService.getStartOrder() == null ? 0 : nodeService.getStartOrder();
+    }
+
+    /**
+     * @return the resource limits of the node. The limits changed at runtime override the node's limits which override
+     * its service's limits one by one
+     */
+    protected ResourceLimits getNodeResourceLimits(String nodeName) {
+        Node node = nodeMap.get(nodeName);
+        Service nodeService = deployment.getService(node.getServiceName());
+
+        return ResourceLimits.builder().build().override(nodeService.getResourceLimits())
+                .override(node.getResourceLimits()).override(nodeToResourceLimitsMap.get(nodeName));
+    }
+
+    /**
+     * @param nodeNames the nodes to be grouped
+     * @return the given nodes grouped by their start order groups in ascending start order
+     */
+    protected List<List<String>> getNodeStartOrderGroups(Collection<String> nodeNames) {
+        TreeMap<Integer, List<String>> groups = new TreeMap<>();
+        for (String nodeName: nodeNames) {
+            groups.computeIfAbsent(getNodeStartOrder(nodeName), k -> new ArrayList<>()).add(nodeName);
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    /**
+     * @param nodeName the node name
+     * @return the labels of the node's service overridden by the labels of the node
+     */
+    protected Map<String, String> getNodeLabels(String nodeName) {
+        Node node = nodeMap.get(nodeName);
+        Service nodeService = deployment.getService(node.getServiceName());
+
+        Map<String, String> labels = new HashMap<>(nodeService.getLabels());
+        labels.putAll(node.getLabels());
+        return labels;
+    }
+
     protected boolean isClockDriftEnabledInNode(String nodeName) {
         Node node = nodeMap.get(nodeName);
         Service service = deployment.getService(node.getServiceName());
         return node.isClockDriftEnabled() && service.isClockDriftEnabled();
     }
 
+    /**
+     * @param amount the positive or negative amount of time offset in milliseconds
+     * @return the time offset in the format of the libfaketime controller file
+     */
+    protected static String getLibFakeTimeOffset(Integer amount) {
+        String stringAmount = amount.toString();
+
+        // Adds the missing + sign if necessary
+        if (!stringAmount.startsWith("-") && !stringAmount.startsWith("+")) {
+            stringAmount = "+" + stringAmount;
+        }
+
+        // Adds comma as the fraction delimiter. If necessary will add 0 to the right
+        // 1000 => +1,000 , 10 => +0,010 , -1 => -0,001
+        if (stringAmount.length() > 4) {
+            stringAmount = stringAmount.substring(0, stringAmount.length() - 3) + "," +
+                    stringAmount.substring(stringAmount.length() - 3);
+        } else {
+            String stringNumber = stringAmount.substring(1);
+            for (int i = 0; i < 4 - stringAmount.length(); i++) {
+                stringNumber = "0" + stringNumber;
+            }
+            stringAmount = stringAmount.charAt(0) + "0," + stringNumber;
+        }
+        return stringAmount;
+    }
+
     @Override
     public void waitFor(String eventName) throws RuntimeEngineException {
         try {
@@ -329,6 +807,12 @@ public abstract class RuntimeEngine implements LimitedRuntimeEngine {
 
     public void waitForRunSequenceCompletion(Integer timeout, Integer nextEventReceiptTimeout)
             throws TimeoutException {
+        waitForRunSequenceCompletion(timeout, nextEventReceiptTimeout,
+                Integer.getInteger(Constants.RUN_SEQUENCE_STALL_TIMEOUT_PROPERTY));
+    }
+
+    public void waitForRunSequenceCompletion(Integer timeout, Integer nextEventReceiptTimeout, Integer stallTimeout)
+            throws TimeoutException {
 
         Integer originalTimeout = timeout;
         while (!isStopped() && (timeout == null || timeout > 0)) {
@@ -338,9 +822,16 @@ public abstract class RuntimeEngine implements LimitedRuntimeEngine {
                 return;
             }
 
-            if (deployment.getRunSequence() != null && !deployment.getRunSequence().isEmpty() &&
-                    eventService.isLastEventReceivedTimeoutPassed(nextEventReceiptTimeout)) {
-                throw new TimeoutException("The timeout for receiving the next event (" + nextEventReceiptTimeout + " seconds) is passed!");
+            if (deployment.getRunSequence() != null && !deployment.getRunSequence().isEmpty()) {
+                if (eventService.isLastEventReceivedTimeoutPassed(nextEventReceiptTimeout)) {
+                    throw new RunSequenceStalledException("The timeout for receiving the next event ("
+                            + nextEventReceiptTimeout + " seconds) is passed!", eventService.getRunSequenceReport());
+                }
+                if (eventService.isStalled(stallTimeout)) {
+                    throw new RunSequenceStalledException("The run sequence is stalled! No event is received in the last "
+                            + stallTimeout + " seconds while all the waiting threads are blocked",
+                            eventService.getRunSequenceReport());
+                }
             }
 
             try {
@@ -360,20 +851,351 @@ public abstract class RuntimeEngine implements LimitedRuntimeEngine {
         }
     }
 
+    @Override
+    public List<CommandResults> runCommandsInNode(String nodeName, List<String> commands) throws RuntimeEngineException {
+        if (commands.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (commands.size() == 1) {
+            return Collections.singletonList(runCommandInNode(nodeName, commands.get(0)));
+        }
+
+        // Each command's output is wrapped in markers on both stdout and stderr, and the end marker on stdout carries
+        // the exit code of the command. A new line is always printed before the end markers and removed when parsing.
+        String marker = "REDIT_BATCH_" + UUID.randomUUID().toString().replace("-", "");
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < commands.size(); i++) {
+            script.append("echo '").append(marker).append(":").append(i).append(":begin'; ")
+                    .append("echo '").append(marker).append(":").append(i).append(":begin' >&2\n")
+                    .append("(\n").append(commands.get(i)).append("\n)\n")
+                    .append("printf '\\n").append(marker).append(":").append(i).append(":end:%s\\n' \"$?\"; ")
+                    .append("printf '\\n").append(marker).append(":").append(i).append(":end\\n' >&2\n");
+        }
+
+        CommandResults batchResults = runCommandInNode(nodeName, script.toString());
+        List<CommandResults> results = new ArrayList<>();
+        for (int i = 0; i < commands.size(); i++) {
+            String begin = marker + ":" + i + ":begin\n";
+            String end = "\n" + marker + ":" + i + ":end";
+            int outBegin = batchResults.stdOut().indexOf(begin);
+            int outEnd = batchResults.stdOut().indexOf(end + ":", outBegin);
+            int errBegin = batchResults.stdErr().indexOf(begin);
+            int errEnd = batchResults.stdErr().indexOf(end + "\n", errBegin);
+            if (outBegin == -1 || outEnd == -1 || errBegin == -1 || errEnd == -1) {
+                throw new RuntimeEngineException("Error while parsing the results of command " + commands.get(i)
+                        + " in the batch executed in node " + nodeName + "! The output may be truncated. exit code: "
+                        + batchResults.exitCode() + " out: " + batchResults.stdOut() + " err: " + batchResults.stdErr());
+            }
+            int exitCodeEnd = batchResults.stdOut().indexOf('\n', outEnd + end.length() + 1);
+            String exitCode = batchResults.stdOut().substring(outEnd + end.length() + 1,
+                    exitCodeEnd == -1 ? batchResults.stdOut().length() : exitCodeEnd).trim();
+            results.add(new CommandResults(nodeName, commands.get(i), Long.parseLong(exitCode),
+                    batchResults.stdOut().substring(outBegin + begin.length(), outEnd),
+                    batchResults.stdErr().substring(errBegin + begin.length(), errEnd)));
+        }
+        return results;
+    }
+
+    // The node operations go through the per node queues of the node operation scheduler, so concurrent operations on
+    // the same node are applied one at a time in order while different nodes progress in parallel
+
+    @Override
+    public void killNode(String nodeName) throws RuntimeEngineException {
+        nodeOperationScheduler.run(nodeName, () -> {
+            // A node that is not materialized yet has never been started
+            if (!lazyNodes.contains(nodeName)) {
+                readinessChecker.nodeStopping(nodeName);
+                doKillNode(nodeName);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void stopNode(String nodeName, Integer secondsUntilForcedStop) throws RuntimeEngineException {
+        nodeOperationScheduler.run(nodeName, () -> {
+            // A node that is not materialized yet has never been started
+            if (!lazyNodes.contains(nodeName)) {
+                readinessChecker.nodeStopping(nodeName);
+                doStopNode(nodeName, secondsUntilForcedStop);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public NodeReadiness startNode(String nodeName) throws RuntimeEngineException {
+        nodeOperationScheduler.run(nodeName, () -> {
+            materializeNode(nodeName);
+            if (!isNodeRunning(nodeName)) {
+                readinessChecker.nodeStarting(nodeName);
+            }
+            doStartNode(nodeName);
+            return null;
+        });
+        return new NodeReadiness(this, nodeName);
+    }
+
+    @Override
+    public void restartNode(String nodeName, Integer secondsUntilForcedStop) throws RuntimeEngineException {
+        nodeOperationScheduler.run(nodeName, () -> {
+            materializeNode(nodeName);
+            readinessChecker.nodeStarting(nodeName);
+            doRestartNode(nodeName, secondsUntilForcedStop);
+            return null;
+        });
+    }
+
+    private boolean isNodeRunning(String nodeName) {
+        NodeState nodeState = nodeState(nodeName);
+        return nodeState != null && nodeState.isRunning();
+    }
+
+    @Override
+    public boolean isReady(String nodeName) {
+        return readinessChecker.isReady(nodeName);
+    }
+
+    @Override
+    public void awaitReady(String nodeName, Integer timeout) throws RuntimeEngineException, TimeoutException {
+        if (!nodeMap.containsKey(nodeName)) {
+            throw new NodeNotFoundException(nodeName);
+        }
+        readinessChecker.awaitReady(nodeName, System.currentTimeMillis() + timeout * 1000L);
+    }
+
+    @Override
+    public void awaitAllReady(Integer timeout) throws RuntimeEngineException, TimeoutException {
+        long deadline = System.currentTimeMillis() + timeout * 1000L;
+        Set<String> runningNodes = new TreeSet<>();
+        for (String nodeName: nodeMap.keySet()) {
+            if (isNodeRunning(nodeName)) {
+                runningNodes.add(nodeName);
+            }
+        }
+
+        Set<String> notReadyNodes = ConcurrentHashMap.newKeySet();
+        nodeTaskExecutor.runOnNodes(runningNodes, "await the readiness of", nodeName -> {
+            try {
+                readinessChecker.awaitReady(nodeName, deadline);
+            } catch (TimeoutException e) {
+                notReadyNodes.add(nodeName);
+            }
+        });
+        if (!notReadyNodes.isEmpty()) {
+            throw new TimeoutException("Nodes " + new TreeSet<>(notReadyNodes) + " are not ready after " + timeout
+                    + " seconds!");
+        }
+    }
+
+    @Override
+    public void clockDrift(String nodeName, Integer amount) throws RuntimeEngineException {
+        nodeOperationScheduler.run(nodeName, () -> {
+            materializeNode(nodeName);
+            doClockDrift(nodeName, amount);
+            return null;
+        });
+    }
+
+    @Override
+    public void updateNodeResources(String nodeName, ResourceLimits.Builder resourceLimits)
+            throws RuntimeEngineException {
+        ResourceLimits limits = resourceLimits.build();
+        nodeOperationScheduler.run(nodeName, () -> {
+            if (!nodeMap.containsKey(nodeName)) {
+                throw new NodeNotFoundException(nodeName);
+            }
+
+            ResourceLimits currentLimits = nodeToResourceLimitsMap.get(nodeName);
+            ResourceLimits newLimits = currentLimits == null ? limits : currentLimits.override(limits);
+            // The container of a lazy node is created with the new limits when it is materialized
+            if (isMaterialized(nodeName)) {
+                logger.info("Updating the resource limits of node {} to {}", nodeName, limits);
+                doUpdateNodeResources(nodeName, getNodeResourceLimits(nodeName).override(limits));
+            }
+            nodeToResourceLimitsMap.put(nodeName, newLimits);
+            return null;
+        });
+    }
+
     @Override
     public void networkPartition(NetPart netPart) throws RuntimeEngineException {
-        networkPartitionManager.networkPartition(netPart);
+        // A partition changes the iptables rules of any of the nodes, so it is ordered with the operations of all nodes
+        nodeOperationScheduler.run(nodeNames(), () -> {
+            networkPartitionManager.networkPartition(netPart);
+            return null;
+        });
     }
 
     @Override
     public void removeNetworkPartition(NetPart netPart) throws RuntimeEngineException {
-        networkPartitionManager.removeNetworkPartition(netPart);
+        nodeOperationScheduler.run(nodeNames(), () -> {
+            networkPartitionManager.removeNetworkPartition(netPart);
+            return null;
+        });
     }
 
     @Override
     public void networkOperation(String nodeName, NetOp.BuilderBase... netOpBuilders) throws RuntimeEngineException {
-        for (NetOp.BuilderBase netOpBuilder: netOpBuilders) {
-            networkOperationManager.networkOperation(nodeName, netOpBuilder.build());
+        NetOp[] netOps = new NetOp[netOpBuilders.length];
+        for (int i = 0; i < netOpBuilders.length; i++) {
+            netOps[i] = netOpBuilders[i].build();
+        }
+        nodeOperationScheduler.run(nodeName, () -> {
+            networkOperationManager.networkOperation(nodeName, netOps);
+            return null;
+        });
+    }
+
+    // A snapshot and a restore are ordered with the operations of all of the nodes, so no node changes in the middle
+
+    @Override
+    public void snapshotNodes(String snapshotName) throws RuntimeEngineException {
+        nodeOperationScheduler.run(nodeNames(), () -> {
+            doSnapshotNodes(snapshotName);
+            return null;
+        });
+    }
+
+    private void doSnapshotNodes(String snapshotName) throws RuntimeEngineException {
+        long startTime = System.currentTimeMillis();
+        // The nodes that are not materialized yet have nothing to be captured
+        Set<String> nodeNames = getMaterializedNodeNames();
+        if (nodeNames.isEmpty()) {
+            throw new RuntimeEngineException("No node is materialized to take snapshot " + snapshotName + " of!");
+        }
+        NodeSnapshotManager.SnapshotMetadata metadata = new NodeSnapshotManager.SnapshotMetadata();
+        metadata.getNodeNames().addAll(nodeNames);
+        for (String nodeName: nodeNames) {
+            if (isNodeRunning(nodeName)) {
+                metadata.getRunningNodeNames().add(nodeName);
+            }
+        }
+
+        logger.info("Taking snapshot {} of nodes {} ...", snapshotName, nodeNames);
+        nodeSnapshotManager.prepare(snapshotName);
+        Map<String, String> nodeStates = new ConcurrentHashMap<>();
+        Set<String> frozenNodes = ConcurrentHashMap.newKeySet();
+        try {
+            // All of the nodes are frozen first since the shared directories may be changed by any of them
+            nodeTaskExecutor.runOnNodes(metadata.getRunningNodeNames(), "freeze", nodeName -> {
+                freezeNode(nodeName);
+                frozenNodes.add(nodeName);
+            });
+            nodeTaskExecutor.runOnNodes(nodeNames, "take the snapshot of", nodeName -> {
+                String nodeState = snapshotNodeState(nodeName, snapshotName);
+                if (nodeState != null) {
+                    nodeStates.put(nodeName, nodeState);
+                }
+                nodeSnapshotManager.saveWorkspace(snapshotName, nodeName);
+            });
+            nodeSnapshotManager.saveSharedDirectories(snapshotName);
+        } finally {
+            nodeTaskExecutor.runOnNodes(frozenNodes, "unfreeze", this::unfreezeNode);
+        }
+
+        metadata.getNodeStates().putAll(nodeStates);
+        nodeSnapshotManager.writeMetadata(snapshotName, metadata);
+        logger.info("Snapshot {} is taken in {} ms", snapshotName, System.currentTimeMillis() - startTime);
+    }
+
+    @Override
+    public void restoreNodes(String snapshotName) throws RuntimeEngineException {
+        nodeOperationScheduler.run(nodeNames(), () -> {
+            doRestoreNodes(snapshotName);
+            return null;
+        });
+    }
+
+    private void doRestoreNodes(String snapshotName) throws RuntimeEngineException {
+        long startTime = System.currentTimeMillis();
+        NodeSnapshotManager.SnapshotMetadata metadata = nodeSnapshotManager.readMetadata(snapshotName);
+        Set<String> nodeNames = new TreeSet<>(metadata.getNodeNames());
+        nodeNames.retainAll(nodeMap.keySet());
+        if (!nodeNames.equals(metadata.getNodeNames())) {
+            Set<String> missingNodes = new TreeSet<>(metadata.getNodeNames());
+            missingNodes.removeAll(nodeNames);
+            logger.warn("Nodes {} of snapshot {} do not exist and are not restored", missingNodes, snapshotName);
+        }
+
+        logger.info("Restoring nodes {} from snapshot {} ...", nodeNames, snapshotName);
+        nodeTaskExecutor.runOnNodes(nodeNames, "restore", nodeName -> {
+            materializeNode(nodeName);
+            readinessChecker.nodeStopping(nodeName);
+            doKillNode(nodeName);
+            String nodeState = metadata.getNodeStates().get(nodeName);
+            if (nodeState != null) {
+                restoreNodeState(nodeName, nodeState);
+            }
+            nodeSnapshotManager.restoreWorkspace(snapshotName, nodeName);
+        });
+        nodeSnapshotManager.restoreSharedDirectories(snapshotName);
+
+        Set<String> nodesToStart = new TreeSet<>(metadata.getRunningNodeNames());
+        nodesToStart.retainAll(nodeNames);
+        for (List<String> startOrderGroup: getNodeStartOrderGroups(nodesToStart)) {
+            nodeTaskExecutor.runOnNodes(startOrderGroup, "start", nodeName -> {
+                readinessChecker.nodeStarting(nodeName);
+                doStartNode(nodeName);
+            });
+        }
+        logger.info("Nodes are restored from snapshot {} in {} ms", snapshotName,
+                System.currentTimeMillis() - startTime);
+    }
+
+    @Override
+    public boolean hasSnapshot(String snapshotName) {
+        return nodeSnapshotManager.exists(snapshotName);
+    }
+
+    @Override
+    public void deleteSnapshot(String snapshotName) throws RuntimeEngineException {
+        if (!nodeSnapshotManager.exists(snapshotName)) {
+            return;
+        }
+        NodeSnapshotManager.SnapshotMetadata metadata = nodeSnapshotManager.readMetadata(snapshotName);
+        nodeSnapshotManager.delete(snapshotName);
+        for (String nodeState: metadata.getNodeStates().values()) {
+            deleteNodeState(nodeState);
+        }
+        logger.info("Snapshot {} is deleted", snapshotName);
+    }
+
+    /**
+     * @return the address that the network partition rules of the node only apply to, or null if the rules apply to
+     * all of the packets the node receives. This is needed when the node shares its network stack with other nodes
+     */
+    protected String getNetworkPartitionDestination(String nodeName) {
+        return null;
+    }
+
+    /**
+     * Re-applies the network operations and partitions that are in place for the node through a single exec. This is
+     * useful when start/restarting a node
+     * @param nodeName the node to re-apply the network faults on
+     * @throws RuntimeEngineException if something goes wrong
+     */
+    protected void reApplyNetworkFaults(String nodeName) throws RuntimeEngineException {
+        List<String> commands = new ArrayList<>();
+        String tcCommand = networkOperationManager.getReApplyCommand(nodeName);
+        if (tcCommand != null) {
+            commands.add(tcCommand);
+        }
+        String ipTablesCommand = networkPartitionManager.getReApplyCommand(nodeName);
+        if (ipTablesCommand != null) {
+            commands.add(ipTablesCommand);
+        }
+        if (commands.isEmpty()) {
+            return;
+        }
+
+        logger.info("Re-applying network faults on node {} ...", nodeName);
+        for (CommandResults commandResults: runCommandsInNode(nodeName, commands)) {
+            if (commandResults.exitCode() != 0) {
+                throw new RuntimeEngineException("Error while re-applying network faults on node " + nodeName
+                        + "! command: " + commandResults.command() + " exit code: " + commandResults.exitCode()
+                        + " out: " + commandResults.stdOut() + " err: " + commandResults.stdErr());
+            }
         }
     }
 
@@ -398,6 +1220,113 @@ public abstract class RuntimeEngine implements LimitedRuntimeEngine {
      * @throws RuntimeEngineException if something goes wrong
      */
     protected abstract void createNodeContainer(Node node) throws RuntimeEngineException;
+    /**
+     * This method should kill the given node. It is called in order with the other operations on the node
+     * @param nodeName the node name to be killed
+     * @throws RuntimeEngineException if something goes wrong
+     */
+    protected abstract void doKillNode(String nodeName) throws RuntimeEngineException;
+
+    /**
+     * This method should stop the given node. It is called in order with the other operations on the node
+     * @param nodeName the node name to be stopped
+     * @param secondsUntilForcedStop the number of seconds to wait until forcing a stop
+     * @throws RuntimeEngineException if something goes wrong
+     */
+    protected abstract void doStopNode(String nodeName, Integer secondsUntilForcedStop) throws RuntimeEngineException;
+
+    /**
+     * This method should start the given node. It is called in order with the other operations on the node
+     * @param nodeName the node name to be started
+     * @throws RuntimeEngineException if something goes wrong
+     */
+    protected abstract void doStartNode(String nodeName) throws RuntimeEngineException;
+
+    /**
+     * This method should restart the given node. It is called in order with the other operations on the node
+     * @param nodeName the node name to be restarted
+     * @param secondsUntilForcedStop the number of seconds to wait until forcing a stop
+     * @throws RuntimeEngineException if something goes wrong
+     */
+    protected abstract void doRestartNode(String nodeName, Integer secondsUntilForcedStop) throws RuntimeEngineException;
+
+    /**
+     * This method should apply the clock drift on the given node. It is called in order with the other operations on
+     * the node
+     * @param nodeName the node name to apply the clock drift on
+     * @param amount the positive or negative amount of time offset to apply in milliseconds
+     * @throws RuntimeEngineException if something goes wrong
+     */
+    protected abstract void doClockDrift(String nodeName, Integer amount) throws RuntimeEngineException;
+
+    /**
+     * This method should freeze the processes of the given running node, so its file system doesn't change while a
+     * snapshot is being taken. Engines whose nodes cannot be frozen don't need to override it
+     * @param nodeName the node name to be frozen
+     * @throws RuntimeEngineException if something goes wrong
+     */
+    protected void freezeNode(String nodeName) throws RuntimeEngineException {
+    }
+
+    /**
+     * This method should let the processes of the given frozen node continue
+     * @param nodeName the node name to be unfrozen
+     * @throws RuntimeEngineException if something goes wrong
+     */
+    protected void unfreezeNode(String nodeName) throws RuntimeEngineException {
+    }
+
+    /**
+     * This method should apply the given resource limits to the given node while it keeps running
+     * @param nodeName the node name to apply the limits on
+     * @param resourceLimits all of the resource limits of the node
+     * @throws RuntimeEngineException if something goes wrong
+     */
+    protected void doUpdateNodeResources(String nodeName, ResourceLimits resourceLimits) throws RuntimeEngineException {
+        throw new RuntimeEngineException("Updating the resource limits of node " + nodeName + " is not supported by "
+                + getClass().getSimpleName() + "!");
+    }
+
+    /**
+     * This method should capture the state of the node that is kept outside of its workspace, e.g. the writable layer
+     * of its container. Engines whose nodes only change their workspaces don't need to override it
+     * @param nodeName the node name to be captured
+     * @param snapshotName the name of the snapshot being taken
+     * @return a reference to the captured state to be given to {@link #restoreNodeState(String, String)} or null if
+     * there is no such state
+     * @throws RuntimeEngineException if something goes wrong
+     */
+    protected String snapshotNodeState(String nodeName, String snapshotName) throws RuntimeEngineException {
+        return null;
+    }
+
+    /**
+     * This method should roll back the state of the node outside of its workspace. The node is not running when this
+     * method is called and its workspace is restored afterwards
+     * @param nodeName the node name to be restored
+     * @param nodeState the reference returned by {@link #snapshotNodeState(String, String)}
+     * @throws RuntimeEngineException if something goes wrong
+     */
+    protected void restoreNodeState(String nodeName, String nodeState) throws RuntimeEngineException {
+    }
+
+    /**
+     * This method should delete the captured state of a node when its snapshot is deleted
+     * @param nodeState the reference returned by {@link #snapshotNodeState(String, String)}
+     * @throws RuntimeEngineException if something goes wrong
+     */
+    protected void deleteNodeState(String nodeState) throws RuntimeEngineException {
+    }
+
+    /**
+     * This method should prepare the environment of the nodes that doesn't depend on their workspaces, e.g. their
+     * images and network. It is called once before {@link #startNodes()}, possibly while the workspaces of the nodes are
+     * being created. Engines that have nothing to prepare don't need to override it
+     * @throws RuntimeEngineException if something goes wrong
+     */
+    protected void prepareNodes() throws RuntimeEngineException {
+    }
+
     /**
      * This method should start all of the nodes. In case of a problem in startup of a node, all of the started nodes should be
      * stopped and a RuntimeEngine Exception should be thrown
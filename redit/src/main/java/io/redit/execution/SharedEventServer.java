@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution;
+
+import io.redit.exceptions.RuntimeEngineException;
+
+/**
+ * The process-wide event server that hosts the event services of several deployments under their own namespaces. The
+ * underlying server is created based on {@link EventServer#create(EventService)} when it is started for the first time
+ * and lives as long as the process. Calling stop on this class won't stop the underlying server since other deployments
+ * may still be using it. Runtime engines should unregister their event service instead.
+ */
+public final class SharedEventServer implements EventServer {
+    private static final SharedEventServer instance = new SharedEventServer();
+
+    private EventServer eventServer;
+
+    private SharedEventServer() {
+    }
+
+    /**
+     * @return the process-wide event server instance
+     */
+    public static SharedEventServer getInstance() {
+        return instance;
+    }
+
+    @Override
+    public synchronized void start() throws RuntimeEngineException {
+        if (eventServer == null) {
+            EventServer newEventServer = EventServer.create(null);
+            newEventServer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(newEventServer::stop));
+            eventServer = newEventServer;
+        }
+    }
+
+    @Override
+    public void stop() {
+        // The shared event server lives as long as the process
+    }
+
+    @Override
+    public synchronized Integer getPortNumber() {
+        return eventServer == null ? null : eventServer.getPortNumber();
+    }
+
+    @Override
+    public synchronized void register(String namespace, EventService eventService) {
+        if (eventServer == null) {
+            throw new IllegalStateException("The shared event server is not started yet!");
+        }
+        eventServer.register(namespace, eventService);
+    }
+
+    @Override
+    public synchronized void unregister(String namespace) {
+        if (eventServer != null) {
+            eventServer.unregister(namespace);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.local_process;
+
+import io.redit.execution.EventService;
+import io.redit.rt.EventChannel;
+
+/**
+ * The nodes that run inside the test's JVM call the event service of their runtime engine directly instead of going
+ * through the event server
+ */
+class DirectEventChannel implements EventChannel {
+    private final EventService eventService;
+
+    DirectEventChannel(EventService eventService) {
+        this.eventService = eventService;
+    }
+
+    @Override
+    public boolean isEventReceived(String eventName) {
+        return eventService.hasEventReceived(eventName);
+    }
+
+    @Override
+    public boolean areBlockDependenciesMet(String eventName) {
+        return eventService.areBlockDependenciesMet(eventName);
+    }
+
+    @Override
+    public boolean areDependenciesMet(String eventName, boolean includeEvent, String nodeName, String threadName) {
+        return eventService.areDependenciesMet(eventName, includeEvent ? 1 : 0, nodeName, threadName);
+    }
+
+    @Override
+    public void sendEvent(String eventName) {
+        eventService.receiveEvent(eventName);
+    }
+}
@@ -0,0 +1,438 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.local_process;
+
+import io.redit.exceptions.RuntimeEngineException;
+import io.redit.execution.NodeState;
+import io.redit.execution.NodeStateListener;
+import io.redit.rt.EventChannel;
+import io.redit.rt.Redit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A node whose start command runs a java main class in the test's JVM. Each run of the node gets a new class loader, a
+ * thread group for the threads of the node, its own system properties and console and a Redit client that talks to
+ * the event service of the runtime engine directly. The node exits when all of its non-daemon threads finish.
+ * Stopping or killing a node interrupts its threads. Java has no way to forcibly stop a thread, so a kill fails if any
+ * thread of the node ignores the interrupt, e.g. a thread blocked in {@link java.net.ServerSocket#accept()} or a busy
+ * loop, since the node would otherwise keep serving on its ports. Such a node is still reported as running until its
+ * threads finish on their own. The threads blocked on an interruptible channel, e.g. in
+ * {@link java.nio.channels.ServerSocketChannel#accept()}, close the channel and can be killed.
+ */
+class InJvmNode implements LocalNode {
+    private final static Logger logger = LoggerFactory.getLogger(InJvmNode.class);
+    private final static long WATCH_INTERVAL_MILLIS = 10;
+    private final static long KILL_TIMEOUT_MILLIS = 2000;
+    // The exit codes of a jvm that is stopped by a TERM or a KILL signal
+    private final static int STOP_EXIT_CODE = 143;
+    private final static int KILL_EXIT_CODE = 137;
+
+    private final String nodeName;
+    private final JavaCommand javaCommand;
+    private final String initCommand;
+    private final File workingDirectory;
+    private final File consoleFile;
+    private final File doInitFile;
+    private final Map<String, String> environment;
+    private final EventChannel eventChannel;
+    private final NodeStateListener listener;
+
+    private ThreadGroup threadGroup;
+    private NodeClassLoader classLoader;
+    private OutputStream console;
+    private boolean mainFinished;
+    private int mainExitCode;
+    private int generation;
+    private NodeState.Status status;
+    private Integer exitCode;
+    private int startCount;
+    private boolean crashed;
+    // the exit code that the node is expected to exit with since it is stopped or killed, or null if it is running
+    private Integer expectedExitCode;
+    private long timestamp;
+
+    InJvmNode(String nodeName, JavaCommand javaCommand, String initCommand, File workingDirectory, File consoleFile,
+              File doInitFile, Map<String, String> environment, EventChannel eventChannel, NodeStateListener listener) {
+        this.nodeName = nodeName;
+        this.javaCommand = javaCommand;
+        this.initCommand = initCommand;
+        this.workingDirectory = workingDirectory;
+        this.consoleFile = consoleFile;
+        this.doInitFile = doInitFile;
+        this.environment = environment;
+        this.eventChannel = eventChannel;
+        this.listener = listener;
+        status = NodeState.Status.CREATED;
+        timestamp = System.currentTimeMillis();
+    }
+
+    @Override
+    public Map<String, String> getEnvironment() {
+        return environment;
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return status == NodeState.Status.RUNNING;
+    }
+
+    @Override
+    public synchronized NodeState getState() {
+        return new NodeState(status, exitCode, Math.max(startCount - 1, 0), crashed, timestamp);
+    }
+
+    @Override
+    public void start() throws RuntimeEngineException {
+        Thread mainThread;
+        int startedGeneration;
+        synchronized (this) {
+            if (status == NodeState.Status.RUNNING) {
+                return;
+            }
+
+            Properties properties = NodeScope.install();
+            properties.putAll(javaCommand.getSystemProperties());
+            properties.setProperty("user.dir", workingDirectory.getAbsolutePath());
+            try {
+                console = new FileOutputStream(consoleFile, true);
+            } catch (IOException e) {
+                throw new RuntimeEngineException("Error while opening the console file of node " + nodeName + "!", e);
+            }
+            startCount++;
+            timestamp = System.currentTimeMillis();
+            Integer initExitCode = runInitCommandIfNeeded();
+            if (initExitCode != null && initExitCode != 0) {
+                closeConsole();
+                status = NodeState.Status.EXITED;
+                exitCode = initExitCode;
+                crashed = true;
+            } else {
+                classLoader = new NodeClassLoader(javaCommand.getClassPath(), Redit.class.getClassLoader());
+                threadGroup = new ThreadGroup("redit-" + nodeName);
+                mainFinished = false;
+                status = NodeState.Status.RUNNING;
+                exitCode = null;
+                crashed = false;
+                expectedExitCode = null;
+            }
+            startedGeneration = ++generation;
+            if (status != NodeState.Status.RUNNING) {
+                mainThread = null;
+            } else {
+                new NodeScope(properties, console).bind(threadGroup);
+                Redit.setNodeInstance(threadGroup, new Redit(eventChannel, nodeName));
+                NodeClassLoader mainClassLoader = classLoader;
+                mainThread = new Thread(threadGroup, () -> runMain(mainClassLoader, startedGeneration), "main");
+                mainThread.setContextClassLoader(classLoader);
+            }
+        }
+
+        if (mainThread == null) {
+            logger.warn("The init command of node {} failed with exit code {}", nodeName, getState().getExitCode());
+        } else {
+            mainThread.start();
+            Thread watcher = new Thread(() -> watch(startedGeneration), "redit-in-jvm-" + nodeName);
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+        listener.nodeStateChanged(nodeName, getState());
+    }
+
+    /**
+     * Runs the init command in the first run of the node the same way the wrapper script does
+     * @return the exit code of the init command or null if it is not executed
+     */
+    private Integer runInitCommandIfNeeded() throws RuntimeEngineException {
+        try {
+            if (!new String(Files.readAllBytes(doInitFile.toPath()), StandardCharsets.UTF_8).trim().equals("1")) {
+                return null;
+            }
+            Files.write(doInitFile.toPath(), "0".getBytes());
+            if (initCommand == null) {
+                return null;
+            }
+            ProcessBuilder processBuilder = new ProcessBuilder("/bin/sh", "-c", initCommand)
+                    .directory(workingDirectory)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.appendTo(consoleFile))
+                    .redirectInput(ProcessBuilder.Redirect.from(new File("/dev/null")));
+            processBuilder.environment().putAll(environment);
+            return processBuilder.start().waitFor();
+        } catch (IOException e) {
+            throw new RuntimeEngineException("Error while running the init command of node " + nodeName + "!", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeEngineException("Interrupted while running the init command of node " + nodeName + "!", e);
+        }
+    }
+
+    private void runMain(ClassLoader mainClassLoader, int startedGeneration) {
+        int mainResult = 0;
+        try {
+            Method mainMethod = Class.forName(javaCommand.getMainClass(), true, mainClassLoader)
+                    .getMethod("main", String[].class);
+            if (!Modifier.isStatic(mainMethod.getModifiers())) {
+                throw new NoSuchMethodException("main method of class " + javaCommand.getMainClass() + " is not static");
+            }
+            mainMethod.invoke(null, (Object) javaCommand.getArguments());
+        } catch (InvocationTargetException e) {
+            System.err.print("Exception in thread \"main\" ");
+            e.getCause().printStackTrace();
+            mainResult = 1;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            System.err.println("Error: Could not run main class " + javaCommand.getMainClass());
+            e.printStackTrace();
+            mainResult = 1;
+        }
+
+        synchronized (this) {
+            if (generation == startedGeneration) {
+                mainFinished = true;
+                mainExitCode = mainResult;
+            }
+        }
+    }
+
+    private void watch(int watchedGeneration) {
+        try {
+            while (true) {
+                Thread.sleep(WATCH_INTERVAL_MILLIS);
+                ThreadGroup watchedThreadGroup;
+                synchronized (this) {
+                    if (generation != watchedGeneration) {
+                        return;
+                    }
+                    if (!mainFinished) {
+                        continue;
+                    }
+                    watchedThreadGroup = threadGroup;
+                }
+                if (!hasNonDaemonThreads(watchedThreadGroup)) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            return;
+        }
+
+        boolean exitedOnItsOwn;
+        synchronized (this) {
+            if (generation != watchedGeneration) {
+                return;
+            }
+            exitedOnItsOwn = expectedExitCode == null;
+            exited(exitedOnItsOwn ? mainExitCode : expectedExitCode, exitedOnItsOwn);
+        }
+        if (exitedOnItsOwn) {
+            logger.warn("Node {} exited on its own with exit code {}", nodeName, mainExitCode);
+        }
+        listener.nodeStateChanged(nodeName, getState());
+    }
+
+    private static boolean hasNonDaemonThreads(ThreadGroup threadGroup) {
+        for (Thread thread: getThreads(threadGroup)) {
+            if (!thread.isDaemon()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the live threads of the node, leaving out the shared threads of the jdk that are created in its group
+     */
+    private static List<Thread> getThreads(ThreadGroup threadGroup) {
+        Thread[] threads = new Thread[threadGroup.activeCount() + 16];
+        int threadCount = threadGroup.enumerate(threads, true);
+        List<Thread> nodeThreads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            if (threads[i].isAlive() && !NodeScope.isSharedThread(threads[i])) {
+                nodeThreads.add(threads[i]);
+            }
+        }
+        return nodeThreads;
+    }
+
+    // The daemon threads of the node are interrupted as well, since the jvm would terminate them when the node exits
+    private synchronized void exited(int nodeExitCode, boolean nodeCrashed) {
+        interruptThreads();
+        NodeScope.unbind(threadGroup);
+        Redit.setNodeInstance(threadGroup, null);
+        try {
+            classLoader.close();
+        } catch (IOException e) {
+            logger.debug("Error while closing the class loader of node {}", nodeName, e);
+        }
+        closeConsole();
+        generation++;
+        status = NodeState.Status.EXITED;
+        exitCode = nodeExitCode;
+        crashed = nodeCrashed;
+        expectedExitCode = null;
+        timestamp = System.currentTimeMillis();
+        notifyAll();
+    }
+
+    private synchronized void interruptThreads() {
+        for (Thread thread: getThreads(threadGroup)) {
+            thread.interrupt();
+        }
+    }
+
+    private void closeConsole() {
+        try {
+            console.close();
+        } catch (IOException e) {
+            logger.debug("Error while closing the console file of node {}", nodeName, e);
+        }
+    }
+
+    /**
+     * Interrupts the threads of the node and waits for all of them to finish, including the daemon threads, since any
+     * of them may keep the ports of the node bound
+     * @throws RuntimeEngineException if any of the threads of the node ignores the interrupt
+     */
+    @Override
+    public void kill() throws RuntimeEngineException {
+        ThreadGroup killedThreadGroup;
+        int killedGeneration;
+        synchronized (this) {
+            if (status != NodeState.Status.RUNNING) {
+                return;
+            }
+            expectedExitCode = KILL_EXIT_CODE;
+            killedThreadGroup = threadGroup;
+            killedGeneration = generation;
+            interruptThreads();
+        }
+
+        // The threads are awaited without holding the lock, since the main thread needs it to finish
+        List<Thread> survivingThreads = awaitThreads(killedThreadGroup);
+        boolean reported;
+        synchronized (this) {
+            // The exit is already reported if the non-daemon threads finished before the daemon ones
+            reported = generation != killedGeneration;
+            if (!reported && survivingThreads.isEmpty()) {
+                exited(KILL_EXIT_CODE, false);
+            } else if (!reported) {
+                // The node keeps running, so it exits on its own once its threads finish
+                expectedExitCode = null;
+            }
+        }
+        if (!survivingThreads.isEmpty()) {
+            List<String> threadNames = new ArrayList<>();
+            for (Thread thread: survivingThreads) {
+                threadNames.add(thread.getName() + " " + thread.getState());
+            }
+            throw new RuntimeEngineException("Node " + nodeName + " cannot be killed since threads " + threadNames
+                    + " did not finish in " + KILL_TIMEOUT_MILLIS + " ms after being interrupted!");
+        }
+        if (!reported) {
+            listener.nodeStateChanged(nodeName, getState());
+        }
+    }
+
+    /**
+     * Waits for the threads of the thread group to finish, including the ones that they create meanwhile
+     * @return the threads that are still alive after the kill timeout
+     */
+    private List<Thread> awaitThreads(ThreadGroup threadGroup) throws RuntimeEngineException {
+        long deadline = System.currentTimeMillis() + KILL_TIMEOUT_MILLIS;
+        try {
+            while (true) {
+                List<Thread> threads = getThreads(threadGroup);
+                long remaining = deadline - System.currentTimeMillis();
+                if (threads.isEmpty() || remaining <= 0) {
+                    return threads;
+                }
+                threads.get(0).join(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeEngineException("Interrupted while killing node " + nodeName + "!", e);
+        }
+    }
+
+    /**
+     * Interrupts the threads of the node and kills it if it doesn't exit in time
+     */
+    @Override
+    public void stop(Integer secondsUntilForcedStop) throws RuntimeEngineException {
+        synchronized (this) {
+            if (status != NodeState.Status.RUNNING) {
+                return;
+            }
+            expectedExitCode = STOP_EXIT_CODE;
+            interruptThreads();
+        }
+        if (!awaitExit(secondsUntilForcedStop)) {
+            logger.info("Node {} did not stop in {} seconds and is killed", nodeName, secondsUntilForcedStop);
+            kill();
+        }
+    }
+
+    /**
+     * @return true if the node exited before the given number of seconds or null for no timeout
+     */
+    private synchronized boolean awaitExit(Integer seconds) throws RuntimeEngineException {
+        long deadline = seconds == null ? Long.MAX_VALUE : System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(seconds);
+        try {
+            while (status == NodeState.Status.RUNNING) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(Math.min(remaining, 1000));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeEngineException("Interrupted while waiting for node " + nodeName + " to exit!", e);
+        }
+        return true;
+    }
+
+    @Override
+    public void freeze() throws RuntimeEngineException {
+        throw new RuntimeEngineException("Node " + nodeName + " cannot be frozen since it runs inside the test's JVM!");
+    }
+
+    @Override
+    public void unfreeze() throws RuntimeEngineException {
+        throw new RuntimeEngineException("Node " + nodeName + " cannot be unfrozen since it runs inside the test's JVM!");
+    }
+}
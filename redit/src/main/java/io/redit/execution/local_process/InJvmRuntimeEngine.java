@@ -0,0 +1,92 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.local_process;
+
+import io.redit.dsl.entities.Deployment;
+import io.redit.dsl.entities.Node;
+import io.redit.exceptions.RuntimeEngineException;
+import io.redit.workspace.NodeWorkspace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * A runtime engine that runs the nodes of the jvm services inside the test's JVM. Each of these nodes gets its own
+ * class loader, system properties, console and loopback address, and its instrumented code talks to the event
+ * service of the engine directly instead of going through http, so a node starts and restarts without forking a jvm.
+ * The nodes whose start command is not a single java command, and the nodes of the other services, run as local
+ * processes the same way as in the local process runtime engine.
+ *
+ * The nodes share the jvm, so the environment variables of a node are only visible to its start command and to the
+ * commands executed in it, the relative paths are resolved against the working directory of the test's JVM, and a
+ * node that calls System.exit terminates the test as well. A node can only be killed if all of its threads finish
+ * once they are interrupted, otherwise the kill fails. Network partitions, clock drifts and freezing are not
+ * supported for the nodes that run inside the test's JVM.
+ */
+public class InJvmRuntimeEngine extends LocalProcessRuntimeEngine {
+    private static Logger logger = LoggerFactory.getLogger(InJvmRuntimeEngine.class);
+
+    public InJvmRuntimeEngine(Deployment deployment, Map<String, NodeWorkspace> nodeWorkspaceMap) {
+        super(deployment, nodeWorkspaceMap);
+    }
+
+    @Override
+    LocalNode createLocalNode(Node node, LocalPathTranslator pathTranslator, File consoleFile,
+                              Map<String, String> environment) throws RuntimeEngineException {
+        if (!deployment.getService(node.getServiceName()).getServiceType().isJvmType()) {
+            return super.createLocalNode(node, pathTranslator, consoleFile, environment);
+        }
+
+        NodeWorkspace nodeWorkspace = nodeWorkspaceMap.get(node.getName());
+        File rootDirectory = new File(nodeWorkspace.getRootDirectory()).getAbsoluteFile();
+        String startCommand = getNodeStartCommand(node.getName());
+        if (startCommand == null) {
+            throw new RuntimeEngineException("Start command for node " + node.getName() + " is null!");
+        }
+        JavaCommand javaCommand = JavaCommand.parse(pathTranslator.translate(startCommand), environment, rootDirectory);
+        if (javaCommand == null) {
+            logger.info("Start command of node {} is not a java command and the node runs as a local process",
+                    node.getName());
+            return super.createLocalNode(node, pathTranslator, consoleFile, environment);
+        }
+
+        logger.info("Node {} runs main class {} inside the test's JVM", node.getName(), javaCommand.getMainClass());
+        return new InJvmNode(node.getName(), javaCommand, pathTranslator.translate(getNodeInitCommand(node.getName())),
+                rootDirectory, consoleFile,
+                new File(nodeWorkspace.getDoInitFile()),
+                environment, new DirectEventChannel(getEventService()), this::notifyNodeStateListeners);
+    }
+
+    @Override
+    protected void doClockDrift(String nodeName, Integer amount) throws RuntimeEngineException {
+        if (getLocalNode(nodeName) instanceof InJvmNode) {
+            throw new RuntimeEngineException("Clock drift is not supported for node " + nodeName
+                    + " since it runs inside the test's JVM!");
+        }
+        super.doClockDrift(nodeName, amount);
+    }
+}
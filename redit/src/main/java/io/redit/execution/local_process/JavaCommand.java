@@ -0,0 +1,274 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.local_process;
+
+import io.redit.exceptions.RuntimeEngineException;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.*;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * The parsed form of a start command that runs a java main class or an executable jar, e.g.
+ * java -cp ${REDIT_JVM_CLASSPATH} -Dkey=value org.example.Main arg1 arg2
+ * The options of the jvm itself are ignored since the command runs in a JVM that already exists.
+ */
+class JavaCommand {
+    // These options change which classes the jvm loads, so the command can't be run in a class loader of its own
+    private static final Set<String> UNSUPPORTED_OPTIONS = new HashSet<>(Arrays.asList("-p", "--module-path",
+            "-m", "--module", "--add-modules", "--upgrade-module-path", "--patch-module"));
+    private static final Set<String> OPTIONS_WITH_ARGUMENT = new HashSet<>(Arrays.asList("--add-opens",
+            "--add-exports", "--add-reads", "--enable-native-access"));
+
+    private final String mainClass;
+    private final List<String> arguments;
+    private final List<URL> classPath;
+    private final Map<String, String> systemProperties;
+
+    private JavaCommand(String mainClass, List<String> arguments, List<URL> classPath,
+                        Map<String, String> systemProperties) {
+        this.mainClass = mainClass;
+        this.arguments = arguments;
+        this.classPath = classPath;
+        this.systemProperties = systemProperties;
+    }
+
+    String getMainClass() {
+        return mainClass;
+    }
+
+    String[] getArguments() {
+        return arguments.toArray(new String[0]);
+    }
+
+    URL[] getClassPath() {
+        return classPath.toArray(new URL[0]);
+    }
+
+    Map<String, String> getSystemProperties() {
+        return systemProperties;
+    }
+
+    /**
+     * @param command the start command of the node with its paths already translated
+     * @param environment the environment of the node which is used to expand the variables in the command
+     * @param workingDirectory the directory that the relative paths in the command are resolved against
+     * @return the parsed command or null if the command is not a single java command that can run in a class loader
+     */
+    static JavaCommand parse(String command, Map<String, String> environment, File workingDirectory)
+            throws RuntimeEngineException {
+        List<String> tokens = tokenize(command, environment);
+        if (tokens == null || tokens.isEmpty()) {
+            return null;
+        }
+        Iterator<String> iterator = tokens.iterator();
+        String executable = iterator.next();
+        if (executable.equals("exec") && iterator.hasNext()) {
+            executable = iterator.next();
+        }
+        if (!executable.equals("java") && !executable.endsWith("/java")) {
+            return null;
+        }
+
+        String classPath = null;
+        String jar = null;
+        String mainClass = null;
+        Map<String, String> systemProperties = new HashMap<>();
+        while (iterator.hasNext() && mainClass == null && jar == null) {
+            String token = iterator.next();
+            if (token.equals("-cp") || token.equals("-classpath") || token.equals("--class-path")) {
+                if (!iterator.hasNext()) {
+                    return null;
+                }
+                classPath = iterator.next();
+            } else if (token.startsWith("--class-path=")) {
+                classPath = token.substring("--class-path=".length());
+            } else if (token.startsWith("-D")) {
+                int separatorIndex = token.indexOf('=');
+                if (separatorIndex < 0) {
+                    systemProperties.put(token.substring(2), "");
+                } else {
+                    systemProperties.put(token.substring(2, separatorIndex), token.substring(separatorIndex + 1));
+                }
+            } else if (token.equals("-jar")) {
+                if (!iterator.hasNext()) {
+                    return null;
+                }
+                jar = iterator.next();
+            } else if (UNSUPPORTED_OPTIONS.contains(token) || token.startsWith("-javaagent:")
+                    || token.startsWith("-agentlib:") || token.startsWith("-agentpath:")) {
+                return null;
+            } else if (OPTIONS_WITH_ARGUMENT.contains(token)) {
+                if (iterator.hasNext()) {
+                    iterator.next();
+                }
+            } else if (!token.startsWith("-")) {
+                mainClass = token;
+            }
+        }
+        if (mainClass == null && jar == null) {
+            return null;
+        }
+
+        List<String> arguments = new ArrayList<>();
+        iterator.forEachRemaining(arguments::add);
+
+        List<URL> classPathUrls = new ArrayList<>();
+        if (jar != null) {
+            File jarFile = resolve(workingDirectory, jar);
+            addToClassPath(classPathUrls, jarFile);
+            try (JarFile jarFileContent = new JarFile(jarFile)) {
+                Manifest manifest = jarFileContent.getManifest();
+                Attributes attributes = manifest == null ? null : manifest.getMainAttributes();
+                mainClass = attributes == null ? null : attributes.getValue(Attributes.Name.MAIN_CLASS);
+                String manifestClassPath = attributes == null ? null : attributes.getValue(Attributes.Name.CLASS_PATH);
+                if (manifestClassPath != null) {
+                    for (String entry: manifestClassPath.trim().split("\\s+")) {
+                        addToClassPath(classPathUrls, resolve(jarFile.getParentFile(), entry));
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeEngineException("Error while reading the manifest of jar file " + jarFile + "!", e);
+            }
+            if (mainClass == null) {
+                throw new RuntimeEngineException("No main class is specified in the manifest of jar file " + jarFile + "!");
+            }
+        } else {
+            if (classPath == null) {
+                classPath = lookup(environment, "CLASSPATH");
+            }
+            for (String entry: (classPath == null ? "." : classPath).split(File.pathSeparator)) {
+                if (entry.endsWith("*")) {
+                    // The wildcard entries include all of the jar files of the directory
+                    File[] jarFiles = resolve(workingDirectory, entry.substring(0, entry.length() - 1))
+                            .listFiles((dir, name) -> name.endsWith(".jar") || name.endsWith(".JAR"));
+                    if (jarFiles != null) {
+                        Arrays.sort(jarFiles);
+                        for (File jarFile: jarFiles) {
+                            addToClassPath(classPathUrls, jarFile);
+                        }
+                    }
+                } else {
+                    addToClassPath(classPathUrls, resolve(workingDirectory, entry.isEmpty() ? "." : entry));
+                }
+            }
+        }
+
+        return new JavaCommand(mainClass, arguments, classPathUrls, systemProperties);
+    }
+
+    private static File resolve(File workingDirectory, String path) {
+        File file = new File(path);
+        return file.isAbsolute() ? file : new File(workingDirectory, path);
+    }
+
+    private static void addToClassPath(List<URL> classPathUrls, File file) throws RuntimeEngineException {
+        try {
+            classPathUrls.add(file.getAbsoluteFile().toURI().toURL());
+        } catch (MalformedURLException e) {
+            throw new RuntimeEngineException("Invalid class path entry " + file + "!", e);
+        }
+    }
+
+    private static String lookup(Map<String, String> environment, String name) {
+        // The commands of the node get the environment of the host as well
+        String value = environment.get(name);
+        return value == null ? System.getenv(name) : value;
+    }
+
+    /**
+     * Splits the command into words the same way the shell does for simple commands and expands the variables in it
+     * @return the words of the command or null if the command uses a shell feature other than quoting and variables
+     */
+    private static List<String> tokenize(String command, Map<String, String> environment) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = null;
+        char quote = 0;
+        int index = 0;
+        while (index < command.length()) {
+            char character = command.charAt(index);
+            if (quote == 0 && Character.isWhitespace(character)) {
+                if (token != null) {
+                    tokens.add(token.toString());
+                    token = null;
+                }
+                index++;
+                continue;
+            }
+            if (token == null) {
+                token = new StringBuilder();
+            }
+            if (quote == 0 && "|&;<>()`".indexOf(character) >= 0) {
+                return null;
+            } else if (quote == 0 && character == '\\' && index + 1 < command.length()) {
+                token.append(command.charAt(index + 1));
+                index += 2;
+            } else if ((quote == 0 && (character == '\'' || character == '"')) || character == quote) {
+                quote = quote == 0 ? character : 0;
+                index++;
+            } else if (quote != '\'' && character == '$' && index + 1 < command.length()) {
+                int end;
+                String name;
+                if (command.charAt(index + 1) == '{') {
+                    end = command.indexOf('}', index + 2);
+                    if (end < 0) {
+                        return null;
+                    }
+                    name = command.substring(index + 2, end);
+                    end++;
+                } else {
+                    end = index + 1;
+                    while (end < command.length() && (Character.isLetterOrDigit(command.charAt(end))
+                            || command.charAt(end) == '_')) {
+                        end++;
+                    }
+                    name = command.substring(index + 1, end);
+                }
+                if (!name.matches("[A-Za-z_][A-Za-z0-9_]*")) {
+                    // e.g. command substitution or special parameters
+                    return null;
+                }
+                String value = lookup(environment, name);
+                token.append(value == null ? "" : value);
+                index = end;
+            } else {
+                token.append(character);
+                index++;
+            }
+        }
+        if (quote != 0) {
+            return null;
+        }
+        if (token != null) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.local_process;
+
+import io.redit.exceptions.RuntimeEngineException;
+import io.redit.execution.NodeState;
+
+import java.util.Map;
+
+/**
+ * A node that runs on the host itself, either as a process or inside the test's JVM
+ */
+interface LocalNode {
+    /**
+     * @return the environment variables that the commands executed in the node get
+     */
+    Map<String, String> getEnvironment();
+
+    boolean isRunning();
+
+    NodeState getState();
+
+    void start() throws RuntimeEngineException;
+
+    void kill() throws RuntimeEngineException;
+
+    void stop(Integer secondsUntilForcedStop) throws RuntimeEngineException;
+
+    void freeze() throws RuntimeEngineException;
+
+    void unfreeze() throws RuntimeEngineException;
+}
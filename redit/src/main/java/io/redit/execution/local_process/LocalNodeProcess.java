@@ -0,0 +1,293 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.local_process;
+
+import io.redit.exceptions.RuntimeEngineException;
+import io.redit.execution.NodeState;
+import io.redit.execution.NodeStateListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The local process of a node. The wrapper script of the node is run in its own session, so the node's processes
+ * form a process group that is signaled as a whole, the same way the processes of a container are.
+ */
+class LocalNodeProcess implements LocalNode {
+    private final static Logger logger = LoggerFactory.getLogger(LocalNodeProcess.class);
+
+    private final String nodeName;
+    private final File wrapperScriptFile;
+    private final File workingDirectory;
+    private final File consoleFile;
+    private final Map<String, String> environment;
+    private final NodeStateListener listener;
+
+    private Process process;
+    private long processGroupId;
+    private NodeState.Status status;
+    private Integer exitCode;
+    private int startCount;
+    private boolean crashed;
+    private boolean expectingExit;
+    private long timestamp;
+
+    LocalNodeProcess(String nodeName, File wrapperScriptFile, File workingDirectory, File consoleFile,
+                     Map<String, String> environment, NodeStateListener listener) {
+        this.nodeName = nodeName;
+        this.wrapperScriptFile = wrapperScriptFile;
+        this.workingDirectory = workingDirectory;
+        this.consoleFile = consoleFile;
+        this.environment = environment;
+        this.listener = listener;
+        status = NodeState.Status.CREATED;
+        timestamp = System.currentTimeMillis();
+    }
+
+    @Override
+    public Map<String, String> getEnvironment() {
+        return environment;
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return status == NodeState.Status.RUNNING;
+    }
+
+    private synchronized boolean isProcessAlive() {
+        return process != null && process.isAlive();
+    }
+
+    @Override
+    public synchronized NodeState getState() {
+        return new NodeState(status, exitCode, Math.max(startCount - 1, 0), crashed, timestamp);
+    }
+
+    /**
+     * Starts the wrapper script of the node in a new session. The shell writes its process id into its output before it
+     * becomes the session leader and redirects its output to the console file, so the id of the process group is known
+     * without depending on the process api of newer jdks
+     */
+    @Override
+    public void start() throws RuntimeEngineException {
+        synchronized (this) {
+            if (status == NodeState.Status.RUNNING) {
+                return;
+            }
+
+            ProcessBuilder processBuilder = new ProcessBuilder("/bin/sh", "-c", "echo $$ && exec setsid /bin/sh "
+                    + quote(wrapperScriptFile.getAbsolutePath()) + " >> " + quote(consoleFile.getAbsolutePath())
+                    + " 2>&1")
+                    .directory(workingDirectory)
+                    .redirectError(ProcessBuilder.Redirect.appendTo(consoleFile))
+                    .redirectInput(ProcessBuilder.Redirect.from(new File("/dev/null")));
+            processBuilder.environment().putAll(environment);
+            try {
+                process = processBuilder.start();
+            } catch (IOException e) {
+                throw new RuntimeEngineException("Error while trying to start the process for node " + nodeName + "!", e);
+            }
+            processGroupId = readProcessId();
+            status = NodeState.Status.RUNNING;
+            exitCode = null;
+            crashed = false;
+            expectingExit = false;
+            startCount++;
+            timestamp = System.currentTimeMillis();
+        }
+
+        Process startedProcess = process;
+        Thread watcher = new Thread(() -> watch(startedProcess), "redit-local-process-" + nodeName);
+        watcher.setDaemon(true);
+        watcher.start();
+        listener.nodeStateChanged(nodeName, getState());
+    }
+
+    /**
+     * Reads the process id that the shell writes before replacing its output with the console file. The output is
+     * closed either way once the shell executes the wrapper script or exits, so the read never blocks for long
+     */
+    private long readProcessId() throws RuntimeEngineException {
+        String processId;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                StandardCharsets.UTF_8))) {
+            processId = reader.readLine();
+        } catch (IOException e) {
+            process.destroyForcibly();
+            throw new RuntimeEngineException("Error while reading the process id of node " + nodeName + "!", e);
+        }
+        try {
+            if (processId != null) {
+                return Long.parseLong(processId.trim());
+            }
+        } catch (NumberFormatException e) {
+            process.destroyForcibly();
+            throw new RuntimeEngineException("Invalid process id " + processId + " for node " + nodeName + "!", e);
+        }
+        process.destroyForcibly();
+        throw new RuntimeEngineException("The process of node " + nodeName + " did not start!");
+    }
+
+    private void watch(Process watchedProcess) {
+        int processExitCode;
+        try {
+            processExitCode = watchedProcess.waitFor();
+        } catch (InterruptedException e) {
+            return;
+        }
+
+        boolean exitedOnItsOwn;
+        synchronized (this) {
+            if (watchedProcess != process) {
+                return;
+            }
+            status = NodeState.Status.EXITED;
+            exitCode = processExitCode;
+            crashed = exitedOnItsOwn = !expectingExit;
+            expectingExit = false;
+            timestamp = System.currentTimeMillis();
+            notifyAll();
+        }
+        if (exitedOnItsOwn) {
+            logger.warn("The process of node {} exited on its own with exit code {}", nodeName, processExitCode);
+        }
+        listener.nodeStateChanged(nodeName, getState());
+    }
+
+    @Override
+    public void kill() throws RuntimeEngineException {
+        if (!expectExit()) {
+            return;
+        }
+        signal("KILL");
+        awaitExit(null);
+    }
+
+    /**
+     * Sends a TERM signal to the processes of the node and kills them if they don't exit in time
+     */
+    @Override
+    public void stop(Integer secondsUntilForcedStop) throws RuntimeEngineException {
+        if (!expectExit()) {
+            return;
+        }
+        signal("TERM");
+        if (!awaitExit(secondsUntilForcedStop)) {
+            logger.info("Node {} did not stop in {} seconds and is killed", nodeName, secondsUntilForcedStop);
+            signal("KILL");
+            awaitExit(null);
+        }
+        // The background processes of the node may outlive its wrapper script
+        signalQuietly("KILL");
+    }
+
+    @Override
+    public void freeze() throws RuntimeEngineException {
+        signal("STOP");
+    }
+
+    @Override
+    public void unfreeze() throws RuntimeEngineException {
+        signal("CONT");
+    }
+
+    private synchronized boolean expectExit() {
+        if (status != NodeState.Status.RUNNING) {
+            return false;
+        }
+        expectingExit = true;
+        return true;
+    }
+
+    /**
+     * @return true if the process exited before the given number of seconds or null for no timeout
+     */
+    private synchronized boolean awaitExit(Integer seconds) throws RuntimeEngineException {
+        long deadline = seconds == null ? Long.MAX_VALUE : System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(seconds);
+        try {
+            while (status == NodeState.Status.RUNNING) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(Math.min(remaining, 1000));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeEngineException("Interrupted while waiting for the process of node " + nodeName
+                    + " to exit!", e);
+        }
+        return true;
+    }
+
+    private void signal(String signal) throws RuntimeEngineException {
+        int signalExitCode = sendSignal(signal);
+        // The process group is gone if the node exited in the meantime
+        if (signalExitCode != 0 && isProcessAlive()) {
+            throw new RuntimeEngineException("Error while sending signal " + signal + " to the processes of node "
+                    + nodeName + "! exit code: " + signalExitCode);
+        }
+    }
+
+    private void signalQuietly(String signal) {
+        try {
+            sendSignal(signal);
+        } catch (RuntimeEngineException e) {
+            logger.debug("Cannot send signal {} to the processes of node {}", signal, nodeName, e);
+        }
+    }
+
+    private int sendSignal(String signal) throws RuntimeEngineException {
+        long groupId;
+        synchronized (this) {
+            groupId = processGroupId;
+        }
+        try {
+            return new ProcessBuilder(Arrays.asList("kill", "-" + signal, "--", "-" + groupId))
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.appendTo(new File("/dev/null")))
+                    .start().waitFor();
+        } catch (IOException e) {
+            throw new RuntimeEngineException("Error while sending signal " + signal + " to the processes of node "
+                    + nodeName + "!", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeEngineException("Interrupted while sending signal " + signal + " to the processes of node "
+                    + nodeName + "!", e);
+        }
+    }
+
+    static String quote(String string) {
+        return "'" + string.replace("'", "'\\''") + "'";
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.local_process;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Translates the paths that a node sees inside its container into the local paths they are mapped from. The local
+ * processes of the nodes share the file system of the host, so the paths in their commands and environment variables
+ * are rewritten instead of being mounted.
+ */
+class LocalPathTranslator {
+    private final Map<String, String> destinationToSourceMap;
+    private final Pattern pattern;
+
+    LocalPathTranslator(Map<String, String> destinationToSourceMap) {
+        this.destinationToSourceMap = new HashMap<>(destinationToSourceMap);
+
+        // The longer paths are matched first, so a path is not translated through the mapping of its parent
+        List<String> destinations = new ArrayList<>(destinationToSourceMap.keySet());
+        destinations.sort(Comparator.comparing(String::length).reversed().thenComparing(Comparator.naturalOrder()));
+        StringJoiner alternatives = new StringJoiner("|");
+        for (String destination: destinations) {
+            alternatives.add(Pattern.quote(destination));
+        }
+        // A path is only matched as a whole path or as the parent of a longer path
+        pattern = destinations.isEmpty() ? null :
+                Pattern.compile("(?<![\\w./-])(" + alternatives.toString() + ")(?![\\w.-])");
+    }
+
+    /**
+     * @param string a command, a script or the value of an environment variable of the node
+     * @return the given string with all of the mapped paths replaced with their local paths
+     */
+    String translate(String string) {
+        if (string == null || pattern == null) {
+            return string;
+        }
+
+        Matcher matcher = pattern.matcher(string);
+        StringBuffer result = new StringBuffer();
+        while (matcher.find()) {
+            matcher.appendReplacement(result, Matcher.quoteReplacement(destinationToSourceMap.get(matcher.group(1))));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    Map<String, String> translate(Map<String, String> environment) {
+        Map<String, String> translatedEnvironment = new HashMap<>();
+        for (Map.Entry<String, String> entry: environment.entrySet()) {
+            translatedEnvironment.put(entry.getKey(), translate(entry.getValue()));
+        }
+        return translatedEnvironment;
+    }
+}
@@ -0,0 +1,499 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.local_process;
+
+import io.redit.Constants;
+import io.redit.dsl.entities.*;
+import io.redit.exceptions.NodeIsNotRunningException;
+import io.redit.exceptions.NodeNotFoundException;
+import io.redit.exceptions.RuntimeEngineException;
+import io.redit.execution.CommandResults;
+import io.redit.execution.NetOp;
+import io.redit.execution.NetPart;
+import io.redit.execution.NodeState;
+import io.redit.execution.RuntimeEngine;
+import io.redit.util.BoundedOutputStream;
+import io.redit.util.OsUtil;
+import io.redit.workspace.NodeWorkspace;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A runtime engine that runs each of the nodes as a local process of the host instead of a docker container. The
+ * processes run in the root directories of their workspaces and the paths that the nodes would see inside their
+ * containers are translated into the paths of the workspaces. Each node gets its own loopback address, so the nodes
+ * that bind to the address given in the REDIT_NODE_IP_ADDRESS env var can use the same ports. This engine only works
+ * on linux and doesn't need a docker daemon. Network partitions and network operations are not supported because the
+ * processes share the network stack of the host.
+ * <p>
+ * Since the processes share the network stack of the host, the following limits apply:
+ * <ul>
+ *     <li>The names of the nodes are not resolved, so the nodes should reach each other through the addresses given by
+ *     {@link #ip(String)}, e.g. by passing them in the environment variables or the config files of the nodes.</li>
+ *     <li>The ports are not mapped, so the nodes that bind to the wildcard address instead of their own address
+ *     collide on the ports they have in common, and the second one of them fails to start.</li>
+ * </ul>
+ */
+public class LocalProcessRuntimeEngine extends RuntimeEngine {
+    private static Logger logger = LoggerFactory.getLogger(LocalProcessRuntimeEngine.class);
+    private static final String LOOPBACK_IP_ADDRESS = "127.0.0.1";
+    // Any address in 127.0.0.0/8 is routed to the loopback interface on linux. The addresses are shared between all of
+    // the engines of the jvm, so the nodes of the deployments that run at the same time don't conflict
+    private static final AtomicInteger ipAddressCounter = new AtomicInteger();
+    // The commands block on reading their output, so each running command needs a thread to read its stderr
+    private static final ExecutorService execExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger threadCounter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "redit-local-exec-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private Map<String, LocalNode> nodeToLocalNodeMap;
+    private Map<String, LocalPathTranslator> nodeToPathTranslatorMap;
+    private Map<String, String> nodeToIpMap;
+
+    public LocalProcessRuntimeEngine(Deployment deployment, Map<String, NodeWorkspace> nodeWorkspaceMap) {
+        super(deployment, nodeWorkspaceMap);
+        nodeToLocalNodeMap = new ConcurrentHashMap<>();
+        nodeToPathTranslatorMap = new ConcurrentHashMap<>();
+        nodeToIpMap = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public String ip(String nodeName) {
+        if (!nodeMap.containsKey(nodeName)) {
+            return null;
+        }
+        return nodeToIpMap.computeIfAbsent(nodeName, k -> getNewIpAddress());
+    }
+
+    private static String getNewIpAddress() {
+        // The addresses start from 127.1.0.1 and the addresses ending with 0 or 255 are skipped
+        int index = ipAddressCounter.getAndIncrement();
+        int subnetIndex = index / 254;
+        return "127." + (1 + subnetIndex / 256 % 254) + "." + (subnetIndex % 256) + "." + (index % 254 + 1);
+    }
+
+    /**
+     * @return the given port, since the processes listen directly on the ports of the host
+     */
+    @Override
+    public Integer portMapping(String nodeName, Integer portNumber, PortType portType) {
+        if (!nodeToLocalNodeMap.containsKey(nodeName)) {
+            return null;
+        }
+        // The processes listen directly on the ports of the host
+        return portNumber;
+    }
+
+    @Override
+    public NodeState nodeState(String nodeName) {
+        LocalNode localNode = nodeToLocalNodeMap.get(nodeName);
+        return localNode == null ? null : localNode.getState();
+    }
+
+    @Override
+    public CommandResults runCommandInNode(String nodeName, String command) throws RuntimeEngineException {
+        BoundedOutputStream stdOut = new BoundedOutputStream(getCommandOutputLimit());
+        BoundedOutputStream stdErr = new BoundedOutputStream(getCommandOutputLimit());
+        long exitCode = executeCommand(nodeName, command, stdOut, stdErr);
+        return new CommandResults(nodeName, command, exitCode, stdOut.toString(), stdErr.toString());
+    }
+
+    @Override
+    public CompletableFuture<CommandResults> runCommandInNodeAsync(String nodeName, String command) {
+        return supplyExecAsync(() -> runCommandInNode(nodeName, command));
+    }
+
+    @Override
+    public CompletableFuture<CommandResults> runCommandInNodeAsync(String nodeName, String command,
+                                                                   OutputStream stdOut, OutputStream stdErr) {
+        return supplyExecAsync(() -> new CommandResults(nodeName, command,
+                executeCommand(nodeName, command, stdOut, stdErr), "", ""));
+    }
+
+    private CompletableFuture<CommandResults> supplyExecAsync(CommandSupplier commandSupplier) {
+        CompletableFuture<CommandResults> future = new CompletableFuture<>();
+        execExecutor.execute(() -> {
+            try {
+                future.complete(commandSupplier.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    @FunctionalInterface
+    private interface CommandSupplier {
+        CommandResults get() throws RuntimeEngineException;
+    }
+
+    private static int getCommandOutputLimit() {
+        return Integer.getInteger(Constants.COMMAND_OUTPUT_LIMIT_PROPERTY, Constants.DEFAULT_COMMAND_OUTPUT_LIMIT);
+    }
+
+    /**
+     * Executes the command with the environment and in the root directory of the node and streams its output into the
+     * given streams
+     * @return the exit code of the command
+     */
+    private long executeCommand(String nodeName, String command, OutputStream stdOut, OutputStream stdErr)
+            throws RuntimeEngineException {
+        LocalNode localNode = nodeToLocalNodeMap.get(nodeName);
+        if (localNode == null) {
+            if (nodeMap.containsKey(nodeName) && !isMaterialized(nodeName)) {
+                throw new NodeIsNotRunningException("Node " + nodeName + " is not started yet to execute command "
+                        + command);
+            }
+            throw new NodeNotFoundException(nodeName);
+        }
+        if (!localNode.isRunning()) {
+            throw new NodeIsNotRunningException("Node " + nodeName + " is not running to execute command " + command);
+        }
+
+        ProcessBuilder processBuilder = new ProcessBuilder("/bin/sh", "-c",
+                nodeToPathTranslatorMap.get(nodeName).translate(command))
+                .directory(new File(nodeWorkspaceMap.get(nodeName).getRootDirectory()));
+        processBuilder.environment().putAll(localNode.getEnvironment());
+        try {
+            Process process = processBuilder.start();
+            process.getOutputStream().close();
+            Future<?> stdErrCopy = execExecutor.submit(() -> {
+                IOUtils.copy(process.getErrorStream(), stdErr);
+                return null;
+            });
+            IOUtils.copy(process.getInputStream(), stdOut);
+            stdErrCopy.get();
+            return process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeEngineException("Error while trying to run command " + command + " in node " + nodeName + "!", e);
+        } catch (IOException | ExecutionException e) {
+            throw new RuntimeEngineException("Error while trying to run command " + command + " in node "
+                    + nodeName + "!", e);
+        }
+    }
+
+    @Override
+    protected Map<String, String> improveEnvironmentVariablesMapForEngine(String nodeName, Map<String, String> environment)
+            throws RuntimeEngineException {
+
+        if (isClockDriftEnabledInNode(nodeName)) {
+            // Adds preload for libfaketime. The paths are translated into the workspace of the node
+            environment.put("LD_PRELOAD", Constants.FAKETIME_TARGET_BASE_PATH + Constants.FAKETIMEMT_LIB_FILE_NAME);
+            // Disables offset caching for libfaketime
+            environment.put("FAKETIME_NO_CACHE", "1");
+            // Adds additional libfaketime config for java
+            if (deployment.getService(nodeMap.get(nodeName).getServiceName()).getServiceType().isJvmType()) {
+                environment.put("DONT_FAKE_MONOTONIC", "1");
+            }
+            // Adds controller file config for libfaketime
+            environment.put("FAKETIME_TIMESTAMP_FILE", "/" + Constants.FAKETIME_CONTROLLER_FILE_NAME);
+        }
+        // The processes share the network stack of the host, so each node should bind to its own address
+        environment.put(Constants.REDIT_NODE_IP_ADDRESS_ENV_VAR, ip(nodeName));
+
+        return environment;
+    }
+
+    @Override
+    protected String getEventServerIpAddress() {
+        return LOOPBACK_IP_ADDRESS;
+    }
+
+    @Override
+    protected String getNodeEventServerIpAddress() {
+        return LOOPBACK_IP_ADDRESS;
+    }
+
+    @Override
+    protected void prepareNodes() throws RuntimeEngineException {
+        if (OsUtil.getOS() != OsUtil.OS.LINUX) {
+            throw new RuntimeEngineException("The local process runtime engine only works on linux!");
+        }
+    }
+
+    /**
+     * Prepares the files of the node's process in its workspace. The process itself is started when the node starts
+     */
+    @Override
+    protected void createNodeContainer(Node node) throws RuntimeEngineException {
+        NodeWorkspace nodeWorkspace = nodeWorkspaceMap.get(node.getName());
+
+        // The paths that the node would see inside its container
+        Map<String, String> pathMap = new HashMap<>();
+        for (NodeWorkspace.PathMappingEntry pathMappingEntry: nodeWorkspace.getPathMappingList()) {
+            pathMap.put(pathMappingEntry.getDestination(), pathMappingEntry.getSource());
+        }
+        for (Map<String, String> localToTargetMap: Arrays.asList(nodeWorkspace.getSharedDirectoriesMap(),
+                nodeWorkspace.getLogDirectoriesMap(), nodeWorkspace.getLogFilesMap())) {
+            for (Map.Entry<String, String> entry: localToTargetMap.entrySet()) {
+                pathMap.put(entry.getValue(), entry.getKey());
+            }
+        }
+        // The files that the engine shares with the node are created along with the workspace
+        File consoleFile = new File(nodeWorkspace.getConsoleFile());
+        pathMap.put("/" + Constants.DO_INIT_FILE_NAME, nodeWorkspace.getDoInitFile());
+        pathMap.put("/" + Constants.CONSOLE_OUTERR_FILE_NAME, nodeWorkspace.getConsoleFile());
+        pathMap.put("/" + Constants.FAKETIME_CONTROLLER_FILE_NAME, nodeWorkspace.getFakeTimeControllerFile());
+        LocalPathTranslator pathTranslator = new LocalPathTranslator(pathMap);
+        nodeToPathTranslatorMap.put(node.getName(), pathTranslator);
+
+        nodeToLocalNodeMap.put(node.getName(), createLocalNode(node, pathTranslator, consoleFile,
+                pathTranslator.translate(getNodeEnvironmentVariablesMap(node.getName()))));
+        logger.info("Process for node {} is created!", node.getName());
+    }
+
+    /**
+     * Creates the local node that runs the start command of the node. The paths in the environment are already
+     * translated
+     */
+    LocalNode createLocalNode(Node node, LocalPathTranslator pathTranslator, File consoleFile,
+                              Map<String, String> environment) throws RuntimeEngineException {
+        NodeWorkspace nodeWorkspace = nodeWorkspaceMap.get(node.getName());
+        File wrapperScriptFile = createWrapperScriptForNode(node, pathTranslator);
+        return new LocalNodeProcess(node.getName(), wrapperScriptFile, new File(nodeWorkspace.getRootDirectory()),
+                consoleFile, environment, this::notifyNodeStateListeners);
+    }
+
+    /**
+     * This method creates a customized wrapper script for the node in its root directory
+     * @return the wrapper script file
+     */
+    private File createWrapperScriptForNode(Node node, LocalPathTranslator pathTranslator) throws RuntimeEngineException {
+        File wrapperScriptFile = Paths.get(nodeWorkspaceMap.get(node.getName()).getRootDirectory())
+                .resolve(Constants.WRAPPER_SCRIPT_FILE_NAME).toFile();
+
+        String initCommand = getNodeInitCommand(node.getName());
+        String startCommand = getNodeStartCommand(node.getName());
+        if (startCommand == null) {
+            throw new RuntimeEngineException("Start command for node " + node.getName() + " is null!");
+        }
+
+        try {
+            // The environment is given to the process itself
+            String wrapperScriptString = IOUtils.toString(ClassLoader.getSystemResourceAsStream("wrapper_script"),
+                    StandardCharsets.UTF_8)
+                    .replace("{{ENVIRONMENT}}", "")
+                    .replace("{{INIT_COMMAND}}", initCommand == null ? ":" : initCommand)
+                    .replace("{{START_COMMAND}}", startCommand);
+            Files.write(wrapperScriptFile.toPath(), pathTranslator.translate(wrapperScriptString)
+                    .getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeEngineException("Error while creating wrapper script for node " + node.getName() + "!", e);
+        }
+
+        wrapperScriptFile.setExecutable(true);
+        wrapperScriptFile.setReadable(true);
+        wrapperScriptFile.setWritable(true);
+
+        return wrapperScriptFile;
+    }
+
+    @Override
+    protected void startNodes() throws RuntimeEngineException {
+        // The processes of the lazy nodes are created when they are first started
+        logger.info("Creating a process for each of the nodes ...");
+        nodeTaskExecutor.runOnNodes(getMaterializedNodeNames(), "create the process for",
+                nodeName -> createNodeContainer(nodeMap.get(nodeName)));
+
+        // Starts the nodes that are not off on startup group by group in their start order
+        List<String> nodesToStart = new ArrayList<>();
+        for (Node node: nodeMap.values()) {
+            if (node.getOffOnStartup()) {
+                logger.info("Skipping node " + node.getName() + " on startup since it is off!");
+            } else {
+                nodesToStart.add(node.getName());
+            }
+        }
+        for (List<String> startOrderGroup: getNodeStartOrderGroups(nodesToStart)) {
+            logger.info("Starting nodes {} ...", startOrderGroup);
+            nodeTaskExecutor.runOnNodes(startOrderGroup, "start", this::startNode);
+        }
+
+        for (String nodeName: nodeToLocalNodeMap.keySet()) {
+            logger.info("Node {} ip address is: {}", nodeName, ip(nodeName));
+        }
+    }
+
+    @Override
+    protected void stopNodes(Boolean kill, Integer secondsUntilForcedStop) {
+        logger.info("Stopping processes ...");
+        try {
+            nodeTaskExecutor.runOnNodes(nodeToLocalNodeMap.keySet(), "stop the process of", nodeName -> {
+                if (!kill) {
+                    try {
+                        stopNode(nodeName, secondsUntilForcedStop);
+                    } catch (RuntimeEngineException e) {
+                        logger.warn("Error while trying to stop the process for node {}!", nodeName);
+                    }
+                }
+                nodeToLocalNodeMap.get(nodeName).kill();
+            });
+        } catch (RuntimeEngineException e) {
+            logger.warn(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    protected void doKillNode(String nodeName) throws RuntimeEngineException {
+        LocalNode localNode = getLocalNode(nodeName);
+        if (!localNode.isRunning()) {
+            logger.info("Node {} is not running. Node kill is not needed.", nodeName);
+            return;
+        }
+        logger.info("Killing node {} ...", nodeName);
+        localNode.kill();
+        logger.info("Node {} is killed!", nodeName);
+    }
+
+    @Override
+    protected void doStopNode(String nodeName, Integer secondsUntilForcedStop) throws RuntimeEngineException {
+        LocalNode localNode = getLocalNode(nodeName);
+        if (!localNode.isRunning()) {
+            logger.info("Node {} is not running. Node stop is not needed.", nodeName);
+            return;
+        }
+        logger.info("Stopping node {} ...", nodeName);
+        runStopCommand(nodeName);
+        localNode.stop(secondsUntilForcedStop);
+        logger.info("Node {} is stopped!", nodeName);
+    }
+
+    @Override
+    protected void doStartNode(String nodeName) throws RuntimeEngineException {
+        LocalNode localNode = getLocalNode(nodeName);
+        if (localNode.isRunning()) {
+            logger.info("Node {} is already started!", nodeName);
+            return;
+        }
+        logger.info("Starting node {} ...", nodeName);
+        localNode.start();
+        // The wrapper script itself prevents the init command to be executed in the next run of this node
+        logger.info("Node {} is started!", nodeName);
+    }
+
+    @Override
+    protected void doRestartNode(String nodeName, Integer secondsUntilForcedStop) throws RuntimeEngineException {
+        LocalNode localNode = getLocalNode(nodeName);
+        logger.info("Restarting node {} ...", nodeName);
+        if (localNode.isRunning()) {
+            runStopCommand(nodeName);
+            localNode.stop(secondsUntilForcedStop);
+        }
+        localNode.start();
+        logger.info("Node {} is restarted!", nodeName);
+    }
+
+    LocalNode getLocalNode(String nodeName) throws RuntimeEngineException {
+        LocalNode localNode = nodeToLocalNodeMap.get(nodeName);
+        if (localNode == null) {
+            throw new NodeNotFoundException(nodeName);
+        }
+        return localNode;
+    }
+
+    // Runs stop command. useful for stopping daemon processes gracefully
+    private void runStopCommand(String nodeName) throws RuntimeEngineException {
+        String stopCommand = getNodeStopCommand(nodeName);
+        if (stopCommand != null) {
+            try {
+                runCommandInNode(nodeName, stopCommand);
+            } catch (NodeIsNotRunningException e) {
+                logger.debug("Stop command for node {} cant be executed since the node is not running", nodeName);
+            }
+        }
+    }
+
+    @Override
+    protected void doClockDrift(String nodeName, Integer amount) throws RuntimeEngineException {
+        if (!nodeToLocalNodeMap.containsKey(nodeName)) {
+            throw new NodeNotFoundException(nodeName);
+        }
+
+        if (!isClockDriftEnabledInNode(nodeName)) {
+            logger.warn("Clock drift is not enabled in node {}. Operation ignored!", nodeName);
+            return;
+        }
+
+        logger.info("Applying clock drift {},{}", nodeName, amount);
+        Path localLibFakeTimeFile = Paths.get(nodeWorkspaceMap.get(nodeName).getFakeTimeControllerFile());
+        try {
+            Files.write(localLibFakeTimeFile, (getLibFakeTimeOffset(amount) + "\n").getBytes());
+        } catch (IOException e) {
+            throw new RuntimeEngineException("Error while writing into libfaketime controller file for node " + nodeName, e);
+        }
+    }
+
+    @Override
+    protected void freezeNode(String nodeName) throws RuntimeEngineException {
+        getLocalNode(nodeName).freeze();
+    }
+
+    @Override
+    protected void unfreezeNode(String nodeName) throws RuntimeEngineException {
+        getLocalNode(nodeName).unfreeze();
+    }
+
+    @Override
+    public void networkPartition(NetPart netPart) throws RuntimeEngineException {
+        throw new RuntimeEngineException("Network partitions are not supported by the local process runtime engine!");
+    }
+
+    @Override
+    public void removeNetworkPartition(NetPart netPart) throws RuntimeEngineException {
+        throw new RuntimeEngineException("Network partitions are not supported by the local process runtime engine!");
+    }
+
+    @Override
+    public void networkOperation(String nodeName, NetOp.BuilderBase... netOpBuilders) throws RuntimeEngineException {
+        throw new RuntimeEngineException("Network operations are not supported by the local process runtime engine!");
+    }
+
+    @Override
+    protected void startFileSharingService() {
+        // The processes use the shared directories of the host directly. No additional service is needed.
+    }
+
+    @Override
+    protected void stopFileSharingService() {
+        // The processes use the shared directories of the host directly. No additional service is needed.
+    }
+}
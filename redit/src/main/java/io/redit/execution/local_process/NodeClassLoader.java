@@ -0,0 +1,59 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.local_process;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/**
+ * The class loader of a node that runs inside the test's JVM. The classes of the node are loaded from its own class
+ * path on top of the platform classes, so the nodes don't see the classes of the test or of each other. The classes
+ * of the Redit runtime are the only ones shared with the test, so the instrumented code of the node reaches the
+ * runtime engine that the node belongs to.
+ */
+class NodeClassLoader extends URLClassLoader {
+    private static final String SHARED_PACKAGE_PREFIX = "io.redit.rt.";
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    private final ClassLoader sharedClassLoader;
+
+    NodeClassLoader(URL[] urls, ClassLoader sharedClassLoader) {
+        // The parent of the system class loader is the extension class loader in java 8 and the platform class loader
+        // afterwards
+        super(urls, ClassLoader.getSystemClassLoader().getParent());
+        this.sharedClassLoader = sharedClassLoader;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (name.startsWith(SHARED_PACKAGE_PREFIX)) {
+            return sharedClassLoader.loadClass(name);
+        }
+        return super.loadClass(name, resolve);
+    }
+}
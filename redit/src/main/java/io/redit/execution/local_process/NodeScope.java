@@ -0,0 +1,312 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.local_process;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.BiConsumer;
+
+/**
+ * The system properties and the console of a node that runs inside the test's JVM. The scope is bound to the thread
+ * group of the node, so it is seen by the threads that the node creates, and the system properties and the standard
+ * streams of the JVM are replaced once with the ones that look up the scope of the current thread. The threads that
+ * don't belong to a node see the original system properties and streams. This includes the shared threads of the JDK,
+ * e.g. the workers of the common fork join pool, even if a node causes them to be created.
+ */
+class NodeScope {
+    private static final Map<ThreadGroup, NodeScope> scopes = new ConcurrentHashMap<>();
+    private static Properties hostProperties;
+
+    private final Properties properties;
+    private final OutputStream console;
+
+    NodeScope(Properties properties, OutputStream console) {
+        this.properties = properties;
+        this.console = console;
+    }
+
+    /**
+     * Installs the node scoped system properties and standard streams if they are not installed yet
+     * @return a copy of the system properties of the test's JVM
+     */
+    static synchronized Properties install() {
+        if (hostProperties == null) {
+            hostProperties = System.getProperties();
+            System.setProperties(new NodeScopedProperties(hostProperties));
+            System.setOut(new PrintStream(new NodeScopedOutputStream(System.out), true));
+            System.setErr(new PrintStream(new NodeScopedOutputStream(System.err), true));
+        }
+        Properties properties = new Properties();
+        properties.putAll(hostProperties);
+        return properties;
+    }
+
+    /**
+     * Sets the scope of the threads in the given thread group and its subgroups
+     */
+    void bind(ThreadGroup threadGroup) {
+        scopes.put(threadGroup, this);
+    }
+
+    /**
+     * Removes the scope of the threads in the given thread group, so they see the system properties and the streams of
+     * the test's JVM again
+     */
+    static void unbind(ThreadGroup threadGroup) {
+        scopes.remove(threadGroup);
+    }
+
+    /**
+     * The threads of the jdk that are shared by everything in the JVM are created in the thread group of the thread
+     * that first needs them, but they don't belong to the node of that thread
+     * @return true if the thread is shared by the whole JVM
+     */
+    static boolean isSharedThread(Thread thread) {
+        return thread instanceof ForkJoinWorkerThread
+                && ((ForkJoinWorkerThread) thread).getPool() == ForkJoinPool.commonPool();
+    }
+
+    private static NodeScope current() {
+        if (scopes.isEmpty()) {
+            return null;
+        }
+        Thread thread = Thread.currentThread();
+        if (isSharedThread(thread)) {
+            return null;
+        }
+        for (ThreadGroup threadGroup = thread.getThreadGroup(); threadGroup != null;
+             threadGroup = threadGroup.getParent()) {
+            NodeScope scope = scopes.get(threadGroup);
+            if (scope != null) {
+                return scope;
+            }
+        }
+        return null;
+    }
+
+    private static Properties currentProperties() {
+        NodeScope scope = current();
+        return scope == null ? null : scope.properties;
+    }
+
+    /**
+     * Every accessor of the properties is redirected, since the libraries use the system properties as a map as well,
+     * e.g. to list them or to look them up with get
+     */
+    private static class NodeScopedProperties extends Properties {
+        private static final long serialVersionUID = 1L;
+
+        NodeScopedProperties(Properties hostProperties) {
+            // The properties of the host are kept in this object itself and are seen by the threads that don't belong
+            // to a node
+            for (Map.Entry<Object, Object> entry: hostProperties.entrySet()) {
+                super.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        @Override
+        public String getProperty(String key) {
+            Properties properties = currentProperties();
+            return properties == null ? super.getProperty(key) : properties.getProperty(key);
+        }
+
+        @Override
+        public String getProperty(String key, String defaultValue) {
+            String value = getProperty(key);
+            return value == null ? defaultValue : value;
+        }
+
+        @Override
+        public synchronized Object setProperty(String key, String value) {
+            Properties properties = currentProperties();
+            return properties == null ? super.setProperty(key, value) : properties.setProperty(key, value);
+        }
+
+        @Override
+        public Enumeration<?> propertyNames() {
+            Properties properties = currentProperties();
+            return properties == null ? super.propertyNames() : properties.propertyNames();
+        }
+
+        @Override
+        public Set<String> stringPropertyNames() {
+            Properties properties = currentProperties();
+            return properties == null ? super.stringPropertyNames() : properties.stringPropertyNames();
+        }
+
+        @Override
+        public Object get(Object key) {
+            Properties properties = currentProperties();
+            return properties == null ? super.get(key) : properties.get(key);
+        }
+
+        @Override
+        public Object getOrDefault(Object key, Object defaultValue) {
+            Properties properties = currentProperties();
+            return properties == null ? super.getOrDefault(key, defaultValue) : properties.getOrDefault(key, defaultValue);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            Properties properties = currentProperties();
+            return properties == null ? super.containsKey(key) : properties.containsKey(key);
+        }
+
+        @Override
+        public boolean containsValue(Object value) {
+            Properties properties = currentProperties();
+            return properties == null ? super.containsValue(value) : properties.containsValue(value);
+        }
+
+        @Override
+        public boolean contains(Object value) {
+            Properties properties = currentProperties();
+            return properties == null ? super.contains(value) : properties.contains(value);
+        }
+
+        @Override
+        public synchronized Object put(Object key, Object value) {
+            Properties properties = currentProperties();
+            return properties == null ? super.put(key, value) : properties.put(key, value);
+        }
+
+        @Override
+        public synchronized void putAll(Map<?, ?> map) {
+            Properties properties = currentProperties();
+            if (properties == null) {
+                super.putAll(map);
+            } else {
+                properties.putAll(map);
+            }
+        }
+
+        @Override
+        public synchronized Object remove(Object key) {
+            Properties properties = currentProperties();
+            return properties == null ? super.remove(key) : properties.remove(key);
+        }
+
+        @Override
+        public synchronized void clear() {
+            Properties properties = currentProperties();
+            if (properties == null) {
+                super.clear();
+            } else {
+                properties.clear();
+            }
+        }
+
+        @Override
+        public int size() {
+            Properties properties = currentProperties();
+            return properties == null ? super.size() : properties.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            Properties properties = currentProperties();
+            return properties == null ? super.isEmpty() : properties.isEmpty();
+        }
+
+        @Override
+        public Enumeration<Object> keys() {
+            Properties properties = currentProperties();
+            return properties == null ? super.keys() : properties.keys();
+        }
+
+        @Override
+        public Enumeration<Object> elements() {
+            Properties properties = currentProperties();
+            return properties == null ? super.elements() : properties.elements();
+        }
+
+        @Override
+        public Set<Object> keySet() {
+            Properties properties = currentProperties();
+            return properties == null ? super.keySet() : properties.keySet();
+        }
+
+        @Override
+        public Set<Map.Entry<Object, Object>> entrySet() {
+            Properties properties = currentProperties();
+            return properties == null ? super.entrySet() : properties.entrySet();
+        }
+
+        @Override
+        public Collection<Object> values() {
+            Properties properties = currentProperties();
+            return properties == null ? super.values() : properties.values();
+        }
+
+        @Override
+        public synchronized void forEach(BiConsumer<? super Object, ? super Object> action) {
+            Properties properties = currentProperties();
+            if (properties == null) {
+                super.forEach(action);
+            } else {
+                properties.forEach(action);
+            }
+        }
+
+        @Override
+        public synchronized String toString() {
+            Properties properties = currentProperties();
+            return properties == null ? super.toString() : properties.toString();
+        }
+    }
+
+    private static class NodeScopedOutputStream extends OutputStream {
+        private final OutputStream hostStream;
+
+        NodeScopedOutputStream(OutputStream hostStream) {
+            this.hostStream = hostStream;
+        }
+
+        private OutputStream target() {
+            NodeScope scope = current();
+            return scope == null ? hostStream : scope.console;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target().flush();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.simulated;
+
+import io.redit.execution.NodeState;
+
+/**
+ * The in-memory lifecycle of a simulated node. Each start of the node begins a new generation, so the scripted events
+ * of a previous run of the node stop being emitted once it is stopped or restarted.
+ */
+class SimulatedNode {
+    private NodeState.Status status;
+    private Integer exitCode;
+    private int startCount;
+    private boolean crashed;
+    private boolean frozen;
+    private long generation;
+    private long timestamp;
+
+    SimulatedNode() {
+        status = NodeState.Status.CREATED;
+        timestamp = System.currentTimeMillis();
+    }
+
+    synchronized boolean isRunning() {
+        return status == NodeState.Status.RUNNING;
+    }
+
+    synchronized boolean isRunning(long expectedGeneration) {
+        return status == NodeState.Status.RUNNING && generation == expectedGeneration && !frozen;
+    }
+
+    /**
+     * @return true if the given run of the node is not ended yet
+     */
+    synchronized boolean isCurrent(long expectedGeneration) {
+        return generation == expectedGeneration;
+    }
+
+    synchronized NodeState getState() {
+        return new NodeState(status, exitCode, Math.max(startCount - 1, 0), crashed, timestamp);
+    }
+
+    /**
+     * @return the generation of the new run of the node
+     */
+    synchronized long start() {
+        status = NodeState.Status.RUNNING;
+        exitCode = null;
+        crashed = false;
+        frozen = false;
+        startCount++;
+        timestamp = System.currentTimeMillis();
+        return ++generation;
+    }
+
+    synchronized void exit(int exitCode, boolean crashed) {
+        status = NodeState.Status.EXITED;
+        this.exitCode = exitCode;
+        this.crashed = crashed;
+        frozen = false;
+        generation++;
+        timestamp = System.currentTimeMillis();
+    }
+
+    synchronized void setFrozen(boolean frozen) {
+        this.frozen = frozen;
+    }
+}
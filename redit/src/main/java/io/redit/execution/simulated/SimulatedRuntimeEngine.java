@@ -0,0 +1,494 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.simulated;
+
+import io.redit.dsl.entities.Deployment;
+import io.redit.dsl.entities.Node;
+import io.redit.dsl.entities.PortType;
+import io.redit.dsl.entities.ResourceLimits;
+import io.redit.exceptions.NodeIsNotRunningException;
+import io.redit.exceptions.NodeNotFoundException;
+import io.redit.exceptions.RuntimeEngineException;
+import io.redit.execution.*;
+import io.redit.verification.DeploymentVerifier;
+import io.redit.verification.InternalReferencesVerifier;
+import io.redit.verification.RunSequenceVerifier;
+import io.redit.verification.SchedulingOperationVerifier;
+import io.redit.workspace.NodeWorkspace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A runtime engine that keeps the nodes entirely in memory. No process is run for the nodes, but their lifecycle, the
+ * bookkeeping of the network partitions and network operations and the events of the run sequence behave the same way
+ * as with a real runtime engine. The events that a node would send are scripted for the node and are emitted against the
+ * real event service once their dependencies are met, so the test logic and the wiring of a run sequence can be
+ * exercised without building any image or starting any container. The commands that are run in the nodes, including
+ * the iptables and tc commands of the network faults, are recorded and answered by a command handler.
+ */
+public class SimulatedRuntimeEngine extends RuntimeEngine {
+    private final static Logger logger = LoggerFactory.getLogger(SimulatedRuntimeEngine.class);
+    private final static String LOOPBACK_IP_ADDRESS = "127.0.0.1";
+    private final static String EVENT_SCRIPT_THREAD_NAME = "simulated";
+    // The event script threads are woken up on every change, but still check their event at least this often, so they
+    // are not expired from the waiters of the event service while they wait
+    private final static long EVENT_WAIT_REFRESH_MILLIS = 1000;
+    private final static int KILL_EXIT_CODE = 137;
+    private final static int STOP_EXIT_CODE = 143;
+
+    /**
+     * Answers the commands that are run in the simulated nodes
+     */
+    @FunctionalInterface
+    public interface CommandHandler {
+        /**
+         * @param nodeName the node the command is run in
+         * @param command the command to be run
+         * @return the results of the command
+         * @throws RuntimeEngineException if the command should fail
+         */
+        CommandResults handle(String nodeName, String command) throws RuntimeEngineException;
+    }
+
+    private final AtomicInteger ipAddressCounter;
+    private final Map<String, SimulatedNode> nodeToSimulatedNodeMap;
+    private final Map<String, String> nodeToIpMap;
+    private final Map<String, List<String>> nodeToScriptedEventsMap;
+    private final Map<String, List<CommandResults>> nodeToCommandsMap;
+    private final List<String> recordedOperations;
+    private final Object eventScriptMonitor;
+    private volatile CommandHandler commandHandler;
+
+    /**
+     * Creates a simulated runtime engine whose nodes don't have any files, so it can be started directly with
+     * {@link #start(io.redit.ReditRunner)} without creating a workspace. The deployment is verified the same way the
+     * {@link io.redit.ReditRunner} verifies it, so the dependencies of the events of the run sequence are resolved
+     * @param deployment the deployment to be simulated
+     */
+    public SimulatedRuntimeEngine(Deployment deployment) {
+        this(deployment, Collections.emptyMap());
+        for (DeploymentVerifier verifier: Arrays.asList(new InternalReferencesVerifier(deployment),
+                new RunSequenceVerifier(deployment), new SchedulingOperationVerifier(deployment))) {
+            verifier.verify();
+        }
+        setNodeWorkspaceFactory(new NodeWorkspaceFactory() {
+            @Override
+            public Path getWorkingDirectory() {
+                return null;
+            }
+
+            @Override
+            public NodeWorkspace createNodeWorkspace(Node node) {
+                return new NodeWorkspace(Collections.emptySet(), Collections.emptySet(), null, null, null,
+                        Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(), Collections.emptyList());
+            }
+        });
+    }
+
+    public SimulatedRuntimeEngine(Deployment deployment, Map<String, NodeWorkspace> nodeWorkspaceMap) {
+        super(deployment, nodeWorkspaceMap);
+        ipAddressCounter = new AtomicInteger();
+        nodeToSimulatedNodeMap = new ConcurrentHashMap<>();
+        nodeToIpMap = new ConcurrentHashMap<>();
+        nodeToScriptedEventsMap = new ConcurrentHashMap<>();
+        nodeToCommandsMap = new ConcurrentHashMap<>();
+        recordedOperations = new CopyOnWriteArrayList<>();
+        eventScriptMonitor = new Object();
+        // The events of the test case and of the other nodes are received through the event server
+        getEventService().addEventListener(eventName -> wakeUpEventScripts());
+        commandHandler = (nodeName, command) -> new CommandResults(nodeName, command, 0, "", "");
+        // The addresses are given in the order of the node names, so they are the same in every run
+        for (String nodeName: new TreeSet<>(nodeMap.keySet())) {
+            ip(nodeName);
+        }
+    }
+
+    /**
+     * Scripts the events that the node emits in each of its runs. The events are emitted in the given order and each
+     * event is only emitted once its dependencies in the run sequence are met, the same way an instrumented node blocks
+     * before emitting an event. The emission stops when the node is stopped, killed or restarted.
+     * @param nodeName the node to emit the events
+     * @param eventNames the events to be emitted
+     * @throws RuntimeEngineException if the node or any of the events is not defined in the deployment
+     */
+    public void scriptEvents(String nodeName, String... eventNames) throws RuntimeEngineException {
+        if (!nodeMap.containsKey(nodeName)) {
+            throw new NodeNotFoundException(nodeName);
+        }
+        for (String eventName: eventNames) {
+            if (deployment.getReferableDeploymentEntity(eventName) == null) {
+                throw new RuntimeEngineException("Event " + eventName + " is not defined in the deployment!");
+            }
+        }
+        nodeToScriptedEventsMap.put(nodeName, Arrays.asList(eventNames));
+    }
+
+    /**
+     * Emits the event from the node right away regardless of its dependencies
+     * @param nodeName the node to emit the event
+     * @param eventName the event to be emitted
+     * @throws RuntimeEngineException if the node is not running
+     */
+    public void emitEvent(String nodeName, String eventName) throws RuntimeEngineException {
+        if (!getSimulatedNode(nodeName).isRunning()) {
+            throw new NodeIsNotRunningException("Node " + nodeName + " is not running to emit event " + eventName);
+        }
+        receiveEvent(nodeName, eventName);
+    }
+
+    private void receiveEvent(String nodeName, String eventName) {
+        record(nodeName, "event " + eventName);
+        getEventService().receiveEvent(eventName);
+    }
+
+    /**
+     * Makes the running node exit on its own, so it is reported as crashed to the node state listeners
+     * @param nodeName the node to crash
+     * @param exitCode the exit code of the node
+     * @throws RuntimeEngineException if the node doesn't exist
+     */
+    public void crashNode(String nodeName, int exitCode) throws RuntimeEngineException {
+        nodeOperationScheduler.run(nodeName, () -> {
+            SimulatedNode simulatedNode = getSimulatedNode(nodeName);
+            if (simulatedNode.isRunning()) {
+                record(nodeName, "crash " + exitCode);
+                exitNode(nodeName, simulatedNode, exitCode, true);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Sets the handler that answers the commands run in the nodes. By default all of the commands succeed without any
+     * output
+     * @param commandHandler the command handler
+     */
+    public void setCommandHandler(CommandHandler commandHandler) {
+        this.commandHandler = commandHandler;
+    }
+
+    /**
+     * @return the operations applied on the nodes in the order they are applied, e.g. "n1: start" or "n1: event e1"
+     */
+    public List<String> getRecordedOperations() {
+        return new ArrayList<>(recordedOperations);
+    }
+
+    /**
+     * @return the commands that are run in the node and their results in the order they are run
+     */
+    public List<CommandResults> getRecordedCommands(String nodeName) {
+        return new ArrayList<>(nodeToCommandsMap.getOrDefault(nodeName, Collections.emptyList()));
+    }
+
+    /**
+     * @return the nodes whose packets are currently dropped by the given node because of the network partitions
+     */
+    public Set<String> getBlockedNodes(String nodeName) {
+        return networkPartitionManager.getBlockedNodes(nodeName);
+    }
+
+    private void record(String nodeName, String operation) {
+        recordedOperations.add(nodeName + ": " + operation);
+    }
+
+    private void wakeUpEventScripts() {
+        synchronized (eventScriptMonitor) {
+            eventScriptMonitor.notifyAll();
+        }
+    }
+
+    private SimulatedNode getSimulatedNode(String nodeName) throws RuntimeEngineException {
+        SimulatedNode simulatedNode = nodeToSimulatedNodeMap.get(nodeName);
+        if (simulatedNode == null) {
+            if (nodeMap.containsKey(nodeName) && !isMaterialized(nodeName)) {
+                throw new NodeIsNotRunningException("Node " + nodeName + " is not started yet!");
+            }
+            throw new NodeNotFoundException(nodeName);
+        }
+        return simulatedNode;
+    }
+
+    @Override
+    public String ip(String nodeName) {
+        if (!nodeMap.containsKey(nodeName)) {
+            return null;
+        }
+        return nodeToIpMap.computeIfAbsent(nodeName, k -> {
+            int index = ipAddressCounter.getAndIncrement();
+            return "10.0." + (index / 254) + "." + (index % 254 + 1);
+        });
+    }
+
+    @Override
+    public Integer portMapping(String nodeName, Integer portNumber, PortType portType) {
+        return nodeToSimulatedNodeMap.containsKey(nodeName) ? portNumber : null;
+    }
+
+    @Override
+    public NodeState nodeState(String nodeName) {
+        SimulatedNode simulatedNode = nodeToSimulatedNodeMap.get(nodeName);
+        return simulatedNode == null ? null : simulatedNode.getState();
+    }
+
+    @Override
+    public CommandResults runCommandInNode(String nodeName, String command) throws RuntimeEngineException {
+        if (!getSimulatedNode(nodeName).isRunning()) {
+            throw new NodeIsNotRunningException("Node " + nodeName + " is not running to execute command " + command);
+        }
+        CommandResults commandResults = commandHandler.handle(nodeName, command);
+        record(nodeName, "command " + command);
+        nodeToCommandsMap.computeIfAbsent(nodeName, k -> new CopyOnWriteArrayList<>()).add(commandResults);
+        return commandResults;
+    }
+
+    @Override
+    public CompletableFuture<CommandResults> runCommandInNodeAsync(String nodeName, String command) {
+        CompletableFuture<CommandResults> future = new CompletableFuture<>();
+        try {
+            future.complete(runCommandInNode(nodeName, command));
+        } catch (RuntimeEngineException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<CommandResults> runCommandInNodeAsync(String nodeName, String command,
+                                                                   OutputStream stdOut, OutputStream stdErr) {
+        return runCommandInNodeAsync(nodeName, command).thenApply(commandResults -> {
+            try {
+                stdOut.write(commandResults.stdOut().getBytes(StandardCharsets.UTF_8));
+                stdErr.write(commandResults.stdErr().getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new IllegalStateException("Error while writing the stdout and stderr for command " + command
+                        + " on node " + nodeName, e);
+            }
+            return new CommandResults(nodeName, command, commandResults.exitCode(), "", "");
+        });
+    }
+
+    @Override
+    protected Map<String, String> improveEnvironmentVariablesMapForEngine(String nodeName, Map<String, String> environment) {
+        return environment;
+    }
+
+    @Override
+    protected String getEventServerIpAddress() {
+        return LOOPBACK_IP_ADDRESS;
+    }
+
+    @Override
+    protected String getNodeEventServerIpAddress() {
+        return LOOPBACK_IP_ADDRESS;
+    }
+
+    @Override
+    protected void createNodeContainer(Node node) {
+        nodeToSimulatedNodeMap.putIfAbsent(node.getName(), new SimulatedNode());
+        record(node.getName(), "create");
+    }
+
+    @Override
+    protected void startNodes() throws RuntimeEngineException {
+        for (String nodeName: getMaterializedNodeNames()) {
+            createNodeContainer(nodeMap.get(nodeName));
+        }
+
+        // Starts the nodes that are not off on startup group by group in their start order
+        List<String> nodesToStart = new ArrayList<>();
+        for (Node node: nodeMap.values()) {
+            if (node.getOffOnStartup()) {
+                logger.info("Skipping node " + node.getName() + " on startup since it is off!");
+            } else {
+                nodesToStart.add(node.getName());
+            }
+        }
+        for (List<String> startOrderGroup: getNodeStartOrderGroups(nodesToStart)) {
+            Collections.sort(startOrderGroup);
+            for (String nodeName: startOrderGroup) {
+                startNode(nodeName);
+            }
+        }
+    }
+
+    @Override
+    protected void stopNodes(Boolean kill, Integer secondsUntilForcedStop) {
+        for (Map.Entry<String, SimulatedNode> entry: new TreeMap<>(nodeToSimulatedNodeMap).entrySet()) {
+            if (entry.getValue().isRunning()) {
+                record(entry.getKey(), kill ? "kill" : "stop");
+                exitNode(entry.getKey(), entry.getValue(), kill ? KILL_EXIT_CODE : STOP_EXIT_CODE, false);
+            }
+        }
+        // The scripts of the nodes that are not running are waiting as well and should notice the runtime engine is stopped
+        wakeUpEventScripts();
+    }
+
+    @Override
+    protected void doKillNode(String nodeName) throws RuntimeEngineException {
+        SimulatedNode simulatedNode = getSimulatedNode(nodeName);
+        if (simulatedNode.isRunning()) {
+            record(nodeName, "kill");
+            exitNode(nodeName, simulatedNode, KILL_EXIT_CODE, false);
+        }
+    }
+
+    @Override
+    protected void doStopNode(String nodeName, Integer secondsUntilForcedStop) throws RuntimeEngineException {
+        SimulatedNode simulatedNode = getSimulatedNode(nodeName);
+        if (simulatedNode.isRunning()) {
+            String stopCommand = getNodeStopCommand(nodeName);
+            if (stopCommand != null) {
+                runCommandInNode(nodeName, stopCommand);
+            }
+            record(nodeName, "stop");
+            exitNode(nodeName, simulatedNode, STOP_EXIT_CODE, false);
+        }
+    }
+
+    @Override
+    protected void doStartNode(String nodeName) throws RuntimeEngineException {
+        SimulatedNode simulatedNode = getSimulatedNode(nodeName);
+        if (!simulatedNode.isRunning()) {
+            record(nodeName, "start");
+            startNode(nodeName, simulatedNode);
+        }
+    }
+
+    @Override
+    protected void doRestartNode(String nodeName, Integer secondsUntilForcedStop) throws RuntimeEngineException {
+        SimulatedNode simulatedNode = getSimulatedNode(nodeName);
+        record(nodeName, "restart");
+        if (simulatedNode.isRunning()) {
+            exitNode(nodeName, simulatedNode, STOP_EXIT_CODE, false);
+        }
+        startNode(nodeName, simulatedNode);
+    }
+
+    private void startNode(String nodeName, SimulatedNode simulatedNode) throws RuntimeEngineException {
+        long generation = simulatedNode.start();
+        wakeUpEventScripts();
+        notifyNodeStateListeners(nodeName, simulatedNode.getState());
+        reApplyNetworkFaults(nodeName);
+
+        List<String> scriptedEvents = nodeToScriptedEventsMap.get(nodeName);
+        if (scriptedEvents != null && !scriptedEvents.isEmpty()) {
+            Thread scriptThread = new Thread(() -> runEventScript(nodeName, simulatedNode, generation, scriptedEvents),
+                    "redit-simulated-" + nodeName);
+            scriptThread.setDaemon(true);
+            scriptThread.start();
+        }
+    }
+
+    private void exitNode(String nodeName, SimulatedNode simulatedNode, int exitCode, boolean crashed) {
+        simulatedNode.exit(exitCode, crashed);
+        wakeUpEventScripts();
+        notifyNodeStateListeners(nodeName, simulatedNode.getState());
+    }
+
+    private void runEventScript(String nodeName, SimulatedNode simulatedNode, long generation, List<String> eventNames) {
+        EventService eventService = getEventService();
+        try {
+            for (String eventName: eventNames) {
+                // Waits for the dependencies of the event the same way an instrumented node blocks before emitting it.
+                // A frozen node only continues once it is unfrozen. The conditions are checked while holding the
+                // monitor, so a change made before the wake up is never missed
+                synchronized (eventScriptMonitor) {
+                    while (!eventService.areDependenciesMet(eventName, 0, nodeName, EVENT_SCRIPT_THREAD_NAME)
+                            || !simulatedNode.isRunning(generation)) {
+                        if (isStopped() || !simulatedNode.isCurrent(generation)) {
+                            return;
+                        }
+                        eventScriptMonitor.wait(EVENT_WAIT_REFRESH_MILLIS);
+                    }
+                }
+                receiveEvent(nodeName, eventName);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    protected void doClockDrift(String nodeName, Integer amount) throws RuntimeEngineException {
+        getSimulatedNode(nodeName);
+        if (!isClockDriftEnabledInNode(nodeName)) {
+            logger.warn("Clock drift is not enabled in node {}. Operation ignored!", nodeName);
+            return;
+        }
+        record(nodeName, "clock drift " + amount);
+    }
+
+    @Override
+    protected void doUpdateNodeResources(String nodeName, ResourceLimits resourceLimits) throws RuntimeEngineException {
+        getSimulatedNode(nodeName);
+        record(nodeName, "update resources " + resourceLimits);
+    }
+
+    @Override
+    protected void freezeNode(String nodeName) throws RuntimeEngineException {
+        getSimulatedNode(nodeName).setFrozen(true);
+        record(nodeName, "freeze");
+    }
+
+    @Override
+    protected void unfreezeNode(String nodeName) throws RuntimeEngineException {
+        getSimulatedNode(nodeName).setFrozen(false);
+        wakeUpEventScripts();
+        record(nodeName, "unfreeze");
+    }
+
+    @Override
+    public void snapshotNodes(String snapshotName) throws RuntimeEngineException {
+        throw new RuntimeEngineException("Snapshot " + snapshotName + " cannot be taken since the simulated nodes don't"
+                + " have any state to be captured!");
+    }
+
+    @Override
+    public void restoreNodes(String snapshotName) throws RuntimeEngineException {
+        throw new RuntimeEngineException("Snapshot " + snapshotName + " cannot be restored since the simulated nodes"
+                + " don't have any state to be captured!");
+    }
+
+    @Override
+    protected void startFileSharingService() {
+        // The simulated nodes don't have any files to share
+    }
+
+    @Override
+    protected void stopFileSharingService() {
+        // The simulated nodes don't have any files to share
+    }
+}
@@ -31,7 +31,7 @@ import java.util.Map;
 public class DockerContainerInfo {
     private final String containerId;
     private final String ipAddress;
-    private Map<ExposedPortDefinition, Integer> portMapping;
+    private volatile Map<ExposedPortDefinition, Integer> portMapping;
 
     public DockerContainerInfo(String containerId, String ipAddress) {
         this.containerId = containerId;
@@ -50,6 +50,10 @@ public class DockerContainerInfo {
         this.portMapping = portMapping;
     }
 
+    public boolean hasPortMapping() {
+        return portMapping != null;
+    }
+
     public Integer getPortMapping(ExposedPortDefinition portDefinition) {
         return portMapping.get(portDefinition);
     }
@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.single_node;
+
+import io.redit.dsl.entities.Deployment;
+import io.redit.dsl.entities.Node;
+
+import java.util.*;
+
+/**
+ * A container that runs several nodes of the same service as separate processes. The container gets the ip address of
+ * its first node and the ip addresses of the other nodes are added to it as aliases.
+ */
+class DockerContainerPack {
+    private final String name;
+    private final List<String> nodeNames;
+    private volatile String containerId;
+
+    private DockerContainerPack(String name, List<String> nodeNames) {
+        this.name = name;
+        this.nodeNames = Collections.unmodifiableList(nodeNames);
+    }
+
+    /**
+     * Packs the given nodes of the services that allow more than one node per container in the order of their names,
+     * so the nodes are packed the same way in every run
+     * @return the packs with more than one node
+     */
+    static List<DockerContainerPack> createPacks(Deployment deployment, Collection<Node> nodes) {
+        Map<String, List<String>> serviceToNodeNamesMap = new TreeMap<>();
+        for (Node node: nodes) {
+            serviceToNodeNamesMap.computeIfAbsent(node.getServiceName(), k -> new ArrayList<>()).add(node.getName());
+        }
+
+        List<DockerContainerPack> packs = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry: serviceToNodeNamesMap.entrySet()) {
+            Integer nodesPerContainer = deployment.getService(entry.getKey()).getNodesPerContainer();
+            if (nodesPerContainer == null || nodesPerContainer <= 1) {
+                continue;
+            }
+            List<String> nodeNames = entry.getValue();
+            Collections.sort(nodeNames);
+            for (int i = 0; i + 1 < nodeNames.size(); i += nodesPerContainer) {
+                List<String> packNodeNames = new ArrayList<>(nodeNames.subList(i,
+                        Math.min(i + nodesPerContainer, nodeNames.size())));
+                packs.add(new DockerContainerPack(entry.getKey() + "-pack" + packs.size(), packNodeNames));
+            }
+        }
+        return packs;
+    }
+
+    String name() {
+        return name;
+    }
+
+    List<String> nodeNames() {
+        return nodeNames;
+    }
+
+    /**
+     * @return the node whose ip address is the primary ip address of the container
+     */
+    String leader() {
+        return nodeNames.get(0);
+    }
+
+    String containerId() {
+        return containerId;
+    }
+
+    void setContainerId(String containerId) {
+        this.containerId = containerId;
+    }
+
+    @Override
+    public String toString() {
+        return name + nodeNames;
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.single_node;
+
+import com.spotify.docker.client.DefaultDockerClient;
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.exceptions.DockerCertificateException;
+import com.spotify.docker.client.exceptions.DockerException;
+import com.spotify.docker.client.messages.ContainerChange;
+import io.redit.Constants;
+import io.redit.exceptions.RuntimeEngineException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Keeps the docker network and the stopped containers of the finished runs of a deployment in the JVM, so the next run
+ * of a deployment with the same name can attach to them instead of creating new ones. A container is only reused by a
+ * node with exactly the same container configuration, and it is only put back in the pool if the files it added to its
+ * writable layer can be removed. The pool is enabled through the redit.warmPool system property and the pooled
+ * containers and networks are removed when the JVM exits.
+ *
+ * Since the bind mounts of a container cannot be changed after it is created, the bind mounts of the pooled containers
+ * point into a symbolic link next to the working directory of the run. The link is pointed to the working directory of
+ * the current run every time the pooled deployment is acquired, and is resolved by docker when the container starts.
+ */
+class DockerContainerPool {
+    private final static Logger logger = LoggerFactory.getLogger(DockerContainerPool.class);
+    private final static DockerContainerPool instance = new DockerContainerPool();
+    // These files are managed by docker and their changes are not part of the writable layer of the container
+    private final static Set<String> DOCKER_MANAGED_PATHS = new HashSet<>(Arrays.asList(
+            "/etc/hosts", "/etc/hostname", "/etc/resolv.conf"));
+
+    private final Map<String, Deque<PooledDeployment>> idleDeployments;
+    private final Map<String, Integer> deploymentCounters;
+    private final Set<PooledDeployment> acquiredDeployments;
+    private boolean shutdownHookAdded;
+
+    private DockerContainerPool() {
+        idleDeployments = new HashMap<>();
+        deploymentCounters = new HashMap<>();
+        acquiredDeployments = new HashSet<>();
+    }
+
+    public static DockerContainerPool getInstance() {
+        return instance;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(Constants.WARM_POOL_PROPERTY);
+    }
+
+    /**
+     * @return an idle pooled deployment with the given name or a new empty one if there is none. The returned pooled
+     * deployment is exclusively owned by the caller until it is released
+     */
+    public synchronized PooledDeployment acquire(String deploymentName) {
+        if (!shutdownHookAdded) {
+            Runtime.getRuntime().addShutdownHook(new Thread(this::removeAll, "redit-warm-pool-cleaner"));
+            shutdownHookAdded = true;
+        }
+
+        PooledDeployment pooledDeployment = idleDeployments.getOrDefault(deploymentName, new ArrayDeque<>()).pollFirst();
+        if (pooledDeployment == null) {
+            int index = deploymentCounters.merge(deploymentName, 1, Integer::sum);
+            pooledDeployment = new PooledDeployment(deploymentName, Constants.WARM_POOL_DIRECTORY_PREFIX
+                    + deploymentName + "_" + index);
+        } else {
+            logger.info("Reusing the pooled docker network and {} container(s) of deployment {}",
+                    pooledDeployment.containers.size(), deploymentName);
+        }
+        acquiredDeployments.add(pooledDeployment);
+        return pooledDeployment;
+    }
+
+    public synchronized void release(PooledDeployment pooledDeployment) {
+        if (acquiredDeployments.remove(pooledDeployment)) {
+            idleDeployments.computeIfAbsent(pooledDeployment.deploymentName, k -> new ArrayDeque<>())
+                    .addFirst(pooledDeployment);
+        }
+    }
+
+    private synchronized void removeAll() {
+        List<PooledDeployment> pooledDeployments = new ArrayList<>(acquiredDeployments);
+        idleDeployments.values().forEach(pooledDeployments::addAll);
+        if (pooledDeployments.isEmpty()) {
+            return;
+        }
+
+        try (DockerClient dockerClient = DefaultDockerClient.fromEnv().build()) {
+            for (PooledDeployment pooledDeployment: pooledDeployments) {
+                for (PooledContainer pooledContainer: pooledDeployment.containers.values()) {
+                    try {
+                        dockerClient.removeContainer(pooledContainer.containerId,
+                                DockerClient.RemoveContainerParam.forceKill());
+                    } catch (DockerException | InterruptedException e) {
+                        logger.warn("Error while removing pooled container {}", pooledContainer.containerId, e);
+                    }
+                }
+                if (pooledDeployment.networkManager != null) {
+                    try {
+                        dockerClient.removeNetwork(pooledDeployment.networkManager.dockerNetworkId());
+                    } catch (DockerException | InterruptedException e) {
+                        logger.warn("Error while removing pooled docker network {}",
+                                pooledDeployment.networkManager.dockerNetworkId(), e);
+                    }
+                }
+                if (pooledDeployment.workingDirectoryLink != null) {
+                    try {
+                        Files.deleteIfExists(pooledDeployment.workingDirectoryLink);
+                    } catch (IOException e) {
+                        logger.warn("Error while deleting {}", pooledDeployment.workingDirectoryLink, e);
+                    }
+                }
+            }
+        } catch (DockerCertificateException e) {
+            logger.warn("Cannot create docker client to remove the pooled containers!", e);
+        }
+    }
+
+    /**
+     * Calculates the paths to be removed from the writable layer of a stopped container to reset it to its image.
+     * Changes in and around the mount points are ignored since they are not part of the writable layer.
+     * @param changes the changes of the container
+     * @param mountDestinations the mount points of the container
+     * @return the top-most added paths or null if the container has modified or deleted files of its image
+     */
+    static List<String> getPathsToReset(List<ContainerChange> changes, Collection<String> mountDestinations) {
+        List<String> relevantPaths = new ArrayList<>();
+        for (ContainerChange change: changes) {
+            if (!isMountRelated(change.path(), mountDestinations)) {
+                relevantPaths.add(change.path());
+            }
+        }
+
+        List<String> addedPaths = new ArrayList<>();
+        for (ContainerChange change: changes) {
+            String path = change.path();
+            if (!relevantPaths.contains(path)) {
+                continue;
+            }
+            if (change.kind() == 1) {
+                addedPaths.add(path);
+            } else if (change.kind() == 0) {
+                // A modified directory is fine as long as it is only modified by the changes of its children
+                if (relevantPaths.stream().noneMatch(other -> isAncestor(path, other))) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+        }
+
+        List<String> pathsToReset = new ArrayList<>();
+        for (String path: addedPaths) {
+            if (addedPaths.stream().noneMatch(other -> isAncestor(other, path))) {
+                pathsToReset.add(path);
+            }
+        }
+        return pathsToReset;
+    }
+
+    private static boolean isMountRelated(String path, Collection<String> mountDestinations) {
+        // The files managed by docker are mounted into the container as well
+        List<String> mountedPaths = new ArrayList<>(DOCKER_MANAGED_PATHS);
+        mountedPaths.addAll(mountDestinations);
+        for (String mountedPath: mountedPaths) {
+            if (path.equals(mountedPath) || isAncestor(path, mountedPath) || isAncestor(mountedPath, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAncestor(String ancestor, String path) {
+        String prefix = ancestor.endsWith("/") ? ancestor : ancestor + "/";
+        return path.startsWith(prefix) && path.length() > prefix.length();
+    }
+
+    /**
+     * The docker network and the containers of a deployment that are kept in the pool
+     */
+    static class PooledDeployment {
+        private final String deploymentName;
+        private final String workingDirectoryLinkName;
+        private final Map<String, PooledContainer> containers;
+        private DockerNetworkManager networkManager;
+        private Path workingDirectoryLink;
+
+        private PooledDeployment(String deploymentName, String workingDirectoryLinkName) {
+            this.deploymentName = deploymentName;
+            this.workingDirectoryLinkName = workingDirectoryLinkName;
+            this.containers = new HashMap<>();
+        }
+
+        public DockerNetworkManager getNetworkManager() {
+            return networkManager;
+        }
+
+        public void setNetworkManager(DockerNetworkManager networkManager) {
+            this.networkManager = networkManager;
+        }
+
+        /**
+         * Points the working directory link of the pooled deployment to the given working directory
+         * @return the path of the link which should be used instead of the working directory in the bind mounts
+         */
+        public Path linkWorkingDirectory(Path workingDirectory) throws RuntimeEngineException {
+            Path link = workingDirectory.resolveSibling(workingDirectoryLinkName);
+            try {
+                // The working directory may not be created yet
+                Files.createDirectories(link.getParent());
+                Files.deleteIfExists(link);
+                // The link is relative, so it is valid on the docker host as well when the client runs in a container
+                Files.createSymbolicLink(link, workingDirectory.getFileName());
+            } catch (IOException e) {
+                throw new RuntimeEngineException("Error while linking " + link + " to the working directory "
+                        + workingDirectory, e);
+            }
+            workingDirectoryLink = link;
+            return link;
+        }
+
+        /**
+         * @return the pooled container of the node or null if there is none. The returned container is no longer
+         * tracked by the pool
+         */
+        public synchronized PooledContainer takeContainer(String nodeName) {
+            return containers.remove(nodeName);
+        }
+
+        /**
+         * @return the pooled containers that are not taken by any of the nodes. The returned containers are no longer
+         * tracked by the pool
+         */
+        public synchronized Collection<PooledContainer> takeRemainingContainers() {
+            List<PooledContainer> remainingContainers = new ArrayList<>(containers.values());
+            containers.clear();
+            return remainingContainers;
+        }
+
+        public synchronized void putContainer(String nodeName, PooledContainer pooledContainer) {
+            containers.put(nodeName, pooledContainer);
+        }
+    }
+
+    static class PooledContainer {
+        private final String containerId;
+        private final String ipAddress;
+        private final String configurationKey;
+
+        PooledContainer(String containerId, String ipAddress, String configurationKey) {
+            this.containerId = containerId;
+            this.ipAddress = ipAddress;
+            this.configurationKey = configurationKey;
+        }
+
+        public String containerId() {
+            return containerId;
+        }
+
+        public String ip() {
+            return ipAddress;
+        }
+
+        public String configurationKey() {
+            return configurationKey;
+        }
+    }
+}
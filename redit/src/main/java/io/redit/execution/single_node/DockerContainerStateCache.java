@@ -0,0 +1,396 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.single_node;
+
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.EventStream;
+import com.spotify.docker.client.exceptions.ContainerNotFoundException;
+import com.spotify.docker.client.exceptions.DockerException;
+import com.spotify.docker.client.messages.ContainerInfo;
+import com.spotify.docker.client.messages.Event;
+import io.redit.execution.NodeState;
+import io.redit.execution.NodeStateListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Keeps the state of the containers of the nodes up to date by subscribing to the docker events stream, so the runtime
+ * engine can answer running checks and port mapping requests without asking the docker daemon and gets notified when a
+ * node crashes on its own. The stream is filtered by the owner label of the current process and is reconnected from the
+ * last received event if it breaks. While the stream is not connected, the state of a container is only refreshed
+ * through an inspect call after the operations of the runtime engine.
+ */
+public class DockerContainerStateCache implements Closeable {
+    private final static Logger logger = LoggerFactory.getLogger(DockerContainerStateCache.class);
+    private final static long EVENT_WAIT_TIMEOUT_MILLIS = 10000;
+    private final static long RECONNECT_DELAY_MILLIS = 1000;
+
+    private final DockerClient dockerClient;
+    private final NodeStateListener listener;
+    private final Map<String, ContainerState> containerIdToState;
+    private final Map<String, ContainerState> nodeNameToState;
+    private volatile EventStream eventStream;
+    private volatile boolean connected;
+    private volatile boolean closed;
+    private Thread eventThread;
+    private long lastEventTimeNano; // only accessed by the event thread
+
+    private static class ContainerState {
+        private final String nodeName;
+        private final DockerContainerInfo containerInfo;
+        private NodeState.Status status = NodeState.Status.CREATED;
+        private Integer exitCode;
+        private int starts;
+        private int exits;
+        private boolean exitExpected;
+        private boolean crashed;
+        private long timestamp = System.currentTimeMillis();
+
+        private ContainerState(String nodeName, DockerContainerInfo containerInfo) {
+            this.nodeName = nodeName;
+            this.containerInfo = containerInfo;
+        }
+
+        private NodeState toNodeState() {
+            return new NodeState(status, exitCode, Math.max(0, starts - 1), crashed, timestamp);
+        }
+    }
+
+    public DockerContainerStateCache(DockerClient dockerClient, NodeStateListener listener) {
+        this.dockerClient = dockerClient;
+        this.listener = listener;
+        containerIdToState = new ConcurrentHashMap<>();
+        nodeNameToState = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Starts receiving the events in a background daemon thread. The events of the containers created after this call
+     * are never missed.
+     * @param threadName the name of the event receiving thread
+     */
+    public void start(String threadName) {
+        long since = System.currentTimeMillis() / 1000 - 1;
+        eventThread = new Thread(() -> receiveEvents(since), threadName);
+        eventThread.setDaemon(true);
+        eventThread.start();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        EventStream currentEventStream = eventStream;
+        if (currentEventStream != null) {
+            currentEventStream.close();
+        }
+        if (eventThread != null) {
+            eventThread.interrupt();
+        }
+    }
+
+    public void register(String nodeName, DockerContainerInfo containerInfo) {
+        ContainerState containerState = new ContainerState(nodeName, containerInfo);
+        containerIdToState.put(containerInfo.containerId(), containerState);
+        nodeNameToState.put(nodeName, containerState);
+    }
+
+    /**
+     * @return the last known state of the node's container or null if the node is not registered
+     */
+    public NodeState getNodeState(String nodeName) {
+        ContainerState containerState = nodeNameToState.get(nodeName);
+        if (containerState == null) {
+            return null;
+        }
+        synchronized (containerState) {
+            return containerState.toNodeState();
+        }
+    }
+
+    /**
+     * @return true if the node's container is known not to be running. When the events stream is not connected, the
+     * state is unknown and false is returned
+     */
+    public boolean isKnownNotRunning(String nodeName) {
+        NodeState nodeState = getNodeState(nodeName);
+        return connected && nodeState != null && !nodeState.isRunning();
+    }
+
+    /**
+     * @return true if the node's container is known to be running. When the events stream is not connected, the state
+     * is unknown and false is returned
+     */
+    public boolean isKnownRunning(String nodeName) {
+        NodeState nodeState = getNodeState(nodeName);
+        return connected && nodeState != null && nodeState.isRunning();
+    }
+
+    /**
+     * @return the number of times the node's container is started or 0 if the node is not registered
+     */
+    public int getStartCount(String nodeName) {
+        ContainerState containerState = nodeNameToState.get(nodeName);
+        if (containerState == null) {
+            return 0;
+        }
+        synchronized (containerState) {
+            return containerState.starts;
+        }
+    }
+
+    /**
+     * @return the number of times the node's container is exited or 0 if the node is not registered
+     */
+    public int getExitCount(String nodeName) {
+        ContainerState containerState = nodeNameToState.get(nodeName);
+        if (containerState == null) {
+            return 0;
+        }
+        synchronized (containerState) {
+            return containerState.exits;
+        }
+    }
+
+    /**
+     * Marks the next exit of the node's container as caused by the runtime engine, so it won't be reported as a crash
+     */
+    public void expectExit(String nodeName) {
+        setExitExpected(nodeName, true);
+    }
+
+    /**
+     * Reverts a previous {@link #expectExit(String)} call when the operation that was supposed to stop the node's
+     * container has failed, so a later exit of the container is reported as a crash again
+     */
+    public void cancelExpectedExit(String nodeName) {
+        setExitExpected(nodeName, false);
+    }
+
+    private void setExitExpected(String nodeName, boolean exitExpected) {
+        ContainerState containerState = nodeNameToState.get(nodeName);
+        if (containerState == null) {
+            return;
+        }
+        synchronized (containerState) {
+            containerState.exitExpected = exitExpected;
+        }
+    }
+
+    /**
+     * Waits for the container of the node to be started after the given number of starts. If the start event is not
+     * received in time, the state is refreshed through an inspect call.
+     */
+    public void awaitStart(String nodeName, int previousStarts) {
+        if (!await(nodeName, containerState -> containerState.starts > previousStarts)) {
+            refresh(nodeName);
+        }
+    }
+
+    /**
+     * Waits for the container of the node to exit after the given number of exits. If the exit event is not received
+     * in time, the state is refreshed through an inspect call.
+     */
+    public void awaitExit(String nodeName, int previousExits) {
+        if (!await(nodeName, containerState -> containerState.exits > previousExits)) {
+            refresh(nodeName);
+        }
+    }
+
+    private boolean await(String nodeName, Predicate<ContainerState> condition) {
+        ContainerState containerState = nodeNameToState.get(nodeName);
+        if (containerState == null) {
+            return true;
+        }
+        long deadline = System.currentTimeMillis() + EVENT_WAIT_TIMEOUT_MILLIS;
+        synchronized (containerState) {
+            try {
+                while (!condition.test(containerState) && connected) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        logger.debug("Timed out waiting for the docker events of node {}", nodeName);
+                        break;
+                    }
+                    containerState.wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return condition.test(containerState);
+        }
+    }
+
+    /**
+     * Updates the state of the node's container through an inspect call
+     */
+    public void refresh(String nodeName) {
+        ContainerState containerState = nodeNameToState.get(nodeName);
+        if (containerState == null) {
+            return;
+        }
+        NodeState.Status status;
+        Integer exitCode = null;
+        try {
+            ContainerInfo containerInfo = dockerClient.inspectContainer(containerState.containerInfo.containerId());
+            if (Boolean.TRUE.equals(containerInfo.state().running())) {
+                status = NodeState.Status.RUNNING;
+            } else {
+                status = NodeState.Status.EXITED;
+                exitCode = containerInfo.state().exitCode() == null ? null : containerInfo.state().exitCode().intValue();
+            }
+        } catch (ContainerNotFoundException e) {
+            status = NodeState.Status.REMOVED;
+        } catch (DockerException | InterruptedException e) {
+            logger.debug("Error while trying to inspect the container of node {}", nodeName, e);
+            return;
+        }
+
+        synchronized (containerState) {
+            if (containerState.status == status) {
+                return;
+            }
+            if (status == NodeState.Status.RUNNING) {
+                containerState.containerInfo.setPortMapping(null);
+            } else if (status == NodeState.Status.EXITED) {
+                containerState.crashed = containerState.status == NodeState.Status.RUNNING && !containerState.exitExpected;
+                containerState.exitExpected = false;
+            }
+            containerState.status = status;
+            containerState.exitCode = exitCode;
+            containerState.timestamp = System.currentTimeMillis();
+        }
+        notifyListener(containerState);
+    }
+
+    private void receiveEvents(long since) {
+        Map.Entry<String, String> ownerLabel = DockerReaper.getOwnerLabels().entrySet().iterator().next();
+        while (!closed) {
+            // After a reconnection, the events since the last received one are sent again and should be skipped
+            long replayedUntilNano = lastEventTimeNano;
+            long sinceSeconds = lastEventTimeNano == 0 ? since : lastEventTimeNano / 1000000000L;
+            try (EventStream stream = dockerClient.events(
+                    DockerClient.EventsParam.type(Event.Type.CONTAINER),
+                    DockerClient.EventsParam.label(ownerLabel.getKey(), ownerLabel.getValue()),
+                    DockerClient.EventsParam.since(sinceSeconds))) {
+                eventStream = stream;
+                connected = true;
+                while (!closed && stream.hasNext()) {
+                    Event event = stream.next();
+                    if (event.timeNano() != null) {
+                        if (event.timeNano() <= replayedUntilNano) {
+                            continue;
+                        }
+                        lastEventTimeNano = event.timeNano();
+                    }
+                    handleEvent(event);
+                }
+            } catch (DockerException | InterruptedException | RuntimeException e) {
+                if (!closed) {
+                    logger.warn("Docker events stream is disconnected. Reconnecting ...", e);
+                }
+            } finally {
+                connected = false;
+                eventStream = null;
+                // Wakes up the waiters so they fall back to inspecting the containers
+                for (ContainerState containerState: nodeNameToState.values()) {
+                    synchronized (containerState) {
+                        containerState.notifyAll();
+                    }
+                }
+            }
+
+            if (!closed) {
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void handleEvent(Event event) {
+        String containerId = event.actor() == null ? null : event.actor().id();
+        ContainerState containerState = containerId == null ? null : containerIdToState.get(containerId);
+        String action = event.action();
+        if (containerState == null || action == null) {
+            return;
+        }
+
+        synchronized (containerState) {
+            switch (action) {
+                case "start":
+                    containerState.starts++;
+                    containerState.status = NodeState.Status.RUNNING;
+                    containerState.exitCode = null;
+                    containerState.crashed = false;
+                    containerState.exitExpected = false;
+                    // The host ports are assigned again on each start
+                    containerState.containerInfo.setPortMapping(null);
+                    break;
+                case "die":
+                    containerState.exits++;
+                    containerState.status = NodeState.Status.EXITED;
+                    containerState.exitCode = getExitCode(event);
+                    containerState.crashed = !containerState.exitExpected;
+                    containerState.exitExpected = false;
+                    break;
+                case "destroy":
+                    containerState.status = NodeState.Status.REMOVED;
+                    break;
+                default:
+                    return;
+            }
+            containerState.timestamp = System.currentTimeMillis();
+            containerState.notifyAll();
+        }
+        notifyListener(containerState);
+    }
+
+    private static Integer getExitCode(Event event) {
+        if (event.actor() == null || event.actor().attributes() == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(event.actor().attributes().get("exitCode"));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void notifyListener(ContainerState containerState) {
+        NodeState nodeState;
+        synchronized (containerState) {
+            nodeState = containerState.toNodeState();
+        }
+        if (nodeState.getStatus() == NodeState.Status.EXITED && nodeState.isCrashed()) {
+            logger.warn("Node {} exited unexpectedly with exit code {}!", containerState.nodeName, nodeState.getExitCode());
+        }
+        listener.nodeStateChanged(containerState.nodeName, nodeState);
+    }
+}
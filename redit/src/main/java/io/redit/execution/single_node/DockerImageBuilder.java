@@ -0,0 +1,218 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.single_node;
+
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.LoggingBuildHandler;
+import com.spotify.docker.client.exceptions.DockerException;
+import io.redit.Constants;
+import io.redit.dsl.entities.Service;
+import io.redit.exceptions.RuntimeEngineException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Builds the docker images of the services that are defined by a Dockerfile. Every image is tagged with a hash of its
+ * Dockerfile and build context, so an image is only built when there is no image with the same hash and unchanged
+ * images are reused across runs. The missing images are built in parallel and services sharing the same Dockerfile
+ * and build context share a single build even if their image names differ. The resulting image is then tagged with the
+ * hashed and the plain image name of each service.
+ */
+class DockerImageBuilder {
+    private final static Logger logger = LoggerFactory.getLogger(DockerImageBuilder.class);
+    private static final int HASH_LENGTH = 12;
+
+    private final DockerClient dockerClient;
+
+    DockerImageBuilder(DockerClient dockerClient) {
+        this.dockerClient = dockerClient;
+    }
+
+    public void build(Collection<Service> services) throws RuntimeEngineException {
+        // The services are grouped by the hash of their build context alone, as the image names don't affect the build
+        Map<String, List<Service>> servicesByHash = new LinkedHashMap<>();
+        for (Service service: services) {
+            if (service.getDockerFileAddress() != null) {
+                servicesByHash.computeIfAbsent(hashBuildContext(Paths.get(service.getDockerFileAddress())),
+                        k -> new ArrayList<>()).add(service);
+            }
+        }
+
+        if (servicesByHash.isEmpty()) {
+            return;
+        }
+
+        int parallelism = Math.min(servicesByHash.size(), Math.max(1, Integer.getInteger(
+                Constants.NODE_TASK_PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors())));
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "redit-image-builder-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            Map<String, Future<?>> pendingBuilds = new LinkedHashMap<>();
+            for (Map.Entry<String, List<Service>> entry: servicesByHash.entrySet()) {
+                pendingBuilds.put(entry.getKey(), executorService.submit(() -> {
+                    buildAndTag(entry.getKey(), entry.getValue());
+                    return null;
+                }));
+            }
+
+            RuntimeEngineException failure = null;
+            for (Map.Entry<String, Future<?>> pendingBuild: pendingBuilds.entrySet()) {
+                try {
+                    pendingBuild.getValue().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeEngineException("Interrupted while building docker images!", e);
+                } catch (ExecutionException e) {
+                    RuntimeEngineException exception = e.getCause() instanceof RuntimeEngineException ?
+                            (RuntimeEngineException) e.getCause() :
+                            new RuntimeEngineException("Error while building docker image with hash "
+                                    + pendingBuild.getKey() + "!", e.getCause());
+                    if (failure == null) {
+                        failure = exception;
+                    } else {
+                        failure.addSuppressed(exception);
+                    }
+                }
+            }
+
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Builds the image of the services sharing the given build context hash unless any of the services already has an
+     * image with the hash, and tags the image with the hashed and the plain image name of each of the services
+     */
+    private void buildAndTag(String hash, List<Service> services) throws RuntimeEngineException {
+        String serviceNames = services.stream().map(Service::getName).collect(Collectors.joining(", "));
+        boolean forceBuild = services.stream().anyMatch(Service::getDockerImageForceBuild);
+        Set<String> hashedImageNames = new LinkedHashSet<>();
+        for (Service service: services) {
+            hashedImageNames.add(getHashedImageName(service, hash));
+        }
+        try {
+            String builtImageName = null;
+            if (!forceBuild) {
+                for (String hashedImageName: hashedImageNames) {
+                    if (!dockerClient.listImages(DockerClient.ListImagesParam.byName(hashedImageName)).isEmpty()) {
+                        builtImageName = hashedImageName;
+                        break;
+                    }
+                }
+            }
+            if (builtImageName == null) {
+                builtImageName = hashedImageNames.iterator().next();
+                logger.info("Building docker image `{}` for service(s) {} ...", builtImageName, serviceNames);
+                Path dockerFile = Paths.get(services.get(0).getDockerFileAddress());
+                dockerClient.build(dockerFile.getParent(), builtImageName,
+                        new LoggingBuildHandler(),
+                        DockerClient.BuildParam.forceRm(),
+                        DockerClient.BuildParam.dockerfile(dockerFile.getFileName()));
+            } else {
+                logger.info("Docker image `{}` for service(s) {} is up to date", builtImageName, serviceNames);
+            }
+
+            for (String hashedImageName: hashedImageNames) {
+                if (!hashedImageName.equals(builtImageName)) {
+                    dockerClient.tag(builtImageName, hashedImageName, true);
+                }
+            }
+            for (Service service: services) {
+                dockerClient.tag(builtImageName, service.getDockerImageName(), true);
+            }
+        } catch (InterruptedException | IOException | DockerException e) {
+            throw new RuntimeEngineException("Error while building docker image for service(s) " + serviceNames + "!", e);
+        }
+    }
+
+    private static String getHashedImageName(Service service, String hash) {
+        String imageName = service.getDockerImageName();
+        // The tag is only after the last slash since the registry part of the name may contain a port number
+        int tagIndex = imageName.lastIndexOf(':');
+        String repository = tagIndex > imageName.lastIndexOf('/') ? imageName.substring(0, tagIndex) : imageName;
+        return repository + ":" + Constants.DOCKER_IMAGE_HASH_TAG_PREFIX + hash;
+    }
+
+    /**
+     * The hash covers the Dockerfile name and the relative path and content of every regular file in the build context,
+     * which is the directory of the Dockerfile
+     */
+    static String hashBuildContext(Path dockerFile) throws RuntimeEngineException {
+        Path context = dockerFile.getParent();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(dockerFile.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+
+            List<Path> files;
+            try (Stream<Path> paths = Files.walk(context)) {
+                files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+
+            byte[] buffer = new byte[64 * 1024];
+            for (Path file: files) {
+                digest.update((byte) 0);
+                digest.update(context.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                try (InputStream inputStream = Files.newInputStream(file)) {
+                    int read;
+                    while ((read = inputStream.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+            }
+
+            StringBuilder hash = new StringBuilder();
+            for (byte b: digest.digest()) {
+                hash.append(String.format("%02x", b));
+            }
+            return hash.substring(0, HASH_LENGTH);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new RuntimeEngineException("Error while hashing the build context of Dockerfile " + dockerFile + "!", e);
+        }
+    }
+}
@@ -34,6 +34,7 @@ import io.redit.exceptions.RuntimeEngineException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.net.SocketException;
@@ -43,49 +44,63 @@ import java.util.*;
 public class DockerNetworkManager {
     private final static Logger logger = LoggerFactory.getLogger(DockerNetworkManager.class);
 
+    // The number of times a network is tried to be created with a free subnet. Creating a network only fails with a
+    // free subnet if another process creates a network with the same subnet at the same time
+    private final static int MAX_NETWORK_CREATION_ATTEMPTS = 10;
+
     private final DockerClient dockerClient;
     private final String dockerNetworkId;
     private final String dockerNetworkName;
-    private final String ipPrefix;
+    private final DockerSubnetAllocator.Subnet subnet;
+    private final DockerSubnetAllocator.IpAddressPool ipAddressPool;
     private final String hostIp;
-    private Integer currentIp;
 
-    public DockerNetworkManager(String deploymentName, DockerClient dockerClient)
+    /**
+     * @param routedThroughHost whether the containers are reached by the containers of other docker daemons of the
+     *                          host. The source addresses of such networks are not masqueraded, so the network
+     *                          partitions can match the addresses of the nodes of the other daemons. As a result, the
+     *                          containers of such networks can only reach the host and the containers of the daemons
+     *                          of the host, and not any address outside of the host
+     */
+    public DockerNetworkManager(String deploymentName, DockerClient dockerClient, boolean routedThroughHost)
             throws RuntimeEngineException {
         this.dockerClient = dockerClient;
 
         dockerNetworkName = Constants.DOCKER_NETWORK_NAME_PREFIX + deploymentName + "_" + Instant.now().getEpochSecond();
+        Set<DockerSubnetAllocator.Subnet> usedSubnets = DockerSubnetAllocator.getUsedSubnets(dockerClient);
         String tempNetworkId = null;
-        String gateway = null, subnet = null, tempIpPrefix = null;
-
-        // TODO is this the best way to generate subnets?
-        for (int i=2; i<255; i++) {
-            subnet = "10." + i + ".0.0/16";
-            gateway = "10." + i + ".0.1";
-            tempIpPrefix = "10." + i + ".0.";
+        DockerSubnetAllocator.Subnet tempSubnet = null;
 
+        for (int attempt = 1; tempNetworkId == null; attempt++) {
+            tempSubnet = DockerSubnetAllocator.reserveSubnet(usedSubnets);
             try {
                 tempNetworkId = dockerClient.createNetwork(NetworkConfig.builder()
                         .driver("bridge")
                         .name(dockerNetworkName)
-                        .ipam(Ipam.create("default", Arrays.asList(IpamConfig.create(subnet, null, gateway))))
+                        .labels(DockerReaper.getOwnerLabels())
+                        .options(routedThroughHost ? Collections.singletonMap(
+                                "com.docker.network.bridge.enable_ip_masquerade", "false") : Collections.emptyMap())
+                        .ipam(Ipam.create("default", Arrays.asList(IpamConfig.create(tempSubnet.toString(), null,
+                                tempSubnet.gateway()))))
                         .build()).id();
                 logger.info("Docker network {} is created!", tempNetworkId);
-                break;
             } catch (InterruptedException | DockerException e) {
-                logger.debug("Creating docker network with subnet {} and gateway {} failed", subnet, gateway);
+                DockerSubnetAllocator.releaseSubnet(tempSubnet);
+                if (attempt >= MAX_NETWORK_CREATION_ATTEMPTS) {
+                    throw new RuntimeEngineException("Error in creating docker network!", e);
+                }
+                logger.debug("Creating docker network with subnet {} failed", tempSubnet, e);
+                // The subnet may be taken by another process in the meantime
+                usedSubnets.add(tempSubnet);
+                usedSubnets.addAll(DockerSubnetAllocator.getUsedSubnets(dockerClient));
             }
         }
 
-        if (tempNetworkId == null) {
-            throw new RuntimeEngineException("Error in creating docker network!");
-        }
-
         dockerNetworkId = tempNetworkId;
         hostIp = dockerClient.getHost();
-        ipPrefix = tempIpPrefix;
-        currentIp = 2;
-        logger.info("Gateway is {}", gateway);
+        subnet = tempSubnet;
+        ipAddressPool = new DockerSubnetAllocator.IpAddressPool(subnet);
+        logger.info("Gateway is {}", subnet.gateway());
         logger.info("Subnet is {}", subnet);
     }
 
@@ -101,6 +116,7 @@ public class DockerNetworkManager {
         try {
             if (dockerNetworkId != null) {
                 dockerClient.removeNetwork(dockerNetworkId);
+                DockerSubnetAllocator.releaseSubnet(subnet);
             }
         } catch (InterruptedException | DockerException e) {
             throw new RuntimeEngineException("Error in deleting docker network" + dockerNetworkId + "!", e);
@@ -117,7 +133,8 @@ public class DockerNetworkManager {
                 NetworkInterface networkInterface = en.nextElement();
                 for (Enumeration<InetAddress> enIp = networkInterface.getInetAddresses(); enIp.hasMoreElements();) {
                     InetAddress inetAddress = enIp.nextElement();
-                    if (inetAddress.getHostAddress().startsWith(ipPrefix)) {
+                    if (inetAddress instanceof Inet4Address
+                            && subnet.contains(DockerSubnetAllocator.toLong(inetAddress.getAddress()))) {
                         return inetAddress.getHostAddress();
                     }
                 }
@@ -128,7 +145,19 @@ public class DockerNetworkManager {
         }
     }
 
-    public String getNewIpAddress() {
-        return ipPrefix + currentIp++;
+    /**
+     * @return a free ip address in the subnet of the network. The released addresses are reused
+     * @throws RuntimeEngineException if no ip address is left in the subnet
+     */
+    public String getNewIpAddress() throws RuntimeEngineException {
+        return ipAddressPool.allocate();
+    }
+
+    /**
+     * Returns the ip address of a removed container to the network, so it can be given to the next containers
+     * @param ipAddress the ip address to be released
+     */
+    public void releaseIpAddress(String ipAddress) {
+        ipAddressPool.release(ipAddress);
     }
 }
@@ -0,0 +1,127 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.single_node;
+
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.exceptions.DockerException;
+import com.spotify.docker.client.messages.Container;
+import com.spotify.docker.client.messages.Network;
+import io.redit.Constants;
+import io.redit.util.HostUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Removes the containers and networks that are left behind by the Redit runs whose JVM died before cleaning up. All of
+ * the containers and networks created by Redit are labeled with the id, hostname, pid namespace and start time of the
+ * owner process, and only the ones whose owner is known to be dead are removed. Containers and networks created by a
+ * process on another host or in another pid namespace, e.g. another container sharing the docker daemon, or by a still
+ * running process are never touched.
+ */
+public class DockerReaper {
+    private final static Logger logger = LoggerFactory.getLogger(DockerReaper.class);
+
+    private final DockerClient dockerClient;
+
+    public DockerReaper(DockerClient dockerClient) {
+        this.dockerClient = dockerClient;
+    }
+
+    /**
+     * @return the labels to be added to every container and network created by the current process
+     */
+    public static Map<String, String> getOwnerLabels() {
+        return Collections.singletonMap(Constants.DOCKER_OWNER_LABEL, HostUtil.getProcessOwnerId());
+    }
+
+    /**
+     * Removes the orphaned containers and then the orphaned networks. Errors are logged and do not stop the reaping.
+     */
+    public void reap() {
+        int reapedContainers = reapContainers();
+        int reapedNetworks = reapNetworks();
+        if (reapedContainers > 0 || reapedNetworks > 0) {
+            logger.info("Reaped {} orphaned containers and {} orphaned networks", reapedContainers, reapedNetworks);
+        }
+    }
+
+    /**
+     * Runs {@link #reap()} in a background daemon thread
+     */
+    public void reapInBackground() {
+        Thread reaperThread = new Thread(this::reap, "redit-reaper");
+        reaperThread.setDaemon(true);
+        reaperThread.start();
+    }
+
+    public int reapContainers() {
+        int reaped = 0;
+        try {
+            for (Container container: dockerClient.listContainers(DockerClient.ListContainersParam.allContainers(),
+                    DockerClient.ListContainersParam.withLabel(Constants.DOCKER_OWNER_LABEL))) {
+                if (isOrphaned(container.labels())) {
+                    try {
+                        logger.info("Removing orphaned container {} {}", container.id(), container.names());
+                        dockerClient.removeContainer(container.id(), DockerClient.RemoveContainerParam.forceKill());
+                        reaped++;
+                    } catch (DockerException e) {
+                        logger.warn("Error while trying to remove orphaned container {}!", container.id(), e);
+                    }
+                }
+            }
+        } catch (DockerException | InterruptedException e) {
+            logger.warn("Error while trying to list the containers to be reaped!", e);
+        }
+        return reaped;
+    }
+
+    public int reapNetworks() {
+        int reaped = 0;
+        try {
+            for (Network network: dockerClient.listNetworks(
+                    DockerClient.ListNetworksParam.withLabel(Constants.DOCKER_OWNER_LABEL))) {
+                if (isOrphaned(network.labels())) {
+                    try {
+                        logger.info("Removing orphaned network {} {}", network.id(), network.name());
+                        dockerClient.removeNetwork(network.id());
+                        reaped++;
+                    } catch (DockerException e) {
+                        logger.warn("Error while trying to remove orphaned network {}!", network.id(), e);
+                    }
+                }
+            }
+        } catch (DockerException | InterruptedException e) {
+            logger.warn("Error while trying to list the networks to be reaped!", e);
+        }
+        return reaped;
+    }
+
+    private boolean isOrphaned(Map<String, String> labels) {
+        return labels != null && HostUtil.isProcessOwnerDead(labels.get(Constants.DOCKER_OWNER_LABEL));
+    }
+}
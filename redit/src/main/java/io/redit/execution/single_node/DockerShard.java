@@ -0,0 +1,121 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.single_node;
+
+import com.spotify.docker.client.DefaultDockerClient;
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.exceptions.DockerCertificateException;
+import io.redit.Constants;
+import io.redit.exceptions.RuntimeEngineException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One of the docker daemons that the nodes of a deployment are spread across, together with the network of the
+ * deployment in the daemon and the state cache of its containers. The daemons are configured through the
+ * {@link Constants#DOCKER_HOSTS_PROPERTY} system property and the daemon of the environment is used if it is not set.
+ */
+class DockerShard {
+    private final int index;
+    private final String endpoint;
+    private final DockerClient dockerClient;
+    private volatile DockerNetworkManager networkManager;
+    private volatile DockerContainerStateCache containerStateCache;
+
+    private DockerShard(int index, String endpoint, DockerClient dockerClient) {
+        this.index = index;
+        this.endpoint = endpoint;
+        this.dockerClient = dockerClient;
+    }
+
+    /**
+     * @return a shard for each of the docker endpoints in the {@link Constants#DOCKER_HOSTS_PROPERTY} system property
+     * or a single shard for the docker daemon of the environment if the property is not set
+     * @throws RuntimeEngineException if a docker client cannot be created
+     */
+    static List<DockerShard> createShards() throws RuntimeEngineException {
+        List<DockerShard> shards = new ArrayList<>();
+        String dockerHosts = System.getProperty(Constants.DOCKER_HOSTS_PROPERTY, "").trim();
+        if (dockerHosts.isEmpty()) {
+            try {
+                DockerClient dockerClient = DefaultDockerClient.fromEnv().build();
+                shards.add(new DockerShard(0, dockerClient.getHost(), dockerClient));
+            } catch (DockerCertificateException e) {
+                throw new RuntimeEngineException("Cannot create docker client!", e);
+            }
+            return shards;
+        }
+
+        for (String endpoint: dockerHosts.split(",")) {
+            endpoint = endpoint.trim();
+            if (endpoint.isEmpty()) {
+                continue;
+            }
+            try {
+                shards.add(new DockerShard(shards.size(), endpoint, DefaultDockerClient.builder().uri(endpoint).build()));
+            } catch (IllegalArgumentException e) {
+                for (DockerShard shard: shards) {
+                    shard.client().close();
+                }
+                throw new RuntimeEngineException("Cannot create docker client for endpoint " + endpoint + "!", e);
+            }
+        }
+        return shards;
+    }
+
+    int index() {
+        return index;
+    }
+
+    String endpoint() {
+        return endpoint;
+    }
+
+    DockerClient client() {
+        return dockerClient;
+    }
+
+    DockerNetworkManager networkManager() {
+        return networkManager;
+    }
+
+    void setNetworkManager(DockerNetworkManager networkManager) {
+        this.networkManager = networkManager;
+    }
+
+    DockerContainerStateCache containerStateCache() {
+        return containerStateCache;
+    }
+
+    void setContainerStateCache(DockerContainerStateCache containerStateCache) {
+        this.containerStateCache = containerStateCache;
+    }
+
+    @Override
+    public String toString() {
+        return "shard " + index + " (" + endpoint + ")";
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.single_node;
+
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.exceptions.DockerException;
+import com.spotify.docker.client.messages.IpamConfig;
+import com.spotify.docker.client.messages.Network;
+import io.redit.Constants;
+import io.redit.exceptions.RuntimeEngineException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.Inet4Address;
+import java.net.InterfaceAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.util.*;
+
+/**
+ * Picks the subnets of the docker networks out of a configurable pool. The existing docker networks and the networks of
+ * the host interfaces are listed once and a free subnet is picked locally, so creating a network normally takes a
+ * single api call. The subnets that are picked in this JVM are reserved until their networks are deleted, so the
+ * runners that start in parallel don't pick the same subnet.
+ */
+class DockerSubnetAllocator {
+    private final static Logger logger = LoggerFactory.getLogger(DockerSubnetAllocator.class);
+    private final static String DEFAULT_SUBNET_POOL = "10.0.0.0/8";
+    private final static int DEFAULT_SUBNET_PREFIX_LENGTH = 16;
+
+    private final static Set<Subnet> reservedSubnets = new HashSet<>();
+
+    private DockerSubnetAllocator() {
+    }
+
+    /**
+     * @return the subnets that are used by the existing docker networks and the host interfaces
+     * @throws RuntimeEngineException if the docker networks cannot be listed
+     */
+    static Set<Subnet> getUsedSubnets(DockerClient dockerClient) throws RuntimeEngineException {
+        Set<Subnet> usedSubnets = new HashSet<>();
+        try {
+            for (Network network: dockerClient.listNetworks()) {
+                if (network.ipam() == null || network.ipam().config() == null) {
+                    continue;
+                }
+                for (IpamConfig ipamConfig: network.ipam().config()) {
+                    Subnet subnet = Subnet.parseOrNull(ipamConfig.subnet());
+                    if (subnet != null) {
+                        usedSubnets.add(subnet);
+                    }
+                }
+            }
+        } catch (InterruptedException | DockerException e) {
+            throw new RuntimeEngineException("Error while listing the docker networks!", e);
+        }
+
+        try {
+            for (NetworkInterface networkInterface: Collections.list(NetworkInterface.getNetworkInterfaces())) {
+                for (InterfaceAddress interfaceAddress: networkInterface.getInterfaceAddresses()) {
+                    if (interfaceAddress.getAddress() instanceof Inet4Address) {
+                        usedSubnets.add(Subnet.of(toLong(interfaceAddress.getAddress().getAddress()),
+                                interfaceAddress.getNetworkPrefixLength()));
+                    }
+                }
+            }
+        } catch (SocketException e) {
+            logger.warn("Cannot list the host interfaces to exclude their networks from the docker subnets", e);
+        }
+        return usedSubnets;
+    }
+
+    /**
+     * Reserves the first subnet of the pool which doesn't overlap the given used subnets and the subnets reserved in
+     * this JVM. The pool and the prefix length of the subnets are configured through the
+     * {@link Constants#DOCKER_SUBNET_POOL_PROPERTY} and {@link Constants#DOCKER_SUBNET_PREFIX_LENGTH_PROPERTY} system
+     * properties
+     * @param usedSubnets the subnets that should not be overlapped
+     * @return the reserved subnet
+     * @throws RuntimeEngineException if there is no free subnet in the pool
+     */
+    static Subnet reserveSubnet(Set<Subnet> usedSubnets) throws RuntimeEngineException {
+        Subnet pool = Subnet.parse(System.getProperty(Constants.DOCKER_SUBNET_POOL_PROPERTY, DEFAULT_SUBNET_POOL));
+        int prefixLength = Integer.getInteger(Constants.DOCKER_SUBNET_PREFIX_LENGTH_PROPERTY,
+                DEFAULT_SUBNET_PREFIX_LENGTH);
+        if (prefixLength < pool.prefixLength || prefixLength > 30) {
+            throw new RuntimeEngineException("The docker subnet prefix length " + prefixLength + " should be between "
+                    + pool.prefixLength + " and 30 for subnet pool " + pool + "!");
+        }
+
+        synchronized (reservedSubnets) {
+            for (long base = pool.base; base < pool.base + pool.size(); base += 1L << (32 - prefixLength)) {
+                Subnet candidate = Subnet.of(base, prefixLength);
+                if (!overlapsAny(candidate, usedSubnets) && !overlapsAny(candidate, reservedSubnets)) {
+                    reservedSubnets.add(candidate);
+                    return candidate;
+                }
+            }
+        }
+        throw new RuntimeEngineException("No free subnet with prefix length " + prefixLength + " is left in subnet pool "
+                + pool + "!");
+    }
+
+    static void releaseSubnet(Subnet subnet) {
+        synchronized (reservedSubnets) {
+            reservedSubnets.remove(subnet);
+        }
+    }
+
+    private static boolean overlapsAny(Subnet subnet, Collection<Subnet> subnets) {
+        for (Subnet other: subnets) {
+            if (subnet.overlaps(other)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static long toLong(byte[] address) {
+        long value = 0;
+        for (byte b: address) {
+            value = (value << 8) | (b & 0xff);
+        }
+        return value;
+    }
+
+    static String toString(long address) {
+        return ((address >> 24) & 0xff) + "." + ((address >> 16) & 0xff) + "." + ((address >> 8) & 0xff) + "."
+                + (address & 0xff);
+    }
+
+    static long parseAddress(String address) {
+        String[] octets = address.trim().split("\\.");
+        if (octets.length != 4) {
+            throw new IllegalArgumentException("Invalid ipv4 address " + address);
+        }
+        long value = 0;
+        for (String octet: octets) {
+            int octetValue = Integer.parseInt(octet);
+            if (octetValue < 0 || octetValue > 255) {
+                throw new IllegalArgumentException("Invalid ipv4 address " + address);
+            }
+            value = (value << 8) | octetValue;
+        }
+        return value;
+    }
+
+    /**
+     * An ipv4 subnet
+     */
+    static class Subnet {
+        private final long base;
+        private final int prefixLength;
+
+        private Subnet(long base, int prefixLength) {
+            this.base = base;
+            this.prefixLength = prefixLength;
+        }
+
+        static Subnet of(long address, int prefixLength) {
+            long mask = prefixLength == 0 ? 0 : (0xffffffffL << (32 - prefixLength)) & 0xffffffffL;
+            return new Subnet(address & mask, prefixLength);
+        }
+
+        /**
+         * @param cidr the subnet in the CIDR notation, e.g. 10.0.0.0/8
+         */
+        static Subnet parse(String cidr) throws RuntimeEngineException {
+            Subnet subnet = parseOrNull(cidr);
+            if (subnet == null) {
+                throw new RuntimeEngineException("Invalid ipv4 subnet " + cidr + "!");
+            }
+            return subnet;
+        }
+
+        private static Subnet parseOrNull(String cidr) {
+            if (cidr == null) {
+                return null;
+            }
+            String[] parts = cidr.split("/");
+            if (parts.length != 2) {
+                return null;
+            }
+            try {
+                int prefixLength = Integer.parseInt(parts[1].trim());
+                if (prefixLength < 0 || prefixLength > 32) {
+                    return null;
+                }
+                return of(parseAddress(parts[0]), prefixLength);
+            } catch (RuntimeException e) {
+                // ipv6 subnets
+                return null;
+            }
+        }
+
+        long size() {
+            return 1L << (32 - prefixLength);
+        }
+
+        long base() {
+            return base;
+        }
+
+        boolean contains(long address) {
+            return address >= base && address < base + size();
+        }
+
+        boolean overlaps(Subnet other) {
+            return base < other.base + other.size() && other.base < base + size();
+        }
+
+        String gateway() {
+            return DockerSubnetAllocator.toString(base + 1);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Subnet subnet = (Subnet) o;
+            return base == subnet.base && prefixLength == subnet.prefixLength;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(base, prefixLength);
+        }
+
+        @Override
+        public String toString() {
+            return DockerSubnetAllocator.toString(base) + "/" + prefixLength;
+        }
+    }
+
+    /**
+     * Allocates the ip addresses of a subnet. The network address, the gateway and the broadcast address are never
+     * allocated and the released addresses are reused before the ones that are never allocated.
+     */
+    static class IpAddressPool {
+        private final Subnet subnet;
+        private final TreeSet<Long> releasedAddresses;
+        private long nextAddress;
+
+        IpAddressPool(Subnet subnet) {
+            this.subnet = subnet;
+            this.releasedAddresses = new TreeSet<>();
+            // the first address of the subnet is the network address and the second one is the gateway
+            this.nextAddress = subnet.base() + 2;
+        }
+
+        synchronized String allocate() throws RuntimeEngineException {
+            if (!releasedAddresses.isEmpty()) {
+                return DockerSubnetAllocator.toString(releasedAddresses.pollFirst());
+            }
+            // the last address of the subnet is the broadcast address
+            if (nextAddress >= subnet.base() + subnet.size() - 1) {
+                throw new RuntimeEngineException("No ip address is left in subnet " + subnet + "!");
+            }
+            return DockerSubnetAllocator.toString(nextAddress++);
+        }
+
+        synchronized void release(String ipAddress) {
+            long address = parseAddress(ipAddress);
+            if (subnet.contains(address) && address >= subnet.base() + 2 && address < nextAddress) {
+                releasedAddresses.add(address);
+            }
+        }
+    }
+}
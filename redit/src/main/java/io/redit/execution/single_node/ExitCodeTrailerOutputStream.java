@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.single_node;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The stderr stream of an exec whose command is wrapped by {@link #wrap(String)}. The wrapper writes the exit code of
+ * the command as a trailer at the end of the stderr, so the exit code is known as soon as the output stream of the
+ * exec is closed by docker without inspecting the exec until docker marks it as finished. The stream holds back the
+ * last few bytes that may be the start of the trailer and passes the rest through to the given stream as it comes.
+ */
+class ExitCodeTrailerOutputStream extends OutputStream {
+    private final static String MARKER = "@@redit-exit-code@@";
+    private final static byte[] MARKER_BYTES = MARKER.getBytes(StandardCharsets.UTF_8);
+    // The marker and up to 3 digits of the exit code
+    private final static int MAX_TRAILER_LENGTH = MARKER_BYTES.length + 3;
+
+    private final OutputStream out;
+    private byte[] pending;
+    private int pendingLength;
+
+    ExitCodeTrailerOutputStream(OutputStream out) {
+        this.out = out;
+        this.pending = new byte[MAX_TRAILER_LENGTH * 2];
+    }
+
+    /**
+     * @return a shell command that runs the given command and writes its exit code to the stderr as the trailer
+     */
+    static String wrap(String command) {
+        return "sh -c '" + command.replace("'", "'\\''") + "'; printf '%s%d' '" + MARKER + "' $? >&2";
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (pendingLength + length > pending.length) {
+            byte[] newPending = new byte[Math.max(pending.length * 2, pendingLength + length)];
+            System.arraycopy(pending, 0, newPending, 0, pendingLength);
+            pending = newPending;
+        }
+        System.arraycopy(bytes, offset, pending, pendingLength, length);
+        pendingLength += length;
+
+        // Passes through everything but the bytes that may be the trailer
+        int passThroughLength = pendingLength - MAX_TRAILER_LENGTH;
+        if (passThroughLength > 0) {
+            out.write(pending, 0, passThroughLength);
+            System.arraycopy(pending, passThroughLength, pending, 0, MAX_TRAILER_LENGTH);
+            pendingLength = MAX_TRAILER_LENGTH;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Writes the held back bytes other than the trailer to the given stream. This should be called after the output
+     * stream of the exec is closed
+     * @return the exit code of the command or null if there is no trailer, e.g. if the wrapper is killed
+     */
+    Integer finish() throws IOException {
+        int markerIndex = -1;
+        for (int i = pendingLength - MARKER_BYTES.length; i >= 0 && markerIndex < 0; i--) {
+            markerIndex = i;
+            for (int j = 0; j < MARKER_BYTES.length; j++) {
+                if (pending[i + j] != MARKER_BYTES[j]) {
+                    markerIndex = -1;
+                    break;
+                }
+            }
+        }
+
+        Integer exitCode = null;
+        if (markerIndex >= 0) {
+            int digitsEnd = markerIndex + MARKER_BYTES.length;
+            while (digitsEnd < pendingLength && Character.isDigit(pending[digitsEnd])) {
+                digitsEnd++;
+            }
+            String digits = new String(pending, markerIndex + MARKER_BYTES.length,
+                    digitsEnd - markerIndex - MARKER_BYTES.length, StandardCharsets.UTF_8);
+            if (!digits.isEmpty()) {
+                exitCode = Integer.parseInt(digits);
+                // The output of the background processes of the command may come after the trailer
+                out.write(pending, 0, markerIndex);
+                out.write(pending, digitsEnd, pendingLength - digitsEnd);
+            }
+        }
+        if (exitCode == null) {
+            out.write(pending, 0, pendingLength);
+        }
+        pendingLength = 0;
+        out.flush();
+        return exitCode;
+    }
+}
@@ -0,0 +1,402 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.single_node;
+
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.LogMessage;
+import com.spotify.docker.client.LogStream;
+import com.spotify.docker.client.exceptions.DockerException;
+import com.spotify.docker.client.messages.ExecState;
+import io.redit.exceptions.RuntimeEngineException;
+import io.redit.execution.NodeState;
+import io.redit.execution.NodeStateListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The process of a node in a packed container. The launcher script of the node is run through an attached exec, so
+ * the end of the exec is the exit of the node. The wrapper script of the node runs in its own session, so the node's
+ * processes form a process group that is signaled as a whole, the same way the processes of a container are. The
+ * launcher writes its own process id and then the id of the process group of the node to its stdout, and the exit
+ * code of the node as a trailer at the end of its stderr, so the watcher of the exec learns about the start and the
+ * exit of the node from the output of the exec as it comes.
+ */
+class PackedNodeProcess {
+    private final static Logger logger = LoggerFactory.getLogger(PackedNodeProcess.class);
+    private final static long PROCESS_ID_TIMEOUT_MILLIS = 5000;
+
+    private final String nodeName;
+    private final DockerClient dockerClient;
+    private final String containerId;
+    private final String[] launchCommand;
+    private final NodeStateListener listener;
+
+    private String execId;
+    private Long launcherProcessId;
+    private Long processGroupId;
+    private boolean starting;
+    private String launchOutput;
+    private NodeState.Status status;
+    private Integer exitCode;
+    private int startCount;
+    private boolean crashed;
+    private boolean expectingExit;
+    private long timestamp;
+
+    /**
+     * @param launchCommand the command that starts the node inside the container and returns when the node exits
+     */
+    PackedNodeProcess(String nodeName, DockerClient dockerClient, String containerId, String[] launchCommand,
+                      NodeStateListener listener) {
+        this.nodeName = nodeName;
+        this.dockerClient = dockerClient;
+        this.containerId = containerId;
+        this.launchCommand = launchCommand;
+        this.listener = listener;
+        status = NodeState.Status.CREATED;
+        timestamp = System.currentTimeMillis();
+    }
+
+    synchronized boolean isRunning() {
+        return status == NodeState.Status.RUNNING;
+    }
+
+    synchronized NodeState getState() {
+        return new NodeState(status, exitCode, Math.max(startCount - 1, 0), crashed, timestamp);
+    }
+
+    /**
+     * Starts the launcher of the node and waits for the launcher to write the id of the process group of the node. The
+     * lock of the process is not held while waiting, so the state of the process can be read in the meantime.
+     */
+    void start() throws RuntimeEngineException {
+        LogStream logStream;
+        String startedExecId;
+        synchronized (this) {
+            try {
+                while (starting) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeEngineException("Interrupted while waiting for the process of node " + nodeName
+                        + " to start!", e);
+            }
+            if (status == NodeState.Status.RUNNING) {
+                return;
+            }
+
+            try {
+                startedExecId = dockerClient.execCreate(containerId, launchCommand,
+                        DockerClient.ExecCreateParam.attachStdout(), DockerClient.ExecCreateParam.attachStderr()).id();
+                logStream = dockerClient.execStart(startedExecId);
+            } catch (InterruptedException | DockerException e) {
+                throw new RuntimeEngineException("Error while trying to start the process of node " + nodeName + "!", e);
+            }
+            execId = startedExecId;
+            launcherProcessId = null;
+            processGroupId = null;
+            launchOutput = null;
+            starting = true;
+        }
+
+        Thread watcher = new Thread(() -> watch(startedExecId, logStream), "redit-packed-process-" + nodeName);
+        watcher.setDaemon(true);
+        watcher.start();
+
+        Long abandonedLauncherProcessId;
+        InterruptedException interruption = null;
+        synchronized (this) {
+            long deadline = System.currentTimeMillis() + PROCESS_ID_TIMEOUT_MILLIS;
+            try {
+                for (long remaining = PROCESS_ID_TIMEOUT_MILLIS; starting && remaining > 0;
+                     remaining = deadline - System.currentTimeMillis()) {
+                    wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                interruption = e;
+            }
+            if (startedExecId.equals(execId) && processGroupId != null) {
+                if (interruption != null) {
+                    Thread.currentThread().interrupt();
+                }
+                return;
+            }
+            if (!starting) {
+                // The launcher fails before the process group of the node is created if the paths of the node cannot
+                // be mounted
+                throw new RuntimeEngineException("The process of node " + nodeName + " did not start! " + launchOutput);
+            }
+            // The watcher of the abandoned exec ignores the rest of its output
+            abandonedLauncherProcessId = launcherProcessId;
+            execId = null;
+            starting = false;
+            notifyAll();
+        }
+
+        logStream.close();
+        if (abandonedLauncherProcessId != null) {
+            try {
+                sendSignal("KILL", String.valueOf(abandonedLauncherProcessId));
+            } catch (RuntimeEngineException e) {
+                logger.warn("Error while killing the launcher of node {}!", nodeName, e);
+            }
+        }
+        if (interruption != null) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeEngineException("Interrupted while waiting for the process of node " + nodeName + "!",
+                    interruption);
+        }
+        throw new RuntimeEngineException("The process of node " + nodeName + " did not start in "
+                + PROCESS_ID_TIMEOUT_MILLIS + " milliseconds!");
+    }
+
+    /**
+     * Reads the output of an exec to the end and closes it. The stderr goes through a trailer stream, so the command
+     * of the exec should be wrapped by {@link ExitCodeTrailerOutputStream#wrap(String)}
+     * @return the exit code of the command of the exec or null if the trailer is missing, e.g. if the command is killed
+     */
+    private static Integer readOutput(LogStream logStream, OutputStream stdOut, OutputStream stdErr) {
+        ExitCodeTrailerOutputStream stdErrWithTrailer = new ExitCodeTrailerOutputStream(stdErr);
+        try {
+            while (logStream.hasNext()) {
+                LogMessage logMessage = logStream.next();
+                ByteBuffer content = logMessage.content();
+                byte[] bytes = new byte[content.remaining()];
+                content.get(bytes);
+                if (logMessage.stream() == LogMessage.Stream.STDERR) {
+                    stdErrWithTrailer.write(bytes);
+                } else {
+                    stdOut.write(bytes);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // The stream is closed when the start of the node is abandoned or the container is removed
+            logger.debug("Error while reading the output of a packed node process", e);
+        } finally {
+            logStream.close();
+        }
+        try {
+            return stdErrWithTrailer.finish();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void watch(String watchedExecId, LogStream logStream) {
+        // The output of the node itself goes to its console file, so only the process ids and the errors of the
+        // launcher are read here
+        OutputStream processIds = new OutputStream() {
+            private final StringBuilder line = new StringBuilder();
+
+            @Override
+            public void write(int b) {
+                if (b == '\n') {
+                    processIdWritten(watchedExecId, line.toString().trim());
+                    line.setLength(0);
+                } else {
+                    line.append((char) b);
+                }
+            }
+        };
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        Integer processExitCode = readOutput(logStream, processIds, errors);
+        String output = new String(errors.toByteArray(), StandardCharsets.UTF_8);
+        if (processExitCode == null) {
+            // The launcher itself is killed, e.g. when the container is stopped
+            try {
+                ExecState execState = dockerClient.execInspect(watchedExecId);
+                processExitCode = execState.running() || execState.exitCode() == null ? null
+                        : execState.exitCode().intValue();
+            } catch (InterruptedException e) {
+                return;
+            } catch (DockerException e) {
+                // The container is removed
+                logger.debug("Cannot inspect the process of node {}", nodeName, e);
+            }
+        }
+
+        boolean exitedOnItsOwn;
+        synchronized (this) {
+            if (!watchedExecId.equals(execId)) {
+                return;
+            }
+            if (processGroupId == null) {
+                execId = null;
+                starting = false;
+                launchOutput = output;
+                notifyAll();
+                return;
+            }
+            status = NodeState.Status.EXITED;
+            exitCode = processExitCode;
+            crashed = exitedOnItsOwn = !expectingExit;
+            expectingExit = false;
+            timestamp = System.currentTimeMillis();
+            notifyAll();
+        }
+        if (exitedOnItsOwn) {
+            logger.warn("The process of node {} exited on its own with exit code {}! {}", nodeName, processExitCode,
+                    output);
+        }
+        listener.nodeStateChanged(nodeName, getState());
+    }
+
+    /**
+     * The launcher writes its own process id first and then the id of the process group of the node, which marks the
+     * start of the node
+     */
+    private void processIdWritten(String watchedExecId, String processId) {
+        synchronized (this) {
+            if (!watchedExecId.equals(execId) || processGroupId != null) {
+                return;
+            }
+            try {
+                if (launcherProcessId == null) {
+                    launcherProcessId = Long.parseLong(processId);
+                    return;
+                }
+                processGroupId = Long.parseLong(processId);
+            } catch (NumberFormatException e) {
+                logger.warn("Unexpected output {} from the launcher of node {}", processId, nodeName);
+                return;
+            }
+            status = NodeState.Status.RUNNING;
+            exitCode = null;
+            crashed = false;
+            expectingExit = false;
+            startCount++;
+            starting = false;
+            timestamp = System.currentTimeMillis();
+            notifyAll();
+        }
+        listener.nodeStateChanged(nodeName, getState());
+    }
+
+    void kill() throws RuntimeEngineException {
+        if (!expectExit()) {
+            return;
+        }
+        signal("KILL");
+        awaitExit(null);
+    }
+
+    /**
+     * Sends a TERM signal to the processes of the node and kills them if they don't exit in time
+     */
+    void stop(Integer secondsUntilForcedStop) throws RuntimeEngineException {
+        if (!expectExit()) {
+            return;
+        }
+        signal("TERM");
+        if (!awaitExit(secondsUntilForcedStop)) {
+            logger.info("Node {} did not stop in {} seconds and is killed", nodeName, secondsUntilForcedStop);
+            signal("KILL");
+            awaitExit(null);
+        }
+    }
+
+    void freeze() throws RuntimeEngineException {
+        signal("STOP");
+    }
+
+    void unfreeze() throws RuntimeEngineException {
+        signal("CONT");
+    }
+
+    private synchronized boolean expectExit() {
+        if (status != NodeState.Status.RUNNING) {
+            return false;
+        }
+        expectingExit = true;
+        return true;
+    }
+
+    /**
+     * @return true if the process exited before the given number of seconds or null for no timeout
+     */
+    private synchronized boolean awaitExit(Integer seconds) throws RuntimeEngineException {
+        long deadline = seconds == null ? Long.MAX_VALUE : System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(seconds);
+        try {
+            while (status == NodeState.Status.RUNNING) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(Math.min(remaining, 1000));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeEngineException("Interrupted while waiting for the process of node " + nodeName
+                    + " to exit!", e);
+        }
+        return true;
+    }
+
+    private void signal(String signal) throws RuntimeEngineException {
+        String processGroup;
+        synchronized (this) {
+            processGroup = "-" + processGroupId;
+        }
+        sendSignal(signal, processGroup);
+    }
+
+    /**
+     * @param target the process id or the negated process group id that is passed to kill
+     */
+    private void sendSignal(String signal, String target) throws RuntimeEngineException {
+        try {
+            String signalExecId = dockerClient.execCreate(containerId, new String[] { "/bin/sh", "-c",
+                            ExitCodeTrailerOutputStream.wrap("kill -" + signal + " -- " + target) },
+                    DockerClient.ExecCreateParam.attachStdout(), DockerClient.ExecCreateParam.attachStderr()).id();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            Integer signalExitCode = readOutput(dockerClient.execStart(signalExecId), output, output);
+            if (signalExitCode == null) {
+                ExecState execState = dockerClient.execInspect(signalExecId);
+                signalExitCode = execState.exitCode() == null ? null : execState.exitCode().intValue();
+            }
+            // The process group is gone if the node exited in the meantime
+            if (signalExitCode != null && signalExitCode != 0 && isRunning()) {
+                throw new RuntimeEngineException("Error while sending signal " + signal + " to the processes of node "
+                        + nodeName + "! exit code: " + signalExitCode + " out: "
+                        + new String(output.toByteArray(), StandardCharsets.UTF_8));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeEngineException("Interrupted while sending signal " + signal + " to the processes of node "
+                    + nodeName + "!", e);
+        } catch (DockerException e) {
+            throw new RuntimeEngineException("Error while sending signal " + signal + " to the processes of node "
+                    + nodeName + "!", e);
+        }
+    }
+}
@@ -25,14 +25,13 @@
 
 package io.redit.execution.single_node;
 
+import com.spotify.docker.client.LogMessage;
 import com.spotify.docker.client.LogStream;
 import com.spotify.docker.client.exceptions.ContainerNotFoundException;
 import com.spotify.docker.client.exceptions.DockerRequestException;
+import com.spotify.docker.client.exceptions.ImageNotFoundException;
 import com.spotify.docker.client.shaded.com.google.common.collect.ImmutableList;
-import com.spotify.docker.client.DefaultDockerClient;
 import com.spotify.docker.client.DockerClient;
-import com.spotify.docker.client.LoggingBuildHandler;
-import com.spotify.docker.client.exceptions.DockerCertificateException;
 import com.spotify.docker.client.exceptions.DockerException;
 import com.spotify.docker.client.messages.*;
 import com.spotify.docker.client.shaded.com.google.common.collect.ImmutableMap;
@@ -41,10 +40,13 @@ import io.redit.dsl.entities.*;
 import io.redit.exceptions.NodeIsNotRunningException;
 import io.redit.exceptions.NodeNotFoundException;
 import io.redit.execution.CommandResults;
+import io.redit.execution.NetOp;
+import io.redit.execution.NetPart;
+import io.redit.execution.NodeState;
 import io.redit.execution.RuntimeEngine;
 import io.redit.util.DockerUtil;
 import io.redit.util.HostUtil;
-import io.redit.util.StreamUtil;
+import io.redit.util.BoundedOutputStream;
 import io.redit.workspace.NodeWorkspace;
 import io.redit.exceptions.RuntimeEngineException;
 import io.redit.util.OsUtil;
@@ -54,44 +56,148 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class SingleNodeRuntimeEngine extends RuntimeEngine {
     private static Logger logger = LoggerFactory.getLogger(SingleNodeRuntimeEngine.class);
+    // The env vars that change from run to run of a deployment
+    private static final Set<String> RUN_SCOPED_ENV_VARS = new HashSet<>(Arrays.asList(
+            Constants.REDIT_EVENT_SERVER_IP_ADDRESS_ENV_VAR, Constants.REDIT_EVENT_SERVER_PORT_NUMBER_ENV_VAR,
+            Constants.REDIT_EVENT_SERVER_NAMESPACE_ENV_VAR));
+    // The docker client only supports blocking reads of the exec output, so each running exec needs a thread. The
+    // threads are shared between all of the engines and the asynchronous execs beyond their number wait in a queue
+    private static final ExecutorService execExecutor = createExecExecutor();
 
     private Map<String, DockerContainerInfo> nodeToContainerInfoMap;
-    private DockerNetworkManager dockerNetworkManager;
-    private DockerClient dockerClient;
+    // The docker daemons that the nodes are spread across and the daemon of each node
+    private volatile List<DockerShard> shards;
+    private Map<String, DockerShard> nodeToShardMap;
+    // The warm pool of the deployment, the link to the working directory to be used in the bind mounts, and the
+    // configuration key of the container of each node. These are only set when the warm pool is enabled
+    private DockerContainerPool.PooledDeployment pooledDeployment;
+    private Path pooledWorkingDirectory;
+    private Map<String, String> nodeToContainerKeyMap;
+    // The snapshot images that the containers of the restored nodes are created from
+    private Map<String, String> nodeToSnapshotImageMap;
+    // The ip addresses that are reserved for the nodes that are not materialized yet
+    private Map<String, String> nodeToReservedIpMap;
+    // The containers that run several nodes of the same service and the process of each of the packed nodes
+    private Map<String, DockerContainerPack> nodeToPackMap;
+    private Map<String, PackedNodeProcess> nodeToPackedProcessMap;
+    private volatile String clientContainerIpAddress;
 
     public SingleNodeRuntimeEngine(Deployment deployment, Map<String, NodeWorkspace> nodeWorkspaceMap) {
         super(deployment, nodeWorkspaceMap);
-        nodeToContainerInfoMap = new HashMap<>();
+        nodeToContainerInfoMap = new ConcurrentHashMap<>();
+        nodeToContainerKeyMap = new ConcurrentHashMap<>();
+        nodeToSnapshotImageMap = new ConcurrentHashMap<>();
+        nodeToReservedIpMap = new ConcurrentHashMap<>();
+        shards = Collections.emptyList();
+        nodeToShardMap = new ConcurrentHashMap<>();
+        nodeToPackMap = new ConcurrentHashMap<>();
+        nodeToPackedProcessMap = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @return the docker daemon of the node or null if the daemons are not connected yet. A node that is not assigned
+     * to a daemon yet is assigned to the daemon with the least number of nodes
+     */
+    private DockerShard getShard(String nodeName) {
+        List<DockerShard> currentShards = shards;
+        if (currentShards.isEmpty() || !nodeMap.containsKey(nodeName)) {
+            return null;
+        }
+        if (currentShards.size() == 1) {
+            return currentShards.get(0);
+        }
+        // The nodes of a pack are in the docker daemon of its first node
+        DockerContainerPack pack = nodeToPackMap.get(nodeName);
+        if (pack != null && !pack.leader().equals(nodeName)) {
+            return getShard(pack.leader());
+        }
+        synchronized (nodeToShardMap) {
+            DockerShard shard = nodeToShardMap.get(nodeName);
+            if (shard == null) {
+                Map<DockerShard, Integer> shardSizes = new HashMap<>();
+                for (DockerShard assignedShard: nodeToShardMap.values()) {
+                    shardSizes.merge(assignedShard, 1, Integer::sum);
+                }
+                shard = Collections.min(currentShards,
+                        Comparator.comparing((DockerShard s) -> shardSizes.getOrDefault(s, 0)).thenComparing(DockerShard::index));
+                nodeToShardMap.put(nodeName, shard);
+                logger.info("Node {} is assigned to docker {}", nodeName, shard);
+            }
+            return shard;
+        }
+    }
+
+    /**
+     * @return the single docker daemon of the deployment. The features that depend on the client container or the
+     * warm pool are only available with a single daemon
+     */
+    private DockerShard getSingleShard() {
+        return shards.get(0);
+    }
+
+    private boolean isSharded() {
+        return shards.size() > 1;
     }
 
     public String ip(String nodeName) {
-        if (!nodeToContainerInfoMap.containsKey(nodeName)) {
+        String ipAddress = getNodeIpAddress(nodeName);
+        if (ipAddress == null) {
             return null;
         }
 
         if (DockerUtil.isRunningInsideDocker()) {
             // This is possible because the client container is added to the created docker network
-            return nodeToContainerInfoMap.get(nodeName).ip();
+            return ipAddress;
         } else {
             if (OsUtil.getOS() == OsUtil.OS.LINUX) {
-                return nodeToContainerInfoMap.get(nodeName).ip();
+                return ipAddress;
             } else {
-                return dockerNetworkManager.getHostIpAddress();
+                return getShard(nodeName).networkManager().getHostIpAddress();
             }
         }
     }
 
+    /**
+     * @return the ip address of the node's container. An ip address is reserved for a node that is not materialized
+     * yet, so the other nodes can refer to it before it is started
+     */
+    private String getNodeIpAddress(String nodeName) {
+        DockerContainerInfo containerInfo = nodeToContainerInfoMap.get(nodeName);
+        if (containerInfo != null) {
+            return containerInfo.ip();
+        }
+        DockerShard shard = getShard(nodeName);
+        if (shard == null || shard.networkManager() == null) {
+            return null;
+        }
+        synchronized (nodeToReservedIpMap) {
+            if (!nodeToReservedIpMap.containsKey(nodeName)) {
+                try {
+                    nodeToReservedIpMap.put(nodeName, shard.networkManager().getNewIpAddress());
+                } catch (RuntimeEngineException e) {
+                    logger.warn("Cannot reserve an ip address for node {}", nodeName, e);
+                    return null;
+                }
+            }
+            return nodeToReservedIpMap.get(nodeName);
+        }
+    }
+
     @Override
     public Integer portMapping(String nodeName, Integer portNumber, PortType portType) {
         if (!nodeToContainerInfoMap.containsKey(nodeName)) {
@@ -105,29 +211,176 @@ public class SingleNodeRuntimeEngine extends RuntimeEngine {
             if (OsUtil.getOS() == OsUtil.OS.LINUX) {
                 return portNumber;
             } else {
+                // The port mapping is resolved on the first request after each start of the node
+                if (!nodeToContainerInfoMap.get(nodeName).hasPortMapping()) {
+                    try {
+                        updateContainerPortMapping(nodeName);
+                    } catch (RuntimeEngineException e) {
+                        logger.warn("Cannot determine the port mapping of node {}", nodeName, e);
+                        return null;
+                    }
+                }
                 return nodeToContainerInfoMap.get(nodeName)
                         .getPortMapping(new ExposedPortDefinition(portNumber, portType));
             }
         }
     }
 
+    @Override
+    public NodeState nodeState(String nodeName) {
+        PackedNodeProcess packedProcess = nodeToPackedProcessMap.get(nodeName);
+        if (packedProcess != null) {
+            return packedProcess.getState();
+        }
+        DockerShard shard = getShard(nodeName);
+        if (!nodeToContainerInfoMap.containsKey(nodeName) || shard == null || shard.containerStateCache() == null) {
+            return null;
+        }
+        return shard.containerStateCache().getNodeState(nodeName);
+    }
+
 
-    // TODO this method can be split up into fine-grained methods to be implemented by runtime engine children
     @Override
-    protected void startNodes() throws RuntimeEngineException {
-        // Creates the docker client
-        try {
-            dockerClient = DefaultDockerClient.fromEnv().build();
-        } catch (DockerCertificateException e) {
-            throw new RuntimeEngineException("Cannot create docker client!", e);
+    protected void prepareNodes() throws RuntimeEngineException {
+        // Creates the docker clients
+        long startTime = System.currentTimeMillis();
+        List<DockerShard> createdShards = DockerShard.createShards();
+        if (createdShards.isEmpty()) {
+            throw new RuntimeEngineException("No docker endpoint is given in " + Constants.DOCKER_HOSTS_PROPERTY + "!");
+        }
+        if (createdShards.size() > 1 && DockerUtil.isRunningInsideDocker()) {
+            for (DockerShard shard: createdShards) {
+                shard.client().close();
+            }
+            throw new RuntimeEngineException("Spreading the nodes across multiple docker daemons is not supported when"
+                    + " the test case runs inside a docker container!");
+        }
+        shards = Collections.unmodifiableList(createdShards);
+        logger.info("Docker clients for {} are created in {} ms", shards, System.currentTimeMillis() - startTime);
+
+        // Packs the nodes of the services that share containers. The lazy nodes get containers of their own
+        if (DockerContainerPool.isEnabled()) {
+            logger.warn("The nodes are not packed into shared containers when the warm pool is enabled!");
+        } else {
+            for (DockerContainerPack pack: DockerContainerPack.createPacks(deployment, getMaterializedNodeNames().stream()
+                    .map(nodeMap::get).collect(Collectors.toList()))) {
+                logger.info("Nodes {} share container {}", pack.nodeNames(), pack.name());
+                for (String nodeName: pack.nodeNames()) {
+                    nodeToPackMap.put(nodeName, pack);
+                }
+            }
         }
 
-        // Builds docker images for the services if necessary
+        // The nodes are spread across the daemons in the order of their names, so they are placed the same way in
+        // every run
+        for (String nodeName: new TreeSet<>(nodeMap.keySet())) {
+            getShard(nodeName);
+        }
+
+        for (DockerShard shard: shards) {
+            // Keeps track of the state of the containers through the docker events
+            DockerContainerStateCache containerStateCache = new DockerContainerStateCache(shard.client(),
+                    this::notifyNodeStateListeners);
+            containerStateCache.start("redit-docker-events-" + deployment.getName()
+                    + (isSharded() ? "-" + shard.index() : ""));
+            shard.setContainerStateCache(containerStateCache);
+
+            // Removes the containers and networks left behind by the dead runs
+            if (!"false".equals(System.getProperty(Constants.REAPER_PROPERTY))) {
+                new DockerReaper(shard.client()).reapInBackground();
+            }
+        }
+
+        // Builds docker images for the services if necessary while the network is being created
         logger.info("Building docker images ...");
-        buildDockerImages();
+        CompletableFuture<Void> imageBuild = CompletableFuture.runAsync(() -> {
+            long buildStartTime = System.currentTimeMillis();
+            try {
+                buildDockerImages();
+            } catch (RuntimeEngineException e) {
+                throw new CompletionException(e);
+            }
+            logger.info("Docker images are ready in {} ms", System.currentTimeMillis() - buildStartTime);
+        }, runnable -> {
+            Thread imageBuildThread = new Thread(runnable, "redit-image-build-" + deployment.getName());
+            imageBuildThread.setDaemon(true);
+            imageBuildThread.start();
+        });
 
-        // creates a new docker network. This will be a new one every time the runtime engine starts.
-        dockerNetworkManager = new DockerNetworkManager(deployment.getName(), dockerClient);
+        try {
+            long networkStartTime = System.currentTimeMillis();
+            prepareNetwork();
+            logger.info("Docker networks are ready in {} ms", System.currentTimeMillis() - networkStartTime);
+        } finally {
+            // The image build is waited for even if the network creation fails, so the engine is not stopped while
+            // the images are being built
+            awaitImageBuild(imageBuild);
+        }
+    }
+
+    private void awaitImageBuild(CompletableFuture<Void> imageBuild) throws RuntimeEngineException {
+        try {
+            imageBuild.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeEngineException("Interrupted while building the docker images!", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeEngineException) {
+                throw (RuntimeEngineException) e.getCause();
+            }
+            throw new RuntimeEngineException("Error while building the docker images!", e.getCause());
+        }
+    }
+
+    private void prepareNetwork() throws RuntimeEngineException {
+        if (isSharded()) {
+            if (DockerContainerPool.isEnabled()) {
+                logger.warn("The warm pool is not supported when the nodes are spread across multiple docker daemons!");
+            }
+            // The networks of the daemons are routed through the host without masquerading the addresses of the
+            // containers, so the network partitions see the real addresses of the nodes of the other daemons. The
+            // containers lose the access to the addresses outside of the host in exchange
+            nodeTaskExecutor.runOnNodes(shards.stream().map(DockerShard::endpoint).collect(Collectors.toList()),
+                    "create the docker network in", endpoint -> {
+                for (DockerShard shard: shards) {
+                    if (shard.endpoint().equals(endpoint)) {
+                        shard.setNetworkManager(new DockerNetworkManager(deployment.getName(), shard.client(), true));
+                    }
+                }
+            });
+            // The bridges of the daemons are only routed to each other if the daemons run in the network namespace of
+            // the host, which is not the case for the rootless daemons
+            for (DockerShard shard: shards) {
+                if (shard.networkManager().getClientContainerIpAddress() == null) {
+                    throw new RuntimeEngineException("The docker network of " + shard + " is not reachable from the"
+                            + " host! The docker daemons should run in the network namespace of the host to spread the"
+                            + " nodes across them, so rootless daemons are not supported.");
+                }
+            }
+            logger.warn("The nodes can't reach the addresses outside of the host when they are spread across multiple"
+                    + " docker daemons");
+            return;
+        }
+
+        DockerShard shard = getSingleShard();
+        // Attaches to the pooled network and containers of the previous runs of the deployment if the warm pool is enabled
+        if (DockerContainerPool.isEnabled() && getWorkingDirectory() != null) {
+            pooledDeployment = DockerContainerPool.getInstance().acquire(deployment.getName());
+            pooledWorkingDirectory = pooledDeployment.linkWorkingDirectory(getWorkingDirectory());
+        }
+
+        // creates a new docker network. This will be a new one every time the runtime engine starts unless a pooled
+        // network is available.
+        if (pooledDeployment != null && pooledDeployment.getNetworkManager() != null) {
+            shard.setNetworkManager(pooledDeployment.getNetworkManager());
+            logger.info("Reusing docker network {} ...", shard.networkManager().dockerNetworkId());
+        } else {
+            shard.setNetworkManager(new DockerNetworkManager(deployment.getName(), shard.client(), false));
+            if (pooledDeployment != null) {
+                pooledDeployment.setNetworkManager(shard.networkManager());
+            }
+        }
+        DockerNetworkManager dockerNetworkManager = shard.networkManager();
 
         // If the client is a docker container, adds the container to the created docker network
         if (DockerUtil.isRunningInsideDocker()) {
@@ -139,11 +392,12 @@ public class SingleNodeRuntimeEngine extends RuntimeEngine {
                 throw new RuntimeEngineException("Cannot determine client's container id", e);
             }
             logger.info("Client container id is {}", clientContainerId);
+            clientContainerIpAddress = dockerNetworkManager.getNewIpAddress();
             try {
-                dockerClient.connectToNetwork(dockerNetworkManager.dockerNetworkId(), NetworkConnection.builder()
+                shard.client().connectToNetwork(dockerNetworkManager.dockerNetworkId(), NetworkConnection.builder()
                         .containerId(clientContainerId)
                         .endpointConfig(EndpointConfig.builder()
-                                .ipAddress(dockerNetworkManager.getNewIpAddress())
+                                .ipAddress(clientContainerIpAddress)
                                 .build())
                         .build());
             } catch (DockerException | InterruptedException e) {
@@ -151,36 +405,160 @@ public class SingleNodeRuntimeEngine extends RuntimeEngine {
                         + dockerNetworkManager.dockerNetworkId(), e);
             }
         }
+    }
 
+    @Override
+    protected void startNodes() throws RuntimeEngineException {
+        // The containers of the lazy nodes are created when they are first started
         logger.info("Creating a container for each of the nodes ...");
+        Set<String> unpackedNodeNames = getMaterializedNodeNames();
+        unpackedNodeNames.removeAll(nodeToPackMap.keySet());
+        nodeTaskExecutor.runOnNodes(unpackedNodeNames, "create the container for",
+                nodeName -> createNodeContainer(nodeMap.get(nodeName)));
+        Map<String, DockerContainerPack> packs = getPacks();
+        nodeTaskExecutor.runOnNodes(packs.keySet(), "create the packed container",
+                packName -> createPackContainer(packs.get(packName)));
+        if (pooledDeployment != null) {
+            // The pooled containers of the nodes that do not exist anymore
+            for (DockerContainerPool.PooledContainer pooledContainer: pooledDeployment.takeRemainingContainers()) {
+                removePooledContainer(pooledContainer);
+            }
+        }
+
+        // Starts the nodes that are not off on startup group by group in their start order
+        List<String> nodesToStart = new ArrayList<>();
         for (Node node: nodeMap.values()) {
-            // Creates a container for the node
-            createNodeContainer(node);
-            // Starts the container if it is not off on startup
             if (node.getOffOnStartup()) {
                 logger.info("Skipping node " + node.getName() + " on startup since it is off!");
             } else {
-                startNode(node.getName());
+                nodesToStart.add(node.getName());
             }
         }
+        for (List<String> startOrderGroup: getNodeStartOrderGroups(nodesToStart)) {
+            logger.info("Starting nodes {} ...", startOrderGroup);
+            nodeTaskExecutor.runOnNodes(startOrderGroup, "start", this::startNode);
+        }
 
         for (String nodeName: nodeToContainerInfoMap.keySet()) {
             logger.info("Node {} ip address is: {}", nodeName, nodeToContainerInfoMap.get(nodeName).ip());
         }
     }
 
+    @Override
     public CommandResults runCommandInNode(String nodeName, String command) throws RuntimeEngineException {
+        BoundedOutputStream stdOut = new BoundedOutputStream(getCommandOutputLimit());
+        BoundedOutputStream stdErr = new BoundedOutputStream(getCommandOutputLimit());
+        long exitCode = executeCommand(nodeName, command, stdOut, stdErr);
+        return new CommandResults(nodeName, command, exitCode, stdOut.toString(), stdErr.toString());
+    }
+
+    @Override
+    public CompletableFuture<CommandResults> runCommandInNodeAsync(String nodeName, String command) {
+        return supplyExecAsync(() -> runCommandInNode(nodeName, command));
+    }
+
+    @Override
+    public CompletableFuture<CommandResults> runCommandInNodeAsync(String nodeName, String command,
+                                                                   OutputStream stdOut, OutputStream stdErr) {
+        return supplyExecAsync(() -> new CommandResults(nodeName, command,
+                executeCommand(nodeName, command, stdOut, stdErr), "", ""));
+    }
+
+    private CompletableFuture<CommandResults> supplyExecAsync(CommandSupplier commandSupplier) {
+        CompletableFuture<CommandResults> future = new CompletableFuture<>();
+        execExecutor.execute(() -> {
+            try {
+                future.complete(commandSupplier.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private static ExecutorService createExecExecutor() {
+        int parallelism = Integer.getInteger(Constants.EXEC_PARALLELISM_PROPERTY, Constants.DEFAULT_EXEC_PARALLELISM);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new ThreadFactory() {
+            private final AtomicInteger threadCounter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "redit-exec-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @FunctionalInterface
+    private interface CommandSupplier {
+        CommandResults get() throws RuntimeEngineException;
+    }
+
+    private static int getCommandOutputLimit() {
+        return Integer.getInteger(Constants.COMMAND_OUTPUT_LIMIT_PROPERTY, Constants.DEFAULT_COMMAND_OUTPUT_LIMIT);
+    }
+
+    /**
+     * Executes the command in the node and streams its output into the given streams. The output stream of the exec is
+     * closed by docker when the command finishes, so reading it to the end is enough to wait for the command. The exit
+     * code of the command is written at the end of its stderr by a wrapper, so there is no need to wait for docker to
+     * mark the exec as finished.
+     * @return the exit code of the command
+     */
+    private long executeCommand(String nodeName, String command, OutputStream stdOut, OutputStream stdErr)
+            throws RuntimeEngineException {
         if (!nodeToContainerInfoMap.containsKey(nodeName)) {
+            if (nodeMap.containsKey(nodeName) && !isMaterialized(nodeName)) {
+                throw new NodeIsNotRunningException("Node " + nodeName + " is not started yet to execute command "
+                        + command);
+            }
             throw new NodeNotFoundException(nodeName);
         }
+        DockerShard shard = getShard(nodeName);
+        PackedNodeProcess packedProcess = nodeToPackedProcessMap.get(nodeName);
+        if (packedProcess != null ? !packedProcess.isRunning() : shard.containerStateCache().isKnownNotRunning(nodeName)) {
+            throw new NodeIsNotRunningException("Node " + nodeName + " is not running to execute command " + command);
+        }
 
-        ExecCreation execCreation;
-        LogStream logStream;
+        DockerClient dockerClient = shard.client();
+        String execId;
         try {
-            execCreation = dockerClient.execCreate(nodeToContainerInfoMap.get(nodeName).containerId(),
-                    new String[] { "sh", "-c", command }, DockerClient.ExecCreateParam.attachStdin(),
-                    DockerClient.ExecCreateParam.attachStdout(), DockerClient.ExecCreateParam.attachStderr());
-            logStream = dockerClient.execStart(execCreation.id());
+            // The commands of a packed node run with the paths and the environment of the node
+            String wrappedCommand = ExitCodeTrailerOutputStream.wrap(command);
+            execId = dockerClient.execCreate(nodeToContainerInfoMap.get(nodeName).containerId(),
+                    packedProcess != null ? getPackedNodeLaunchCommand(nodeName, "exec", wrappedCommand)
+                            : new String[] { "sh", "-c", wrappedCommand }, DockerClient.ExecCreateParam.attachStdin(),
+                    DockerClient.ExecCreateParam.attachStdout(), DockerClient.ExecCreateParam.attachStderr()).id();
+            ExitCodeTrailerOutputStream stdErrWithTrailer = new ExitCodeTrailerOutputStream(stdErr);
+            try (LogStream logStream = dockerClient.execStart(execId)) {
+                while (logStream.hasNext()) {
+                    LogMessage logMessage = logStream.next();
+                    ByteBuffer content = logMessage.content();
+                    byte[] bytes = new byte[content.remaining()];
+                    content.get(bytes);
+                    if (logMessage.stream() == LogMessage.Stream.STDERR) {
+                        stdErrWithTrailer.write(bytes);
+                    } else {
+                        stdOut.write(bytes);
+                    }
+                }
+            }
+
+            Integer exitCode = stdErrWithTrailer.finish();
+            if (exitCode != null) {
+                return exitCode;
+            }
+            // The wrapper itself is killed, e.g. when the container is stopped in the middle of the command
+            ExecState execState = dockerClient.execInspect(execId);
+            if (execState.running() || execState.exitCode() == null) {
+                throw new RuntimeEngineException("The exit code of command " + command + " in node " + nodeName
+                        + " is not known!");
+            }
+            return execState.exitCode();
         } catch (InterruptedException e) {
             throw new RuntimeEngineException("Error while trying to run command " + command + " in node " + nodeName + "!", e);
         } catch (ContainerNotFoundException | IllegalStateException e) {
@@ -189,79 +567,33 @@ public class SingleNodeRuntimeEngine extends RuntimeEngine {
         } catch (DockerException e) {
             throw new RuntimeEngineException("Error while trying to run command " + command + " in node "
                     + nodeName + "!", e);
-        }
-
-        ExecState execState;
-
-        try {
-            do {
-                Thread.sleep(10);
-                execState = dockerClient.execInspect(execCreation.id());
-            } while (execState.running());
-        } catch (InterruptedException e) {
-            throw new RuntimeEngineException("Error while trying to inspect the status of command " + command
-                    + " in node " + nodeName + "!", e);
-        } catch (ContainerNotFoundException | IllegalStateException e) {
-            throw new NodeIsNotRunningException("No running container for node " + nodeName + " has been found to execute command"
-                    + command, e);
-        } catch (DockerException e) {
-            throw new RuntimeEngineException("Error while trying to inspect the status of command " + command
-                    + " in node " + nodeName + "!", e);
-        }
-
-        PipedOutputStream out_pipe, err_pipe;
-        PipedInputStream out, err;
-        try {
-            out = new PipedInputStream();
-            err = new PipedInputStream();
-            out_pipe = new PipedOutputStream(out);
-            err_pipe = new PipedOutputStream(err);
-
-            AtomicReference<IOException> threadException = new AtomicReference<>();
-            Thread readThread = new Thread(() -> {
-                try {
-                    logStream.attach(out_pipe, err_pipe);
-                } catch (IOException e) {
-                    threadException.set(e);
-                }
-            });
-
-            readThread.start();
-            try {
-                readThread.join();
-            } catch (InterruptedException e) {
-                throw new RuntimeEngineException("The join for read thread of command " + command + " has been interrupted!");
-            }
-
-            if (threadException.get() != null) {
-                throw threadException.get();
-            }
-
-            String stdout = StreamUtil.pipedInputStreamToString(out);
-            String stderr = StreamUtil.pipedInputStreamToString(err);
-            return new CommandResults(nodeName, command, execState.exitCode(), stdout, stderr);
         } catch (IOException e) {
-            throw new RuntimeEngineException("Error while reading the stdout and stderr for command " + command
-                    + " on node " + nodeName);
+            throw new RuntimeEngineException("Error while writing the stdout and stderr for command " + command
+                    + " on node " + nodeName, e);
         }
     }
 
     private void buildDockerImages() throws RuntimeEngineException {
-        for (Service service: deployment.getServices().values()) {
-            try {
-                if (service.getDockerFileAddress() != null && (service.getDockerImageForceBuild() ||
-                        dockerClient.listImages(DockerClient.ListImagesParam.byName(service.getDockerImageName())).isEmpty())) {
-                    logger.info("Building docker image `{}` for service {} ...", service.getDockerImageName(), service.getName());
-                    Path dockerFile = Paths.get(service.getDockerFileAddress());
-                    dockerClient.build(dockerFile.getParent(), service.getDockerImageName(),
-                            new LoggingBuildHandler(),
-                            DockerClient.BuildParam.forceRm(),
-                            DockerClient.BuildParam.dockerfile(dockerFile.getFileName()));
+        if (!isSharded()) {
+            new DockerImageBuilder(getSingleShard().client()).build(deployment.getServices().values());
+            return;
+        }
+
+        // Each of the daemons builds the images of the services of its own nodes
+        Map<String, Set<Service>> endpointToServicesMap = new HashMap<>();
+        for (DockerShard shard: shards) {
+            endpointToServicesMap.put(shard.endpoint(), new HashSet<>());
+        }
+        for (Node node: nodeMap.values()) {
+            endpointToServicesMap.get(getShard(node.getName()).endpoint()).add(deployment.getService(node.getServiceName()));
+        }
+        nodeTaskExecutor.runOnNodes(endpointToServicesMap.keySet(), "build the docker images in", endpoint -> {
+            for (DockerShard shard: shards) {
+                if (shard.endpoint().equals(endpoint)) {
+                    new DockerImageBuilder(shard.client()).build(endpointToServicesMap.get(endpoint));
                 }
-            } catch (InterruptedException | IOException | DockerException e) {
-                throw new RuntimeEngineException("Error while building docker image for service " + service.getName() + "!", e);
             }
-        }
+        });
     }
 
     @Override
@@ -286,7 +618,7 @@ public class SingleNodeRuntimeEngine extends RuntimeEngine {
 
     @Override protected String getEventServerIpAddress() throws RuntimeEngineException {
         if (DockerUtil.isRunningInsideDocker()) {
-            return dockerNetworkManager.getClientContainerIpAddress();
+            return getSingleShard().networkManager().getClientContainerIpAddress();
         } else {
             try {
                 return HostUtil.getLocalIpAddress();
@@ -300,9 +632,10 @@ public class SingleNodeRuntimeEngine extends RuntimeEngine {
     @Override
     protected void createNodeContainer(Node node) throws RuntimeEngineException {
         // TODO Add Tini init to avoid zombie processes
+        checkNotPacked(node.getName(), "create a container for");
         Service nodeService = deployment.getService(node.getServiceName());
         NodeWorkspace nodeWorkspace = nodeWorkspaceMap.get(node.getName());
-        String newIpAddress = dockerNetworkManager.getNewIpAddress();
+        DockerShard shard = getShard(node.getName());
 
         String clientContainerId;
         try {
@@ -314,46 +647,49 @@ public class SingleNodeRuntimeEngine extends RuntimeEngine {
         ContainerConfig.Builder containerConfigBuilder = ContainerConfig.builder();
         HostConfig.Builder hostConfigBuilder = HostConfig.builder();
         // Sets the docker image for the container
-        containerConfigBuilder.image(nodeService.getDockerImageName());
+        containerConfigBuilder.image(nodeToSnapshotImageMap.getOrDefault(node.getName(), nodeService.getDockerImageName()));
+        // Labels the container with its owner process for the reaper
+        containerConfigBuilder.labels(DockerReaper.getOwnerLabels());
         // Sets env vars for the container
         List<String> envList = new ArrayList<>();
+        Map<String, String> wrapperEnvironment = new HashMap<>();
         for (Map.Entry<String, String> envEntry: getNodeEnvironmentVariablesMap(node.getName()).entrySet()) {
-            envList.add(envEntry.getKey() + "=" + envEntry.getValue());
+            // The env of a container cannot be changed, so the env vars that change from run to run are exported by
+            // the wrapper script of the pooled containers
+            if (pooledDeployment != null && RUN_SCOPED_ENV_VARS.contains(envEntry.getKey())) {
+                wrapperEnvironment.put(envEntry.getKey(), envEntry.getValue());
+            } else {
+                envList.add(envEntry.getKey() + "=" + envEntry.getValue());
+            }
         }
+        Collections.sort(envList);
         containerConfigBuilder.env(envList);
         // Creates the wrapper script and adds a bind mount for it
-        String wrapperFile = createWrapperScriptForNode(node);
-        String wrapperScriptAddress = DockerUtil.mapDockerPathToHostPath(dockerClient, clientContainerId,
-                wrapperFile);
+        String wrapperFile = createWrapperScriptForNode(node, wrapperEnvironment);
+        String wrapperScriptAddress = getBindSource(clientContainerId, wrapperFile);
         hostConfigBuilder.appendBinds(HostConfig.Bind.from(wrapperScriptAddress)
                 .to("/" + Constants.WRAPPER_SCRIPT_NAME).readOnly(true).build());
         // Adds net admin capability to containers for iptables uses and make them connect to the created network
-        hostConfigBuilder.capAdd("NET_ADMIN").networkMode(dockerNetworkManager.dockerNetworkName());
-        // Creates do init file in the workspace and adds a bind mount for it
-        try {
-            Files.write(Paths.get(nodeWorkspace.getWorkingDirectory(), Constants.DO_INIT_FILE_NAME), "1".getBytes());
-        } catch (IOException e) {
-            throw new RuntimeEngineException("Error while creating redit do init file in node " + node.getName() + " workspace!", e);
+        hostConfigBuilder.capAdd("NET_ADMIN").networkMode(shard.networkManager().dockerNetworkName());
+        // Limits the cpu and memory resources of the container
+        applyResourceLimits(hostConfigBuilder, getNodeResourceLimits(node.getName()));
+        List<String> extraHosts = getExtraHosts(shard);
+        if (!extraHosts.isEmpty()) {
+            hostConfigBuilder.extraHosts(extraHosts);
         }
+        // Adds a bind mount for the do init file that is created along with the workspace
         hostConfigBuilder.appendBinds(HostConfig.Bind
-                .from(DockerUtil.mapDockerPathToHostPath(dockerClient, clientContainerId,
-                        Paths.get(nodeWorkspace.getWorkingDirectory(), Constants.DO_INIT_FILE_NAME).toAbsolutePath().toString()))
+                .from(getBindSource(clientContainerId, nodeWorkspace.getDoInitFile()))
                 .to("/" + Constants.DO_INIT_FILE_NAME).readOnly(false).build());
         // Adds all of the path mappings to the container
         for (NodeWorkspace.PathMappingEntry pathMappingEntry: nodeWorkspace.getPathMappingList()) {
             // TODO The readonly should come from path mapping. Right now docker wouldn't work with sub-path that are not readonly
-            hostConfigBuilder.appendBinds(HostConfig.Bind.from(DockerUtil.mapDockerPathToHostPath(dockerClient,
-                    clientContainerId, pathMappingEntry.getSource()))
+            hostConfigBuilder.appendBinds(HostConfig.Bind.from(getBindSource(clientContainerId,
+                    pathMappingEntry.getSource()))
                     .to(pathMappingEntry.getDestination()).readOnly(false).build());
         }
-        // Sets the network alias and hostname
+        // Sets the hostname
         containerConfigBuilder.hostname(node.getName());
-        Map<String, EndpointConfig> endpointConfigMap = new HashMap<>();
-        endpointConfigMap.put(dockerNetworkManager.dockerNetworkName(), EndpointConfig.builder()
-                .ipAddress(newIpAddress) // static ip address for containers
-                .ipamConfig(EndpointConfig.EndpointIpamConfig.builder().ipv4Address(newIpAddress).build())
-                .aliases(ImmutableList.<String>builder().add(node.getName()).build()).build());
-        containerConfigBuilder.networkingConfig(ContainerConfig.NetworkingConfig.create(endpointConfigMap));
         // Sets exposed ports
         containerConfigBuilder.exposedPorts(
                 getNodeExposedPorts(node.getName()).stream().map(portDef -> portDef.toString()).collect(Collectors.toSet()));
@@ -364,69 +700,346 @@ public class SingleNodeRuntimeEngine extends RuntimeEngine {
             hostConfigBuilder.publishAllPorts(true);
         }
         // Adds bind mount for console output
-        // TODO file creation should be moved to WorkspaceManager
-        String localConsoleFile = Paths.get(nodeWorkspace.getLogDirectory(), Constants.CONSOLE_OUTERR_FILE_NAME).toAbsolutePath().toString();
-        try {
-            new File(localConsoleFile).createNewFile();
-        } catch (IOException e) {
-            throw new RuntimeEngineException("Error while creating initial console log file for node " + node.getName() + "!", e);
-        }
+        String localConsoleFile = nodeWorkspace.getConsoleFile();
         // TODO following code should delete for security. But no example invoke this code, is there any problem in expose the ports?
-        hostConfigBuilder.appendBinds(HostConfig.Bind.from(DockerUtil.mapDockerPathToHostPath(dockerClient,
-                clientContainerId, localConsoleFile)).to("/" + Constants.CONSOLE_OUTERR_FILE_NAME).build());
+        hostConfigBuilder.appendBinds(HostConfig.Bind.from(getBindSource(clientContainerId, localConsoleFile)).to("/" + Constants.CONSOLE_OUTERR_FILE_NAME).build());
         // Adds bind mounts for shared directories
         for (String localSharedDirectory: nodeWorkspace.getSharedDirectoriesMap().keySet()) {
-            hostConfigBuilder.appendBinds(HostConfig.Bind.from(DockerUtil.mapDockerPathToHostPath(dockerClient,
-                    clientContainerId, localSharedDirectory)).to(nodeWorkspace.getSharedDirectoriesMap()
+            hostConfigBuilder.appendBinds(HostConfig.Bind.from(getBindSource(clientContainerId,
+                    localSharedDirectory)).to(nodeWorkspace.getSharedDirectoriesMap()
                     .get(localSharedDirectory)).readOnly(false).build());
         }
         // Adds bind mounts for log directories
         for (String localLogDirectory: nodeWorkspace.getLogDirectoriesMap().keySet()) {
-            hostConfigBuilder.appendBinds(HostConfig.Bind.from(DockerUtil.mapDockerPathToHostPath(dockerClient,
-                    clientContainerId, localLogDirectory)).to(nodeWorkspace.getLogDirectoriesMap()
+            hostConfigBuilder.appendBinds(HostConfig.Bind.from(getBindSource(clientContainerId,
+                    localLogDirectory)).to(nodeWorkspace.getLogDirectoriesMap()
                     .get(localLogDirectory)).readOnly(false).build());
         }
         // Adds bind mounts for log files
         for (String localLogFile: nodeWorkspace.getLogFilesMap().keySet()) {
-            hostConfigBuilder.appendBinds(HostConfig.Bind.from(DockerUtil.mapDockerPathToHostPath(dockerClient,
-                    clientContainerId, localLogFile)).to(nodeWorkspace.getLogFilesMap()
+            hostConfigBuilder.appendBinds(HostConfig.Bind.from(getBindSource(clientContainerId,
+                    localLogFile)).to(nodeWorkspace.getLogFilesMap()
                     .get(localLogFile)).readOnly(false).build());
         }
         // Adds bind mount for libfaketime controller file
-        // TODO file creation should be moved to WorkspaceManager
-        String localLibFakeTimeFile = getLocalLibFakeTimeControllerFile(node.getName());
-        try {
-            new File(localLibFakeTimeFile).createNewFile();
-        } catch (IOException e) {
-            throw new RuntimeEngineException("Error while creating libfaketime controller file for node " + node.getName() + "!", e);
-        }
-        hostConfigBuilder.appendBinds(HostConfig.Bind.from(DockerUtil.mapDockerPathToHostPath(dockerClient,
-                clientContainerId, localLibFakeTimeFile)).to("/" + Constants.FAKETIME_CONTROLLER_FILE_NAME).build());
+        String localLibFakeTimeFile = nodeWorkspace.getFakeTimeControllerFile();
+        hostConfigBuilder.appendBinds(HostConfig.Bind.from(getBindSource(clientContainerId, localLibFakeTimeFile)).to("/" + Constants.FAKETIME_CONTROLLER_FILE_NAME).build());
 
         // Sets the wrapper script as the starting command
         containerConfigBuilder.cmd("/bin/sh", "-c", "/" + Constants.WRAPPER_SCRIPT_NAME + " >> /" +
                 Constants.CONSOLE_OUTERR_FILE_NAME + " 2>&1");
         // Finalizing host config
         containerConfigBuilder.hostConfig(hostConfigBuilder.build());
+
+        // Reuses the pooled container of the node if it has exactly the same configuration
+        if (pooledDeployment != null) {
+            String containerKey = getContainerConfigurationKey(containerConfigBuilder.build());
+            nodeToContainerKeyMap.put(node.getName(), containerKey);
+            DockerContainerPool.PooledContainer pooledContainer = pooledDeployment.takeContainer(node.getName());
+            // A pooled container cannot be reused if another ip address is already reserved for the node
+            String reservedIp = nodeToReservedIpMap.get(node.getName());
+            if (pooledContainer != null && pooledContainer.configurationKey().equals(containerKey)
+                    && (reservedIp == null || reservedIp.equals(pooledContainer.ip()))) {
+                DockerContainerInfo containerInfo = new DockerContainerInfo(pooledContainer.containerId(),
+                        pooledContainer.ip());
+                shard.containerStateCache().register(node.getName(), containerInfo);
+                nodeToContainerInfoMap.put(node.getName(), containerInfo);
+                logger.info("Pooled container {} is reused for node {}!", containerInfo.containerId(), node.getName());
+                return;
+            } else if (pooledContainer != null) {
+                removePooledContainer(pooledContainer);
+            }
+        }
+
+        // Sets the network alias and static ip address. A recreated container keeps the ip address of the node and a
+        // lazy node gets the ip address that is reserved for it
+        String newIpAddress;
+        // The ip address may be reserved by the container of a node of another docker daemon at the same time
+        synchronized (nodeToReservedIpMap) {
+            newIpAddress = nodeToContainerInfoMap.containsKey(node.getName()) ?
+                    nodeToContainerInfoMap.get(node.getName()).ip() : nodeToReservedIpMap.containsKey(node.getName()) ?
+                    nodeToReservedIpMap.get(node.getName()) : shard.networkManager().getNewIpAddress();
+            nodeToReservedIpMap.putIfAbsent(node.getName(), newIpAddress);
+        }
+        Map<String, EndpointConfig> endpointConfigMap = new HashMap<>();
+        endpointConfigMap.put(shard.networkManager().dockerNetworkName(), EndpointConfig.builder()
+                .ipAddress(newIpAddress) // static ip address for containers
+                .ipamConfig(EndpointConfig.EndpointIpamConfig.builder().ipv4Address(newIpAddress).build())
+                .aliases(ImmutableList.<String>builder().add(node.getName()).build()).build());
+        containerConfigBuilder.networkingConfig(ContainerConfig.NetworkingConfig.create(endpointConfigMap));
         // Creates the container
         String containerName = Constants.DOCKER_CONTAINER_NAME_PREFIX + deployment.getName() + "_" + node.getName() + "_" + Instant.now().getEpochSecond();
         try {
-            nodeToContainerInfoMap.put(node.getName(), new DockerContainerInfo(
-                    dockerClient.createContainer(containerConfigBuilder.build(), containerName).id(), newIpAddress));
+            DockerContainerInfo containerInfo = new DockerContainerInfo(
+                    shard.client().createContainer(containerConfigBuilder.build(), containerName).id(), newIpAddress);
+            shard.containerStateCache().register(node.getName(), containerInfo);
+            nodeToContainerInfoMap.put(node.getName(), containerInfo);
             logger.info("Container {} for node {} is created!", nodeToContainerInfoMap.get(node.getName()).containerId(), node.getName());
         } catch (InterruptedException | DockerException e) {
             throw new RuntimeEngineException("Error while trying to create the container for node " + node.getName() + "!", e);
         }
     }
 
-    private String getLocalLibFakeTimeControllerFile(String nodeName) {
-        return Paths.get(nodeWorkspaceMap.get(nodeName).getWorkingDirectory(), Constants.FAKETIME_CONTROLLER_FILE_NAME)
-                .toAbsolutePath().toString();
+    /**
+     * @return the entries of the /etc/hosts file of the containers of the given docker daemon. The nodes of the other
+     * docker daemons and the nodes that are aliases of a packed container are not resolved by the embedded dns server
+     * of the network
+     */
+    private List<String> getExtraHosts(DockerShard shard) {
+        List<String> extraHosts = new ArrayList<>();
+        for (String nodeName: new TreeSet<>(nodeMap.keySet())) {
+            DockerContainerPack pack = nodeToPackMap.get(nodeName);
+            if ((isSharded() && getShard(nodeName) != shard) || (pack != null && !pack.leader().equals(nodeName))) {
+                extraHosts.add(nodeName + ":" + getNodeIpAddress(nodeName));
+            }
+        }
+        return extraHosts;
+    }
+
+    private Map<String, DockerContainerPack> getPacks() {
+        Map<String, DockerContainerPack> packs = new TreeMap<>();
+        for (DockerContainerPack pack: nodeToPackMap.values()) {
+            packs.put(pack.name(), pack);
+        }
+        return packs;
     }
 
-    private String getDockerImageCmd(String dockerImageName) throws RuntimeEngineException {
+    /**
+     * Creates and starts the container of a pack. The paths of each node are mounted under its own directory in the
+     * container, and the launcher script of the node mounts them over the paths the node expects in a mount namespace
+     * of its own before running the wrapper script of the node. The ip addresses of the nodes other than the first one
+     * are added to the network interface of the container as aliases, so the nodes can be reached on their own
+     * addresses, while the connections they open go out from the address of the first node.
+     */
+    private void createPackContainer(DockerContainerPack pack) throws RuntimeEngineException {
+        Service packService = deployment.getService(nodeMap.get(pack.leader()).getServiceName());
+        DockerShard shard = getShard(pack.leader());
+
+        String clientContainerId;
+        try {
+            clientContainerId = DockerUtil.getMyContainerId();
+        } catch (IOException e) {
+            throw new RuntimeEngineException("Cannot determine client's container id", e);
+        }
+
+        ContainerConfig.Builder containerConfigBuilder = ContainerConfig.builder();
+        HostConfig.Builder hostConfigBuilder = HostConfig.builder();
+        containerConfigBuilder.image(packService.getDockerImageName());
+        containerConfigBuilder.labels(DockerReaper.getOwnerLabels());
+        Set<String> exposedPorts = new HashSet<>();
+        StringJoiner ipAliases = new StringJoiner("; ", "", "; ");
+        for (String nodeName: pack.nodeNames()) {
+            NodeWorkspace nodeWorkspace = nodeWorkspaceMap.get(nodeName);
+            // The local paths of the node and the paths they are mounted to in the mount namespace of the node
+            Map<String, String> targetToLocalPathMap = new HashMap<>();
+            targetToLocalPathMap.put("/" + Constants.WRAPPER_SCRIPT_NAME,
+                    createWrapperScriptForNode(nodeMap.get(nodeName), Collections.emptyMap()));
+            // The engine files of the node are created along with its workspace
+            targetToLocalPathMap.put("/" + Constants.DO_INIT_FILE_NAME, nodeWorkspace.getDoInitFile());
+            targetToLocalPathMap.put("/" + Constants.CONSOLE_OUTERR_FILE_NAME, nodeWorkspace.getConsoleFile());
+            targetToLocalPathMap.put("/" + Constants.FAKETIME_CONTROLLER_FILE_NAME,
+                    nodeWorkspace.getFakeTimeControllerFile());
+            for (NodeWorkspace.PathMappingEntry pathMappingEntry: nodeWorkspace.getPathMappingList()) {
+                targetToLocalPathMap.put(pathMappingEntry.getDestination(), pathMappingEntry.getSource());
+            }
+            for (Map<String, String> localToTargetMap: Arrays.asList(nodeWorkspace.getSharedDirectoriesMap(),
+                    nodeWorkspace.getLogDirectoriesMap(), nodeWorkspace.getLogFilesMap())) {
+                for (Map.Entry<String, String> entry: localToTargetMap.entrySet()) {
+                    targetToLocalPathMap.put(entry.getValue(), entry.getKey());
+                }
+            }
+
+            String launcherFile = createLauncherScriptForNode(nodeName, targetToLocalPathMap);
+            targetToLocalPathMap.put("/" + Constants.PACKED_NODE_LAUNCHER_FILE_NAME, launcherFile);
+            for (Map.Entry<String, String> entry: targetToLocalPathMap.entrySet()) {
+                hostConfigBuilder.appendBinds(HostConfig.Bind.from(getBindSource(clientContainerId, entry.getValue()))
+                        .to(getPackedNodePath(nodeName, entry.getKey())).readOnly(false).build());
+            }
+
+            for (ExposedPortDefinition portDefinition: getNodeExposedPorts(nodeName)) {
+                exposedPorts.add(portDefinition.toString());
+            }
+            // The aliases only receive the traffic of the nodes, since the source address of the outgoing connections
+            // is the primary address of the interface, which is why the nodes of a pack cannot be partitioned apart
+            if (!nodeName.equals(pack.leader())) {
+                ipAliases.add("ip addr add " + getNodeIpAddress(nodeName) + "/32 dev eth0");
+            }
+            if (!getNodeResourceLimits(nodeName).isEmpty()) {
+                logger.warn("The resource limits of node {} are not applied since it shares container {}", nodeName,
+                        pack.name());
+            }
+        }
+        // Adds the capabilities to change the iptables rules and the addresses of the network interface, and to mount
+        // the paths of each node in its own mount namespace, which is denied by the default apparmor profile
+        hostConfigBuilder.capAdd("NET_ADMIN", "SYS_ADMIN").securityOpt("apparmor=unconfined")
+                .networkMode(shard.networkManager().dockerNetworkName());
+        List<String> extraHosts = getExtraHosts(shard);
+        if (!extraHosts.isEmpty()) {
+            hostConfigBuilder.extraHosts(extraHosts);
+        }
+        containerConfigBuilder.hostname(pack.name());
+        containerConfigBuilder.exposedPorts(exposedPorts);
+        hostConfigBuilder.publishAllPorts(true);
+        // The container only keeps the ip address aliases while the nodes come and go as processes
+        containerConfigBuilder.cmd("/bin/sh", "-c", ipAliases.toString() + "trap 'exit 0' TERM; while sleep 1; do :; done");
+        containerConfigBuilder.hostConfig(hostConfigBuilder.build());
+
+        String leaderIpAddress = getNodeIpAddress(pack.leader());
+        Map<String, EndpointConfig> endpointConfigMap = new HashMap<>();
+        endpointConfigMap.put(shard.networkManager().dockerNetworkName(), EndpointConfig.builder()
+                .ipAddress(leaderIpAddress)
+                .ipamConfig(EndpointConfig.EndpointIpamConfig.builder().ipv4Address(leaderIpAddress).build())
+                .aliases(ImmutableList.<String>builder().add(pack.leader()).build()).build());
+        containerConfigBuilder.networkingConfig(ContainerConfig.NetworkingConfig.create(endpointConfigMap));
+        String containerName = Constants.DOCKER_CONTAINER_NAME_PREFIX + deployment.getName() + "_" + pack.name() + "_"
+                + Instant.now().getEpochSecond();
         try {
-            return String.join(" ", this.dockerClient.inspectImage(dockerImageName).config().cmd());
+            pack.setContainerId(shard.client().createContainer(containerConfigBuilder.build(), containerName).id());
+            shard.client().startContainer(pack.containerId());
+        } catch (InterruptedException | DockerException e) {
+            throw new RuntimeEngineException("Error while trying to create the container for nodes " + pack.nodeNames()
+                    + "!", e);
+        }
+
+        for (String nodeName: pack.nodeNames()) {
+            nodeToContainerInfoMap.put(nodeName, new DockerContainerInfo(pack.containerId(), getNodeIpAddress(nodeName)));
+            nodeToPackedProcessMap.put(nodeName, new PackedNodeProcess(nodeName, shard.client(), pack.containerId(),
+                    getPackedNodeLaunchCommand(nodeName, "start", null), this::notifyNodeStateListeners));
+        }
+        logger.info("Container {} for nodes {} is created!", pack.containerId(), pack.nodeNames());
+    }
+
+    private static void applyResourceLimits(HostConfig.Builder hostConfigBuilder, ResourceLimits resourceLimits) {
+        if (resourceLimits.getCpus() != null) {
+            hostConfigBuilder.nanoCpus(Math.round(resourceLimits.getCpus() * 1_000_000_000L));
+        }
+        if (resourceLimits.getCpusetCpus() != null) {
+            hostConfigBuilder.cpusetCpus(resourceLimits.getCpusetCpus());
+        }
+        if (resourceLimits.getMemory() != null) {
+            hostConfigBuilder.memory(resourceLimits.getMemory());
+            // Docker only defaults the swap limit to twice the memory on creation, so an update that raises the memory
+            // above the swap limit of the container would fail without setting both
+            hostConfigBuilder.memorySwap(resourceLimits.getMemorySwap() != null ? resourceLimits.getMemorySwap()
+                    : resourceLimits.getMemory() * 2);
+        } else if (resourceLimits.getMemorySwap() != null) {
+            hostConfigBuilder.memorySwap(resourceLimits.getMemorySwap());
+        }
+    }
+
+    private static String getPackedNodePath(String nodeName, String path) {
+        return Constants.PACKED_NODES_ROOT_PATH + "/" + nodeName + path;
+    }
+
+    /**
+     * @return the command that runs the launcher script of the packed node in a new mount namespace. The launcher
+     * either starts the node or executes the given command with the paths and the environment of the node
+     */
+    private static String[] getPackedNodeLaunchCommand(String nodeName, String mode, String command) {
+        List<String> launchCommand = new ArrayList<>(Arrays.asList("unshare", "-m", "--propagation", "private",
+                "/bin/sh", getPackedNodePath(nodeName, "/" + Constants.PACKED_NODE_LAUNCHER_FILE_NAME), mode));
+        if (command != null) {
+            launchCommand.add(command);
+        }
+        return launchCommand.toArray(new String[0]);
+    }
+
+    /**
+     * This method creates the launcher script of a packed node in its root directory
+     * @param targetToLocalPathMap the paths that are mounted in the mount namespace of the node
+     * @return the address of the launcher script
+     */
+    private String createLauncherScriptForNode(String nodeName, Map<String, String> targetToLocalPathMap)
+            throws RuntimeEngineException {
+        // The launcher writes its own process id first, so it can be killed if mounting the paths of the node hangs
+        StringBuilder launcherScript = new StringBuilder("#!/bin/sh\n\n")
+                .append("if [ \"$1\" = \"start\" ]; then echo $$; fi\n\n")
+                .append("mount_path() {\n")
+                .append("    if [ -d \"$1\" ]; then mkdir -p \"$2\"; else mkdir -p \"$(dirname \"$2\")\" && touch \"$2\"; fi")
+                .append(" && mount --bind \"$1\" \"$2\"\n")
+                .append("}\n\n");
+        // The parent paths are mounted before the paths inside them
+        List<String> targets = new ArrayList<>(targetToLocalPathMap.keySet());
+        targets.sort(Comparator.comparing(String::length).thenComparing(Comparator.naturalOrder()));
+        for (String target: targets) {
+            launcherScript.append("mount_path ").append(quote(getPackedNodePath(nodeName, target))).append(" ")
+                    .append(quote(target)).append(" || exit 1\n");
+        }
+        launcherScript.append("\n");
+        for (Map.Entry<String, String> envEntry: new TreeMap<>(getNodeEnvironmentVariablesMap(nodeName)).entrySet()) {
+            launcherScript.append("export ").append(envEntry.getKey()).append("=").append(quote(envEntry.getValue()))
+                    .append("\n");
+        }
+        // The node runs in its own session, so its processes can be signaled as a group. The id of the process group
+        // is written to the stdout of the launcher, and the exit code of the node is written as a trailer to its stderr
+        launcherScript.append("\nif [ \"$1\" = \"start\" ]; then\n")
+                .append("    ").append(ExitCodeTrailerOutputStream.wrap("setsid -w /bin/sh -c 'echo $$ && exec /"
+                        + Constants.WRAPPER_SCRIPT_NAME + " >> /" + Constants.CONSOLE_OUTERR_FILE_NAME + " 2>&1'"))
+                .append("\n    exit\n")
+                .append("fi\n")
+                .append("exec /bin/sh -c \"$2\"\n");
+
+        File launcherScriptFile = Paths.get(nodeWorkspaceMap.get(nodeName).getRootDirectory())
+                .resolve(Constants.PACKED_NODE_LAUNCHER_FILE_NAME).toFile();
+        try {
+            Files.write(launcherScriptFile.toPath(), launcherScript.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeEngineException("Error while creating launcher script for node " + nodeName + "!", e);
+        }
+        launcherScriptFile.setExecutable(true);
+        launcherScriptFile.setReadable(true);
+        launcherScriptFile.setWritable(true);
+
+        return launcherScriptFile.toString();
+    }
+
+    private static String quote(String string) {
+        return "'" + string.replace("'", "'\\''") + "'";
+    }
+
+    /**
+     * @return the host path of the given local path to be used as the source of a bind mount. The paths in the working
+     * directory are mapped into the working directory link of the pooled deployment when the warm pool is enabled
+     */
+    private String getBindSource(String clientContainerId, String localPath) throws RuntimeEngineException {
+        if (pooledWorkingDirectory != null) {
+            Path workingDirectory = getWorkingDirectory();
+            Path path = Paths.get(localPath).toAbsolutePath().normalize();
+            if (path.startsWith(workingDirectory)) {
+                localPath = pooledWorkingDirectory.resolve(workingDirectory.relativize(path)).toString();
+            }
+        }
+        // The client only runs inside a container when there is a single docker daemon
+        return DockerUtil.mapDockerPathToHostPath(getSingleShard().client(), clientContainerId, localPath);
+    }
+
+    private static String getContainerConfigurationKey(ContainerConfig containerConfig) throws RuntimeEngineException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            StringBuilder key = new StringBuilder();
+            for (byte b: digest.digest(containerConfig.toString().getBytes(StandardCharsets.UTF_8))) {
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeEngineException("Error while calculating the container configuration key!", e);
+        }
+    }
+
+    private void removePooledContainer(DockerContainerPool.PooledContainer pooledContainer) {
+        try {
+            logger.info("Removing pooled container {} ...", pooledContainer.containerId());
+            getSingleShard().client().removeContainer(pooledContainer.containerId(),
+                    DockerClient.RemoveContainerParam.forceKill());
+            getSingleShard().networkManager().releaseIpAddress(pooledContainer.ip());
+        } catch (InterruptedException | DockerException e) {
+            logger.warn("Error while trying to remove pooled container {}!", pooledContainer.containerId(), e);
+        }
+    }
+
+    private String getDockerImageCmd(DockerClient dockerClient, String dockerImageName) throws RuntimeEngineException {
+        try {
+            return String.join(" ", dockerClient.inspectImage(dockerImageName).config().cmd());
         } catch (InterruptedException | DockerException var3) {
             throw new RuntimeEngineException("Error while inspecting docker image " + dockerImageName + " to get its cmd string", var3);
         }
@@ -436,9 +1049,8 @@ public class SingleNodeRuntimeEngine extends RuntimeEngine {
      * This method creates a customized wrapper script for the node in its root directory
      * @return the address of wrapper script
      */
-    private String createWrapperScriptForNode(Node node) throws RuntimeEngineException {
-        File wrapperScriptFile = Paths.get(nodeWorkspaceMap.get(node.getName()).getRootDirectory())
-                .resolve("wrapper_script").toFile();
+    private String createWrapperScriptForNode(Node node, Map<String, String> environment) throws RuntimeEngineException {
+        File wrapperScriptFile = getWrapperScriptFile(node.getName());
 
         try {
             String wrapperScriptString = IOUtils.toString(ClassLoader.getSystemResourceAsStream("wrapper_script"),
@@ -446,6 +1058,12 @@ public class SingleNodeRuntimeEngine extends RuntimeEngine {
             String initCommand = getNodeInitCommand(node.getName());
             String startCommand = getNodeStartCommand(node.getName());
 
+            StringJoiner exports = new StringJoiner("\n");
+            for (Map.Entry<String, String> envEntry: environment.entrySet()) {
+                exports.add("export " + envEntry.getKey() + "='" + envEntry.getValue().replace("'", "'\\''") + "'");
+            }
+            wrapperScriptString = wrapperScriptString.replace("{{ENVIRONMENT}}", exports.toString());
+
             if (initCommand != null) {
                 wrapperScriptString = wrapperScriptString.replace("{{INIT_COMMAND}}", initCommand);
             } else {
@@ -453,7 +1071,7 @@ public class SingleNodeRuntimeEngine extends RuntimeEngine {
             }
 
             if (startCommand == null) {
-                startCommand = this.getDockerImageCmd(this.deployment.getService(node.getServiceName()).getDockerImageName());
+                startCommand = this.getDockerImageCmd(getShard(node.getName()).client(), this.deployment.getService(node.getServiceName()).getDockerImageName());
             }
 
             if (startCommand == null) {
@@ -475,27 +1093,166 @@ public class SingleNodeRuntimeEngine extends RuntimeEngine {
         return wrapperScriptFile.toString();
     }
 
+    private File getWrapperScriptFile(String nodeName) {
+        return Paths.get(nodeWorkspaceMap.get(nodeName).getRootDirectory()).resolve(Constants.WRAPPER_SCRIPT_FILE_NAME).toFile();
+    }
+
     @Override
     protected void stopNodes(Boolean kill, Integer secondsUntilForcedStop) {
-        // stops all of the running containers
+        if (pooledDeployment != null) {
+            stopNodesIntoPool(kill, secondsUntilForcedStop);
+            return;
+        }
+
+        // stops all of the running containers in parallel. Removing a container with force kills it, so killing
+        // before removal is not needed
         logger.info("Stopping containers ...");
-        for (String nodeName: nodeToContainerInfoMap.keySet()) {
-            try {
-                if (kill) {
-                    killNode(nodeName);
-                } else {
-                    stopNode(nodeName, secondsUntilForcedStop);
+        try {
+            nodeTaskExecutor.runOnNodes(nodeToContainerInfoMap.keySet(), "stop and remove the container of", nodeName -> {
+                if (!kill) {
+                    try {
+                        stopNode(nodeName, secondsUntilForcedStop);
+                    } catch (RuntimeEngineException e) {
+                        logger.warn("Error while trying to stop the container for node {}!", nodeName);
+                    }
                 }
-            } catch (RuntimeEngineException e) {
-                logger.warn("Error while trying to stop the container for node {}!", nodeName);
+                // The container of a pack is removed once all of its nodes are stopped
+                if (!nodeToPackMap.containsKey(nodeName)) {
+                    removeContainer(nodeName);
+                }
+            });
+        } catch (RuntimeEngineException e) {
+            logger.warn(e.getMessage(), e);
+        }
+        for (DockerContainerPack pack: getPacks().values()) {
+            if (pack.containerId() == null) {
+                continue;
             }
+            logger.info("Removing container for nodes {} ...", pack.nodeNames());
             try {
+                getShard(pack.leader()).client().removeContainer(pack.containerId(),
+                        DockerClient.RemoveContainerParam.forceKill());
+            } catch (InterruptedException | DockerException e) {
+                logger.warn("Error while trying to remove the container for nodes {}!", pack.nodeNames(), e);
+            }
+        }
+
+        disconnectClientContainer();
+        for (DockerShard shard: shards) {
+            // deletes the created docker network
+            if (shard.networkManager() != null) {
+                try {
+                    logger.info("Deleting docker network {} ...", shard.networkManager().dockerNetworkId());
+                    shard.networkManager().deleteDockerNetwork();
+                    logger.info("Docker network is deleted successfully!");
+                } catch (RuntimeEngineException e) {
+                    logger.error(e.getMessage(), e);
+                }
+            }
+
+            if (shard.containerStateCache() != null) {
+                shard.containerStateCache().close();
+            }
+        }
+    }
+
+    /**
+     * Stops the containers and puts the ones whose writable layer can be reset back in the warm pool together with the
+     * docker network. The files added to the writable layer of a container are removed by starting it once more with a
+     * wrapper script that only removes them.
+     */
+    private void stopNodesIntoPool(Boolean kill, Integer secondsUntilForcedStop) {
+        logger.info("Stopping containers into the warm pool ...");
+        // The warm pool is only used with a single docker daemon
+        DockerClient dockerClient = getSingleShard().client();
+        DockerNetworkManager dockerNetworkManager = getSingleShard().networkManager();
+        Map<String, List<String>> nodeToPathsToReset = new ConcurrentHashMap<>();
+        try {
+            nodeTaskExecutor.runOnNodes(nodeToContainerInfoMap.keySet(), "stop and reset the container of", nodeName -> {
+                try {
+                    if (kill) {
+                        killNode(nodeName);
+                    } else {
+                        stopNode(nodeName, secondsUntilForcedStop);
+                    }
+                    String containerId = nodeToContainerInfoMap.get(nodeName).containerId();
+                    List<String> mountDestinations = dockerClient.inspectContainer(containerId).mounts().stream()
+                            .map(ContainerMount::destination).collect(Collectors.toList());
+                    List<String> pathsToReset = DockerContainerPool.getPathsToReset(
+                            dockerClient.inspectContainerChanges(containerId), mountDestinations);
+                    if (pathsToReset != null) {
+                        nodeToPathsToReset.put(nodeName, pathsToReset);
+                        return;
+                    }
+                    logger.info("Container of node {} has changed files of its image and cannot be pooled", nodeName);
+                } catch (RuntimeEngineException | DockerException e) {
+                    logger.warn("Error while trying to stop the container for node {}!", nodeName, e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
                 removeContainer(nodeName);
-            } catch (RuntimeEngineException e) {
-                logger.warn("Error while trying to remove the container for node {}!", nodeName);
+            });
+        } catch (RuntimeEngineException e) {
+            logger.warn(e.getMessage(), e);
+        }
+
+        disconnectClientContainer();
+        // The state of the containers is not tracked anymore, so the reset runs are not reported as node crashes
+        getSingleShard().containerStateCache().close();
+
+        try {
+            nodeTaskExecutor.runOnNodes(nodeToPathsToReset.keySet(), "reset the container of", nodeName -> {
+                DockerContainerInfo containerInfo = nodeToContainerInfoMap.get(nodeName);
+                if (resetContainer(nodeName, nodeToPathsToReset.get(nodeName))) {
+                    pooledDeployment.putContainer(nodeName, new DockerContainerPool.PooledContainer(
+                            containerInfo.containerId(), containerInfo.ip(), nodeToContainerKeyMap.get(nodeName)));
+                } else {
+                    removeContainer(nodeName);
+                    dockerNetworkManager.releaseIpAddress(containerInfo.ip());
+                }
+            });
+        } catch (RuntimeEngineException e) {
+            logger.warn(e.getMessage(), e);
+        }
+
+        // The pooled network outlives this run, so the ip addresses reserved for the nodes that never got a container
+        // are returned to it
+        for (Map.Entry<String, String> reservedIp: nodeToReservedIpMap.entrySet()) {
+            if (!nodeToContainerInfoMap.containsKey(reservedIp.getKey())) {
+                dockerNetworkManager.releaseIpAddress(reservedIp.getValue());
             }
         }
 
+        DockerContainerPool.getInstance().release(pooledDeployment);
+    }
+
+    private boolean resetContainer(String nodeName, List<String> pathsToReset) {
+        if (pathsToReset.isEmpty()) {
+            return true;
+        }
+
+        logger.info("Resetting container of node {} by removing {} ...", nodeName, pathsToReset);
+        StringJoiner resetScript = new StringJoiner(" ", "#!/bin/sh\nrm -rf", "\n");
+        for (String path: pathsToReset) {
+            resetScript.add("'" + path.replace("'", "'\\''") + "'");
+        }
+        try {
+            Files.write(getWrapperScriptFile(nodeName).toPath(), resetScript.toString().getBytes(StandardCharsets.UTF_8));
+            String containerId = nodeToContainerInfoMap.get(nodeName).containerId();
+            DockerClient dockerClient = getSingleShard().client();
+            dockerClient.startContainer(containerId);
+            return dockerClient.waitContainer(containerId).statusCode() == 0;
+        } catch (IOException | DockerException e) {
+            logger.warn("Error while trying to reset the container for node {}!", nodeName, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private void disconnectClientContainer() {
+        // The client only runs inside a container when there is a single docker daemon
+        DockerNetworkManager dockerNetworkManager = shards.isEmpty() ? null : getSingleShard().networkManager();
         if (dockerNetworkManager != null) {
             // If the client is a docker container, removes the container from the created docker network
             if (DockerUtil.isRunningInsideDocker()) {
@@ -508,49 +1265,78 @@ public class SingleNodeRuntimeEngine extends RuntimeEngine {
                 }
                 if (clinetContainerId != null && !clinetContainerId.isEmpty()) {
                     try {
-                        dockerClient.disconnectFromNetwork(clinetContainerId, dockerNetworkManager.dockerNetworkId());
+                        getSingleShard().client().disconnectFromNetwork(clinetContainerId, dockerNetworkManager.dockerNetworkId());
+                        if (clientContainerIpAddress != null) {
+                            dockerNetworkManager.releaseIpAddress(clientContainerIpAddress);
+                            clientContainerIpAddress = null;
+                        }
                     } catch (DockerException | InterruptedException e) {
                         logger.error("Error while trying to remove client container from the docker network " + dockerNetworkManager
                                 .dockerNetworkId(), e);
                     }
                 }
             }
-
-            // deletes the created docker network
-            try {
-                logger.info("Deleting docker network {} ...", dockerNetworkManager.dockerNetworkId());
-                dockerNetworkManager.deleteDockerNetwork();
-                logger.info("Docker network is deleted successfully!");
-            } catch (RuntimeEngineException e) {
-                logger.error(e.getMessage(), e);
-            }
         }
     }
 
     private void removeContainer(String nodeName) throws RuntimeEngineException {
         logger.info("Removing container for node {} ...", nodeName);
+        getShard(nodeName).containerStateCache().expectExit(nodeName);
         try {
-            dockerClient.removeContainer(nodeToContainerInfoMap.get(nodeName).containerId(),
+            getShard(nodeName).client().removeContainer(nodeToContainerInfoMap.get(nodeName).containerId(),
                     DockerClient.RemoveContainerParam.forceKill());
             logger.info("Node {} container is removed!", nodeName);
         } catch (InterruptedException | DockerException e) {
+            getShard(nodeName).containerStateCache().cancelExpectedExit(nodeName);
             throw new RuntimeEngineException("Error while trying to remove the container for node " + nodeName + "!", e);
         }
     }
 
+    private void runStopCommand(String nodeName) throws RuntimeEngineException {
+        String stopCommand = getNodeStopCommand(nodeName);
+        if (stopCommand != null) {
+            try {
+                runCommandInNode(nodeName, stopCommand);
+            } catch (NodeIsNotRunningException e) {
+                logger.debug("Stop command for node {} cant be executed since the node is not running", nodeName);
+            }
+        }
+    }
+
     @Override
-    public void killNode(String nodeName) throws RuntimeEngineException {
-        if (nodeToContainerInfoMap.containsKey(nodeName)) {
+    protected void doKillNode(String nodeName) throws RuntimeEngineException {
+        PackedNodeProcess packedProcess = nodeToPackedProcessMap.get(nodeName);
+        if (packedProcess != null) {
+            if (!packedProcess.isRunning()) {
+                logger.info("Node {} is not running. Node kill is not needed.", nodeName);
+                return;
+            }
             logger.info("Killing node {} ...", nodeName);
+            packedProcess.kill();
+            logger.info("Node {} is killed!", nodeName);
+        } else if (nodeToContainerInfoMap.containsKey(nodeName)) {
+            DockerClient dockerClient = getShard(nodeName).client();
+            DockerContainerStateCache containerStateCache = getShard(nodeName).containerStateCache();
+            if (containerStateCache.isKnownNotRunning(nodeName)) {
+                logger.info("Node {} is not running. Node kill is not needed.", nodeName);
+                return;
+            }
+            logger.info("Killing node {} ...", nodeName);
+            int previousExits = containerStateCache.getExitCount(nodeName);
+            containerStateCache.expectExit(nodeName);
             try {
                 dockerClient.killContainer(nodeToContainerInfoMap.get(nodeName).containerId());
+                containerStateCache.awaitExit(nodeName, previousExits);
                 logger.info("Node {} is killed!", nodeName);
             } catch (DockerRequestException e) {
-                // TODO maybe find a better way to do this
-                if (!(e.status() == 500 && e.getResponseBody().toLowerCase().contains("not running"))) {
+                // The container may have exited on its own in the meantime, which is a crash and not the expected exit
+                containerStateCache.cancelExpectedExit(nodeName);
+                containerStateCache.refresh(nodeName);
+                if (containerStateCache.getNodeState(nodeName).isRunning()) {
                     throw new RuntimeEngineException("Error while trying to kill the container for node " + nodeName + "!", e);
                 }
             } catch (InterruptedException | DockerException e) {
+                containerStateCache.cancelExpectedExit(nodeName);
                 throw new RuntimeEngineException("Error while trying to kill the container for node " + nodeName + "!", e);
             }
         } else {
@@ -559,24 +1345,37 @@ public class SingleNodeRuntimeEngine extends RuntimeEngine {
     }
 
     @Override
-    public void stopNode(String nodeName, Integer secondsUntilForcedStop) throws RuntimeEngineException {
-        if (nodeToContainerInfoMap.containsKey(nodeName)) {
+    protected void doStopNode(String nodeName, Integer secondsUntilForcedStop) throws RuntimeEngineException {
+        PackedNodeProcess packedProcess = nodeToPackedProcessMap.get(nodeName);
+        if (packedProcess != null) {
+            if (!packedProcess.isRunning()) {
+                logger.info("Node {} is not running. Node stop is not needed.", nodeName);
+                return;
+            }
             logger.info("Stopping node {} ...", nodeName);
+            runStopCommand(nodeName);
+            packedProcess.stop(secondsUntilForcedStop);
+            logger.info("Node {} is stopped!", nodeName);
+        } else if (nodeToContainerInfoMap.containsKey(nodeName)) {
+            DockerClient dockerClient = getShard(nodeName).client();
+            DockerContainerStateCache containerStateCache = getShard(nodeName).containerStateCache();
+            if (containerStateCache.isKnownNotRunning(nodeName)) {
+                logger.info("Node {} is not running. Node stop is not needed.", nodeName);
+                return;
+            }
+            logger.info("Stopping node {} ...", nodeName);
+            int previousExits = containerStateCache.getExitCount(nodeName);
+            containerStateCache.expectExit(nodeName);
             try {
                 // Runs stop command. useful for stopping daemon processes gracefully
-                String stopCommand = getNodeStopCommand(nodeName);
-                if (stopCommand != null) {
-                    try {
-                        runCommandInNode(nodeName, stopCommand);
-                    } catch (NodeIsNotRunningException e) {
-                        logger.debug("Stop command for node {} cant be executed since the node is not running", nodeName);
-                    }
-                }
+                runStopCommand(nodeName);
                 dockerClient.stopContainer(nodeToContainerInfoMap.get(nodeName).containerId(), secondsUntilForcedStop);
+                containerStateCache.awaitExit(nodeName, previousExits);
                 logger.info("Node {} is stopped!", nodeName);
             } catch (NodeIsNotRunningException | ContainerNotFoundException e) {
-                logger.debug("Node {} is not running. Node stop is not needed.");
+                logger.debug("Node {} is not running. Node stop is not needed.", nodeName);
             } catch (InterruptedException | DockerException e) {
+                containerStateCache.cancelExpectedExit(nodeName);
                 throw new RuntimeEngineException("Error while trying to stop the container for node " + nodeName + "!", e);
             }
         } else {
@@ -584,10 +1383,21 @@ public class SingleNodeRuntimeEngine extends RuntimeEngine {
         }
     }
 
+    /**
+     * The port mappings are only used when the nodes are not directly reachable from the client
+     */
+    private boolean isPortMappingNeeded() {
+        return !DockerUtil.isRunningInsideDocker() && OsUtil.getOS() != OsUtil.OS.LINUX;
+    }
+
     private void updateContainerPortMapping(String nodeName) throws RuntimeEngineException {
+        if (!isPortMappingNeeded()) {
+            return;
+        }
+
         ContainerInfo containerInfo;
         try {
-            containerInfo = dockerClient.inspectContainer(nodeToContainerInfoMap.get(nodeName).containerId());
+            containerInfo = getShard(nodeName).client().inspectContainer(nodeToContainerInfoMap.get(nodeName).containerId());
         } catch (InterruptedException | DockerException e) {
             throw new RuntimeEngineException("Error while trying to inspect the status of node " + nodeName + "!", e);
         }
@@ -602,33 +1412,37 @@ public class SingleNodeRuntimeEngine extends RuntimeEngine {
     }
 
     @Override
-    public void startNode(String nodeName) throws RuntimeEngineException {
-        if (nodeToContainerInfoMap.containsKey(nodeName)) {
+    protected void doStartNode(String nodeName) throws RuntimeEngineException {
+        PackedNodeProcess packedProcess = nodeToPackedProcessMap.get(nodeName);
+        if (packedProcess != null) {
+            if (packedProcess.isRunning()) {
+                logger.info("Node {} is already started!", nodeName);
+                return;
+            }
+            logger.info("Starting node {} ...", nodeName);
+            packedProcess.start();
+            reApplyNetworkFaults(nodeName);
+            logger.info("Node {} is started!", nodeName);
+        } else if (nodeToContainerInfoMap.containsKey(nodeName)) {
+            DockerClient dockerClient = getShard(nodeName).client();
+            DockerContainerStateCache containerStateCache = getShard(nodeName).containerStateCache();
+            if (containerStateCache.isKnownRunning(nodeName)) {
+                logger.info("Node {} is already started!", nodeName);
+                return;
+            }
             logger.info("Starting node {} ...", nodeName);
 
             String containerId = nodeToContainerInfoMap.get(nodeName).containerId();
+            int previousStarts = containerStateCache.getStartCount(nodeName);
 
             try {
                 dockerClient.startContainer(containerId);
-                networkOperationManager.reApplyNetworkOperations(nodeName);
-                networkPartitionManager.reApplyNetworkPartition(nodeName);
+                containerStateCache.awaitStart(nodeName, previousStarts);
+                reApplyNetworkFaults(nodeName);
             } catch (InterruptedException | DockerException e) {
                 throw new RuntimeEngineException("Error while trying to start the container for node " + nodeName + "!", e);
             }
-            // Prevents the init command to be executed in the next run of this node
-            try {
-                Thread.sleep(50);
-            } catch (InterruptedException e) {
-                throw new RuntimeEngineException("Error while waiting for node " + nodeName + " to get started!", e);
-            }
-            try {
-                Files.write(Paths.get(nodeWorkspaceMap.get(nodeName).getWorkingDirectory(), "redit_do_init"),
-                        "0".getBytes());
-            } catch (IOException e) {
-                throw new RuntimeEngineException("Error while changing redit do init file in node " + nodeName + " workspace!", e);
-            }
-
-            updateContainerPortMapping(nodeName);
+            // The wrapper script itself prevents the init command to be executed in the next run of this node
 
             logger.info("Node {} is started!", nodeName);
         } else {
@@ -637,25 +1451,30 @@ public class SingleNodeRuntimeEngine extends RuntimeEngine {
     }
 
     @Override
-    public void restartNode(String nodeName, Integer secondsUntilForcedStop) throws RuntimeEngineException {
-        if (nodeToContainerInfoMap.containsKey(nodeName)) {
+    protected void doRestartNode(String nodeName, Integer secondsUntilForcedStop) throws RuntimeEngineException {
+        PackedNodeProcess packedProcess = nodeToPackedProcessMap.get(nodeName);
+        if (packedProcess != null) {
+            logger.info("Restarting node {} ...", nodeName);
+            runStopCommand(nodeName);
+            packedProcess.stop(secondsUntilForcedStop);
+            packedProcess.start();
+            reApplyNetworkFaults(nodeName);
+            logger.info("Node {} is restarted!", nodeName);
+        } else if (nodeToContainerInfoMap.containsKey(nodeName)) {
+            DockerClient dockerClient = getShard(nodeName).client();
+            DockerContainerStateCache containerStateCache = getShard(nodeName).containerStateCache();
             logger.info("Restarting node {} ...", nodeName);
             try {
                 // Runs stop command. useful for restarting daemon processes gracefully
-                String stopCommand = getNodeStopCommand(nodeName);
-                if (stopCommand != null) {
-                    try {
-                        runCommandInNode(nodeName, stopCommand);
-                    } catch (NodeIsNotRunningException e) {
-                        logger.debug("Stop command for node {} cant be executed since the node is not running", nodeName);
-                    }
-                }
+                runStopCommand(nodeName);
+                int previousStarts = containerStateCache.getStartCount(nodeName);
+                containerStateCache.expectExit(nodeName);
                 dockerClient.restartContainer(nodeToContainerInfoMap.get(nodeName).containerId());
-                networkOperationManager.reApplyNetworkOperations(nodeName);
-                networkPartitionManager.reApplyNetworkPartition(nodeName);
-                updateContainerPortMapping(nodeName);
+                containerStateCache.awaitStart(nodeName, previousStarts);
+                reApplyNetworkFaults(nodeName);
                 logger.info("Node {} is restarted!", nodeName);
             } catch (InterruptedException | DockerException e) {
+                containerStateCache.cancelExpectedExit(nodeName);
                 throw new RuntimeEngineException("Error while trying to restart the container for node " + nodeName + "!", e);
             }
         } else {
@@ -664,7 +1483,7 @@ public class SingleNodeRuntimeEngine extends RuntimeEngine {
     }
 
     @Override
-    public synchronized void clockDrift(String nodeName, Integer amount) throws RuntimeEngineException {
+    protected void doClockDrift(String nodeName, Integer amount) throws RuntimeEngineException {
         if (!nodeToContainerInfoMap.containsKey(nodeName)) {
             throw new NodeNotFoundException(nodeName);
         }
@@ -675,31 +1494,150 @@ public class SingleNodeRuntimeEngine extends RuntimeEngine {
         }
 
         logger.info("Applying clock drift {},{}", nodeName, amount);
-        Path localLibFakeTimeFile = Paths.get(getLocalLibFakeTimeControllerFile(nodeName));
-        String stringAmount = amount.toString();
+        Path localLibFakeTimeFile = Paths.get(nodeWorkspaceMap.get(nodeName).getFakeTimeControllerFile());
+        try {
+            Files.write(localLibFakeTimeFile, (getLibFakeTimeOffset(amount) + "\n").getBytes());
+        } catch (IOException e) {
+            throw new RuntimeEngineException("Error while writing into libfaketime controller file for node " + nodeName, e);
+        }
+    }
 
-        // Adds the missing + sign if necessary
-        if (!stringAmount.startsWith("-") && !stringAmount.startsWith("+")) {
-            stringAmount = "+" + stringAmount;
+    @Override
+    protected void doUpdateNodeResources(String nodeName, ResourceLimits resourceLimits) throws RuntimeEngineException {
+        checkNotPacked(nodeName, "update the resource limits of");
+        HostConfig.Builder hostConfigBuilder = HostConfig.builder();
+        applyResourceLimits(hostConfigBuilder, resourceLimits);
+        try {
+            getShard(nodeName).client().updateContainer(nodeToContainerInfoMap.get(nodeName).containerId(),
+                    hostConfigBuilder.build());
+        } catch (InterruptedException | DockerException e) {
+            throw new RuntimeEngineException("Error while trying to update the resource limits of the container for node "
+                    + nodeName + "!", e);
         }
+        // The container doesn't match the configuration it is created with anymore, so it is not reused by the next runs
+        nodeToContainerKeyMap.computeIfPresent(nodeName, (key, containerKey) -> containerKey + " " + resourceLimits);
+    }
 
-        // Adds comma as the fraction delimiter. If necessary will add 0 to the right
-        // 1000 => +1,000 , 10 => +0,010 , -1 => -0,001
-        if (stringAmount.length() > 4) {
-            stringAmount = stringAmount.substring(0, stringAmount.length() - 3) + "," +
-                    stringAmount.substring(stringAmount.length() - 3);
-        } else {
-            String stringNumber = stringAmount.substring(1);
-            for (int i = 0; i < 4 - stringAmount.length(); i++) {
-                stringNumber = "0" + stringNumber;
-            }
-            stringAmount = stringAmount.charAt(0) + "0," + stringNumber;
+    @Override
+    protected void freezeNode(String nodeName) throws RuntimeEngineException {
+        if (nodeToPackedProcessMap.containsKey(nodeName)) {
+            nodeToPackedProcessMap.get(nodeName).freeze();
+            return;
+        }
+        try {
+            getShard(nodeName).client().pauseContainer(nodeToContainerInfoMap.get(nodeName).containerId());
+        } catch (InterruptedException | DockerException e) {
+            throw new RuntimeEngineException("Error while trying to pause the container for node " + nodeName + "!", e);
         }
+    }
 
+    @Override
+    protected void unfreezeNode(String nodeName) throws RuntimeEngineException {
+        if (nodeToPackedProcessMap.containsKey(nodeName)) {
+            nodeToPackedProcessMap.get(nodeName).unfreeze();
+            return;
+        }
         try {
-            Files.write(localLibFakeTimeFile, (stringAmount + "\n").getBytes());
-        } catch (IOException e) {
-            throw new RuntimeEngineException("Error while writing into libfaketime controller file for node " + nodeName, e);
+            getShard(nodeName).client().unpauseContainer(nodeToContainerInfoMap.get(nodeName).containerId());
+        } catch (InterruptedException | DockerException e) {
+            throw new RuntimeEngineException("Error while trying to unpause the container for node " + nodeName + "!", e);
+        }
+    }
+
+    /**
+     * Commits the writable layer of the node's container into a snapshot image
+     * @return the name of the snapshot image
+     */
+    @Override
+    protected String snapshotNodeState(String nodeName, String snapshotName) throws RuntimeEngineException {
+        checkNotPacked(nodeName, "snapshot");
+        String repository = (Constants.DOCKER_SNAPSHOT_IMAGE_PREFIX + deployment.getName()).toLowerCase()
+                .replaceAll("[^a-z0-9_.-]", "_");
+        String tag = (snapshotName + "_" + nodeName).replaceAll("[^A-Za-z0-9_.-]", "_");
+        String containerId = nodeToContainerInfoMap.get(nodeName).containerId();
+        DockerClient dockerClient = getShard(nodeName).client();
+        try {
+            dockerClient.commitContainer(containerId, repository, tag, dockerClient.inspectContainer(containerId).config(),
+                    "Redit snapshot " + snapshotName + " of node " + nodeName, null);
+        } catch (InterruptedException | DockerException e) {
+            throw new RuntimeEngineException("Error while trying to commit the container for node " + nodeName + "!", e);
+        }
+        return repository + ":" + tag;
+    }
+
+    /**
+     * Replaces the node's container with a new container created out of the snapshot image with the same configuration
+     */
+    @Override
+    protected void restoreNodeState(String nodeName, String nodeState) throws RuntimeEngineException {
+        checkNotPacked(nodeName, "restore");
+        removeContainer(nodeName);
+        nodeToSnapshotImageMap.put(nodeName, nodeState);
+        createNodeContainer(nodeMap.get(nodeName));
+    }
+
+    /**
+     * The container of a packed node is shared with the other nodes of its pack, so the operations on the whole
+     * container cannot be applied to the node alone
+     */
+    private void checkNotPacked(String nodeName, String operation) throws RuntimeEngineException {
+        DockerContainerPack pack = nodeToPackMap.get(nodeName);
+        if (pack != null) {
+            throw new RuntimeEngineException("Cannot " + operation + " node " + nodeName + " since it shares container "
+                    + pack.name() + " with nodes " + pack.nodeNames() + "!");
+        }
+    }
+
+    @Override
+    public void networkOperation(String nodeName, NetOp.BuilderBase... netOpBuilders) throws RuntimeEngineException {
+        // The traffic control rules apply to the network interface that all of the nodes of a pack share
+        checkNotPacked(nodeName, "apply network operations on");
+        super.networkOperation(nodeName, netOpBuilders);
+    }
+
+    /**
+     * The nodes of a pack share the network stack of their container, so the connections that the nodes other than the
+     * first one open go out from the address of the first node. The nodes of a pack cannot be separated by a partition
+     * since the traffic of each of them cannot be told apart at the other side.
+     */
+    @Override
+    public void networkPartition(NetPart netPart) throws RuntimeEngineException {
+        Map<String, Integer> nodeToPartitionMap = new HashMap<>();
+        for (int i = 0; i < netPart.getPartitions().length; i++) {
+            for (String nodeName: netPart.getPartitions()[i].split(",")) {
+                // The nodes that are not in any of the given partitions are in the rest partition
+                nodeToPartitionMap.put(nodeName.trim(), i + 1);
+            }
+        }
+        for (DockerContainerPack pack: new HashSet<>(nodeToPackMap.values())) {
+            Set<Integer> packPartitions = new HashSet<>();
+            for (String nodeName: pack.nodeNames()) {
+                packPartitions.add(nodeToPartitionMap.getOrDefault(nodeName, 0));
+            }
+            if (packPartitions.size() > 1) {
+                throw new RuntimeEngineException("Cannot apply network partition " + netPart.getPartitionsString()
+                        + " since it separates nodes " + pack.nodeNames() + " that share container " + pack.name() + "!");
+            }
+        }
+        super.networkPartition(netPart);
+    }
+
+    @Override
+    protected String getNetworkPartitionDestination(String nodeName) {
+        return nodeToPackMap.containsKey(nodeName) ? getNodeIpAddress(nodeName) : null;
+    }
+
+    @Override
+    protected void deleteNodeState(String nodeState) throws RuntimeEngineException {
+        // The snapshot image only exists in the docker daemon of the node it is taken from
+        for (DockerShard shard: shards) {
+            try {
+                shard.client().removeImage(nodeState);
+            } catch (ImageNotFoundException e) {
+                logger.debug("Snapshot image {} is not in docker {}", nodeState, shard);
+            } catch (InterruptedException | DockerException e) {
+                throw new RuntimeEngineException("Error while trying to remove snapshot image " + nodeState + "!", e);
+            }
         }
     }
 
@@ -33,9 +33,13 @@ import java.util.Map;
 public interface InstrumentationEngine {
     /**
      * This method should instrument the nodes based on the given definition and node workspaces. It is important that
-     * this method doesn't change any of the application paths
+     * this method doesn't change any of the application paths. The method is called once on startup with all of the
+     * nodes created on startup, and once more for each node that is created lazily when it is first started. The calls
+     * are never made concurrently
      * @param deployment the deployment definition object
-     * @param nodeWorkspaceMap the map of node name to the node's workspace information
+     * @param nodeWorkspaceMap the map of node name to the node's workspace information. The workspaces of the lazily
+     *                         materialized nodes are instrumented separately when they are created, so only the nodes
+     *                         in this map should be instrumented
      * @throws InstrumentationException if something goes wrong during instrumentation
      */
     void instrumentNodes(Deployment deployment, Map<String, NodeWorkspace> nodeWorkspaceMap)
@@ -74,8 +74,12 @@ public class RunSequenceInstrumentationEngine implements InstrumentationEngine {
             }
         }
 
-        // Instruments each node's binaries based on its service type
+        // Instruments each node's binaries based on its service type. The nodes without a workspace are instrumented
+        // when their workspace is created
         for (Node node: nodeMap.keySet()) {
+            if (!nodeWorkspaceMap.containsKey(node.getName())) {
+                continue;
+            }
             logger.info("Starting the instrumentation process for node {} ...", node.getName());
             Service service = deployment.getService(node.getServiceName());
             List<InstrumentationDefinition> instrumentationDefinitions = new ArrayList<>();
@@ -0,0 +1,80 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An in-memory output stream that keeps at most a fixed number of bytes and only counts the rest. This is useful for
+ * collecting the output of commands that may produce a large amount of output.
+ */
+public class BoundedOutputStream extends OutputStream {
+    private final ByteArrayOutputStream buffer;
+    private final int limit;
+    private long truncatedBytes;
+
+    public BoundedOutputStream(int limit) {
+        this.buffer = new ByteArrayOutputStream(Math.min(limit, 8192));
+        this.limit = limit;
+        this.truncatedBytes = 0;
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        if (buffer.size() < limit) {
+            buffer.write(b);
+        } else {
+            truncatedBytes++;
+        }
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        int kept = Math.max(0, Math.min(len, limit - buffer.size()));
+        buffer.write(b, off, kept);
+        truncatedBytes += len - kept;
+    }
+
+    /**
+     * @return the number of bytes that did not fit in the stream
+     */
+    public synchronized long getTruncatedBytes() {
+        return truncatedBytes;
+    }
+
+    /**
+     * @return the kept bytes as a UTF-8 string followed by a note if some of the bytes did not fit in the stream
+     */
+    @Override
+    public synchronized String toString() {
+        String content = new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+        if (truncatedBytes > 0) {
+            content += System.lineSeparator() + "... [" + truncatedBytes + " bytes truncated]";
+        }
+        return content;
+    }
+}
@@ -36,6 +36,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 public class DockerUtil {
@@ -44,7 +45,7 @@ public class DockerUtil {
     private static Map<String, Map<String,String>> containerIdToVolumeMappingCache;
 
     static {
-        containerIdToVolumeMappingCache = new HashMap<>();
+        containerIdToVolumeMappingCache = new ConcurrentHashMap<>();
     }
 
     private static Map<String, String> getDockerVolumeMapping(DockerClient dockerClient, String containerId)
@@ -24,6 +24,8 @@
 
 package io.redit.util;
 
+import org.apache.commons.io.FileUtils;
+
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -133,6 +135,78 @@ public class FileUtil {
                 });
     }
 
+    /**
+     * Makes the target directory a copy of the source directory. Only the files whose size or modification time differ
+     * are copied, and the files and directories that don't exist in the source are deleted from the target. Symbolic
+     * links are copied as links
+     * @param source the directory to be copied
+     * @param target the directory to be updated
+     * @param excluded the relative paths to be left untouched in the target
+     */
+    public static void syncDirectory(final Path source, final Path target, final Set<Path> excluded)
+            throws IOException {
+        Files.createDirectories(target);
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Path relativePath = source.relativize(dir);
+                if (excluded.contains(relativePath)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                Path targetDir = target.resolve(relativePath);
+                if (Files.exists(targetDir, LinkOption.NOFOLLOW_LINKS)
+                        && !Files.isDirectory(targetDir, LinkOption.NOFOLLOW_LINKS)) {
+                    Files.delete(targetDir);
+                }
+                Files.createDirectories(targetDir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path relativePath = source.relativize(file);
+                if (excluded.contains(relativePath)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                Path targetFile = target.resolve(relativePath);
+                if (Files.isDirectory(targetFile, LinkOption.NOFOLLOW_LINKS)) {
+                    FileUtils.deleteDirectory(targetFile.toFile());
+                } else if (!attrs.isSymbolicLink() && Files.isRegularFile(targetFile, LinkOption.NOFOLLOW_LINKS)) {
+                    BasicFileAttributes targetAttrs = Files.readAttributes(targetFile, BasicFileAttributes.class,
+                            LinkOption.NOFOLLOW_LINKS);
+                    // The copied modification times may be truncated to the precision of the platform
+                    if (targetAttrs.size() == attrs.size()
+                            && targetAttrs.lastModifiedTime().toMillis() == attrs.lastModifiedTime().toMillis()) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                }
+                Files.copy(file, targetFile, StandardCopyOption.COPY_ATTRIBUTES, StandardCopyOption.REPLACE_EXISTING,
+                        LinkOption.NOFOLLOW_LINKS);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                if (e != null) throw e;
+                Path relativePath = source.relativize(dir);
+                try (DirectoryStream<Path> targetEntries = Files.newDirectoryStream(target.resolve(relativePath))) {
+                    for (Path targetEntry: targetEntries) {
+                        Path entryRelativePath = relativePath.resolve(targetEntry.getFileName().toString());
+                        if (!excluded.contains(entryRelativePath)
+                                && !Files.exists(source.resolve(entryRelativePath), LinkOption.NOFOLLOW_LINKS)) {
+                            if (Files.isDirectory(targetEntry, LinkOption.NOFOLLOW_LINKS)) {
+                                FileUtils.deleteDirectory(targetEntry.toFile());
+                            } else {
+                                Files.delete(targetEntry);
+                            }
+                        }
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
     public static boolean isPathAbsoluteInUnix(String path) {
         if (path.length() > 0 && path.startsWith("/")) {
             return true;
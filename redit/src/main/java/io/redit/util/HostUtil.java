@@ -24,11 +24,90 @@
 
 package io.redit.util;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 public class HostUtil {
     public static String getLocalIpAddress() throws UnknownHostException {
         return InetAddress.getLocalHost().getHostAddress();
     }
+
+    private static String processOwnerId;
+
+    /**
+     * @return an identifier of the current process in the form of pid@hostname/pid namespace/start time. The pid
+     * namespace and the start time of the process are empty where there is no proc file system
+     */
+    public static synchronized String getProcessOwnerId() {
+        if (processOwnerId == null) {
+            String name = ManagementFactory.getRuntimeMXBean().getName();
+            String pid = name.substring(0, name.indexOf('@'));
+            String pidNamespace = getPidNamespace();
+            String startTime = getProcessStartTime(pid);
+            processOwnerId = name + "/" + (pidNamespace == null ? "" : pidNamespace) + "/"
+                    + (startTime == null ? "" : startTime);
+        }
+        return processOwnerId;
+    }
+
+    /**
+     * Checks if the process identified by the given owner id is known to be dead. A pid alone cannot be trusted, since
+     * processes on different hosts or in different containers may have the same pid and hostname, and pids are reused.
+     * So the process is only known to be dead if it belongs to the pid namespace of the current process on the same
+     * host, and there is no process with its pid and start time. Otherwise, the process is assumed to be alive.
+     * @param ownerId the owner id of a process returned by {@link #getProcessOwnerId()}
+     * @return true if the process is known to be dead, otherwise false
+     */
+    public static boolean isProcessOwnerDead(String ownerId) {
+        if (ownerId == null) {
+            return false;
+        }
+
+        String[] ownerParts = ownerId.split("/", -1);
+        String[] currentParts = getProcessOwnerId().split("/", -1);
+        // The owner ids without a pid namespace and a start time cannot be checked
+        if (ownerParts.length != 3 || currentParts.length != 3 || ownerParts[1].isEmpty() || ownerParts[2].isEmpty()
+                || !ownerParts[1].equals(currentParts[1]) || !ownerParts[0].contains("@")) {
+            return false;
+        }
+
+        String pid = ownerParts[0].substring(0, ownerParts[0].indexOf('@'));
+        String host = ownerParts[0].substring(ownerParts[0].indexOf('@') + 1);
+        if (!host.equals(currentParts[0].substring(currentParts[0].indexOf('@') + 1)) || !pid.matches("\\d+")) {
+            return false;
+        }
+        // A process with the same pid and another start time is a new process which reused the pid
+        String startTime = getProcessStartTime(pid);
+        return startTime == null ? !Files.exists(Paths.get("/proc", pid)) : !startTime.equals(ownerParts[2]);
+    }
+
+    /**
+     * @return the identifier of the pid namespace of the current process or null if it is not known
+     */
+    private static String getPidNamespace() {
+        try {
+            return Files.readSymbolicLink(Paths.get("/proc/self/ns/pid")).toString();
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the start time of the process in clock ticks after the boot or null if it is not known
+     */
+    private static String getProcessStartTime(String pid) {
+        try {
+            String stat = new String(Files.readAllBytes(Paths.get("/proc", pid, "stat")), StandardCharsets.UTF_8);
+            // The fields after the command name, which may contain spaces, start with the third field of the file
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).trim().split(" ");
+            return fields.length > 19 ? fields[19] : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
 }
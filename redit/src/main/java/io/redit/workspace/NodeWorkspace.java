@@ -24,6 +24,9 @@
 
 package io.redit.workspace;
 
+import io.redit.Constants;
+
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -115,4 +118,25 @@ public class NodeWorkspace {
     public List<PathMappingEntry> getPathMappingList() {
         return pathMappingList;
     }
+
+    /**
+     * @return the file that tells the wrapper script of the node whether the init command should be run
+     */
+    public String getDoInitFile() {
+        return Paths.get(workingDirectory, Constants.DO_INIT_FILE_NAME).toAbsolutePath().toString();
+    }
+
+    /**
+     * @return the file that the console output of the node is appended to
+     */
+    public String getConsoleFile() {
+        return Paths.get(logDirectory, Constants.CONSOLE_OUTERR_FILE_NAME).toAbsolutePath().toString();
+    }
+
+    /**
+     * @return the file that libfaketime reads the clock drift of the node from
+     */
+    public String getFakeTimeControllerFile() {
+        return Paths.get(workingDirectory, Constants.FAKETIME_CONTROLLER_FILE_NAME).toAbsolutePath().toString();
+    }
 }
@@ -25,6 +25,7 @@
 package io.redit.workspace;
 
 import io.redit.Constants;
+import io.redit.util.HostUtil;
 import io.redit.util.FileUtil;
 import io.redit.util.ZipUtil;
 import io.redit.dsl.entities.Deployment;
@@ -33,6 +34,7 @@ import io.redit.dsl.entities.PathEntry;
 import io.redit.dsl.entities.Service;
 import io.redit.exceptions.WorkspaceException;
 import net.lingala.zip4j.exception.ZipException;
+import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,6 +42,8 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.*;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -51,6 +55,7 @@ public class WorkspaceManager {
     private Map<String, String> fakeTimePathMap;
     private Map<String, Map<String, String>> serviceToMapOfCompressedToDecompressedMap;
     private Map<String, String> sharedDirectoriesMap;
+    private Map<String, String> serviceToClasspathBundleMap;
 
     public WorkspaceManager(Deployment deployment) {
         this(deployment, Constants.DEFAULT_WORKING_DIRECTORY_NAME);
@@ -63,9 +68,41 @@ public class WorkspaceManager {
                 simpleDateFormat.format(new Date())).toAbsolutePath().normalize();
     }
 
+    public Path getWorkingDirectory() {
+        return workingDirectory;
+    }
+
     public Map<String, NodeWorkspace> createWorkspace() throws WorkspaceException {
+        return createWorkspace(deployment.getNodes().keySet());
+    }
+
+    /**
+     * Creates the working directory and the deployment level directories, and the workspaces of the given nodes. The
+     * workspaces of the rest of the nodes can be created later through {@link #createNodeWorkspace(Node)}
+     * @param nodeNames the names of the nodes to create the workspaces for
+     * @return the map of node name to the created node workspace
+     * @throws WorkspaceException if something goes wrong
+     */
+    public Map<String, NodeWorkspace> createWorkspace(Collection<String> nodeNames) throws WorkspaceException {
         Map<String, NodeWorkspace> retMap = new HashMap<>();
 
+        createDeploymentWorkspace();
+
+        // Creates the nodes' workspaces
+        for (String nodeName: nodeNames) {
+            retMap.put(nodeName, createNodeWorkspace(deployment.getNode(nodeName)));
+        }
+
+        return Collections.unmodifiableMap(retMap);
+    }
+
+    /**
+     * Creates the working directory and the deployment level directories. This should be called before creating the
+     * workspaces of the nodes through {@link #createNodeWorkspace(Node)} which can be called for different nodes in
+     * parallel afterwards
+     * @throws WorkspaceException if something goes wrong
+     */
+    public void createDeploymentWorkspace() throws WorkspaceException {
         // Creates the working directory
         try {
             logger.info("Creating the working directory at {}", workingDirectory.toString());
@@ -74,21 +111,64 @@ public class WorkspaceManager {
             throw new WorkspaceException("Error in creating Redit working directory at " + workingDirectory.toString(), e);
         }
 
+        // Marks the working directory with its owner process for the reaper
+        try {
+            Files.write(workingDirectory.resolve(Constants.WORKSPACE_OWNER_FILE_NAME),
+                    HostUtil.getProcessOwnerId().getBytes());
+        } catch (IOException e) {
+            throw new WorkspaceException("Error in creating the owner file in Redit working directory at "
+                    + workingDirectory.toString(), e);
+        }
+
         // Creates the shared directories
         sharedDirectoriesMap = createSharedDirectories();
 
         // Decompress compressed application paths in services
         serviceToMapOfCompressedToDecompressedMap = decompressCompressedApplicationPaths();
 
+        // Bundles the classpath entries of the services that are not copied over to the nodes
+        serviceToClasspathBundleMap = createClasspathBundles();
+
         // Copies over libfaketime binaries to the working directory
         fakeTimePathMap = copyOverLibFakeTime(workingDirectory);
+    }
 
-        // Creates the nodes' workspaces
-        for (Node node: deployment.getNodes().values()) {
-            retMap.put(node.getName(), createNodeWorkspace(node));
+    /**
+     * Deletes the working directories of the dead runs in the same top level working directory that are not modified
+     * for longer than the given retention. Only the working directories whose owner process is known to be dead are
+     * deleted. The owner file is deleted last, so a partially deleted working directory is deleted in the next run.
+     * @param retention the amount of time to keep the working directories of the dead runs
+     */
+    public void reapStaleWorkingDirectories(Duration retention) {
+        File[] workingDirectories = workingDirectory.getParent().toFile().listFiles(File::isDirectory);
+        if (workingDirectories == null) {
+            return;
         }
 
-        return Collections.unmodifiableMap(retMap);
+        Instant threshold = Instant.now().minus(retention);
+        for (File staleWorkingDirectory: workingDirectories) {
+            Path ownerFile = staleWorkingDirectory.toPath().resolve(Constants.WORKSPACE_OWNER_FILE_NAME);
+            try {
+                if (staleWorkingDirectory.toPath().equals(workingDirectory) || !Files.exists(ownerFile)
+                        || Files.getLastModifiedTime(ownerFile).toInstant().isAfter(threshold)
+                        || !HostUtil.isProcessOwnerDead(new String(Files.readAllBytes(ownerFile)).trim())) {
+                    continue;
+                }
+
+                logger.info("Deleting stale working directory {}", staleWorkingDirectory);
+                File[] children = staleWorkingDirectory.listFiles();
+                if (children != null) {
+                    for (File child: children) {
+                        if (!child.getName().equals(Constants.WORKSPACE_OWNER_FILE_NAME)) {
+                            FileUtils.forceDelete(child);
+                        }
+                    }
+                }
+                FileUtils.deleteDirectory(staleWorkingDirectory);
+            } catch (IOException e) {
+                logger.warn("Error while deleting stale working directory {}", staleWorkingDirectory, e);
+            }
+        }
     }
 
     /**
@@ -175,6 +255,71 @@ public class WorkspaceManager {
         return retMap;
     }
 
+    /**
+     * @return true if the application path is one of the classpath entries that are bundled into a single directory
+     * for all of the nodes of the service
+     */
+    private boolean isBundledClasspathEntry(PathEntry pathEntry) {
+        return !pathEntry.shouldCopyOverToWorkspace() && !pathEntry.shouldBeDecompressed()
+                && pathEntry.getTargetPath().startsWith(Constants.JVM_CLASSPATH_BUNDLE_PATH + "/");
+    }
+
+    /**
+     * Links the bundled classpath entries of each service into a directory of its own, so each node only needs one
+     * mount for all of them. The entries are hard linked when possible and copied otherwise, e.g. when they are on a
+     * different file system than the working directory.
+     * @return the map of service name to its classpath bundle directory for the services that have one
+     */
+    private Map<String, String> createClasspathBundles() throws WorkspaceException {
+        Map<String, String> retMap = new HashMap<>();
+        Path classpathBundlesRoot = workingDirectory.resolve(Constants.CLASSPATH_BUNDLES_DIRECTORY_NAME);
+
+        for (Service service: deployment.getServices().values()) {
+            Path bundleDirectory = classpathBundlesRoot.resolve(service.getName());
+            for (PathEntry pathEntry: service.getApplicationPaths().values()) {
+                if (!isBundledClasspathEntry(pathEntry)) {
+                    continue;
+                }
+
+                Path sourcePath = Paths.get(pathEntry.getPath());
+                if (!Files.exists(sourcePath)) {
+                    logger.debug("Classpath entry {} does not exist and is not bundled", sourcePath);
+                    continue;
+                }
+                Path destPath = bundleDirectory.resolve(pathEntry.getTargetPath()
+                        .substring(Constants.JVM_CLASSPATH_BUNDLE_PATH.length() + 1));
+                try {
+                    Files.createDirectories(bundleDirectory);
+                    if (Files.isDirectory(sourcePath)) {
+                        FileUtil.copyDirectory(sourcePath, destPath);
+                    } else {
+                        try {
+                            linkFile(destPath, sourcePath);
+                        } catch (IOException | UnsupportedOperationException e) {
+                            Files.copy(sourcePath, destPath, StandardCopyOption.COPY_ATTRIBUTES);
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new WorkspaceException("Error while bundling classpath entry " + sourcePath + " of service "
+                            + service.getName(), e);
+                }
+                retMap.put(service.getName(), bundleDirectory.toString());
+            }
+        }
+
+        return retMap;
+    }
+
+    /**
+     * Creates a hard link to an existing file
+     * @param link the path of the link to create
+     * @param existing the path of the existing file
+     * @throws IOException if the link cannot be created
+     */
+    void linkFile(Path link, Path existing) throws IOException {
+        Files.createLink(link, existing);
+    }
+
     // TODO should this be public?
     public NodeWorkspace createNodeWorkspace(Node node)
             throws WorkspaceException {
@@ -232,7 +377,7 @@ public class WorkspaceManager {
         }
 
         // Creates the node workspace object
-        return new NodeWorkspace(
+        NodeWorkspace nodeWorkspace = new NodeWorkspace(
                 instrumentablePaths,
                 getNodeLibPaths(nodeService, pathMappingList),
                 nodeWorkingDirectory.toString(),
@@ -242,6 +387,26 @@ public class WorkspaceManager {
                 logFilesMap,
                 sharedDirectoriesMap,
                 pathMappingList);
+
+        // Creates the files that the runtime engines share with the node
+        createNodeEngineFiles(node, nodeWorkspace);
+
+        return nodeWorkspace;
+    }
+
+    /**
+     * Creates the do init file that makes the first run of the node run its init command, the console output file and
+     * the libfaketime controller file of the node
+     */
+    private void createNodeEngineFiles(Node node, NodeWorkspace nodeWorkspace) throws WorkspaceException {
+        try {
+            Files.write(Paths.get(nodeWorkspace.getDoInitFile()), "1".getBytes());
+            new File(nodeWorkspace.getConsoleFile()).createNewFile();
+            new File(nodeWorkspace.getFakeTimeControllerFile()).createNewFile();
+        } catch (IOException e) {
+            throw new WorkspaceException("Error while creating the files of node " + node.getName()
+                    + " in its workspace!", e);
+        }
     }
 
     private Map<String, String> createLogFiles(Node node, Path nodeLogDirectory) throws WorkspaceException {
@@ -338,11 +503,22 @@ public class WorkspaceManager {
     private List<NodeWorkspace.PathMappingEntry> copyOverNodePathsAndMakePathMappingList(Node node, Service nodeService,
                      Path nodeRootDirectory, Map<String, String> compressedToDecompressedMap) throws WorkspaceException {
         List<NodeWorkspace.PathMappingEntry> pathMap = new ArrayList<>();
+        String classpathBundle = serviceToClasspathBundleMap.get(nodeService.getName());
         try {
             // Copies over node's service paths based on their entry path order
             for (PathEntry pathEntry : nodeService.getApplicationPaths().values().stream()
                     .sorted((p1, p2) -> p1.getOrder().compareTo(p2.getOrder()))
                     .collect(Collectors.toList())) {
+                if (isBundledClasspathEntry(pathEntry)) {
+                    // All of the bundled entries are mapped at once at the place of the first one
+                    if (classpathBundle != null) {
+                        pathMap.add(new NodeWorkspace.PathMappingEntry(classpathBundle,
+                                Constants.JVM_CLASSPATH_BUNDLE_PATH, true));
+                        classpathBundle = null;
+                    }
+                    continue;
+                }
+
                 Path sourcePath = Paths.get(pathEntry.shouldBeDecompressed()?
                         compressedToDecompressedMap.get(pathEntry.getPath()):pathEntry.getPath());
 
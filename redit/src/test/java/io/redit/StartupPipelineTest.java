@@ -0,0 +1,192 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit;
+
+import io.redit.exceptions.InstrumentationException;
+import io.redit.exceptions.RuntimeEngineException;
+import io.redit.exceptions.WorkspaceException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class StartupPipelineTest {
+    private StartupPipeline pipeline;
+
+    @Before
+    public void setUp() {
+        pipeline = new StartupPipeline("pipeline-test", 4);
+    }
+
+    @After
+    public void tearDown() {
+        pipeline.close();
+    }
+
+    @Test
+    public void thePhasesRunAfterTheirDependencies() throws Exception {
+        CompletableFuture<Integer> first = pipeline.phase("first", () -> 1);
+        CompletableFuture<Integer> second = pipeline.phase("second", () -> 2);
+        CompletableFuture<Integer> sum = pipeline.phase("sum", () -> first.get() + second.get(), first, second);
+
+        assertEquals(3, (int) pipeline.await(sum));
+    }
+
+    @Test
+    public void aFailedDependencySkipsItsDependents() throws Exception {
+        AtomicBoolean dependentRun = new AtomicBoolean();
+        CompletableFuture<Void> failed = pipeline.phase("failed", () -> {
+            throw new RuntimeEngineException("failure");
+        });
+        CompletableFuture<Void> dependent = pipeline.phase("dependent", () -> {
+            dependentRun.set(true);
+            return null;
+        }, failed);
+        CompletableFuture<Void> transitiveDependent = pipeline.phase("transitive dependent", () -> {
+            dependentRun.set(true);
+            return null;
+        }, dependent);
+
+        try {
+            pipeline.await(transitiveDependent);
+            fail("The startup is expected to fail!");
+        } catch (RuntimeEngineException e) {
+            assertEquals("failure", e.getMessage());
+        }
+        assertFalse(dependentRun.get());
+    }
+
+    @Test
+    public void awaitSettlesEveryPhaseBeforeThrowing() throws Exception {
+        CountDownLatch slowPhaseStarted = new CountDownLatch(1);
+        CompletableFuture<Void> slow = pipeline.phase("slow", () -> {
+            slowPhaseStarted.countDown();
+            Thread.sleep(300);
+            return null;
+        });
+        assertTrue(slowPhaseStarted.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Void> failed = pipeline.phase("failed", () -> {
+            throw new RuntimeEngineException("failure");
+        });
+
+        try {
+            pipeline.await(failed);
+            fail("The startup is expected to fail!");
+        } catch (RuntimeEngineException e) {
+            assertEquals("failure", e.getMessage());
+        }
+        assertTrue(slow.isDone());
+        assertFalse(slow.isCompletedExceptionally());
+    }
+
+    @Test
+    public void awaitUnwrapsTheCheckedExceptionsOfThePhases() {
+        try {
+            pipeline.await(pipeline.phase("workspace", () -> {
+                throw new WorkspaceException("workspace failure");
+            }));
+            fail("The startup is expected to fail!");
+        } catch (WorkspaceException e) {
+            assertEquals("workspace failure", e.getMessage());
+        } catch (RuntimeEngineException | InstrumentationException e) {
+            fail("Unexpected exception " + e);
+        }
+
+        try {
+            pipeline.await(pipeline.phase("instrumentation", () -> {
+                throw new InstrumentationException("instrumentation failure");
+            }));
+            fail("The startup is expected to fail!");
+        } catch (InstrumentationException e) {
+            assertEquals("instrumentation failure", e.getMessage());
+        } catch (RuntimeEngineException | WorkspaceException e) {
+            fail("Unexpected exception " + e);
+        }
+
+        try {
+            pipeline.await(pipeline.phase("other", () -> {
+                throw new IOException("io failure");
+            }));
+            fail("The startup is expected to fail!");
+        } catch (RuntimeEngineException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        } catch (WorkspaceException | InstrumentationException e) {
+            fail("Unexpected exception " + e);
+        }
+
+        try {
+            pipeline.await(pipeline.phase("unchecked", () -> {
+                throw new IllegalStateException("unchecked failure");
+            }));
+            fail("The startup is expected to fail!");
+        } catch (IllegalStateException e) {
+            assertEquals("unchecked failure", e.getMessage());
+        } catch (RuntimeEngineException | WorkspaceException | InstrumentationException e) {
+            fail("Unexpected exception " + e);
+        }
+    }
+
+    @Test
+    public void theTimingsOfTheCompletedPhasesAreListedInTheirStartOrder() throws Exception {
+        CompletableFuture<Void> first = pipeline.phase("first phase", () -> {
+            Thread.sleep(50);
+            return null;
+        });
+        CompletableFuture<Void> second = pipeline.phase("second phase", () -> null, first);
+        CompletableFuture<Void> failed = pipeline.phase("failed phase", () -> {
+            throw new RuntimeEngineException("failure");
+        }, second);
+        pipeline.phase("skipped phase", () -> null, failed);
+        try {
+            pipeline.await(second);
+        } catch (RuntimeEngineException e) {
+            fail("Unexpected exception " + e);
+        }
+
+        String breakdown = pipeline.getTimingBreakdown();
+        assertFalse(breakdown.contains("skipped phase"));
+        int firstIndex = breakdown.indexOf("first phase");
+        int secondIndex = breakdown.indexOf("second phase");
+        int failedIndex = breakdown.indexOf("failed phase");
+        assertTrue(firstIndex >= 0 && firstIndex < secondIndex && secondIndex < failedIndex);
+
+        Matcher matcher = Pattern.compile("first phase\\s+started at\\s+(\\d+) ms, took\\s+(\\d+) ms")
+                .matcher(breakdown);
+        assertTrue(matcher.find());
+        assertTrue(Long.parseLong(matcher.group(2)) >= 50);
+        matcher = Pattern.compile("second phase\\s+started at\\s+(\\d+) ms").matcher(breakdown);
+        assertTrue(matcher.find());
+        assertTrue(Long.parseLong(matcher.group(1)) >= 50);
+    }
+}
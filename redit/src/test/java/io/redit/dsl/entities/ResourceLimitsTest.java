@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.dsl.entities;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ResourceLimitsTest {
+    private static final long GB = 1024L * 1024 * 1024;
+
+    @Test
+    public void theLimitsAreOverriddenOneByOne() {
+        ResourceLimits serviceLimits = ResourceLimits.builder().cpus(2.0).cpusetCpus("0-3").memory(GB).build();
+        ResourceLimits nodeLimits = serviceLimits.override(ResourceLimits.builder().cpus(0.5).build());
+        assertEquals(Double.valueOf(0.5), nodeLimits.getCpus());
+        assertEquals("0-3", nodeLimits.getCpusetCpus());
+        assertEquals(Long.valueOf(GB), nodeLimits.getMemory());
+        assertNull(nodeLimits.getMemorySwap());
+
+        assertSame(serviceLimits, serviceLimits.override(null));
+        assertTrue(ResourceLimits.builder().build().override(ResourceLimits.builder().build()).isEmpty());
+    }
+
+    @Test
+    public void overridingTheMemoryKeepsTheAmountOfSwap() {
+        ResourceLimits withoutSwap = ResourceLimits.builder().memory(GB).memorySwap(GB).build();
+        ResourceLimits raised = withoutSwap.override(ResourceLimits.builder().memory(4 * GB).build());
+        assertEquals(Long.valueOf(4 * GB), raised.getMemory());
+        assertEquals(Long.valueOf(4 * GB), raised.getMemorySwap());
+
+        ResourceLimits withSwap = ResourceLimits.builder().memory(2 * GB).memorySwap(3 * GB).build();
+        assertEquals(Long.valueOf(2 * GB), withSwap.override(ResourceLimits.builder().memory(GB).build())
+                .getMemorySwap());
+
+        ResourceLimits unlimitedSwap = ResourceLimits.builder().memory(GB).memorySwap(-1L).build();
+        assertEquals(Long.valueOf(-1), unlimitedSwap.override(ResourceLimits.builder().memory(4 * GB).build())
+                .getMemorySwap());
+    }
+
+    @Test
+    public void anExplicitSwapLimitIsOverriddenAsIs() {
+        ResourceLimits limits = ResourceLimits.builder().memory(GB).memorySwap(GB).build()
+                .override(ResourceLimits.builder().memory(2 * GB).memorySwap(3 * GB).build());
+        assertEquals(Long.valueOf(3 * GB), limits.getMemorySwap());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aZeroSwapLimitIsRejected() {
+        ResourceLimits.builder().memorySwap(0L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aNegativeSwapLimitOtherThanUnlimitedIsRejected() {
+        ResourceLimits.builder().memorySwap(-2L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aSwapLimitBelowTheMemoryIsRejected() {
+        ResourceLimits.builder().memory(2 * GB).memorySwap(GB).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void anOverrideThatLowersTheSwapLimitBelowTheMemoryIsRejected() {
+        ResourceLimits.builder().memory(GB).build().override(ResourceLimits.builder().memorySwap(GB / 2).build());
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution;
+
+import io.redit.dsl.entities.Deployment;
+import io.redit.exceptions.RuntimeEngineException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class LightweightEventServerTest {
+    private EventServer jettyEventServer;
+    private EventServer lightweightEventServer;
+
+    private static EventService createEventService() {
+        return new EventService(Deployment.builder("event-server-test")
+                .testCaseEvents("x1", "x2")
+                .runSequence("x1 * x2")
+                .build());
+    }
+
+    @Before
+    public void setUp() throws RuntimeEngineException {
+        jettyEventServer = new JettyEventServer(createEventService());
+        lightweightEventServer = new LightweightEventServer(createEventService());
+        for (EventServer eventServer: Arrays.asList(jettyEventServer, lightweightEventServer)) {
+            eventServer.register("ns", createEventService());
+            eventServer.start();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        jettyEventServer.stop();
+        lightweightEventServer.stop();
+    }
+
+    private static int request(EventServer eventServer, String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + eventServer.getPortNumber()
+                + path).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream outputStream = connection.getOutputStream()) {
+                outputStream.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private void assertSameStatus(String method, String path, String body) throws IOException {
+        assertEquals(method + " " + path, request(jettyEventServer, method, path, body),
+                request(lightweightEventServer, method, path, body));
+    }
+
+    @Test
+    public void bothEventServersRespondWithTheSameStatusCodes() throws IOException {
+        List<String> paths = new ArrayList<>();
+        for (String prefix: Arrays.asList("", "/d/ns", "/d/unknown")) {
+            for (String path: Arrays.asList("/events/x1", "/events/x1/", "/events/", "/events/x1/x2",
+                    "/blockDependencies/x2", "/dependencies/x2", "/dependencies/x2?includeEvent=",
+                    "/dependencies/x2?includeEvent=0", "/dependencies/x2?includeEvent=1",
+                    "/dependencies/x2?includeEvent=abc", "/dependencies/x1/x2?includeEvent=0",
+                    "/dependencies/x1?includeEvent=1&node=n1&thread=t1", "/unknown/x1")) {
+                paths.add(prefix + path);
+            }
+        }
+
+        for (String path: paths) {
+            assertSameStatus("GET", path, null);
+        }
+        assertSameStatus("PUT", "/events/x1", "{}");
+        assertSameStatus("POST", "/events", "{\"name\":\"x1\"}");
+        assertSameStatus("POST", "/d/ns/events", "{\"name\": \"x1\"}");
+        assertSameStatus("POST", "/d/unknown/events", "{\"name\":\"x1\"}");
+        assertSameStatus("GET", "/events/x1", null);
+        for (String path: paths) {
+            assertSameStatus("GET", path, null);
+        }
+    }
+
+    @Test
+    public void theEventNameIsParsedWithItsEscapeSequences() {
+        assertEquals("e1", LightweightEventServer.parseEventName("{\"name\":\"e1\"}"));
+        assertEquals("e1", LightweightEventServer.parseEventName("{ \"other\": 1, \"name\" : \"e1\" }"));
+        assertEquals("a\"b\\c/d", LightweightEventServer.parseEventName("{\"name\":\"a\\\"b\\\\c\\/d\"}"));
+        assertEquals("a\tb\nc", LightweightEventServer.parseEventName("{\"name\":\"a\\tb\\nc\"}"));
+        assertEquals("\u00e9x", LightweightEventServer.parseEventName("{\"name\":\"\\u00e9x\"}"));
+    }
+
+    @Test
+    public void aMissingOrMalformedNameIsNotParsed() {
+        assertNull(LightweightEventServer.parseEventName("{}"));
+        assertNull(LightweightEventServer.parseEventName("{\"name\":1}"));
+        assertNull(LightweightEventServer.parseEventName("{\"name\":\"e1"));
+        assertNull(LightweightEventServer.parseEventName("{\"name\":\"\\u00\"}"));
+        assertNull(LightweightEventServer.parseEventName("{\"name\":\"\\uzzzz\"}"));
+    }
+}
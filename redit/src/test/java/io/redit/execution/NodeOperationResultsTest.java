@@ -0,0 +1,125 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution;
+
+import io.redit.Constants;
+import io.redit.dsl.entities.Deployment;
+import io.redit.exceptions.NodeIsNotRunningException;
+import io.redit.exceptions.RuntimeEngineException;
+import io.redit.execution.simulated.SimulatedRuntimeEngine;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class NodeOperationResultsTest {
+    private SimulatedRuntimeEngine runtimeEngine;
+
+    @Before
+    public void setUp() throws RuntimeEngineException {
+        System.setProperty(Constants.EVENT_SERVER_TYPE_PROPERTY, Constants.EVENT_SERVER_TYPE_LIGHTWEIGHT);
+        runtimeEngine = new SimulatedRuntimeEngine(Deployment.builder("results-test")
+                .withService("nn").and()
+                .withService("dn").and()
+                .withNode("nn1", "nn").and()
+                .withNode("dn1", "dn").and()
+                .withNode("dn2", "dn").and()
+                .withNode("dn3", "dn").and()
+                .build());
+        runtimeEngine.start(null);
+    }
+
+    @After
+    public void tearDown() {
+        runtimeEngine.stop(true, 0);
+        System.clearProperty(Constants.EVENT_SERVER_TYPE_PROPERTY);
+    }
+
+    @Test
+    public void theOperationIsAppliedOnEverySelectedNode() throws RuntimeEngineException {
+        NodeOperationResults<Void> results = runtimeEngine.stopNodes(NodeSelector.service("dn"), 0).throwIfFailed();
+
+        assertTrue(results.isSuccessful());
+        assertEquals("stop", results.getOperationName());
+        assertEquals(new TreeSet<>(Arrays.asList("dn1", "dn2", "dn3")), results.getNodeNames());
+        assertEquals(results.getNodeNames(), results.getResults().keySet());
+        assertTrue(results.getFailures().isEmpty());
+        assertTrue(runtimeEngine.nodeState("nn1").isRunning());
+        for (String nodeName: results.getNodeNames()) {
+            assertFalse(runtimeEngine.nodeState(nodeName).isRunning());
+        }
+
+        runtimeEngine.startNodes(NodeSelector.service("dn")).throwIfFailed();
+        for (String nodeName: results.getNodeNames()) {
+            assertTrue(runtimeEngine.nodeState(nodeName).isRunning());
+        }
+    }
+
+    @Test
+    public void thePartialFailuresAreAggregated() throws RuntimeEngineException {
+        runtimeEngine.killNode("dn1");
+        runtimeEngine.killNode("dn3");
+        runtimeEngine.setCommandHandler((nodeName, command) ->
+                new CommandResults(nodeName, command, 0, nodeName + " says " + command, ""));
+
+        NodeOperationResults<CommandResults> results = runtimeEngine.runCommandInNodes(NodeSelector.all(), "hello");
+
+        assertFalse(results.isSuccessful());
+        assertEquals(new TreeSet<>(Arrays.asList("dn1", "dn2", "dn3", "nn1")), results.getNodeNames());
+        assertEquals(new HashSet<>(Arrays.asList("dn2", "nn1")), results.getResults().keySet());
+        assertEquals("dn2 says hello", results.get("dn2").stdOut());
+        assertNull(results.get("dn1"));
+        assertEquals(new HashSet<>(Arrays.asList("dn1", "dn3")), results.getFailures().keySet());
+        assertTrue(results.getFailures().get("dn1") instanceof NodeIsNotRunningException);
+    }
+
+    @Test
+    public void throwIfFailedThrowsWithTheFailuresOfAllOfTheFailedNodes() throws RuntimeEngineException {
+        runtimeEngine.killNode("dn1");
+        runtimeEngine.killNode("dn3");
+        NodeOperationResults<CommandResults> results = runtimeEngine.runCommandInNodes(NodeSelector.service("dn"), "ls");
+
+        try {
+            results.throwIfFailed();
+            fail("The failures of nodes dn1 and dn3 are not thrown!");
+        } catch (RuntimeEngineException e) {
+            assertTrue(e.getMessage().contains("[dn1, dn3]"));
+            assertSame(results.getFailures().get("dn1"), e.getCause());
+            assertEquals(1, e.getSuppressed().length);
+            assertSame(results.getFailures().get("dn3"), e.getSuppressed()[0]);
+        }
+    }
+
+    @Test
+    public void anEmptySelectionSucceeds() throws RuntimeEngineException {
+        NodeOperationResults<Void> results = runtimeEngine.killNodes(NodeSelector.service("unknown")).throwIfFailed();
+        assertTrue(results.getNodeNames().isEmpty());
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution;
+
+import io.redit.exceptions.RuntimeEngineException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+public class NodeOperationSchedulerTest {
+    private final static long TIMEOUT_SECONDS = 10;
+
+    private NodeOperationScheduler scheduler;
+    private List<CountDownLatch> blockers;
+
+    @Before
+    public void setUp() {
+        scheduler = new NodeOperationScheduler(8);
+        blockers = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() {
+        // Releases the operations of a failed test, so they don't hold the threads of the scheduler
+        for (CountDownLatch blocker: blockers) {
+            blocker.countDown();
+        }
+    }
+
+    private CountDownLatch newBlocker() {
+        CountDownLatch blocker = new CountDownLatch(1);
+        blockers.add(blocker);
+        return blocker;
+    }
+
+    /**
+     * @return an operation that marks itself as started and waits for the given blocker to be released
+     */
+    private static NodeOperationScheduler.NodeOperation<Void> blockingOperation(CountDownLatch started,
+                                                                                CountDownLatch blocker) {
+        return () -> {
+            started.countDown();
+            try {
+                if (!blocker.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    throw new RuntimeEngineException("The operation is not released!");
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeEngineException("Interrupted!", e);
+            }
+            return null;
+        };
+    }
+
+    private static void await(CountDownLatch latch) throws InterruptedException {
+        assertTrue(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private static void assertNotDone(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(100, TimeUnit.MILLISECONDS);
+            fail("The operation is not expected to be done yet!");
+        } catch (TimeoutException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void theOperationsOnANodeRunInTheOrderTheyAreSubmitted() throws Exception {
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            int operationNumber = i;
+            futures.add(scheduler.submit("n1", () -> {
+                order.add(operationNumber);
+                return operationNumber;
+            }));
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(i, (int) futures.get(i).get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+        List<Integer> expectedOrder = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            expectedOrder.add(i);
+        }
+        assertEquals(expectedOrder, order);
+    }
+
+    @Test
+    public void theOperationsOnDifferentNodesRunInParallel() throws Exception {
+        CountDownLatch allStarted = new CountDownLatch(3);
+        CountDownLatch blocker = newBlocker();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (String nodeName: Arrays.asList("n1", "n2", "n3")) {
+            futures.add(scheduler.submit(nodeName, blockingOperation(allStarted, blocker)));
+        }
+
+        // All of the operations are running at the same time before any of them is released
+        await(allStarted);
+        blocker.countDown();
+        for (CompletableFuture<Void> future: futures) {
+            future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void aMultiNodeOperationWaitsForAndBlocksTheOperationsOnItsNodes() throws Exception {
+        CountDownLatch n1Started = new CountDownLatch(1);
+        CountDownLatch n1Blocker = newBlocker();
+        CompletableFuture<Void> n1Operation = scheduler.submit("n1", blockingOperation(n1Started, n1Blocker));
+        await(n1Started);
+
+        CountDownLatch partitionStarted = new CountDownLatch(1);
+        CountDownLatch partitionBlocker = newBlocker();
+        CompletableFuture<Void> partition = scheduler.submit(Arrays.asList("n1", "n2"),
+                blockingOperation(partitionStarted, partitionBlocker));
+        CompletableFuture<String> n2Operation = scheduler.submit("n2", () -> "n2");
+        CompletableFuture<String> n3Operation = scheduler.submit("n3", () -> "n3");
+
+        // The node that is not covered by the partition is not blocked
+        assertEquals("n3", n3Operation.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, partitionStarted.getCount());
+        assertNotDone(partition);
+
+        n1Blocker.countDown();
+        n1Operation.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        await(partitionStarted);
+        // The later operation on the other node of the partition waits for the partition
+        assertNotDone(n2Operation);
+
+        partitionBlocker.countDown();
+        partition.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals("n2", n2Operation.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void aFailedOperationDoesNotBlockTheNextOperations() throws Exception {
+        CompletableFuture<Void> failed = scheduler.submit("n1", () -> {
+            throw new RuntimeEngineException("failure");
+        });
+        CompletableFuture<String> next = scheduler.submit("n1", () -> "next");
+
+        assertEquals("next", next.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        try {
+            failed.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            fail("The operation is expected to fail!");
+        } catch (ExecutionException e) {
+            assertEquals("failure", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void runThrowsTheFailureOfTheOperation() throws RuntimeEngineException {
+        try {
+            scheduler.run("n1", () -> {
+                throw new RuntimeEngineException("failure");
+            });
+            fail("The operation is expected to fail!");
+        } catch (RuntimeEngineException e) {
+            assertEquals("failure", e.getMessage());
+        }
+        try {
+            scheduler.run("n1", () -> {
+                throw new IllegalStateException("unchecked failure");
+            });
+            fail("The operation is expected to fail!");
+        } catch (IllegalStateException e) {
+            assertEquals("unchecked failure", e.getMessage());
+        }
+    }
+
+    @Test(timeout = TIMEOUT_SECONDS * 1000)
+    public void aNestedRunIsRunInPlace() throws RuntimeEngineException {
+        Thread[] threads = new Thread[3];
+        String result = scheduler.run(Arrays.asList("n1", "n2"), () -> {
+            threads[0] = Thread.currentThread();
+            return scheduler.run("n1", () -> {
+                threads[1] = Thread.currentThread();
+                return scheduler.run(Arrays.asList("n1", "n2"), () -> {
+                    threads[2] = Thread.currentThread();
+                    return "nested";
+                });
+            });
+        });
+
+        assertEquals("nested", result);
+        assertSame(threads[0], threads[1]);
+        assertSame(threads[0], threads[2]);
+        // The enclosing operation is done, so the next operation on the nodes is run normally
+        assertEquals("next", scheduler.run("n2", () -> "next"));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution;
+
+import io.redit.Constants;
+import io.redit.dsl.entities.Deployment;
+import io.redit.exceptions.RuntimeEngineException;
+import io.redit.execution.simulated.SimulatedRuntimeEngine;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+
+public class NodeSelectorTest {
+    private SimulatedRuntimeEngine runtimeEngine;
+
+    @Before
+    public void setUp() throws RuntimeEngineException {
+        System.setProperty(Constants.EVENT_SERVER_TYPE_PROPERTY, Constants.EVENT_SERVER_TYPE_LIGHTWEIGHT);
+        runtimeEngine = new SimulatedRuntimeEngine(Deployment.builder("selector-test")
+                .withService("nn").label("role", "master").and()
+                .withService("dn").label("role", "worker").label("rack", "r1").and()
+                .withNode("nn1", "nn").and()
+                .withNode("dn1", "dn").and()
+                .withNode("dn2", "dn").label("rack", "r2").and()
+                .withNode("dn3", "dn").label("role", "spare").and()
+                .build());
+        runtimeEngine.start(null);
+    }
+
+    @After
+    public void tearDown() {
+        runtimeEngine.stop(true, 0);
+        System.clearProperty(Constants.EVENT_SERVER_TYPE_PROPERTY);
+    }
+
+    private void assertSelected(NodeSelector selector, String... nodeNames) {
+        assertEquals(new TreeSet<>(Arrays.asList(nodeNames)), runtimeEngine.selectNodes(selector));
+    }
+
+    @Test
+    public void theNodesAreSelectedByNameAndService() {
+        assertSelected(NodeSelector.all(), "dn1", "dn2", "dn3", "nn1");
+        assertSelected(NodeSelector.names("nn1", "dn2", "unknown"), "dn2", "nn1");
+        assertSelected(NodeSelector.service("dn"), "dn1", "dn2", "dn3");
+        assertSelected(NodeSelector.service("unknown"));
+    }
+
+    @Test
+    public void theNodeLabelsOverrideTheServiceLabels() {
+        assertSelected(NodeSelector.label("role"), "dn1", "dn2", "dn3", "nn1");
+        assertSelected(NodeSelector.label("role", "worker"), "dn1", "dn2");
+        assertSelected(NodeSelector.label("role", "spare"), "dn3");
+        assertSelected(NodeSelector.label("rack", "r1"), "dn1", "dn3");
+        assertSelected(NodeSelector.label("rack", "r2"), "dn2");
+        assertSelected(NodeSelector.label("zone"));
+    }
+
+    @Test
+    public void theSelectorsAreCombined() {
+        assertSelected(NodeSelector.service("dn").and(NodeSelector.label("rack", "r1")), "dn1", "dn3");
+        assertSelected(NodeSelector.names("nn1").or(NodeSelector.label("rack", "r2")), "dn2", "nn1");
+        assertSelected(NodeSelector.service("dn").negate(), "nn1");
+        assertSelected(NodeSelector.label("role", "worker").negate().and(NodeSelector.service("dn")), "dn3");
+    }
+
+    @Test
+    public void theLabelsArePassedToCustomSelectors() {
+        assertSelected((node, labels) -> labels.equals(Collections.singletonMap("role", "master")), "nn1");
+    }
+}
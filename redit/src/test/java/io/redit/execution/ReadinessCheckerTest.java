@@ -0,0 +1,207 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution;
+
+import com.sun.net.httpserver.HttpServer;
+import io.redit.Constants;
+import io.redit.dsl.entities.Deployment;
+import io.redit.dsl.entities.Node;
+import io.redit.dsl.entities.PortType;
+import io.redit.dsl.entities.ReadinessProbe;
+import io.redit.execution.simulated.SimulatedRuntimeEngine;
+import io.redit.workspace.NodeWorkspace;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReadinessCheckerTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private HttpServer httpServer;
+    private Path consoleFile;
+
+    @After
+    public void tearDown() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+        }
+    }
+
+    /**
+     * @return a checker for node n1 with the given probes. The node is reachable on the loopback address with the same
+     * port numbers, and its console file is in a temporary workspace
+     */
+    private ReadinessChecker createChecker(ReadinessProbe... probes) throws IOException {
+        Deployment.Builder builder = Deployment.builder("readiness-test").withService("s1").and();
+        Node.Builder nodeBuilder = builder.withNode("n1", "s1");
+        for (ReadinessProbe probe: probes) {
+            nodeBuilder.readinessProbe(probe);
+        }
+        Deployment deployment = nodeBuilder.and().build();
+
+        File rootDirectory = temporaryFolder.newFolder();
+        File logDirectory = new File(rootDirectory, "logs");
+        File workingDirectory = new File(rootDirectory, "work");
+        assertTrue(logDirectory.mkdir() && workingDirectory.mkdir());
+        consoleFile = logDirectory.toPath().resolve(Constants.CONSOLE_OUTERR_FILE_NAME);
+        Files.createFile(consoleFile);
+        NodeWorkspace nodeWorkspace = new NodeWorkspace(Collections.emptySet(), Collections.emptySet(),
+                workingDirectory.toString(), rootDirectory.toString(),
+                logDirectory.toString(), new HashMap<>(), new HashMap<>(), new HashMap<>(), new ArrayList<>());
+
+        RuntimeEngine runtimeEngine = new SimulatedRuntimeEngine(deployment,
+                Collections.singletonMap("n1", nodeWorkspace)) {
+            @Override
+            public String ip(String nodeName) {
+                return "127.0.0.1";
+            }
+
+            @Override
+            public Integer portMapping(String nodeName, Integer portNumber, PortType portType) {
+                return portNumber;
+            }
+        };
+        return new ReadinessChecker(runtimeEngine);
+    }
+
+    private void appendToConsole(String content) throws IOException {
+        Files.write(consoleFile, content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+
+    private int startHttpServer(int statusCode, String body) throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        httpServer.createContext("/jmx", exchange -> {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(statusCode, bytes.length);
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(bytes);
+            }
+        });
+        httpServer.start();
+        return httpServer.getAddress().getPort();
+    }
+
+    @Test
+    public void aTcpProbePassesWhenThePortIsOpen() throws IOException {
+        int port;
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            port = serverSocket.getLocalPort();
+            assertTrue(createChecker(ReadinessProbe.tcp(port)).isReady("n1"));
+        }
+        assertFalse(createChecker(ReadinessProbe.tcp(port)).isReady("n1"));
+    }
+
+    @Test
+    public void anHttpProbePassesOnlyOnOk() throws IOException {
+        int port = startHttpServer(200, "{}");
+        assertTrue(createChecker(ReadinessProbe.http(port, "/jmx")).isReady("n1"));
+        assertFalse(createChecker(ReadinessProbe.http(port, "/missing")).isReady("n1"));
+        httpServer.stop(0);
+
+        port = startHttpServer(503, "{}");
+        assertFalse(createChecker(ReadinessProbe.http(port, "jmx")).isReady("n1"));
+    }
+
+    @Test
+    public void anHttpProbeWithABodyRegexRequiresAMatchingBody() throws IOException {
+        int port = startHttpServer(200, "{\"beans\":[{\"tag.HAState\":\"standby\"}]}");
+        assertTrue(createChecker(ReadinessProbe.http(port, "/jmx?qry=Hadoop:*",
+                "\"tag.HAState\"\\s*:\\s*\"(active|standby)\"")).isReady("n1"));
+        assertFalse(createChecker(ReadinessProbe.http(port, "/jmx?qry=Hadoop:*",
+                "\"tag.HAState\"\\s*:\\s*\"active\"")).isReady("n1"));
+    }
+
+    @Test
+    public void aLogProbeOnlyMatchesTheLinesWrittenAfterTheStart() throws IOException {
+        ReadinessChecker checker = createChecker(ReadinessProbe.logLine("server (is )?ready"));
+        appendToConsole("server ready\n");
+        checker.nodeStarting("n1");
+        assertFalse(checker.isReady("n1"));
+
+        appendToConsole("starting\nserver is not ready\n");
+        assertFalse(checker.isReady("n1"));
+        appendToConsole("server is ready\n");
+        assertTrue(checker.isReady("n1"));
+
+        // A new start only considers the lines written after it
+        checker.nodeStarting("n1");
+        assertFalse(checker.isReady("n1"));
+    }
+
+    @Test
+    public void aLogProbeWaitsForAPartialLineToBeCompleted() throws IOException {
+        ReadinessChecker checker = createChecker(ReadinessProbe.logLine("^server ready$"));
+        checker.nodeStarting("n1");
+        appendToConsole("server rea");
+        assertFalse(checker.isReady("n1"));
+        appendToConsole("dy");
+        assertFalse(checker.isReady("n1"));
+        appendToConsole("\n");
+        assertTrue(checker.isReady("n1"));
+    }
+
+    @Test
+    public void aLogProbeScansLinesLongerThanTheReadBuffer() throws IOException {
+        ReadinessChecker checker = createChecker(ReadinessProbe.logLine("ready$"));
+        checker.nodeStarting("n1");
+        StringBuilder longLine = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            longLine.append('x');
+        }
+        appendToConsole(longLine + "\n" + longLine + " ready");
+        assertFalse(checker.isReady("n1"));
+        appendToConsole("\n");
+        assertTrue(checker.isReady("n1"));
+    }
+
+    @Test
+    public void aLogProbeScansATruncatedFileFromItsStart() throws IOException {
+        ReadinessChecker checker = createChecker(ReadinessProbe.logLine("server ready"));
+        appendToConsole("a long line written before the start of the node\n");
+        checker.nodeStarting("n1");
+        assertFalse(checker.isReady("n1"));
+
+        Files.write(consoleFile, "server ready\n".getBytes(StandardCharsets.UTF_8));
+        assertTrue(checker.isReady("n1"));
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.local_process;
+
+import io.redit.exceptions.RuntimeEngineException;
+import io.redit.execution.NodeState;
+import io.redit.rt.EventChannel;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class InJvmNodeTest {
+    private static final String PROPERTY_NAME = "redit.test.inJvmNode";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final BlockingQueue<NodeState> exits = new LinkedBlockingQueue<>();
+
+    /**
+     * Accepts connections on the given port with a server socket whose accept ignores interrupts until a client sends
+     * a q
+     */
+    public static class SocketAcceptingNode {
+        public static void main(String[] args) throws IOException {
+            try (ServerSocket serverSocket = new ServerSocket()) {
+                serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0])));
+                while (true) {
+                    try (Socket socket = serverSocket.accept()) {
+                        if (socket.getInputStream().read() == 'q') {
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Accepts connections on the given port with a channel that is closed when the accepting thread is interrupted
+     */
+    public static class ChannelAcceptingNode {
+        public static void main(String[] args) throws IOException {
+            try (ServerSocketChannel serverSocketChannel = ServerSocketChannel.open()) {
+                serverSocketChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                        Integer.parseInt(args[0])));
+                while (true) {
+                    serverSocketChannel.accept().close();
+                }
+            }
+        }
+    }
+
+    public static class PropertiesNode {
+        public static void main(String[] args) throws InterruptedException {
+            System.out.println(System.getProperties().get(PROPERTY_NAME) + " "
+                    + System.getProperties().containsKey(PROPERTY_NAME) + " "
+                    + System.getProperties().stringPropertyNames().contains(PROPERTY_NAME));
+            // The workers of the common pool are shared with the rest of the JVM
+            String[] poolValue = new String[1];
+            CountDownLatch latch = new CountDownLatch(1);
+            ForkJoinPool.commonPool().execute(() -> {
+                poolValue[0] = System.getProperty(PROPERTY_NAME);
+                latch.countDown();
+            });
+            latch.await();
+            System.out.println(poolValue[0]);
+        }
+    }
+
+    private InJvmNode createNode(Class<?> mainClass, String arguments) throws IOException, RuntimeEngineException {
+        File workingDirectory = temporaryFolder.getRoot();
+        File doInitFile = temporaryFolder.newFile("do_init");
+        Files.write(doInitFile.toPath(), "0".getBytes(StandardCharsets.UTF_8));
+        String classPath = new File(InJvmNodeTest.class.getProtectionDomain().getCodeSource().getLocation().getPath())
+                .getAbsolutePath();
+        JavaCommand javaCommand = JavaCommand.parse("java -D" + PROPERTY_NAME + "=node -cp " + classPath + " '"
+                + mainClass.getName() + "' " + arguments, Collections.emptyMap(), workingDirectory);
+        return new InJvmNode("n1", javaCommand, null, workingDirectory, new File(workingDirectory, "console"),
+                doInitFile, Collections.emptyMap(), new NoEventChannel(), (nodeName, nodeState) -> {
+                    if (nodeState.getStatus() == NodeState.Status.EXITED) {
+                        exits.add(nodeState);
+                    }
+                });
+    }
+
+    private static int getFreePort() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return serverSocket.getLocalPort();
+        }
+    }
+
+    private static void quit(int port) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.getOutputStream().write('q');
+        }
+    }
+
+    private static void connect(int port) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (true) {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                return;
+            } catch (IOException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    @Test
+    public void aNodeBlockedInAnInterruptibleAcceptIsKilledAndRestartedOnTheSamePort() throws Exception {
+        int port = getFreePort();
+        InJvmNode node = createNode(ChannelAcceptingNode.class, String.valueOf(port));
+        node.start();
+        connect(port);
+
+        node.kill();
+        NodeState nodeState = node.getState();
+        assertEquals(NodeState.Status.EXITED, nodeState.getStatus());
+        assertEquals(Integer.valueOf(137), nodeState.getExitCode());
+        assertFalse(nodeState.isCrashed());
+
+        node.start();
+        assertTrue(node.isRunning());
+        connect(port);
+        node.kill();
+        assertEquals(Integer.valueOf(1), node.getState().getRestartCount());
+        assertFalse(node.isRunning());
+    }
+
+    @Test
+    public void aNodeBlockedInAServerSocketAcceptIsNotReportedAsKilled() throws Exception {
+        int port = getFreePort();
+        InJvmNode node = createNode(SocketAcceptingNode.class, String.valueOf(port));
+        node.start();
+        connect(port);
+
+        try {
+            node.kill();
+            fail("The node should not be killed while its main thread is blocked in accept");
+        } catch (RuntimeEngineException e) {
+            assertTrue(e.getMessage().contains("main"));
+        }
+        assertTrue(node.isRunning());
+        assertTrue(exits.isEmpty());
+
+        // The node still serves on its port until its thread finishes on its own
+        connect(port);
+        quit(port);
+        NodeState nodeState = exits.poll(10, TimeUnit.SECONDS);
+        assertNotNull(nodeState);
+        assertEquals(Integer.valueOf(0), nodeState.getExitCode());
+        assertTrue(nodeState.isCrashed());
+
+        // The port is released, so the node can be restarted
+        node.start();
+        connect(port);
+        try {
+            node.kill();
+            fail("The node should not be killed while its main thread is blocked in accept");
+        } catch (RuntimeEngineException e) {
+            quit(port);
+        }
+        assertNotNull(exits.poll(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void theSystemPropertiesOfANodeAreOnlySeenByItsOwnThreads() throws Exception {
+        InJvmNode node = createNode(PropertiesNode.class, "");
+        node.start();
+        assertNotNull(exits.poll(10, TimeUnit.SECONDS));
+
+        assertEquals("node true true\nnull\n", new String(Files.readAllBytes(new File(temporaryFolder.getRoot(),
+                "console").toPath()), StandardCharsets.UTF_8));
+        assertNull(System.getProperty(PROPERTY_NAME));
+        assertFalse(System.getProperties().containsKey(PROPERTY_NAME));
+        assertFalse(System.getProperties().stringPropertyNames().contains(PROPERTY_NAME));
+    }
+
+    private static class NoEventChannel implements EventChannel {
+        @Override
+        public boolean isEventReceived(String eventName) {
+            return true;
+        }
+
+        @Override
+        public boolean areBlockDependenciesMet(String eventName) {
+            return true;
+        }
+
+        @Override
+        public boolean areDependenciesMet(String eventName, boolean includeEvent, String nodeName, String threadName) {
+            return true;
+        }
+
+        @Override
+        public void sendEvent(String eventName) {
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.local_process;
+
+import io.redit.execution.NodeState;
+import io.redit.execution.NodeStateListener;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LocalNodeProcessTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private LocalNodeProcess createProcess(String script) throws IOException {
+        return createProcess(script, (nodeName, nodeState) -> { });
+    }
+
+    private LocalNodeProcess createProcess(String script, NodeStateListener listener) throws IOException {
+        File wrapperScriptFile = temporaryFolder.newFile("wrapper_script");
+        Files.write(wrapperScriptFile.toPath(), script.getBytes(StandardCharsets.UTF_8));
+        return new LocalNodeProcess("n1", wrapperScriptFile, temporaryFolder.getRoot(),
+                new File(temporaryFolder.getRoot(), "console"), Collections.singletonMap("GREETING", "hello"), listener);
+    }
+
+    private String readConsole() throws IOException {
+        return new String(Files.readAllBytes(new File(temporaryFolder.getRoot(), "console").toPath()),
+                StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void theNodeIsStartedAndKilledWithItsBackgroundProcesses() throws Exception {
+        LocalNodeProcess process = createProcess("echo $GREETING\nsleep 600 &\necho started\nwait\n");
+        process.start();
+        assertTrue(process.isRunning());
+
+        process.kill();
+        NodeState nodeState = process.getState();
+        assertEquals(NodeState.Status.EXITED, nodeState.getStatus());
+        assertFalse(nodeState.isCrashed());
+        assertEquals("hello\nstarted\n", readConsole());
+
+        // A restart appends to the same console output
+        process.start();
+        process.stop(5);
+        assertEquals(Integer.valueOf(1), process.getState().getRestartCount());
+        assertTrue(readConsole().startsWith("hello\nstarted\nhello\n"));
+    }
+
+    @Test
+    public void anExitOnItsOwnIsReportedAsACrash() throws Exception {
+        CountDownLatch exited = new CountDownLatch(1);
+        LocalNodeProcess process = createProcess("echo failing >&2\nexit 3\n", (nodeName, nodeState) -> {
+            if (nodeState.getStatus() == NodeState.Status.EXITED) {
+                exited.countDown();
+            }
+        });
+        process.start();
+        assertTrue(exited.await(10, TimeUnit.SECONDS));
+        NodeState nodeState = process.getState();
+        assertEquals(NodeState.Status.EXITED, nodeState.getStatus());
+        assertEquals(Integer.valueOf(3), nodeState.getExitCode());
+        assertTrue(nodeState.isCrashed());
+        assertEquals("failing\n", readConsole());
+    }
+}
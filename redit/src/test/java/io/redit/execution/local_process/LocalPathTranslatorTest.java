@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.local_process;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class LocalPathTranslatorTest {
+    private static LocalPathTranslator translator() {
+        Map<String, String> destinationToSourceMap = new HashMap<>();
+        destinationToSourceMap.put("/opt/app", "/ws/n1/root/app");
+        destinationToSourceMap.put("/opt/app/conf", "/ws/n1/root/conf");
+        destinationToSourceMap.put("/redit_out_err", "/ws/n1/logs/redit_out_err");
+        return new LocalPathTranslator(destinationToSourceMap);
+    }
+
+    @Test
+    public void theLongestMappedPathIsTranslated() {
+        assertEquals("/ws/n1/root/conf/site.xml /ws/n1/root/app/bin/start",
+                translator().translate("/opt/app/conf/site.xml /opt/app/bin/start"));
+    }
+
+    @Test
+    public void onlyWholePathsAreTranslated() {
+        LocalPathTranslator translator = translator();
+        assertEquals("/opt/application /x/opt/app ./opt/app /opt/app.bak",
+                translator.translate("/opt/application /x/opt/app ./opt/app /opt/app.bak"));
+        assertEquals("cd /ws/n1/root/app && ls /ws/n1/root/app/ > /ws/n1/logs/redit_out_err 2>&1",
+                translator.translate("cd /opt/app && ls /opt/app/ > /redit_out_err 2>&1"));
+        assertEquals("/ws/n1/root/app/lib/a.jar:/ws/n1/root/conf:'/ws/n1/root/app'",
+                translator.translate("/opt/app/lib/a.jar:/opt/app/conf:'/opt/app'"));
+    }
+
+    @Test
+    public void theLocalPathsAreNotTreatedAsReplacementPatterns() {
+        LocalPathTranslator translator = new LocalPathTranslator(Collections.singletonMap("/data", "/ws/$1/data\\"));
+        assertEquals("/ws/$1/data\\/file", translator.translate("/data/file"));
+    }
+
+    @Test
+    public void theEnvironmentValuesAreTranslated() {
+        Map<String, String> environment = new HashMap<>();
+        environment.put("APP_HOME", "/opt/app");
+        environment.put("OTHER", "value");
+        Map<String, String> translated = translator().translate(environment);
+        assertEquals("/ws/n1/root/app", translated.get("APP_HOME"));
+        assertEquals("value", translated.get("OTHER"));
+    }
+
+    @Test
+    public void nothingIsTranslatedWithoutMappings() {
+        LocalPathTranslator translator = new LocalPathTranslator(Collections.emptyMap());
+        assertEquals("/opt/app", translator.translate("/opt/app"));
+        assertNull(translator.translate((String) null));
+    }
+}
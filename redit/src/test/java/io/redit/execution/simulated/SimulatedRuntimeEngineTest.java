@@ -0,0 +1,231 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.simulated;
+
+import io.redit.Constants;
+import io.redit.dsl.entities.Deployment;
+import io.redit.exceptions.RuntimeEngineException;
+import io.redit.execution.CommandResults;
+import io.redit.execution.NetPart;
+import io.redit.execution.NodeState;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+public class SimulatedRuntimeEngineTest {
+    private SimulatedRuntimeEngine runtimeEngine;
+
+    @Before
+    public void setUp() {
+        // The lightweight event server doesn't need JAXB which is missing on newer JDKs
+        System.setProperty(Constants.EVENT_SERVER_TYPE_PROPERTY, Constants.EVENT_SERVER_TYPE_LIGHTWEIGHT);
+    }
+
+    @After
+    public void tearDown() {
+        if (runtimeEngine != null) {
+            runtimeEngine.stop(true, 0);
+        }
+        System.clearProperty(Constants.EVENT_SERVER_TYPE_PROPERTY);
+    }
+
+    private void start(Deployment deployment) throws RuntimeEngineException {
+        runtimeEngine = new SimulatedRuntimeEngine(deployment);
+        runtimeEngine.start(null);
+    }
+
+    private Deployment.Builder twoNodes() {
+        return Deployment.builder("simulated-test")
+                .withService("s1").and()
+                .withService("s2").disableClockDrift().and()
+                .withNode("n1", "s1").and()
+                .withNode("n2", "s2").and();
+    }
+
+    @Test
+    public void theNodesThatAreOffOnStartupAreOnlyStartedOnDemand() throws Exception {
+        start(twoNodes().withNode("n3", "s1").offOnStartup().and().build());
+        assertTrue(runtimeEngine.nodeState("n1").isRunning());
+        assertTrue(runtimeEngine.nodeState("n2").isRunning());
+        assertNull(runtimeEngine.nodeState("n3"));
+
+        runtimeEngine.startNode("n3");
+        assertTrue(runtimeEngine.nodeState("n3").isRunning());
+        assertEquals(Integer.valueOf(0), runtimeEngine.nodeState("n3").getRestartCount());
+    }
+
+    @Test
+    public void stoppedAndKilledNodesExitWithTheirSignalExitCodes() throws Exception {
+        start(twoNodes().build());
+        List<String> stateChanges = new CopyOnWriteArrayList<>();
+        runtimeEngine.addNodeStateListener((nodeName, nodeState) ->
+                stateChanges.add(nodeName + " " + nodeState.getStatus() + " " + nodeState.getExitCode()));
+
+        runtimeEngine.stopNode("n1", 10);
+        NodeState nodeState = runtimeEngine.nodeState("n1");
+        assertEquals(NodeState.Status.EXITED, nodeState.getStatus());
+        assertEquals(Integer.valueOf(143), nodeState.getExitCode());
+        assertFalse(nodeState.isCrashed());
+
+        runtimeEngine.startNode("n1");
+        runtimeEngine.killNode("n1");
+        assertEquals(Integer.valueOf(137), runtimeEngine.nodeState("n1").getExitCode());
+
+        runtimeEngine.startNode("n1");
+        runtimeEngine.crashNode("n1", 1);
+        assertTrue(runtimeEngine.nodeState("n1").isCrashed());
+
+        assertEquals(Arrays.asList("n1 EXITED 143", "n1 RUNNING null", "n1 EXITED 137", "n1 RUNNING null",
+                "n1 EXITED 1"), stateChanges);
+        assertTrue(runtimeEngine.nodeState("n2").isRunning());
+    }
+
+    @Test
+    public void restartingANodeCountsTheRestarts() throws Exception {
+        start(twoNodes().build());
+        runtimeEngine.restartNode("n1", 10);
+        runtimeEngine.restartNode("n1", 10);
+        assertTrue(runtimeEngine.nodeState("n1").isRunning());
+        assertEquals(Integer.valueOf(2), runtimeEngine.nodeState("n1").getRestartCount());
+
+        List<String> operations = runtimeEngine.getRecordedOperations();
+        assertEquals(2, Collections.frequency(operations, "n1: restart"));
+        assertFalse(operations.contains("n2: restart"));
+    }
+
+    @Test
+    public void theScriptedEventsFollowTheRunSequence() throws Exception {
+        runtimeEngine = new SimulatedRuntimeEngine(Deployment.builder("simulated-test")
+                .withService("s1").and()
+                .withNode("n1", "s1")
+                    .stackTrace("e1", "io.redit.Main.e1")
+                    .stackTrace("e2", "io.redit.Main.e2")
+                    .and()
+                .withNode("n2", "s1")
+                    .stackTrace("e3", "io.redit.Main.e3")
+                    .and()
+                .testCaseEvents("x1")
+                .runSequence("e1 * x1 * e2 * e3")
+                .build());
+        runtimeEngine.scriptEvents("n2", "e3");
+        runtimeEngine.scriptEvents("n1", "e1", "e2");
+        runtimeEngine.start(null);
+
+        // e2 waits for the test case event and e3 waits for e2 from the other node
+        runtimeEngine.enforceOrder("x1", 10, () -> {
+            assertTrue(runtimeEngine.getRecordedOperations().contains("n1: event e1"));
+            assertFalse(runtimeEngine.getRecordedOperations().contains("n1: event e2"));
+        });
+        runtimeEngine.waitForRunSequenceCompletion(10);
+
+        List<String> events = new ArrayList<>();
+        for (String operation: runtimeEngine.getRecordedOperations()) {
+            if (operation.contains(": event ")) {
+                events.add(operation);
+            }
+        }
+        assertEquals(Arrays.asList("n1: event e1", "n1: event e2", "n2: event e3"), events);
+    }
+
+    @Test
+    public void aFrozenNodeOnlyEmitsItsEventsOnceUnfrozen() throws Exception {
+        start(Deployment.builder("simulated-test")
+                .withService("s1").and()
+                .withNode("n1", "s1")
+                    .stackTrace("e1", "io.redit.Main.e1")
+                    .and()
+                .testCaseEvents("x1")
+                .runSequence("x1 * e1")
+                .build());
+        runtimeEngine.scriptEvents("n1", "e1");
+        // The script only starts with the next run of the node
+        runtimeEngine.restartNode("n1", 10);
+        runtimeEngine.freezeNode("n1");
+        runtimeEngine.enforceOrder("x1", 10, () -> { });
+        assertFalse(runtimeEngine.getRecordedOperations().contains("n1: event e1"));
+
+        runtimeEngine.unfreezeNode("n1");
+        runtimeEngine.waitForRunSequenceCompletion(10);
+        assertTrue(runtimeEngine.getRecordedOperations().contains("n1: event e1"));
+    }
+
+    @Test
+    public void networkPartitionsBlockTheNodesInOtherPartitions() throws Exception {
+        start(twoNodes().withNode("n3", "s1").and().build());
+        NetPart netPart = NetPart.partitions("n1", "n2,n3").build();
+
+        runtimeEngine.networkPartition(netPart);
+        assertEquals(Collections.singleton("n1"), runtimeEngine.getBlockedNodes("n2"));
+        assertEquals(new HashSet<>(Arrays.asList("n2", "n3")), runtimeEngine.getBlockedNodes("n1"));
+        assertTrue(runtimeEngine.getBlockedNodes("n3").contains("n1"));
+        boolean iptablesCommandRun = false;
+        for (CommandResults commandResults: runtimeEngine.getRecordedCommands("n1")) {
+            iptablesCommandRun |= commandResults.command().contains("iptables");
+        }
+        assertTrue(iptablesCommandRun);
+
+        runtimeEngine.removeNetworkPartition(netPart);
+        assertTrue(runtimeEngine.getBlockedNodes("n1").isEmpty());
+        assertTrue(runtimeEngine.getBlockedNodes("n2").isEmpty());
+    }
+
+    @Test
+    public void clockDriftIsOnlyAppliedToTheNodesItIsEnabledIn() throws Exception {
+        start(twoNodes().build());
+        runtimeEngine.clockDrift("n1", 100);
+        runtimeEngine.clockDrift("n2", 100);
+
+        List<String> operations = runtimeEngine.getRecordedOperations();
+        assertTrue(operations.contains("n1: clock drift 100"));
+        assertFalse(operations.contains("n2: clock drift 100"));
+    }
+
+    @Test
+    public void snapshotsAreRejected() throws Exception {
+        start(twoNodes().build());
+        assertFalse(runtimeEngine.hasSnapshot("s1"));
+        try {
+            runtimeEngine.snapshotNodes("s1");
+            fail("The snapshot should be rejected");
+        } catch (RuntimeEngineException e) {
+            assertTrue(e.getMessage().contains("s1"));
+        }
+        try {
+            runtimeEngine.restoreNodes("s1");
+            fail("The restore should be rejected");
+        } catch (RuntimeEngineException e) {
+            assertTrue(e.getMessage().contains("s1"));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.single_node;
+
+import io.redit.dsl.entities.Deployment;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class DockerContainerPackTest {
+    @Test
+    public void theNodesOfEachServiceArePackedInTheOrderOfTheirNames() {
+        Deployment deployment = Deployment.builder("pack-test")
+                .withService("s1").nodesPerContainer(2).and()
+                .withService("s2").nodesPerContainer(3).and()
+                .withNode("n4", "s1").and()
+                .withNode("n1", "s1").and()
+                .withNode("n3", "s1").and()
+                .withNode("n2", "s1").and()
+                .withNode("m2", "s2").and()
+                .withNode("m1", "s2").and()
+                .build();
+        List<DockerContainerPack> packs = DockerContainerPack.createPacks(deployment, deployment.getNodes().values());
+
+        assertEquals(3, packs.size());
+        assertEquals(Arrays.asList("n1", "n2"), packs.get(0).nodeNames());
+        assertEquals("n1", packs.get(0).leader());
+        assertEquals(Arrays.asList("n3", "n4"), packs.get(1).nodeNames());
+        assertEquals(Arrays.asList("m1", "m2"), packs.get(2).nodeNames());
+        assertEquals("s2-pack2", packs.get(2).name());
+    }
+
+    @Test
+    public void aSingleRemainingNodeAndTheServicesWithoutPackingAreNotPacked() {
+        Deployment deployment = Deployment.builder("pack-test")
+                .withService("s1").nodesPerContainer(2).and()
+                .withService("s2").nodesPerContainer(1).and()
+                .withService("s3").and()
+                .withNode("n1", "s1").and()
+                .withNode("n2", "s1").and()
+                .withNode("n3", "s1").and()
+                .withNode("m1", "s2").and()
+                .withNode("m2", "s2").and()
+                .withNode("k1", "s3").and()
+                .withNode("k2", "s3").and()
+                .build();
+        List<DockerContainerPack> packs = DockerContainerPack.createPacks(deployment, deployment.getNodes().values());
+
+        assertEquals(1, packs.size());
+        assertEquals(Arrays.asList("n1", "n2"), packs.get(0).nodeNames());
+    }
+}
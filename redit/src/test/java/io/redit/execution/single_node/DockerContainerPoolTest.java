@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.single_node;
+
+import com.spotify.docker.client.messages.ContainerChange;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class DockerContainerPoolTest {
+    private static final int MODIFIED = 0;
+    private static final int ADDED = 1;
+    private static final int DELETED = 2;
+
+    private static ContainerChange change(String path, int kind) {
+        return ContainerChange.create(path, kind);
+    }
+
+    @Test
+    public void onlyTheTopMostAddedPathsAreReset() {
+        List<ContainerChange> changes = Arrays.asList(
+                change("/tmp", MODIFIED),
+                change("/tmp/app", ADDED),
+                change("/tmp/app/data", ADDED),
+                change("/var", MODIFIED),
+                change("/var/log", MODIFIED),
+                change("/var/log/app.log", ADDED));
+        assertEquals(Arrays.asList("/tmp/app", "/var/log/app.log"),
+                DockerContainerPool.getPathsToReset(changes, Collections.emptyList()));
+    }
+
+    @Test
+    public void theChangesAroundTheMountsAreIgnored() {
+        List<ContainerChange> changes = Arrays.asList(
+                change("/", MODIFIED),
+                change("/etc", MODIFIED),
+                change("/etc/hosts", MODIFIED),
+                change("/hadoop", MODIFIED),
+                change("/hadoop/logs", ADDED),
+                change("/hadoop/logs/nn.log", ADDED));
+        assertEquals(Collections.emptyList(),
+                DockerContainerPool.getPathsToReset(changes, Collections.singletonList("/hadoop/logs")));
+    }
+
+    @Test
+    public void aModifiedImageFileCannotBeReset() {
+        List<ContainerChange> changes = Arrays.asList(
+                change("/etc", MODIFIED),
+                change("/etc/passwd", MODIFIED),
+                change("/tmp/app", ADDED));
+        assertNull(DockerContainerPool.getPathsToReset(changes, Collections.emptyList()));
+    }
+
+    @Test
+    public void aDeletedImageFileCannotBeReset() {
+        List<ContainerChange> changes = Arrays.asList(
+                change("/usr", MODIFIED),
+                change("/usr/lib", MODIFIED),
+                change("/usr/lib/libfoo.so", DELETED));
+        assertNull(DockerContainerPool.getPathsToReset(changes, Collections.emptyList()));
+    }
+}
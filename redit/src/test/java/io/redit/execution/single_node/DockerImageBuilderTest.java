@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.single_node;
+
+import io.redit.exceptions.RuntimeEngineException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class DockerImageBuilderTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * @return the Dockerfile of a new build context with a file at the given relative path and with the given content
+     */
+    private Path createBuildContext(String filePath, String fileContent) throws IOException {
+        Path context = temporaryFolder.newFolder().toPath();
+        Path dockerFile = context.resolve("Dockerfile");
+        Files.write(dockerFile, "FROM ubuntu\nCOPY . /app\n".getBytes(StandardCharsets.UTF_8));
+        Path file = context.resolve(filePath);
+        Files.createDirectories(file.getParent());
+        Files.write(file, fileContent.getBytes(StandardCharsets.UTF_8));
+        return dockerFile;
+    }
+
+    @Test
+    public void theSameBuildContextGivesTheSameHash() throws IOException, RuntimeEngineException {
+        Path dockerFile = createBuildContext("lib/app.jar", "content");
+        String hash = DockerImageBuilder.hashBuildContext(dockerFile);
+
+        assertEquals(hash, DockerImageBuilder.hashBuildContext(dockerFile));
+        // The location of the build context does not matter
+        assertEquals(hash, DockerImageBuilder.hashBuildContext(createBuildContext("lib/app.jar", "content")));
+    }
+
+    @Test
+    public void aRenameOrAContentChangeChangesTheHash() throws IOException, RuntimeEngineException {
+        String hash = DockerImageBuilder.hashBuildContext(createBuildContext("lib/app.jar", "content"));
+
+        assertNotEquals(hash, DockerImageBuilder.hashBuildContext(createBuildContext("lib/app2.jar", "content")));
+        assertNotEquals(hash, DockerImageBuilder.hashBuildContext(createBuildContext("app.jar", "content")));
+        assertNotEquals(hash, DockerImageBuilder.hashBuildContext(createBuildContext("lib/app.jar", "content2")));
+    }
+
+    @Test
+    public void aChangeOfTheDockerfileChangesTheHash() throws IOException, RuntimeEngineException {
+        Path dockerFile = createBuildContext("lib/app.jar", "content");
+        String hash = DockerImageBuilder.hashBuildContext(dockerFile);
+
+        Files.write(dockerFile, "FROM ubuntu\n".getBytes(StandardCharsets.UTF_8));
+        assertNotEquals(hash, DockerImageBuilder.hashBuildContext(dockerFile));
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.single_node;
+
+import io.redit.Constants;
+import io.redit.exceptions.RuntimeEngineException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class DockerShardTest {
+    @After
+    public void tearDown() {
+        System.clearProperty(Constants.DOCKER_HOSTS_PROPERTY);
+    }
+
+    @Test
+    public void aShardIsCreatedForEachEndpoint() throws RuntimeEngineException {
+        System.setProperty(Constants.DOCKER_HOSTS_PROPERTY,
+                " unix:///var/run/docker.sock, ,tcp://127.0.0.1:2376,unix:///var/run/docker-2.sock ");
+        List<DockerShard> shards = DockerShard.createShards();
+        try {
+            assertEquals(3, shards.size());
+            assertEquals("unix:///var/run/docker.sock", shards.get(0).endpoint());
+            assertEquals("tcp://127.0.0.1:2376", shards.get(1).endpoint());
+            assertEquals(2, shards.get(2).index());
+            assertEquals("unix:///var/run/docker-2.sock", shards.get(2).endpoint());
+        } finally {
+            for (DockerShard shard: shards) {
+                shard.client().close();
+            }
+        }
+    }
+
+    @Test(expected = RuntimeEngineException.class)
+    public void anInvalidEndpointIsRejected() throws RuntimeEngineException {
+        System.setProperty(Constants.DOCKER_HOSTS_PROPERTY, "unix:///var/run/docker.sock,not a uri");
+        DockerShard.createShards();
+    }
+}
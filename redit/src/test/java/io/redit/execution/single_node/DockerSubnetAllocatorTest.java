@@ -0,0 +1,155 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.single_node;
+
+import io.redit.Constants;
+import io.redit.exceptions.RuntimeEngineException;
+import io.redit.execution.single_node.DockerSubnetAllocator.IpAddressPool;
+import io.redit.execution.single_node.DockerSubnetAllocator.Subnet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DockerSubnetAllocatorTest {
+    private final List<Subnet> reserved = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        System.setProperty(Constants.DOCKER_SUBNET_POOL_PROPERTY, "172.31.0.0/22");
+        System.setProperty(Constants.DOCKER_SUBNET_PREFIX_LENGTH_PROPERTY, "24");
+    }
+
+    @After
+    public void tearDown() {
+        for (Subnet subnet: reserved) {
+            DockerSubnetAllocator.releaseSubnet(subnet);
+        }
+        System.clearProperty(Constants.DOCKER_SUBNET_POOL_PROPERTY);
+        System.clearProperty(Constants.DOCKER_SUBNET_PREFIX_LENGTH_PROPERTY);
+    }
+
+    private Subnet reserve(Subnet... usedSubnets) throws RuntimeEngineException {
+        Subnet subnet = DockerSubnetAllocator.reserveSubnet(new HashSet<>(Arrays.asList(usedSubnets)));
+        reserved.add(subnet);
+        return subnet;
+    }
+
+    @Test
+    public void subnetsAreParsedAndCompared() throws RuntimeEngineException {
+        Subnet subnet = Subnet.parse("10.1.2.3/16");
+        assertEquals("10.1.0.0/16", subnet.toString());
+        assertEquals("10.1.0.1", subnet.gateway());
+        assertTrue(subnet.overlaps(Subnet.parse("10.1.255.0/24")));
+        assertTrue(subnet.overlaps(Subnet.parse("10.0.0.0/8")));
+        assertFalse(subnet.overlaps(Subnet.parse("10.2.0.0/16")));
+        assertTrue(subnet.contains(DockerSubnetAllocator.parseAddress("10.1.255.255")));
+        assertFalse(subnet.contains(DockerSubnetAllocator.parseAddress("10.2.0.0")));
+    }
+
+    @Test(expected = RuntimeEngineException.class)
+    public void ipv6SubnetsAreRejected() throws RuntimeEngineException {
+        Subnet.parse("fd00::/64");
+    }
+
+    @Test
+    public void overlappingSubnetsAreSkipped() throws RuntimeEngineException {
+        // overlaps the first subnet of the pool only partially
+        assertEquals("172.31.1.0/24", reserve(Subnet.parse("172.31.0.128/25")).toString());
+        // a larger used subnet covers the next two subnets of the pool
+        assertEquals("172.31.0.0/24", reserve(Subnet.parse("172.31.2.0/23")).toString());
+    }
+
+    @Test
+    public void reservedSubnetsAreNotPickedAgainUntilReleased() throws RuntimeEngineException {
+        Subnet first = reserve();
+        Subnet second = reserve();
+        assertEquals("172.31.0.0/24", first.toString());
+        assertEquals("172.31.1.0/24", second.toString());
+
+        DockerSubnetAllocator.releaseSubnet(first);
+        assertEquals(first, reserve());
+    }
+
+    @Test
+    public void anExhaustedPoolIsReported() throws RuntimeEngineException {
+        for (int i = 0; i < 4; i++) {
+            reserve();
+        }
+        try {
+            reserve();
+            fail("The pool should be exhausted");
+        } catch (RuntimeEngineException e) {
+            assertTrue(e.getMessage().contains("172.31.0.0/22"));
+        }
+    }
+
+    @Test(expected = RuntimeEngineException.class)
+    public void aPrefixLengthShorterThanThePoolIsRejected() throws RuntimeEngineException {
+        System.setProperty(Constants.DOCKER_SUBNET_PREFIX_LENGTH_PROPERTY, "20");
+        reserve();
+    }
+
+    @Test
+    public void ipAddressesSkipTheNetworkGatewayAndBroadcastAddresses() throws RuntimeEngineException {
+        IpAddressPool pool = new IpAddressPool(Subnet.parse("192.168.10.0/29"));
+        List<String> addresses = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            addresses.add(pool.allocate());
+        }
+        assertEquals(Arrays.asList("192.168.10.2", "192.168.10.3", "192.168.10.4", "192.168.10.5",
+                "192.168.10.6"), addresses);
+        try {
+            pool.allocate();
+            fail("The pool should be exhausted");
+        } catch (RuntimeEngineException e) {
+            assertTrue(e.getMessage().contains("192.168.10.0/29"));
+        }
+    }
+
+    @Test
+    public void releasedIpAddressesAreReusedInOrder() throws RuntimeEngineException {
+        IpAddressPool pool = new IpAddressPool(Subnet.parse("192.168.10.0/24"));
+        for (int i = 0; i < 4; i++) {
+            pool.allocate();
+        }
+        pool.release("192.168.10.4");
+        pool.release("192.168.10.3");
+        // The gateway, the addresses out of the subnet and the ones never allocated are ignored
+        pool.release("192.168.10.1");
+        pool.release("192.168.11.3");
+        pool.release("192.168.10.200");
+
+        assertEquals("192.168.10.3", pool.allocate());
+        assertEquals("192.168.10.4", pool.allocate());
+        assertEquals("192.168.10.6", pool.allocate());
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.execution.single_node;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ExitCodeTrailerOutputStreamTest {
+    private static String[] run(String command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder("sh", "-c", ExitCodeTrailerOutputStream.wrap(command)).start();
+        ByteArrayOutputStream stdErr = new ByteArrayOutputStream();
+        ExitCodeTrailerOutputStream stdErrWithTrailer = new ExitCodeTrailerOutputStream(stdErr);
+        // Writes the stderr in small pieces the way the exec output comes
+        byte[] buffer = new byte[3];
+        int length;
+        while ((length = process.getErrorStream().read(buffer)) > 0) {
+            stdErrWithTrailer.write(buffer, 0, length);
+        }
+        Integer exitCode = stdErrWithTrailer.finish();
+        String stdOut = IOUtils.toString(process.getInputStream(), StandardCharsets.UTF_8);
+        process.waitFor();
+        return new String[] { String.valueOf(exitCode), stdOut, new String(stdErr.toByteArray(), StandardCharsets.UTF_8) };
+    }
+
+    @Test
+    public void theExitCodeIsTakenFromTheTrailer() throws Exception {
+        String[] results = run("echo out; echo 'it'\"'\"'s an error' >&2; exit 7");
+        assertEquals("7", results[0]);
+        assertEquals("out\n", results[1]);
+        assertEquals("it's an error\n", results[2]);
+    }
+
+    @Test
+    public void theCommandMayExitTheShell() throws Exception {
+        assertEquals("0", run("true")[0]);
+        assertEquals("255", run("exit 255")[0]);
+        assertEquals("", run("exit 3")[2]);
+    }
+
+    @Test
+    public void theOutputWithoutTrailerIsKept() throws IOException {
+        ByteArrayOutputStream stdErr = new ByteArrayOutputStream();
+        ExitCodeTrailerOutputStream stdErrWithTrailer = new ExitCodeTrailerOutputStream(stdErr);
+        byte[] output = "a long error output which is longer than the trailer\nkilled".getBytes(StandardCharsets.UTF_8);
+        stdErrWithTrailer.write(output, 0, output.length);
+        assertNull(stdErrWithTrailer.finish());
+        assertEquals("a long error output which is longer than the trailer\nkilled",
+                new String(stdErr.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class FileUtilTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void theTargetBecomesACopyOfTheSource() throws IOException {
+        Path source = temporaryFolder.newFolder("source").toPath();
+        Path target = temporaryFolder.getRoot().toPath().resolve("target");
+        write(source.resolve("a.txt"), "a");
+        write(source.resolve("dir/b.txt"), "b");
+        Files.createDirectories(source.resolve("empty"));
+        Files.createSymbolicLink(source.resolve("link"), Paths.get("a.txt"));
+
+        FileUtil.syncDirectory(source, target, Collections.emptySet());
+
+        assertEquals("a", read(target.resolve("a.txt")));
+        assertEquals("b", read(target.resolve("dir/b.txt")));
+        assertTrue(Files.isDirectory(target.resolve("empty")));
+        assertTrue(Files.isSymbolicLink(target.resolve("link")));
+        assertEquals(Paths.get("a.txt"), Files.readSymbolicLink(target.resolve("link")));
+    }
+
+    @Test
+    public void theEntriesMissingInTheSourceAreDeletedUnlessExcluded() throws IOException {
+        Path source = temporaryFolder.newFolder("source").toPath();
+        Path target = temporaryFolder.newFolder("target").toPath();
+        write(source.resolve("kept.txt"), "kept");
+        write(target.resolve("stale.txt"), "stale");
+        write(target.resolve("stale/nested.txt"), "stale");
+        write(target.resolve("logs/app.log"), "log");
+
+        FileUtil.syncDirectory(source, target, Collections.singleton(Paths.get("logs")));
+
+        assertEquals("kept", read(target.resolve("kept.txt")));
+        assertFalse(Files.exists(target.resolve("stale.txt")));
+        assertFalse(Files.exists(target.resolve("stale")));
+        assertEquals("log", read(target.resolve("logs/app.log")));
+    }
+
+    @Test
+    public void filesAndDirectoriesReplaceEachOther() throws IOException {
+        Path source = temporaryFolder.newFolder("source").toPath();
+        Path target = temporaryFolder.newFolder("target").toPath();
+        write(source.resolve("was-a-directory"), "file");
+        write(source.resolve("was-a-file/child.txt"), "child");
+        write(target.resolve("was-a-directory/child.txt"), "child");
+        write(target.resolve("was-a-file"), "file");
+
+        FileUtil.syncDirectory(source, target, Collections.emptySet());
+
+        assertEquals("file", read(target.resolve("was-a-directory")));
+        assertEquals("child", read(target.resolve("was-a-file/child.txt")));
+    }
+
+    @Test
+    public void onlyTheChangedFilesAreCopied() throws IOException {
+        Path source = temporaryFolder.newFolder("source").toPath();
+        Path target = temporaryFolder.newFolder("target").toPath();
+        FileTime modifiedTime = FileTime.fromMillis(1500000000000L);
+        write(source.resolve("same.txt"), "new");
+        write(source.resolve("changed.txt"), "new");
+        Files.setLastModifiedTime(source.resolve("same.txt"), modifiedTime);
+        // The files with the same size and modification time are assumed to be the same
+        write(target.resolve("same.txt"), "old");
+        write(target.resolve("changed.txt"), "old");
+        Files.setLastModifiedTime(target.resolve("same.txt"), modifiedTime);
+        Files.setLastModifiedTime(target.resolve("changed.txt"), FileTime.fromMillis(modifiedTime.toMillis() - 1000));
+
+        FileUtil.syncDirectory(source, target, Collections.emptySet());
+
+        assertEquals("old", read(target.resolve("same.txt")));
+        assertEquals("new", read(target.resolve("changed.txt")));
+        assertEquals(Files.getLastModifiedTime(source.resolve("changed.txt")).toMillis(),
+                Files.getLastModifiedTime(target.resolve("changed.txt")).toMillis());
+    }
+
+    @Test
+    public void aSecondSyncCopiesNothing() throws IOException {
+        Path source = temporaryFolder.newFolder("source").toPath();
+        Path target = temporaryFolder.newFolder("target").toPath();
+        write(source.resolve("file.txt"), "new");
+        FileUtil.syncDirectory(source, target, Collections.emptySet());
+
+        // Marks the copied file without changing its size or modification time
+        FileTime copiedModifiedTime = Files.getLastModifiedTime(target.resolve("file.txt"));
+        write(target.resolve("file.txt"), "old");
+        Files.setLastModifiedTime(target.resolve("file.txt"), copiedModifiedTime);
+        FileUtil.syncDirectory(source, target, Collections.emptySet());
+
+        assertEquals("old", read(target.resolve("file.txt")));
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.util;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HostUtilTest {
+    @Test
+    public void theCurrentProcessIsAlive() {
+        assertFalse(HostUtil.isProcessOwnerDead(HostUtil.getProcessOwnerId()));
+    }
+
+    @Test
+    public void ownersThatCannotBeCheckedAreAssumedAlive() {
+        String[] parts = HostUtil.getProcessOwnerId().split("/", -1);
+        String host = parts[0].substring(parts[0].indexOf('@'));
+        assertFalse(HostUtil.isProcessOwnerDead(null));
+        assertFalse(HostUtil.isProcessOwnerDead("999999999" + host));
+        assertFalse(HostUtil.isProcessOwnerDead("999999999" + host + "/pid:[1]/1"));
+        assertFalse(HostUtil.isProcessOwnerDead("999999999@another-host/" + parts[1] + "/1"));
+    }
+
+    @Test
+    public void deadOwnersInTheSamePidNamespaceAreDetected() {
+        Assume.assumeTrue(Files.isDirectory(Paths.get("/proc/self")));
+        String[] parts = HostUtil.getProcessOwnerId().split("/", -1);
+        String pid = parts[0].substring(0, parts[0].indexOf('@'));
+        String host = parts[0].substring(parts[0].indexOf('@'));
+        assertTrue(HostUtil.isProcessOwnerDead("999999999" + host + "/" + parts[1] + "/1"));
+        // The pid of the current process reused by another process
+        assertTrue(HostUtil.isProcessOwnerDead(pid + host + "/" + parts[1] + "/" + parts[2] + "0"));
+    }
+}
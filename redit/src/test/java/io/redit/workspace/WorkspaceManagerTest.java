@@ -0,0 +1,190 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.workspace;
+
+import io.redit.Constants;
+import io.redit.dsl.entities.Deployment;
+import io.redit.exceptions.WorkspaceException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class WorkspaceManagerTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private String originalClasspath;
+    private Path libraryJar;
+    private Path libraryClasses;
+    private Path applicationJar;
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    private static String targetPath(Path path) {
+        String targetPath = "/" + path.toString().replaceAll("\\W", "");
+        return path.toString().endsWith(".jar") ? targetPath + ".jar" : targetPath;
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        Path classpathRoot = temporaryFolder.newFolder().toPath();
+        libraryJar = classpathRoot.resolve("library.jar");
+        libraryClasses = classpathRoot.resolve("library-classes");
+        applicationJar = classpathRoot.resolve("application.jar");
+        write(libraryJar, "library jar");
+        write(libraryClasses.resolve("io/redit/Library.class"), "library class");
+        write(applicationJar, "application jar");
+
+        originalClasspath = System.getProperty("java.class.path");
+        System.setProperty("java.class.path", String.join(":", libraryJar.toString(), libraryClasses.toString(),
+                applicationJar.toString()));
+        System.setProperty(Constants.CLASSPATH_BUNDLING_PROPERTY, "true");
+    }
+
+    @After
+    public void tearDown() {
+        System.setProperty("java.class.path", originalClasspath);
+        System.clearProperty(Constants.CLASSPATH_BUNDLING_PROPERTY);
+    }
+
+    private Deployment createDeployment() {
+        return Deployment.builder("workspace-test")
+                .withServiceFromJvmClasspath("s1", applicationJar.toString()).and()
+                .withNode("n1", "s1").and()
+                .withNode("n2", "s1").and()
+                .build();
+    }
+
+    private String createWorkingDirectory() throws IOException {
+        return Paths.get(".").toAbsolutePath().normalize()
+                .relativize(temporaryFolder.newFolder().toPath()).toString();
+    }
+
+    private static List<NodeWorkspace.PathMappingEntry> getMappings(NodeWorkspace nodeWorkspace, String destination) {
+        return nodeWorkspace.getPathMappingList().stream()
+                .filter(entry -> entry.getDestination().equals(destination))
+                .collect(Collectors.toList());
+    }
+
+    private static Path getBundleDirectory(WorkspaceManager workspaceManager) {
+        return workspaceManager.getWorkingDirectory().resolve(Constants.CLASSPATH_BUNDLES_DIRECTORY_NAME).resolve("s1");
+    }
+
+    @Test
+    public void theLibraryFilesAreHardLinkedIntoTheBundle() throws IOException, WorkspaceException {
+        WorkspaceManager workspaceManager = new WorkspaceManager(createDeployment(), createWorkingDirectory());
+        workspaceManager.createWorkspace();
+
+        Path bundledJar = getBundleDirectory(workspaceManager).resolve(targetPath(libraryJar).substring(1));
+        assertTrue(Files.isSameFile(libraryJar, bundledJar));
+    }
+
+    @Test
+    public void theLibraryFilesAreCopiedIntoTheBundleWhenLinkingFails() throws IOException, WorkspaceException {
+        WorkspaceManager workspaceManager = new WorkspaceManager(createDeployment(), createWorkingDirectory()) {
+            @Override
+            void linkFile(Path link, Path existing) throws IOException {
+                throw new IOException("Linking is not supported");
+            }
+        };
+        workspaceManager.createWorkspace();
+
+        Path bundledJar = getBundleDirectory(workspaceManager).resolve(targetPath(libraryJar).substring(1));
+        assertFalse(Files.isSameFile(libraryJar, bundledJar));
+        assertEquals("library jar", read(bundledJar));
+    }
+
+    @Test
+    public void theLibraryDirectoriesAreCopiedIntoTheBundle() throws IOException, WorkspaceException {
+        WorkspaceManager workspaceManager = new WorkspaceManager(createDeployment(), createWorkingDirectory());
+        workspaceManager.createWorkspace();
+
+        Path bundledClass = getBundleDirectory(workspaceManager).resolve(targetPath(libraryClasses).substring(1))
+                .resolve("io/redit/Library.class");
+        assertEquals("library class", read(bundledClass));
+        assertFalse(Files.isSameFile(libraryClasses.resolve("io/redit/Library.class"), bundledClass));
+    }
+
+    @Test
+    public void eachNodeHasOneReadOnlyMappingForTheBundle() throws IOException, WorkspaceException {
+        WorkspaceManager workspaceManager = new WorkspaceManager(createDeployment(), createWorkingDirectory());
+        Map<String, NodeWorkspace> nodeWorkspaces = workspaceManager.createWorkspace();
+
+        for (String nodeName: Arrays.asList("n1", "n2")) {
+            NodeWorkspace nodeWorkspace = nodeWorkspaces.get(nodeName);
+            List<NodeWorkspace.PathMappingEntry> bundleMappings = getMappings(nodeWorkspace,
+                    Constants.JVM_CLASSPATH_BUNDLE_PATH);
+            assertEquals(1, bundleMappings.size());
+            assertTrue(bundleMappings.get(0).isReadOnly());
+            assertEquals(getBundleDirectory(workspaceManager).toString(), bundleMappings.get(0).getSource());
+
+            // None of the bundled entries is mounted on its own
+            assertTrue(nodeWorkspace.getPathMappingList().stream().noneMatch(entry ->
+                    entry.getDestination().startsWith(Constants.JVM_CLASSPATH_BUNDLE_PATH + "/")));
+        }
+    }
+
+    @Test
+    public void theInstrumentableEntriesStayPerNode() throws IOException, WorkspaceException {
+        WorkspaceManager workspaceManager = new WorkspaceManager(createDeployment(), createWorkingDirectory());
+        Map<String, NodeWorkspace> nodeWorkspaces = workspaceManager.createWorkspace();
+
+        assertFalse(Files.exists(getBundleDirectory(workspaceManager).resolve(targetPath(applicationJar)
+                .substring(1))));
+        for (String nodeName: Arrays.asList("n1", "n2")) {
+            NodeWorkspace nodeWorkspace = nodeWorkspaces.get(nodeName);
+            List<NodeWorkspace.PathMappingEntry> applicationMappings = getMappings(nodeWorkspace,
+                    targetPath(applicationJar));
+            assertEquals(1, applicationMappings.size());
+            assertFalse(applicationMappings.get(0).isReadOnly());
+
+            Path nodeCopy = Paths.get(applicationMappings.get(0).getSource());
+            assertTrue(nodeCopy.startsWith(nodeWorkspace.getRootDirectory()));
+            assertEquals("application jar", read(nodeCopy));
+            assertTrue(nodeWorkspace.getInstrumentablePaths().contains(nodeCopy.toString()));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.rt;
+
+/**
+ * The channel through which the Redit client talks to the event server of the runtime engine
+ */
+public interface EventChannel {
+    /**
+     * @param eventName the event to be checked
+     * @return true if the event is marked as satisfied, otherwise false
+     */
+    boolean isEventReceived(String eventName);
+
+    /**
+     * @param eventName the event to be checked
+     * @return true if the blocking condition of the event is satisfied, otherwise false
+     */
+    boolean areBlockDependenciesMet(String eventName);
+
+    /**
+     * @param eventName the event to be checked
+     * @param includeEvent the flag to check if the event itself is satisfied as well
+     * @param nodeName the name of the node of the polling thread or null if unknown
+     * @param threadName the name of the polling thread
+     * @return true if the dependencies of the event are satisfied, otherwise false
+     */
+    boolean areDependenciesMet(String eventName, boolean includeEvent, String nodeName, String threadName);
+
+    /**
+     * Marks the event as satisfied
+     * @param eventName the event to be marked as satisfied
+     */
+    void sendEvent(String eventName);
+}
@@ -0,0 +1,132 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 SATE-Lab
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.redit.rt;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLEncoder;
+
+/**
+ * This class talks to the event server over http and is used when the node is running out of the test's JVM
+ */
+public class HttpEventChannel implements EventChannel {
+    private final String baseUrl;
+
+    /**
+     * Constructor
+     * @param hostname the hostname or ip address of the event server
+     * @param port the port number for the event server
+     * @param namespace the namespace of the deployment in a shared event server or null if the event server is not shared
+     */
+    public HttpEventChannel(String hostname, String port, String namespace) {
+        this.baseUrl = "http://" + hostname + ":" + port + (namespace == null || namespace.isEmpty() ? "" : "/d/" + namespace);
+    }
+
+    /**
+     * Sends a message to event server to check if the event has been marked as satisfied or not.
+     * @param eventName that needs to be checked
+     * @return true if the event is marked as satisfied, otherwise false
+     */
+    @Override
+    public boolean isEventReceived(String eventName) {
+        return get(baseUrl + "/events/" + eventName);
+    }
+
+    /**
+     * Sends a message to event server to check if the blocking condition for the given event is satisfied or not.
+     * @param eventName that needs to be checked
+     * @return true if the blocking condition is marked as satisfied, otherwise false
+     */
+    @Override
+    public boolean areBlockDependenciesMet(String eventName) {
+        return get(baseUrl + "/blockDependencies/" + eventName);
+    }
+
+    /**
+     * Sends a message to event server to check if the dependencies of the given event are satisfied or not. The event
+     * server keeps track of the threads that are polling for an event so it can tell which node and thread are stuck
+     * when the run sequence stalls
+     */
+    @Override
+    public boolean areDependenciesMet(String eventName, boolean includeEvent, String nodeName, String threadName) {
+        try {
+            StringBuilder url = new StringBuilder(baseUrl).append("/dependencies/").append(eventName)
+                    .append("?includeEvent=").append(includeEvent ? 1 : 0);
+            if (nodeName != null) {
+                url.append("&node=").append(URLEncoder.encode(nodeName, "UTF-8"));
+            }
+            url.append("&thread=").append(URLEncoder.encode(threadName, "UTF-8"));
+            return get(url.toString());
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Sends a message to event server and marks the event as satisfied.
+     * @param eventName the event to be marked as satisfied
+     */
+    @Override
+    public void sendEvent(String eventName) {
+        try {
+            URL url = new URL(baseUrl + "/events");
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setDoOutput(true);
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", "application/json");
+
+            String input = "{\"name\":\"" + eventName + "\"}";
+
+            OutputStream os = connection.getOutputStream();
+            os.write(input.getBytes());
+
+            connection.getResponseCode();
+        } catch (MalformedURLException e) {
+            e.printStackTrace();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private boolean get(String address) {
+        try {
+            URL url = new URL(address);
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("GET");
+            connection.connect();
+            return connection.getResponseCode() == 200;
+        } catch (MalformedURLException e) {
+            e.printStackTrace();
+            return false;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+}
@@ -25,11 +25,10 @@
 
 package io.redit.rt;
 
-import java.io.IOException;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.TimeoutException;
 
 // TODO should some methods be synchronized ?
@@ -39,34 +38,108 @@ import java.util.concurrent.TimeoutException;
  */
 public class Redit {
     private static Redit instance;
+    // nodes that run inside the test's JVM get their own instance which is seen by the threads of their thread group
+    private static final Map<ThreadGroup, Redit> nodeInstances = new ConcurrentHashMap<>();
 
-    private final String hostname;
-    private final String port;
+    private final EventChannel eventChannel;
+    private final String nodeName;
     private final StackMatcher stackMatcher;
     // this is needed because each pass of a method can only be blocked once per thread
     private ThreadLocal<Boolean> allowBlocking;
 
     /**
-     * This method returns an instance of Redit class initialized with ip and port from the env
+     * This method returns the instance of Redit class of the node the current thread belongs to if there is one, and
+     * otherwise, an instance initialized with ip and port from the env
      */
     public static Redit getInstance() {
+        Redit current = getNodeInstance();
+        if (current != null) {
+            return current;
+        }
+
         if (instance == null) {
             // the event server ip an port should come from the env vars if not given as args
             instance = new Redit(System.getenv("REDIT_EVENT_SERVER_IP_ADDRESS"),
-                    System.getenv("REDIT_EVENT_SERVER_PORT_NUMBER"));
+                    System.getenv("REDIT_EVENT_SERVER_PORT_NUMBER"),
+                    System.getenv("REDIT_EVENT_SERVER_NAMESPACE"),
+                    System.getenv("REDIT_NODE_NAME"));
         }
 
         return instance;
     }
 
+    /**
+     * Sets the instance that is returned to the threads of the given thread group and its subgroups. This is used by
+     * the runtime engine when the node is running inside the test's JVM. The workers of the common fork join pool are
+     * shared by the whole JVM, so they never get the instance of a node even if they are created in its thread group
+     * @param threadGroup the thread group of the node
+     * @param redit the instance to be used by the node or null to fall back to the instance from the env
+     */
+    public static void setNodeInstance(ThreadGroup threadGroup, Redit redit) {
+        if (redit == null) {
+            nodeInstances.remove(threadGroup);
+        } else {
+            nodeInstances.put(threadGroup, redit);
+        }
+    }
+
+    private static Redit getNodeInstance() {
+        if (nodeInstances.isEmpty()) {
+            return null;
+        }
+        Thread thread = Thread.currentThread();
+        if (thread instanceof ForkJoinWorkerThread
+                && ((ForkJoinWorkerThread) thread).getPool() == ForkJoinPool.commonPool()) {
+            return null;
+        }
+        for (ThreadGroup threadGroup = thread.getThreadGroup(); threadGroup != null;
+             threadGroup = threadGroup.getParent()) {
+            Redit redit = nodeInstances.get(threadGroup);
+            if (redit != null) {
+                return redit;
+            }
+        }
+        return null;
+    }
+
     /**
      * Private Constructor
      * @param hostname the hostname or ip address of the event server
      * @param port the port number for the event server
      */
     public Redit(String hostname, String port) {
-        this.hostname = hostname;
-        this.port = port;
+        this(hostname, port, null);
+    }
+
+    /**
+     * Constructor
+     * @param hostname the hostname or ip address of the event server
+     * @param port the port number for the event server
+     * @param namespace the namespace of the deployment in a shared event server or null if the event server is not shared
+     */
+    public Redit(String hostname, String port, String namespace) {
+        this(hostname, port, namespace, null);
+    }
+
+    /**
+     * Constructor
+     * @param hostname the hostname or ip address of the event server
+     * @param port the port number for the event server
+     * @param namespace the namespace of the deployment in a shared event server or null if the event server is not shared
+     * @param nodeName the name of the node this client is running in which is reported to the event server while polling
+     */
+    public Redit(String hostname, String port, String namespace, String nodeName) {
+        this(new HttpEventChannel(hostname, port, namespace), nodeName);
+    }
+
+    /**
+     * Constructor
+     * @param eventChannel the channel to talk to the event server through
+     * @param nodeName the name of the node this client is running in which is reported to the event server while polling
+     */
+    public Redit(EventChannel eventChannel, String nodeName) {
+        this.eventChannel = eventChannel;
+        this.nodeName = nodeName;
         this.stackMatcher = new StackMatcher();
         this.allowBlocking = ThreadLocal.withInitial(() -> true);
     }
@@ -88,12 +161,12 @@ public class Redit {
      */
     public void enforceOrder(String eventName, String stack) {
         // check if event is not already sent - useful when resetting a node
-        if (!isEventAlreadySent(eventName)) {
+        if (!eventChannel.isEventReceived(eventName)) {
             if (stack == null || stackMatcher.match(stack)) {
                 // check if blocking is allowed in the current pass
                 if (allowBlocking.get()) {
                     // check if blocking condition is satisfied
-                    if (isBlockingConditionSatisfied(eventName)) {
+                    if (eventChannel.areBlockDependenciesMet(eventName)) {
                         blockAndPoll(eventName);
                         sendEvent(eventName);
                         allowBlocking.set(false);
@@ -115,9 +188,9 @@ public class Redit {
             @Override
             public void run() {
                 // check if event is not already sent - useful when resetting a node
-                if (!isEventAlreadySent(eventName)) {
+                if (!eventChannel.isEventReceived(eventName)) {
                     // check if blocking condition is satisfied
-                    if (isBlockingConditionSatisfied(eventName)) {
+                    if (eventChannel.areBlockDependenciesMet(eventName)) {
                         blockAndPoll(eventName);
                         System.gc();
                         sendEvent(eventName);
@@ -129,56 +202,6 @@ public class Redit {
         gcThread.start();
     }
 
-    /**
-     * Sends a message to event server to check if the event has been marked as satisfied or not.
-     * @param eventName that needs to be checked
-     * @return true if the event is marked as satisfied, otherwise false
-     */
-    private boolean isEventAlreadySent(String eventName) {
-        try {
-            URL url = new URL("http://" + hostname + ":" + port + "/events/" + eventName);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.connect();
-            if (connection.getResponseCode() == 200) {
-                return true;
-            }
-            // System.out.println("response code:"+connection.getResponseCode());
-            return false;
-        } catch (MalformedURLException e) {
-            e.printStackTrace();
-            return false;
-        } catch (IOException e) {
-            e.printStackTrace();
-            return false;
-        }
-    }
-
-    /**
-     * Sends a message to event server to check if the blocking condition for the given event is satisfied or not.
-     * @param eventName that needs to be checked
-     * @return true if the blocking condition is marked as satisfied, otherwise false
-     */
-    private boolean isBlockingConditionSatisfied(String eventName) {
-        try {
-            URL url = new URL("http://" + hostname + ":" + port + "/blockDependencies/" + eventName);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.connect();
-            if (connection.getResponseCode() == 200) {
-                return true;
-            }
-            System.out.println("response code:"+connection.getResponseCode());
-            return false;
-        } catch (MalformedURLException e) {
-            e.printStackTrace();
-            return false;
-        } catch (IOException e) {
-            e.printStackTrace();
-            return false;
-        }
-    }
-
     /**
      * This method, in an infinite loop, sends a message to event server and checks that the dependency of the given event
      * are satisfied. When the dependencies finally get satisfied, the method will return
@@ -220,28 +243,18 @@ public class Redit {
         }
 
         while (timeout == null || timeout > 0) {
+            if (eventChannel.areDependenciesMet(eventName, includeEvent, nodeName, Thread.currentThread().getName())) {
+                break;
+            }
             try {
-                Integer eventInclusion = includeEvent? 1:0;
-                URL url = new URL("http://" + hostname + ":" + port + "/dependencies/" + eventName
-                        + "?includeEvent=" + eventInclusion);
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("GET");
-                connection.connect();
-                if (connection.getResponseCode() == 200) {
-                    break;
-                }
                 Thread.sleep(10);
-
-                if (timeout != null) {
-                    timeout -= 10;
-                }
-            } catch (MalformedURLException e) {
-                e.printStackTrace();
-            } catch (IOException e) {
-                e.printStackTrace();
             } catch (InterruptedException e) {
                 e.printStackTrace();
             }
+
+            if (timeout != null) {
+                timeout -= 10;
+            }
         }
 
         if (timeout != null && timeout <= 0) {
@@ -250,27 +263,10 @@ public class Redit {
     }
 
     /**
-     * Sends a message to event server and marks the event as satisfied.
+     * Marks the event as satisfied in the event server.
      * @param eventName the event to be marked as satisfied
      */
     public void sendEvent(String eventName) {
-        try {
-            URL url = new URL("http://" + hostname + ":" + port + "/events");
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setDoOutput(true);
-            connection.setRequestMethod("POST");
-            connection.setRequestProperty("Content-Type", "application/json");
-
-            String input = "{\"name\":\"" + eventName + "\"}";
-
-            OutputStream os = connection.getOutputStream();
-            os.write(input.getBytes());
-
-            connection.getResponseCode();
-        } catch (MalformedURLException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        eventChannel.sendEvent(eventName);
     }
 }
@@ -5,8 +5,10 @@ import io.redit.dsl.entities.Deployment;
 import io.redit.dsl.entities.PathAttr;
 import io.redit.dsl.entities.ServiceType;
 import io.redit.dsl.entities.PortType;
+import io.redit.dsl.entities.ReadinessProbe;
 import io.redit.exceptions.RuntimeEngineException;
 import io.redit.execution.CommandResults;
+import io.redit.execution.NodeSelector;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import org.slf4j.Logger;
@@ -17,6 +19,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.*;
+import java.util.concurrent.TimeoutException;
 
 
 public class ReditHelper {
@@ -27,6 +30,8 @@ public class ReditHelper {
     private static final int NN_HTTP_PORT = 50070;
 //    private static final int NN_HTTP_PORT = 9870;
     private static final int NN_RPC_PORT = 8020;
+    private static final int JN_RPC_PORT = 8485;
+    private static final int STARTUP_TIMEOUT = 60;
 
     private int numOfDNs;
     private int numOfNNs;
@@ -65,7 +70,7 @@ public class ReditHelper {
         String fsAddress = numOfNNs > 1 ? CLUSTER_NAME : "nn1:" + NN_RPC_PORT;
         String hdfsSiteFileName = numOfNNs > 1 ? "hdfs-site-ha.xml" : "hdfs-site.xml";
         Deployment.Builder builder = Deployment.builder("example-hdfs-lease")
-                .withService("zk").dockerImageName("redit/zk:3.4.14").dockerFileAddress("docker/zk", true).disableClockDrift().and()
+                .withService("zk").dockerImageName("redit/zk:3.4.14").dockerFileAddress("docker/zk").disableClockDrift().and()
                 .withService("hadoop-base")
                 .applicationPath("../hadoop-3.1.2-build/hadoop-dist/target/" + dir + ".tar.gz", "/hadoop", PathAttr.COMPRESSED)
                 .applicationPath("etc", getHadoopHomeDir() + "/etc").workDir(getHadoopHomeDir())
@@ -77,13 +82,15 @@ public class ReditHelper {
                 .applicationPath("etc/hadoop/core-site.xml", getHadoopHomeDir() + "/etc/hadoop/core-site.xml",
                         new HashMap<String, String>() {{ put("CLUSTER_ADDRESS", fsAddress); }})
                 .environmentVariable("HADOOP_HOME", getHadoopHomeDir()).environmentVariable("HADOOP_HEAPSIZE_MAX", "1g")
-                .dockerImageName("redit/hadoop:1.0").dockerFileAddress("docker/Dockerfile", true)
+                .dockerImageName("redit/hadoop:1.0").dockerFileAddress("docker/Dockerfile")
                 .libraryPath(getHadoopHomeDir() + "/share/hadoop/**/*.jar")
                 .logDirectory(getHadoopHomeDir() + "/logs").serviceType(ServiceType.JAVA).and();
 
         addRuntimeLibsToDeployment(builder, getHadoopHomeDir());
 
         builder.withService("nn", "hadoop-base").tcpPort(NN_HTTP_PORT, NN_RPC_PORT)
+                .readinessProbe(ReadinessProbe.http(NN_HTTP_PORT, "/jmx?qry=Hadoop:service=NameNode,name=FSNamesystem",
+                        "\"tag\\.HAState\" : \"(active|standby)\""))
                 .initCommand(getHadoopHomeDir() + "bin/hdfs namenode -bootstrapStandby")
                 .startCommand(getHadoopHomeDir() + "bin/hdfs --daemon start zkfc && " + getHadoopHomeDir() + "bin/hdfs --daemon start namenode")
                 .stopCommand(getHadoopHomeDir() + "bin/hdfs --daemon stop namenode").and()
@@ -95,7 +102,7 @@ public class ReditHelper {
                 .node("nn1").stackTrace("e1", "test.armin.balalaie.io.facebook").and().runSequence("e1");
 
         if (numOfNNs > 1) {
-            builder.withService("jn", "hadoop-base")
+            builder.withService("jn", "hadoop-base").readinessProbe(ReadinessProbe.tcp(JN_RPC_PORT))
                     .startCommand(getHadoopHomeDir() + "bin/hdfs --daemon start journalnode")
                     .stopCommand(getHadoopHomeDir() + "bin/hdfs --daemon stop journalnode").and()
                     .nodeInstances(numOfJNs, "jn", "jn", false);
@@ -132,20 +139,10 @@ public class ReditHelper {
 
     public void startNodesInOrder() throws RuntimeEngineException {
         try {
+            // waits for the journal nodes to come up
+            runner.runtime().awaitAllReady(STARTUP_TIMEOUT);
 
-            if (numOfNNs > 1) {
-                // wait for journal nodes to come up
-                Thread.sleep(10000);
-            }
-
-            runner.runtime().startNode("nn1");
-            for (int retry=6; retry>0; retry--) {
-                Thread.sleep(5000);
-                if (isNNUp(1)) break;
-                if (retry == 1) {
-                    throw new RuntimeException("NN nn1 is not UP after 30 seconds");
-                }
-            }
+            runner.runtime().startNode("nn1").awaitReady(STARTUP_TIMEOUT);
 
             if (numOfNNs > 1) {
                 for (int nnIndex=2; nnIndex<=numOfNNs; nnIndex++) {
@@ -153,10 +150,9 @@ public class ReditHelper {
                 }
             }
 
-            for (String node : runner.runtime().nodeNames())
-                if (node.startsWith("dn")) runner.runtime().startNode(node);
-        } catch (InterruptedException e) {
-            logger.warn("startNodesInOrder sleep got interrupted");
+            runner.runtime().startNodes(NodeSelector.service("dn")).throwIfFailed();
+        } catch (TimeoutException e) {
+            throw new RuntimeException("The cluster is not UP after " + STARTUP_TIMEOUT + " seconds", e);
         }
     }
 
@@ -5,6 +5,7 @@ import io.redit.dsl.entities.Deployment;
 import io.redit.dsl.entities.PathAttr;
 import io.redit.dsl.entities.ServiceType;
 import io.redit.exceptions.RuntimeEngineException;
+import io.redit.execution.NodeSelector;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,13 +20,13 @@ public class ReditHelper {
         String dir = "hadoop-" + version;
         String tmpdir="/hadoop/hadoop-3.1.2/";
 //        return Deployment.builder("example-hdfs")
-//                .withService("zk").dockerImageName("redit/zk:3.4.14").dockerFileAddress("docker/zk", true)
+//                .withService("zk").dockerImageName("redit/zk:3.4.14").dockerFileAddress("docker/zk")
 //                .disableClockDrift().and()
 //                .withService("hadoop-base")
 //                .applicationPath("./hadoop-3.1.2-build/hadoop-dist/target/" + dir + ".tar.gz", "/hadoop", PathAttr.COMPRESSED)
 //                .applicationPath("etc", "/hadoop/" + dir + "/etc")
 //                .environmentVariable("HADOOP_HOME", "/hadoop/" + dir).environmentVariable("HADOOP_HEAPSIZE_MAX", "1g")
-//                .dockerImageName("redit/hadoop:1.0").dockerFileAddress("docker/Dockerfile", true)
+//                .dockerImageName("redit/hadoop:1.0").dockerFileAddress("docker/Dockerfile")
 //                .logDirectory("/hadoop/" + dir + "/logs").serviceType(ServiceType.JAVA).and()
 //
 //                .withService("nn", "hadoop-base")
@@ -49,12 +50,12 @@ public class ReditHelper {
 //                .node("nn1").initCommand("bin/hdfs namenode -format && bin/hdfs zkfc -formatZK").and()
 //                .build();
         return Deployment.builder("example-hdfs")
-                .withService("zk").dockerImageName("redit/zk:3.4.14").dockerFileAddress("docker/zk", true).disableClockDrift().and()
+                .withService("zk").dockerImageName("redit/zk:3.4.14").dockerFileAddress("docker/zk").disableClockDrift().and()
                 .withService("hadoop-base")
                 .applicationPath("../hadoop-3.1.2-build/hadoop-dist/target/" + dir + ".tar.gz", "/hadoop", PathAttr.COMPRESSED)
                 .applicationPath("etc", "/hadoop/" + dir + "/etc").workDir("/hadoop/" + dir)
                 .environmentVariable("HADOOP_HOME", "/hadoop/" + dir).environmentVariable("HADOOP_HEAPSIZE_MAX", "1g")
-                .dockerImageName("redit/hadoop:1.0").dockerFileAddress("docker/Dockerfile", true)
+                .dockerImageName("redit/hadoop:1.0").dockerFileAddress("docker/Dockerfile")
                 .logDirectory("/hadoop/" + dir + "/logs").serviceType(ServiceType.JAVA).and()
                 .withService("nn", "hadoop-base").initCommand(tmpdir+"bin/hdfs namenode -bootstrapStandby")
                 .startCommand(tmpdir+"bin/hdfs --daemon start zkfc && "+tmpdir+"bin/hdfs --daemon start namenode").tcpPort(50070)
@@ -74,7 +75,7 @@ public class ReditHelper {
         Thread.sleep(10000);
         runner.runtime().startNode("nn2");
         runner.runtime().startNode("nn3");
-        for (String node: runner.runtime().nodeNames()) if (node.startsWith("dn")) runner.runtime().startNode(node);
+        runner.runtime().startNodes(NodeSelector.service("dn")).throwIfFailed();
         Thread.sleep(10000);
     }
 }
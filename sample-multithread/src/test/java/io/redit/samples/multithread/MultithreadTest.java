@@ -45,13 +45,12 @@ public class MultithreadTest {
 
     @Test
     public void simpleDefinition() throws DeploymentVerificationException, RuntimeEngineException, TimeoutException, WorkspaceException {
-        //TODO: forcebuild should be true when running for first time or changing the docker setting, so annoying.
         Deployment deployment = Deployment.builder("sample-multithread")
                 // Service Definitions
                 .withServiceFromJvmClasspath("s1", "target/classes", "**commons-io*.jar")
                     .startCommand("java -cp ${REDIT_JVM_CLASSPATH} io.redit.samples.multithread.Main")
                     .dockerImageName("redit/sample-multithread")
-                    .dockerFileAddress("../sample-multithread/docker/Dockerfile", true)
+                    .dockerFileAddress("../sample-multithread/docker/Dockerfile")
                     .logFile("/var/log/sample1")
                     .logDirectory("/var/log/samples")
                     .serviceType(ServiceType.JAVA).and()